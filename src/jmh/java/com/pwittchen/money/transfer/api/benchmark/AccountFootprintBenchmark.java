@@ -0,0 +1,78 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
+import com.pwittchen.money.transfer.api.repository.offheap.OffHeapAccountRepository;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fills a repository with a large number of accounts, prints the heap used by them and
+ * measures how long a full GC takes while they are alive. The pause of an explicit
+ * full GC is proportional to the number of live objects the collector has to trace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class AccountFootprintBenchmark {
+
+  @Param({"inMemory", "offHeap"})
+  public String repository;
+
+  @Param({"10000000"})
+  public int numberOfAccounts;
+
+  private AccountRepository accountRepository;
+
+  @Setup public void setUp() {
+    final long heapBefore = usedHeap();
+    accountRepository = "offHeap".equals(repository)
+        ? new OffHeapAccountRepository()
+        : new InMemoryAccountRepository();
+
+    final Money money = Money.of(CurrencyUnit.EUR, 100);
+    for (int i = 0; i < numberOfAccounts; i++) {
+      accountRepository.create(Account
+          .builder()
+          .number(UUID.randomUUID().toString())
+          .owner("owner" + i)
+          .money(money.plusMinor(i))
+          .createdAt(LocalDateTime.now())
+          .build());
+    }
+
+    final long heapAfter = usedHeap();
+    System.out.println(String.format("%n%s: %d accounts, heap used by accounts: %d MB",
+        repository, numberOfAccounts, (heapAfter - heapBefore) / (1024 * 1024)));
+  }
+
+  @Benchmark public void fullGc() {
+    System.gc();
+  }
+
+  private static long usedHeap() {
+    System.gc();
+    final MemoryUsage usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    return usage.getUsed();
+  }
+}
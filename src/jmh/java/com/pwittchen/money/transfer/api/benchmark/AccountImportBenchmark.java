@@ -0,0 +1,62 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultImportAccountsCommand;
+import com.pwittchen.money.transfer.api.model.ImportFormat;
+import com.pwittchen.money.transfer.api.model.ImportResult;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Import of a CSV file into an empty striped repository. Time per import grows linearly with
+ * the number of accounts, because duplicates are rejected by {@code createIfAbsent} and not
+ * by scanning all accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccountImportBenchmark {
+
+  @Param({"100000", "500000"})
+  private int accounts;
+
+  private String csv;
+  private ImportAccountsCommand importAccountsCommand;
+
+  @Setup(Level.Trial) public void setUpInput() {
+    final StringBuilder builder = new StringBuilder("number,owner,currency,money\n");
+    for (int i = 0; i < accounts; i++) {
+      builder.append("AC").append(i).append(",owner,EUR,100.00\n");
+    }
+    csv = builder.toString();
+  }
+
+  @Setup(Level.Iteration) public void setUpRepository() {
+    final AccountRepository accountRepository = new StripedAccountRepository();
+    importAccountsCommand = new DefaultImportAccountsCommand(
+        new DefaultCreateAccountCommand(accountRepository)
+    );
+  }
+
+  @Benchmark public ImportResult importCsv() {
+    return importAccountsCommand.run(new StringReader(csv), ImportFormat.CSV);
+  }
+}
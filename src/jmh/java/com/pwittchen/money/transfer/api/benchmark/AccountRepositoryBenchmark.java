@@ -0,0 +1,74 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfers between random pairs of accounts. Run it with different thread counts
+ * to compare how repositories scale, e.g. {@code ./gradlew jmh -PjmhThreads=16}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountRepositoryBenchmark {
+
+  private static final int NUMBER_OF_ACCOUNTS = 1024;
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money AMOUNT = Money.of(CurrencyUnit.EUR, 1);
+
+  @Param({"inMemory", "striped"})
+  public String repository;
+
+  private AccountRepository accountRepository;
+  private String[] numbers;
+
+  @Setup public void setUp() {
+    accountRepository = "striped".equals(repository)
+        ? new StripedAccountRepository()
+        : new InMemoryAccountRepository();
+
+    numbers = new String[NUMBER_OF_ACCOUNTS];
+    for (int i = 0; i < NUMBER_OF_ACCOUNTS; i++) {
+      numbers[i] = "AC" + i;
+      accountRepository.create(Account
+          .builder()
+          .number(numbers[i])
+          .owner("owner" + i)
+          .money(INITIAL_BALANCE)
+          .createdAt(LocalDateTime.now())
+          .build());
+    }
+  }
+
+  @Benchmark public void transfer() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int from = random.nextInt(NUMBER_OF_ACCOUNTS);
+    final int to = (from + 1 + random.nextInt(NUMBER_OF_ACCOUNTS - 1)) % NUMBER_OF_ACCOUNTS;
+    accountRepository.transfer(
+        accountRepository.get(numbers[from]).get(),
+        accountRepository.get(numbers[to]).get(),
+        AMOUNT
+    );
+  }
+}
@@ -0,0 +1,136 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.AccountBalance;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.query.TransactionFilter;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.index.IndexedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading a page of transactions of a random account from the per-account index with
+ * scanning the whole history for them, and prints the memory taken by the index per indexed
+ * transaction. Measures a balance of a random account at a random time in the history as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AccountTransactionsBenchmark {
+
+  private static final int CHUNK = 10_000;
+  private static final int PAGE_SIZE = 100;
+
+  @Param({"1000000"})
+  public int numberOfTransactions;
+
+  @Param({"10000"})
+  public int numberOfAccounts;
+
+  private IndexedTransactionRepository transactionRepository;
+  private DefaultGetAllTransactionsQuery query;
+  private DefaultGetAccountBalanceQuery balanceQuery;
+  private LocalDateTime createdAt;
+
+  @Setup public void setUp() {
+    transactionRepository = new IndexedTransactionRepository(new InMemoryTransactionRepository());
+    query = new DefaultGetAllTransactionsQuery(
+        transactionRepository, transactionRepository.index()
+    );
+
+    final Money money = Money.of(CurrencyUnit.EUR, 10);
+    createdAt = LocalDateTime.now();
+    final AccountRepository accountRepository = new InMemoryAccountRepository();
+    for (int i = 0; i < numberOfAccounts; i++) {
+      accountRepository.create(Account
+          .builder()
+          .number("AC" + i)
+          .money(Money.of(CurrencyUnit.EUR, 1_000_000))
+          .createdAt(createdAt.minusDays(1))
+          .build());
+    }
+    transactionRepository.addAccounts(accountRepository.iterator());
+    balanceQuery = new DefaultGetAccountBalanceQuery(
+        accountRepository, transactionRepository, transactionRepository.index()
+    );
+
+    final List<Transaction> chunk = new ArrayList<>(CHUNK);
+    for (int i = 0; i < numberOfTransactions; i++) {
+      chunk.add(Transaction
+          .builder()
+          .id("TR" + i)
+          .from("AC" + ThreadLocalRandom.current().nextInt(numberOfAccounts))
+          .to("AC" + ThreadLocalRandom.current().nextInt(numberOfAccounts))
+          .money(money)
+          .createdAt(createdAt.plusSeconds(i))
+          .build());
+      if (chunk.size() == CHUNK) {
+        transactionRepository.createAll(chunk);
+        chunk.clear();
+      }
+    }
+    transactionRepository.createAll(chunk);
+
+    final TransactionIndex index = transactionRepository.index();
+    System.out.println(String.format(
+        "%n%d transactions of %d accounts, index: %d MB, %d bytes per transaction",
+        index.size(), index.accounts(), index.memory() / (1024 * 1024),
+        index.memory() / index.size()));
+  }
+
+  @Benchmark public TransactionPage indexedPage() {
+    final TransactionFilter filter = TransactionFilter.builder().account(randomAccount()).build();
+    return query.run(filter, null, PAGE_SIZE);
+  }
+
+  @Benchmark public List<Transaction> scan() {
+    final String account = randomAccount();
+    final List<Transaction> transactions = new ArrayList<>(PAGE_SIZE);
+    for (Transaction transaction : transactionRepository.getAll()) {
+      if (account.equals(transaction.from()) || account.equals(transaction.to())) {
+        transactions.add(transaction);
+        if (transactions.size() == PAGE_SIZE) {
+          break;
+        }
+      }
+    }
+    return transactions;
+  }
+
+  @Benchmark public Optional<AccountBalance> balanceAsOf() {
+    final LocalDateTime asOf =
+        createdAt.plusSeconds(ThreadLocalRandom.current().nextInt(numberOfTransactions));
+    return balanceQuery.run(randomAccount(), asOf);
+  }
+
+  private String randomAccount() {
+    return "AC" + ThreadLocalRandom.current().nextInt(numberOfAccounts);
+  }
+}
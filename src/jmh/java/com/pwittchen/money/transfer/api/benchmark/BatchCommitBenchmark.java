@@ -0,0 +1,123 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitTransactionBatchCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionResult;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Commits a given number of transfers either one by one or as a single batch. In the payroll
+ * workload, salaries are paid from a single employer account to one employee each. In the
+ * settlement workload, money goes back and forth between a small group of accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchCommitBenchmark {
+
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money SALARY = Money.of(CurrencyUnit.EUR, 1);
+  private static final String EMPLOYER = "EMPLOYER";
+  private static final int SETTLEMENT_ACCOUNTS = 16;
+
+  @Param({"50000"})
+  public int numberOfTransfers;
+
+  @Param({"payroll", "settlement"})
+  public String workload;
+
+  private TransactionRepository transactionRepository;
+  private CommitTransactionCommand commitTransactionCommand;
+  private CommitTransactionBatchCommand commitTransactionBatchCommand;
+  private List<Transaction> transactions;
+
+  @Setup public void setUp() {
+    final AccountRepository accountRepository = new StripedAccountRepository();
+    final AccountLocks accountLocks = new AccountLocks();
+    transactionRepository = new InMemoryTransactionRepository();
+    commitTransactionCommand = new OrderedLockCommitTransactionCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+    commitTransactionBatchCommand = new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+
+    accountRepository.create(createAccount(EMPLOYER));
+    for (int i = 0; i < numberOfTransfers; i++) {
+      accountRepository.create(createAccount("EMPLOYEE" + i));
+    }
+    for (int i = 0; i < SETTLEMENT_ACCOUNTS; i++) {
+      accountRepository.create(createAccount("MEMBER" + i));
+    }
+  }
+
+  @Setup(Level.Invocation) public void createTransactions() {
+    transactionRepository.clear();
+    transactions = new ArrayList<>(numberOfTransfers);
+    final Random random = new Random(numberOfTransfers);
+    for (int i = 0; i < numberOfTransfers; i++) {
+      final boolean payroll = "payroll".equals(workload);
+      final int from = random.nextInt(SETTLEMENT_ACCOUNTS);
+      final int to = (from + 1 + random.nextInt(SETTLEMENT_ACCOUNTS - 1)) % SETTLEMENT_ACCOUNTS;
+      transactions.add(Transaction
+          .builder()
+          .id("TR" + i)
+          .from(payroll ? EMPLOYER : "MEMBER" + from)
+          .to(payroll ? "EMPLOYEE" + i : "MEMBER" + to)
+          .money(SALARY)
+          .createdAt(LocalDateTime.now())
+          .build());
+    }
+  }
+
+  @Benchmark public List<Transaction> commitOneByOne() {
+    for (Transaction transaction : transactions) {
+      commitTransactionCommand.run(transaction);
+    }
+    return transactions;
+  }
+
+  @Benchmark public List<TransactionResult> commitBatch() {
+    return commitTransactionBatchCommand.run(transactions);
+  }
+
+  private Account createAccount(final String number) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("owner")
+        .money(INITIAL_BALANCE)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
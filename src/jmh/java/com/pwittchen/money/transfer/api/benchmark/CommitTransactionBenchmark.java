@@ -0,0 +1,141 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.TransferConflictException;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OptimisticCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.SequencedCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.OptimisticAccountRepository;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Commits transfers back and forth between a single pair of accounts (hot pair)
+ * and samples latency of each commit, so the percentiles (p50, p99, ...)
+ * are reported next to the average. The optimistic strategy also prints the number of
+ * compare-and-swap conflicts and retries per commit at the end of the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class CommitTransactionBenchmark {
+
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money AMOUNT = Money.of(CurrencyUnit.EUR, 1);
+  private static final String SENDER = "AC1";
+  private static final String RECEIVER = "AC2";
+
+  @Param({"default", "orderedLock", "sequenced", "optimistic"})
+  public String strategy;
+
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private CommitTransactionCommand commitTransactionCommand;
+
+  @Setup public void setUp() {
+    accountRepository = strategy.equals("optimistic")
+        ? new OptimisticAccountRepository()
+        : new InMemoryAccountRepository();
+    transactionRepository = new InMemoryTransactionRepository();
+    commitTransactionCommand = createCommand();
+
+    accountRepository.create(createAccount(SENDER));
+    accountRepository.create(createAccount(RECEIVER));
+  }
+
+  @TearDown public void tearDown() {
+    if (commitTransactionCommand instanceof SequencedCommitTransactionCommand) {
+      ((SequencedCommitTransactionCommand) commitTransactionCommand).close();
+    }
+    if (accountRepository instanceof OptimisticAccountRepository) {
+      printConflicts((OptimisticAccountRepository) accountRepository);
+    }
+  }
+
+  @Setup(Level.Iteration) public void clearTransactions() {
+    transactionRepository.clear();
+  }
+
+  @Benchmark public Transaction commit() {
+    final boolean forward = ThreadLocalRandom.current().nextBoolean();
+    final Transaction transaction = Transaction
+        .builder()
+        .id(UUID.randomUUID().toString())
+        .from(forward ? SENDER : RECEIVER)
+        .to(forward ? RECEIVER : SENDER)
+        .money(AMOUNT)
+        .createdAt(LocalDateTime.now())
+        .build();
+    try {
+      commitTransactionCommand.run(transaction);
+    } catch (TransferConflictException exception) {
+      // transfer aborted after too many conflicts, it's counted by the repository
+    }
+    return transaction;
+  }
+
+  private CommitTransactionCommand createCommand() {
+    switch (strategy) {
+      case "orderedLock":
+        return new OrderedLockCommitTransactionCommand(accountRepository, transactionRepository);
+      case "sequenced":
+        return new SequencedCommitTransactionCommand(accountRepository, transactionRepository);
+      case "optimistic":
+        return new OptimisticCommitTransactionCommand(accountRepository, transactionRepository);
+      default:
+        return new DefaultCommitTransactionCommand(accountRepository, transactionRepository);
+    }
+  }
+
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  private void printConflicts(final OptimisticAccountRepository repository) {
+    // every commit increments versions of both accounts
+    final long commits = (repository.get(SENDER).get().version()
+        + repository.get(RECEIVER).get().version()) / 2;
+    System.out.printf("%ncommits: %d, conflicts: %d (%.4f per commit), retries: %d, aborted: %d%n",
+        commits,
+        repository.conflicts(),
+        (double) repository.conflicts() / Math.max(1, commits),
+        repository.retries(),
+        repository.conflicts() - repository.retries());
+  }
+
+  private Account createAccount(final String number) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("owner")
+        .money(INITIAL_BALANCE)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,129 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import com.pwittchen.money.transfer.api.repository.wal.DurableAccountRepository;
+import com.pwittchen.money.transfer.api.repository.wal.DurableTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.wal.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Durable commits of transfers between random accounts on 32 threads. Group size of one
+ * syncs every commit on its own, bigger groups let concurrent commits share a sync.
+ * The log is written to {@code wal.directory} (temporary directory by default), which should
+ * be on the disk being measured, and the number of commits per sync is printed at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(32)
+@Fork(1)
+public class DurableCommitBenchmark {
+
+  private static final int NUMBER_OF_ACCOUNTS = 1024;
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money AMOUNT = Money.of(CurrencyUnit.EUR, 1);
+
+  @Param({"1", "256"})
+  public int groupSize;
+
+  @Param({"0"})
+  public int groupDelayMicros;
+
+  private Path directory;
+  private WriteAheadLog writeAheadLog;
+  private TransactionRepository transactionRepository;
+  private CommitTransactionCommand commitTransactionCommand;
+
+  @Setup public void setUp() throws IOException {
+    final String parent = System.getProperty("wal.directory");
+    directory = parent == null
+        ? Files.createTempDirectory("wal")
+        : Files.createTempDirectory(Paths.get(parent), "wal");
+    writeAheadLog = WriteAheadLog.open(
+        directory, groupSize, groupDelayMicros, TimeUnit.MICROSECONDS
+    );
+    final AccountRepository accountRepository = new DurableAccountRepository(
+        new StripedAccountRepository(), writeAheadLog
+    );
+    transactionRepository = new DurableTransactionRepository(
+        new InMemoryTransactionRepository(), writeAheadLog
+    );
+    commitTransactionCommand = new OrderedLockCommitTransactionCommand(
+        accountRepository, transactionRepository
+    );
+
+    for (int i = 0; i < NUMBER_OF_ACCOUNTS; i++) {
+      accountRepository.create(Account
+          .builder()
+          .number("AC" + i)
+          .owner("owner")
+          .money(INITIAL_BALANCE)
+          .createdAt(LocalDateTime.now())
+          .build());
+    }
+  }
+
+  @TearDown public void tearDown() throws IOException {
+    System.out.printf("%nrecords: %d, syncs: %d, records per sync: %.1f%n",
+        writeAheadLog.records(), writeAheadLog.syncs(),
+        (double) writeAheadLog.records() / writeAheadLog.syncs());
+    writeAheadLog.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Setup(Level.Iteration) public void clearTransactions() {
+    transactionRepository.clear();
+  }
+
+  @Benchmark public Transaction commit() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int from = random.nextInt(NUMBER_OF_ACCOUNTS);
+    final int to = (from + 1 + random.nextInt(NUMBER_OF_ACCOUNTS - 1)) % NUMBER_OF_ACCOUNTS;
+    final Transaction transaction = Transaction
+        .builder()
+        .id(UUID.randomUUID().toString())
+        .from("AC" + from)
+        .to("AC" + to)
+        .money(AMOUNT)
+        .createdAt(LocalDateTime.now())
+        .build();
+    commitTransactionCommand.run(transaction);
+    return transaction;
+  }
+}
@@ -0,0 +1,83 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.inmemory.OptimisticAccountRepository;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Every thread transfers money from its own account to a single hot account (e.g. a merchant
+ * or a fee account), which is split into the given number of sub-balances. With one
+ * sub-balance, all credits swap the same snapshot and throughput doesn't grow with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class HotAccountBenchmark {
+
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money MONEY = Money.of(CurrencyUnit.EUR, 0.01);
+  private static final String HOT_ACCOUNT = "HOT";
+
+  @Param({"1", "4", "16"})
+  public int shards;
+
+  private final AtomicInteger senders = new AtomicInteger();
+  private OptimisticAccountRepository accountRepository;
+  private Account hotAccount;
+
+  @Setup public void setUp() {
+    accountRepository = new OptimisticAccountRepository(Integer.MAX_VALUE);
+    hotAccount = createAccount(HOT_ACCOUNT, Money.zero(CurrencyUnit.EUR));
+    accountRepository.create(hotAccount);
+    accountRepository.split(HOT_ACCOUNT, shards);
+  }
+
+  @TearDown public void tearDown() {
+    System.out.printf("%nshards: %d, conflicts: %d%n", shards, accountRepository.conflicts());
+  }
+
+  @State(Scope.Thread)
+  public static class Sender {
+    private Account account;
+
+    @Setup public void setUp(final HotAccountBenchmark benchmark) {
+      account = createAccount("SENDER" + benchmark.senders.getAndIncrement(), INITIAL_BALANCE);
+      benchmark.accountRepository.create(account);
+    }
+  }
+
+  @Benchmark public void transferToHotAccount(final Sender sender) {
+    accountRepository.transfer(sender.account, hotAccount, MONEY);
+  }
+
+  private static Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("owner")
+        .money(money)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
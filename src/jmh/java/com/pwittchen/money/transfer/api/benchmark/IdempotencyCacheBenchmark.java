@@ -0,0 +1,61 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.controller.idempotency.CachedResponse;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups of retried requests (hit) and of new requests (miss), which insert a response
+ * and evict the oldest one from a full cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class IdempotencyCacheBenchmark {
+
+  private static final int MAX_ENTRIES = 100_000;
+  private static final String FINGERPRINT = "AC1|AC2|EUR|10.00";
+  private static final CachedResponse RESPONSE = new CachedResponse("TR1", 200);
+
+  private final AtomicLong keys = new AtomicLong();
+  private IdempotencyCache cache;
+
+  @Setup public void setUp() {
+    cache = new IdempotencyCache(1, TimeUnit.HOURS, MAX_ENTRIES);
+    for (int i = 0; i < MAX_ENTRIES; i++) {
+      cache.get("KEY" + i, FINGERPRINT, () -> RESPONSE);
+    }
+  }
+
+  @TearDown public void tearDown() {
+    System.out.printf("%nentries: %d, memory: %d KiB, hit rate: %.3f, evictions: %d%n",
+        cache.size(), cache.memory() / 1024, cache.hitRate(), cache.evictions());
+  }
+
+  @Benchmark public CachedResponse hit() {
+    final int key = ThreadLocalRandom.current().nextInt(MAX_ENTRIES / 2);
+    return cache.get("KEY" + (MAX_ENTRIES - 1 - key), FINGERPRINT, () -> RESPONSE);
+  }
+
+  @Benchmark public CachedResponse miss() {
+    return cache.get("NEW" + keys.incrementAndGet(), FINGERPRINT, () -> RESPONSE);
+  }
+}
@@ -0,0 +1,165 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.google.gson.JsonParser;
+import com.pwittchen.money.transfer.api.Application;
+import com.pwittchen.money.transfer.api.configuration.option.Options;
+import io.javalin.Javalin;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local load generator, which measures how many transfers the server keeps in flight and how
+ * much memory each of them costs, when requests are handled on platform threads (default)
+ * or on virtual threads ({@code -Dserver.threads=virtual}, requires Java 21).
+ *
+ * The server runs in the same JVM. Every transfer is held for {@code load.latency} ms inside
+ * the request handler, which stands for blocking I/O of the commit, and an asynchronous client
+ * keeps {@code load.concurrency} requests outstanding for {@code load.duration} seconds.
+ * Memory per request is the growth of the resident set size of the process (or of the used heap,
+ * when it can't be read) from idle to peak load, divided by the peak number of requests inside
+ * handlers. The client part of that growth is the same in both modes.
+ */
+public final class InFlightLoadGenerator {
+
+  private static final int PORT = Options.getInt("load.port", 8200);
+  private static final int CONCURRENCY = Options.getInt("load.concurrency", 2000);
+  private static final int LATENCY_MS = Options.getInt("load.latency", 500);
+  private static final int DURATION_S = Options.getInt("load.duration", 10);
+  private static final Path STATUS = Paths.get("/proc/self/status");
+
+  private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+  private static final AtomicInteger PEAK_IN_FLIGHT = new AtomicInteger();
+  private static final AtomicLong PEAK_MEMORY = new AtomicLong();
+  private static final AtomicInteger PEAK_THREADS = new AtomicInteger();
+  private static final AtomicInteger COMMITTED = new AtomicInteger();
+  private static final AtomicInteger FAILED = new AtomicInteger();
+
+  private InFlightLoadGenerator() {
+  }
+
+  public static void main(String args[]) throws Exception {
+    System.setProperty("org.slf4j.simpleLogger.defaultLogLevel", "warn");
+    final String[] serverArgs = new String[args.length + 1];
+    serverArgs[0] = String.valueOf(PORT);
+    System.arraycopy(args, 0, serverArgs, 1, args.length);
+    final Javalin app = Application.start(serverArgs);
+
+    app.before("/transaction", context -> {
+      if (context.method().equals("POST")) {
+        PEAK_IN_FLIGHT.accumulateAndGet(IN_FLIGHT.incrementAndGet(), Math::max);
+        Thread.sleep(LATENCY_MS);
+      }
+    });
+    app.after("/transaction", context -> {
+      if (context.method().equals("POST")) {
+        IN_FLIGHT.decrementAndGet();
+      }
+    });
+
+    final HttpClient client = HttpClient
+        .newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .build();
+    final String from = createAccount(client);
+    final String to = createAccount(client);
+    final HttpRequest transfer = post("/transaction",
+        String.format("from=%s&to=%s&currency=EUR&money=0.01", from, to));
+
+    System.gc();
+    final long idleMemory = memory();
+    final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+    sampler.scheduleAtFixedRate(() -> {
+      PEAK_MEMORY.accumulateAndGet(memory(), Math::max);
+      PEAK_THREADS.accumulateAndGet(
+          ManagementFactory.getThreadMXBean().getThreadCount(), Math::max
+      );
+    }, 0, 100, TimeUnit.MILLISECONDS);
+
+    final Semaphore outstanding = new Semaphore(CONCURRENCY);
+    final long stopTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_S);
+    while (System.nanoTime() < stopTime) {
+      outstanding.acquire();
+      client
+          .sendAsync(transfer, HttpResponse.BodyHandlers.discarding())
+          .whenComplete((response, error) -> {
+            if (error == null && response.statusCode() == 200) {
+              COMMITTED.incrementAndGet();
+            } else {
+              FAILED.incrementAndGet();
+            }
+            outstanding.release();
+          });
+    }
+    outstanding.acquire(CONCURRENCY);
+    sampler.shutdown();
+    app.stop();
+
+    final long memoryPerRequest = (PEAK_MEMORY.get() - idleMemory) / PEAK_IN_FLIGHT.get();
+    System.out.printf("threads: %s, concurrency: %d, latency: %d ms, duration: %d s%n",
+        Arrays.asList(args).contains("--virtual-threads")
+            ? "virtual"
+            : System.getProperty("server.threads", "platform"),
+        CONCURRENCY, LATENCY_MS, DURATION_S);
+    System.out.printf("committed: %d, failed: %d, throughput: %d ops/s%n",
+        COMMITTED.get(), FAILED.get(), COMMITTED.get() / DURATION_S);
+    System.out.printf("peak in-flight transfers: %d, peak JVM threads: %d%n",
+        PEAK_IN_FLIGHT.get(), PEAK_THREADS.get());
+    System.out.printf("memory: idle %d KiB, peak %d KiB, %d KiB per in-flight request%n",
+        idleMemory / 1024, PEAK_MEMORY.get() / 1024, memoryPerRequest / 1024);
+    System.exit(0);
+  }
+
+  private static String createAccount(final HttpClient client) throws Exception {
+    final HttpRequest request = post("/account",
+        "owner=load&currency=EUR&money=1000000000");
+    final String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    return JsonParser
+        .parseString(body)
+        .getAsJsonObject()
+        .getAsJsonObject("value")
+        .get("number")
+        .getAsString();
+  }
+
+  private static HttpRequest post(final String path, final String form) {
+    return HttpRequest
+        .newBuilder(URI.create(String.format("http://localhost:%d%s", PORT, path)))
+        .timeout(Duration.ofMinutes(1))
+        .header("Content-Type", "application/x-www-form-urlencoded")
+        .POST(HttpRequest.BodyPublishers.ofString(form))
+        .build();
+  }
+
+  /**
+   * Returns the resident set size of the process, which includes stacks of platform threads,
+   * or the used heap, when the size can't be read.
+   */
+  private static long memory() {
+    try {
+      for (String line : Files.readAllLines(STATUS)) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+        }
+      }
+    } catch (IOException | NumberFormatException exception) {
+      // falls back to the heap below
+    }
+    final Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,121 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.jdbc.ConnectionPool;
+import com.pwittchen.money.transfer.api.repository.jdbc.JdbcAccountRepository;
+import com.pwittchen.money.transfer.api.repository.jdbc.JdbcTransactionRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Transfers between random pairs of accounts kept in an embedded H2 database in a file,
+ * with the transaction recorded in the same database, from 8 threads sharing connection
+ * pools of different sizes. Inserting transactions in batches is measured separately.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class JdbcTransferBenchmark {
+
+  private static final int NUMBER_OF_ACCOUNTS = 1024;
+  private static final int BATCH_SIZE = 100;
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money AMOUNT = Money.of(CurrencyUnit.EUR, 1);
+
+  @Param({"1", "2", "4", "8"})
+  public int poolSize;
+
+  private Path directory;
+  private ConnectionPool connectionPool;
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private Account[] accounts;
+
+  @Setup public void setUp() throws IOException, SQLException {
+    directory = Files.createTempDirectory("jdbc");
+    connectionPool = ConnectionPool.open(
+        "jdbc:h2:" + directory.resolve("ledger") + ";LOCK_TIMEOUT=10000", poolSize
+    );
+    accountRepository = new JdbcAccountRepository(connectionPool);
+    transactionRepository = new JdbcTransactionRepository(connectionPool);
+
+    accounts = new Account[NUMBER_OF_ACCOUNTS];
+    for (int i = 0; i < NUMBER_OF_ACCOUNTS; i++) {
+      accounts[i] = Account
+          .builder()
+          .number("AC" + i)
+          .owner("owner" + i)
+          .money(INITIAL_BALANCE)
+          .createdAt(LocalDateTime.now())
+          .build();
+      accountRepository.create(accounts[i]);
+    }
+  }
+
+  @TearDown public void tearDown() throws IOException {
+    connectionPool.close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark public Transaction transfer() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final int from = random.nextInt(NUMBER_OF_ACCOUNTS);
+    final int to = (from + 1 + random.nextInt(NUMBER_OF_ACCOUNTS - 1)) % NUMBER_OF_ACCOUNTS;
+    accountRepository.transfer(accounts[from], accounts[to], AMOUNT);
+    return transactionRepository.create(transaction(from, to));
+  }
+
+  @Benchmark public List<Transaction> insertBatch() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final List<Transaction> transactions = new ArrayList<>(BATCH_SIZE);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      transactions.add(transaction(random.nextInt(NUMBER_OF_ACCOUNTS), 0));
+    }
+    return transactionRepository.createAll(transactions);
+  }
+
+  private Transaction transaction(final int from, final int to) {
+    return Transaction
+        .builder()
+        .id(UUID.randomUUID().toString())
+        .from(accounts[from].number())
+        .to(accounts[to].number())
+        .money(AMOUNT)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
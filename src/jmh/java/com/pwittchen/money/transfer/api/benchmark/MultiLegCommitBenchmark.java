@@ -0,0 +1,147 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Splits a marketplace payment into seller amount, platform fee and tax, either as one
+ * multi-leg transaction or as three separate transactions. Every thread pays from its own
+ * group of accounts (disjoint) or all threads pay from the same group (shared).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MultiLegCommitBenchmark {
+
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money PRICE = Money.of(CurrencyUnit.EUR, 0.90);
+  private static final Money FEE = Money.of(CurrencyUnit.EUR, 0.08);
+  private static final Money TAX = Money.of(CurrencyUnit.EUR, 0.02);
+  private static final int MAX_GROUPS = 256;
+
+  @Param({"multiLeg", "separate"})
+  public String mode;
+
+  @Param({"disjoint", "shared"})
+  public String accounts;
+
+  private final AtomicInteger groups = new AtomicInteger();
+  private TransactionRepository transactionRepository;
+  private CommitTransactionCommand commitTransactionCommand;
+  private CommitMultiLegTransactionCommand commitMultiLegTransactionCommand;
+
+  @Setup public void setUp() {
+    final AccountRepository accountRepository = new StripedAccountRepository();
+    final AccountLocks accountLocks = new AccountLocks();
+    transactionRepository = new InMemoryTransactionRepository();
+    commitTransactionCommand = new OrderedLockCommitTransactionCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+    commitMultiLegTransactionCommand = new DefaultCommitMultiLegTransactionCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+
+    for (int group = 0; group < MAX_GROUPS; group++) {
+      for (String role : List.of("BUYER", "SELLER", "PLATFORM", "TAX")) {
+        accountRepository.create(createAccount(role + group));
+      }
+    }
+  }
+
+  @Setup(Level.Iteration) public void clearTransactions() {
+    transactionRepository.clear();
+  }
+
+  @State(Scope.Thread)
+  public static class Group {
+    private String buyer;
+    private String seller;
+    private String platform;
+    private String tax;
+
+    @Setup public void setUp(final MultiLegCommitBenchmark benchmark) {
+      final int group = benchmark.accounts.equals("shared")
+          ? 0
+          : benchmark.groups.getAndIncrement() % MAX_GROUPS;
+      buyer = "BUYER" + group;
+      seller = "SELLER" + group;
+      platform = "PLATFORM" + group;
+      tax = "TAX" + group;
+    }
+  }
+
+  @Benchmark public void pay(final Group group) {
+    if (mode.equals("multiLeg")) {
+      commitMultiLegTransactionCommand.run(Transaction
+          .builder()
+          .id(UUID.randomUUID().toString())
+          .legs(List.of(
+              new TransactionLeg(group.buyer, group.seller, PRICE),
+              new TransactionLeg(group.buyer, group.platform, FEE),
+              new TransactionLeg(group.buyer, group.tax, TAX)
+          ))
+          .createdAt(LocalDateTime.now())
+          .build());
+    } else {
+      commitTransactionCommand.run(createTransaction(group.buyer, group.seller, PRICE));
+      commitTransactionCommand.run(createTransaction(group.buyer, group.platform, FEE));
+      commitTransactionCommand.run(createTransaction(group.buyer, group.tax, TAX));
+    }
+  }
+
+  private static Transaction createTransaction(final String from, final String to,
+      final Money money) {
+    return Transaction
+        .builder()
+        .id(UUID.randomUUID().toString())
+        .from(from)
+        .to(to)
+        .money(money)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+
+  private static Account createAccount(final String number) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("owner")
+        .money(INITIAL_BALANCE)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,133 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import com.pwittchen.money.transfer.api.repository.wal.Snapshotter;
+import com.pwittchen.money.transfer.api.repository.wal.WalRecord;
+import com.pwittchen.money.transfer.api.repository.wal.WalRecovery;
+import com.pwittchen.money.transfer.api.repository.wal.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to restore balances of all accounts at startup. The log holds the accounts, then
+ * {@code history} transactions and then {@code tail} transactions. With a snapshot taken
+ * after the history, only the tail is replayed; without it, the whole log is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RecoveryBenchmark {
+
+  private static final int CHUNK = 10_000;
+  private static final Money AMOUNT = Money.of(CurrencyUnit.EUR, 1);
+
+  @Param({"1000000"})
+  public int accounts;
+
+  @Param({"2000000"})
+  public int history;
+
+  @Param({"100000"})
+  public int tail;
+
+  @Param({"true", "false"})
+  public boolean snapshot;
+
+  private Path directory;
+
+  @Setup public void setUp() throws IOException {
+    directory = Files.createTempDirectory("recovery");
+    try (WriteAheadLog writeAheadLog = open()) {
+      final List<WalRecord> records = new ArrayList<>(CHUNK);
+      for (int i = 0; i < accounts; i++) {
+        records.add(WalRecord.of(Account
+            .builder()
+            .number("AC" + i)
+            .owner("owner")
+            .money(Money.of(CurrencyUnit.EUR, 1_000_000))
+            .createdAt(LocalDateTime.now())
+            .build()));
+        flush(writeAheadLog, records, false);
+      }
+      flush(writeAheadLog, records, true);
+
+      final Random random = new Random(1);
+      appendTransactions(writeAheadLog, records, random, history);
+      if (snapshot) {
+        new Snapshotter(writeAheadLog, new InMemoryTransactionRepository()).snapshot();
+      }
+      appendTransactions(writeAheadLog, records, random, tail);
+    }
+  }
+
+  @TearDown public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark public long recover() throws IOException {
+    try (WriteAheadLog writeAheadLog = open()) {
+      final AccountRepository accountRepository = new StripedAccountRepository();
+      return WalRecovery.recoverAccounts(writeAheadLog, accountRepository);
+    }
+  }
+
+  private WriteAheadLog open() throws IOException {
+    return WriteAheadLog.open(directory, CHUNK, 0, TimeUnit.MICROSECONDS);
+  }
+
+  private void appendTransactions(final WriteAheadLog writeAheadLog,
+      final List<WalRecord> records, final Random random, final int count) {
+    for (int i = 0; i < count; i++) {
+      final int from = random.nextInt(accounts);
+      records.add(WalRecord.of(Transaction
+          .builder()
+          .id("TR" + i)
+          .from("AC" + from)
+          .to("AC" + (from + 1) % accounts)
+          .money(AMOUNT)
+          .createdAt(LocalDateTime.now())
+          .build()));
+      flush(writeAheadLog, records, false);
+    }
+    flush(writeAheadLog, records, true);
+  }
+
+  private static void flush(final WriteAheadLog writeAheadLog, final List<WalRecord> records,
+      final boolean force) {
+    if (records.size() == CHUNK || (force && !records.isEmpty())) {
+      writeAheadLog.appendAll(records);
+      records.clear();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.MappedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.TieredTransactionRepository;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fills a transaction repository with a long history, prints the heap used by it and
+ * measures a full GC while it's alive, as well as a scan of the whole history. The tiered
+ * history keeps the most recent 100k transactions in memory and prints the size of the rest
+ * compressed on disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TransactionFootprintBenchmark {
+
+  private static final int CHUNK = 10_000;
+
+  @Param({"inMemory", "mapped", "tiered"})
+  public String repository;
+
+  @Param({"5000000"})
+  public int numberOfTransactions;
+
+  private TransactionRepository transactionRepository;
+  private Path directory;
+
+  @Setup public void setUp() throws IOException {
+    final long heapBefore = usedHeap();
+    if ("mapped".equals(repository)) {
+      directory = Files.createTempDirectory("journal");
+      transactionRepository = MappedTransactionRepository.open(directory);
+    } else if ("tiered".equals(repository)) {
+      directory = Files.createTempDirectory("history");
+      transactionRepository = TieredTransactionRepository.open(
+          directory, TieredTransactionRepository.DEFAULT_HOT_CAPACITY, 1, TimeUnit.HOURS
+      );
+    } else {
+      transactionRepository = new InMemoryTransactionRepository();
+    }
+
+    final Money money = Money.of(CurrencyUnit.EUR, 10);
+    final List<Transaction> chunk = new ArrayList<>(CHUNK);
+    for (int i = 0; i < numberOfTransactions; i++) {
+      chunk.add(Transaction
+          .builder()
+          .id(UUID.randomUUID().toString())
+          .from("AC" + i % 1000)
+          .to("AC" + (i + 1) % 1000)
+          .money(money)
+          .createdAt(LocalDateTime.now())
+          .build());
+      if (chunk.size() == CHUNK) {
+        transactionRepository.createAll(chunk);
+        chunk.clear();
+      }
+    }
+    transactionRepository.createAll(chunk);
+
+    final long heapAfter = usedHeap();
+    System.out.println(String.format("%n%s: %d transactions, heap used by transactions: %d MB",
+        repository, numberOfTransactions, (heapAfter - heapBefore) / (1024 * 1024)));
+    if (transactionRepository instanceof TieredTransactionRepository) {
+      System.out.println(String.format("compressed on disk: %d MB",
+          ((TieredTransactionRepository) transactionRepository).coldBytes() / (1024 * 1024)));
+    }
+  }
+
+  @TearDown public void tearDown() throws IOException {
+    if (directory == null) {
+      return;
+    }
+    ((Closeable) transactionRepository).close();
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Benchmark public void fullGc() {
+    System.gc();
+  }
+
+  @Benchmark public long scanHistory() {
+    long minorUnits = 0;
+    for (Transaction transaction : transactionRepository.getAll()) {
+      minorUnits += transaction.money().getAmountMinorLong();
+    }
+    return minorUnits;
+  }
+
+  private static long usedHeap() {
+    System.gc();
+    final MemoryUsage usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+    return usage.getUsed();
+  }
+}
@@ -0,0 +1,95 @@
+package com.pwittchen.money.transfer.api.benchmark;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.MinorUnitAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of a single debit and credit in the account repositories.
+ * Run it with the GC profiler to get allocated bytes per transfer
+ * ({@code gc.alloc.rate.norm}), e.g.
+ * {@code ./gradlew jmh -PjmhInclude=TransferAllocationBenchmark -PjmhProfilers=gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferAllocationBenchmark {
+
+  private static final Money INITIAL_BALANCE = Money.of(CurrencyUnit.EUR, 1_000_000_000);
+  private static final Money AMOUNT = Money.of(CurrencyUnit.EUR, 1);
+  private static final String SENDER = "AC1";
+  private static final String RECEIVER = "AC2";
+
+  @State(Scope.Thread)
+  public static class Repositories {
+    @Param({"inMemory", "striped", "minorUnits"})
+    public String repository;
+
+    private AccountRepository accountRepository;
+    private Account sender;
+    private Account receiver;
+
+    @Setup public void setUp() {
+      switch (repository) {
+        case "striped":
+          accountRepository = new StripedAccountRepository();
+          break;
+        case "minorUnits":
+          accountRepository = new MinorUnitAccountRepository();
+          break;
+        default:
+          accountRepository = new InMemoryAccountRepository();
+      }
+      sender = accountRepository.create(createAccount(SENDER));
+      receiver = accountRepository.create(createAccount(RECEIVER));
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class MinorUnits {
+    private MinorUnitAccountRepository accountRepository;
+
+    @Setup public void setUp() {
+      accountRepository = new MinorUnitAccountRepository();
+      accountRepository.create(createAccount(SENDER));
+      accountRepository.create(createAccount(RECEIVER));
+    }
+  }
+
+  @Benchmark public void transfer(final Repositories state) {
+    state.accountRepository.transfer(state.sender, state.receiver, AMOUNT);
+  }
+
+  @Benchmark public void transferMinorUnits(final MinorUnits state) {
+    state.accountRepository.transfer(SENDER, RECEIVER, 100);
+  }
+
+  private static Account createAccount(final String number) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("owner")
+        .money(INITIAL_BALANCE)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -4,14 +4,33 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.pwittchen.money.transfer.api.configuration.component.ApplicationComponent;
 import com.pwittchen.money.transfer.api.configuration.component.DaggerApplicationComponent;
+import com.pwittchen.money.transfer.api.configuration.module.CommandModule;
+import com.pwittchen.money.transfer.api.configuration.module.ControllerModule;
+import com.pwittchen.money.transfer.api.configuration.module.RepositoryModule;
+import com.pwittchen.money.transfer.api.configuration.option.ApplicationOptions;
+import com.pwittchen.money.transfer.api.configuration.option.CommitMode;
+import com.pwittchen.money.transfer.api.configuration.option.ServerThreads;
 import com.pwittchen.money.transfer.api.controller.AccountController;
+import com.pwittchen.money.transfer.api.controller.AsyncTransactionController;
+import com.pwittchen.money.transfer.api.controller.StatsController;
 import com.pwittchen.money.transfer.api.controller.TransactionController;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.repository.jdbc.ConnectionPool;
+import com.pwittchen.money.transfer.api.repository.journal.MappedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.TieredTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.wal.Snapshotter;
+import com.pwittchen.money.transfer.api.repository.wal.WriteAheadLog;
+import com.pwittchen.money.transfer.api.server.VirtualThreadPool;
 import io.javalin.Javalin;
 import io.javalin.plugin.json.JavalinJson;
 import io.javalin.plugin.openapi.OpenApiOptions;
 import io.javalin.plugin.openapi.OpenApiPlugin;
 import io.swagger.v3.oas.models.info.Info;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Optional;
 import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.server.Server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,8 +41,17 @@ import static io.javalin.apibuilder.ApiBuilder.post;
 public class Application {
   private static final Logger LOG = LoggerFactory.getLogger(Application.class);
   private static final int DEFAULT_PORT = 8000;
+  private static final String VIRTUAL_THREADS_FLAG = "--virtual-threads";
 
   public static void main(String args[]) {
+    start(args);
+  }
+
+  /**
+   * Starts the server with the port and flags given as command line arguments
+   * and returns the running application.
+   */
+  public static Javalin start(String args[]) {
     int port;
 
     try {
@@ -32,9 +60,27 @@ public class Application {
       port = DEFAULT_PORT;
     }
 
-    final ApplicationComponent component = DaggerApplicationComponent.create();
+    final ApplicationOptions.Builder builder = ApplicationOptions.builder().fromSystemProperties();
+    if (Arrays.asList(args).contains(VIRTUAL_THREADS_FLAG)) {
+      builder.serverThreads(ServerThreads.VIRTUAL);
+    }
+    final ApplicationOptions options = builder.build();
+    final Optional<VirtualThreadPool> virtualThreadPool =
+        createVirtualThreadPool(options.serverThreads());
+
+    final ApplicationComponent component = DaggerApplicationComponent
+        .builder()
+        .controllerModule(new ControllerModule(options))
+        .repositoryModule(new RepositoryModule(options))
+        .commandModule(new CommandModule(options))
+        .build();
     final AccountController accountController = component.accountController();
     final TransactionController transactionController = component.transactionController();
+    final AsyncTransactionController asyncTransactionController =
+        component.asyncTransactionController();
+    final StatsController statsController = component.statsController();
+    final IdempotencyCache idempotencyCache = component.idempotencyCache();
+    final Optional<Snapshotter> snapshotter = component.snapshotter();
 
     final Gson gson = new GsonBuilder().create();
     JavalinJson.setFromJsonMapper(gson::fromJson);
@@ -42,6 +88,8 @@ public class Application {
 
     final Javalin app = Javalin
         .create(config -> {
+              virtualThreadPool.ifPresent(pool -> config.server(() -> new Server(pool)));
+
               config.requestLogger((context, executionTimeMs) ->
                   LOG.info("{} ms\t {}\t {} {}",
                       executionTimeMs,
@@ -61,8 +109,23 @@ public class Application {
             }
         )
         .events(event -> {
-          event.serverStarted(() -> LOG.info("server has started"));
+          event.serverStarted(() -> LOG.info("server has started on {} threads",
+              virtualThreadPool.isPresent() ? "virtual" : "platform"));
           event.serverStartFailed(() -> LOG.error("server start has failed"));
+          event.serverStopped(() -> {
+            LOG.info(
+                "idempotency cache: {} entries, ~{} KiB, hit rate {}, {} evictions",
+                idempotencyCache.size(),
+                idempotencyCache.memory() / 1024,
+                String.format("%.3f", idempotencyCache.hitRate()),
+                idempotencyCache.evictions());
+            component.indexedTransactionRepository().close();
+            component.transactionJournal().ifPresent(MappedTransactionRepository::close);
+            component.transactionHistory().ifPresent(TieredTransactionRepository::close);
+            component.writeAheadLog().ifPresent(log ->
+                closeWriteAheadLog(log, snapshotter.orElseThrow()));
+            component.connectionPool().ifPresent(ConnectionPool::close);
+          });
         })
         .start(port);
 
@@ -70,17 +133,61 @@ public class Application {
       path("/account", () -> {
         get(accountController::getAll);
         post(accountController::create);
+        path("import", () -> post(accountController::importAccounts));
+        path(":number", () -> get(accountController::get));
+        path(":number/split", () -> post(accountController::split));
+        path(":number/transactions", () -> get(accountController::getTransactions));
+        path(":number/balance", () -> get(accountController::getBalance));
       });
 
       path("/transaction", () -> {
         get(transactionController::getAll);
-        post(transactionController::commit);
+        if (options.commitMode() == CommitMode.ASYNC) {
+          post(asyncTransactionController::commit);
+        } else {
+          post(transactionController::commit);
+        }
+        path("batch", () -> post(transactionController::commitBatch));
+        path("multi-leg", () -> post(transactionController::commitMultiLeg));
+        path(":id/status", () -> get(asyncTransactionController::getStatus));
       });
+
+      path("/stats", () -> get(statsController::get));
     });
 
     app.exception(Exception.class, (exception, context) -> {
       context.status(HttpStatus.INTERNAL_SERVER_ERROR_500);
       LOG.error("error occurred", exception);
     });
+
+    return app;
+  }
+
+  // the last snapshot covers the whole log, so the next start replays only transactions,
+  // which aren't persisted by the transaction repository
+  private static void closeWriteAheadLog(final WriteAheadLog writeAheadLog,
+      final Snapshotter snapshotter) {
+    try {
+      snapshotter.close();
+      snapshotter.snapshot();
+      LOG.info("write-ahead log: {} records in {} syncs",
+          writeAheadLog.records(), writeAheadLog.syncs());
+      writeAheadLog.close();
+    } catch (IOException exception) {
+      LOG.error("write-ahead log could not be closed", exception);
+    }
+  }
+
+  private static Optional<VirtualThreadPool> createVirtualThreadPool(
+      final ServerThreads serverThreads) {
+    if (serverThreads != ServerThreads.VIRTUAL) {
+      return Optional.empty();
+    }
+
+    final Optional<VirtualThreadPool> pool = VirtualThreadPool.create();
+    if (pool.isEmpty()) {
+      LOG.warn("virtual threads require Java 21 or newer, falling back to platform threads");
+    }
+    return pool;
   }
 }
@@ -0,0 +1,7 @@
+package com.pwittchen.money.transfer.api.command;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+
+public interface CommitMultiLegTransactionCommand {
+  void run(Transaction transaction);
+}
@@ -0,0 +1,9 @@
+package com.pwittchen.money.transfer.api.command;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionResult;
+import java.util.List;
+
+public interface CommitTransactionBatchCommand {
+  List<TransactionResult> run(List<Transaction> transactions);
+}
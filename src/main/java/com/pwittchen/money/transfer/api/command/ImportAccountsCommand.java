@@ -0,0 +1,9 @@
+package com.pwittchen.money.transfer.api.command;
+
+import com.pwittchen.money.transfer.api.model.ImportFormat;
+import com.pwittchen.money.transfer.api.model.ImportResult;
+import java.io.Reader;
+
+public interface ImportAccountsCommand {
+  ImportResult run(Reader reader, ImportFormat format);
+}
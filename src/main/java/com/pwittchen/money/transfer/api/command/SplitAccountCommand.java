@@ -0,0 +1,7 @@
+package com.pwittchen.money.transfer.api.command;
+
+import com.pwittchen.money.transfer.api.model.Account;
+
+public interface SplitAccountCommand {
+  Account run(String number, int shards);
+}
@@ -0,0 +1,8 @@
+package com.pwittchen.money.transfer.api.command;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+
+public interface SubmitTransactionCommand {
+  TransactionStatus run(Transaction transaction);
+}
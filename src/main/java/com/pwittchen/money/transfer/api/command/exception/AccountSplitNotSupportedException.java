@@ -0,0 +1,17 @@
+package com.pwittchen.money.transfer.api.command.exception;
+
+public class AccountSplitNotSupportedException extends RuntimeException {
+
+  private final String number;
+
+  public AccountSplitNotSupportedException(final String number) {
+    this.number = number;
+  }
+
+  @Override public String getMessage() {
+    return String.format(
+        "Account with number %s cannot be split, because account storage does not support it",
+        number
+    );
+  }
+}
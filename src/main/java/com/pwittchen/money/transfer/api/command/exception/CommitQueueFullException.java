@@ -0,0 +1,14 @@
+package com.pwittchen.money.transfer.api.command.exception;
+
+public class CommitQueueFullException extends RuntimeException {
+
+  private final String id;
+
+  public CommitQueueFullException(final String id) {
+    this.id = id;
+  }
+
+  @Override public String getMessage() {
+    return String.format("Transaction %s could not be queued, commit queue is full", id);
+  }
+}
@@ -0,0 +1,14 @@
+package com.pwittchen.money.transfer.api.command.exception;
+
+public class EmptyTransactionException extends RuntimeException {
+
+  private final String id;
+
+  public EmptyTransactionException(final String id) {
+    this.id = id;
+  }
+
+  @Override public String getMessage() {
+    return String.format("Transaction %s has no legs", id);
+  }
+}
@@ -0,0 +1,16 @@
+package com.pwittchen.money.transfer.api.command.exception;
+
+import java.time.LocalDateTime;
+
+public class HistoryNotAvailableException extends RuntimeException {
+
+  private final LocalDateTime retainedFrom;
+
+  public HistoryNotAvailableException(final LocalDateTime retainedFrom) {
+    this.retainedFrom = retainedFrom;
+  }
+
+  @Override public String getMessage() {
+    return String.format("History is not available before %s", retainedFrom);
+  }
+}
@@ -0,0 +1,19 @@
+package com.pwittchen.money.transfer.api.command.exception;
+
+public class InvalidNumberOfShardsException extends RuntimeException {
+
+  private final int shards;
+  private final int maxShards;
+
+  public InvalidNumberOfShardsException(final int shards, final int maxShards) {
+    this.shards = shards;
+    this.maxShards = maxShards;
+  }
+
+  @Override public String getMessage() {
+    return String.format(
+        "Account cannot be split into %d sub-balances, number has to be between 1 and %d",
+        shards, maxShards
+    );
+  }
+}
@@ -0,0 +1,14 @@
+package com.pwittchen.money.transfer.api.command.exception;
+
+public class TransactionTimeoutException extends RuntimeException {
+
+  private final String id;
+
+  public TransactionTimeoutException(final String id) {
+    this.id = id;
+  }
+
+  @Override public String getMessage() {
+    return String.format("Transaction %s could not be committed in time", id);
+  }
+}
@@ -0,0 +1,19 @@
+package com.pwittchen.money.transfer.api.command.exception;
+
+public class TransferConflictException extends RuntimeException {
+
+  private final String number;
+  private final int attempts;
+
+  public TransferConflictException(final String number, final int attempts) {
+    this.number = number;
+    this.attempts = attempts;
+  }
+
+  @Override public String getMessage() {
+    return String.format(
+        "Account with number %s was concurrently modified, transfer failed after %d attempts",
+        number, attempts
+    );
+  }
+}
@@ -0,0 +1,102 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.ImportFormat;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.joda.money.Money;
+
+/**
+ * Parses a single line of an account import. NDJSON line is an object with {@code number},
+ * {@code owner}, {@code currency} and {@code money} fields. CSV line has the same fields in
+ * this order, separated with commas; a field can be quoted with double quotes, which are
+ * escaped by doubling them. Missing or empty number is replaced with a random one.
+ */
+final class AccountLineParser {
+
+  static final String CSV_HEADER = "number,owner,currency,money";
+  static final String INVALID_ACCOUNT_FORMAT = "invalid account format";
+  static final String INVALID_MONEY_FORMAT = "invalid money format";
+
+  private static final int NUMBER_OF_FIELDS = 4;
+
+  private AccountLineParser() {
+  }
+
+  static Account parse(final String line, final ImportFormat format) {
+    final List<String> fields = format == ImportFormat.CSV ? csv(line) : ndjson(line);
+    if (fields.size() != NUMBER_OF_FIELDS) {
+      throw new IllegalArgumentException(INVALID_ACCOUNT_FORMAT);
+    }
+
+    final Money money;
+    try {
+      money = Money.parse(String.format("%s %s", fields.get(2), fields.get(3)));
+    } catch (Exception exception) {
+      throw new IllegalArgumentException(INVALID_MONEY_FORMAT);
+    }
+
+    final String number = fields.get(0);
+    return Account
+        .builder()
+        .number(number == null || number.isEmpty() ? UUID.randomUUID().toString() : number)
+        .owner(fields.get(1))
+        .money(money)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+
+  private static List<String> ndjson(final String line) {
+    final JsonObject object;
+    try {
+      object = JsonParser.parseString(line).getAsJsonObject();
+    } catch (RuntimeException exception) {
+      throw new IllegalArgumentException(INVALID_ACCOUNT_FORMAT);
+    }
+
+    final List<String> fields = new ArrayList<>(NUMBER_OF_FIELDS);
+    for (String name : new String[] {"number", "owner", "currency", "money"}) {
+      final JsonElement element = object.get(name);
+      fields.add(element == null || element.isJsonNull() ? null : element.getAsString());
+    }
+    return fields;
+  }
+
+  private static List<String> csv(final String line) {
+    final List<String> fields = new ArrayList<>(NUMBER_OF_FIELDS);
+    final StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      final char character = line.charAt(i);
+      if (quoted) {
+        if (character != '"') {
+          field.append(character);
+        } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (character == '"') {
+        quoted = true;
+      } else if (character == ',') {
+        fields.add(field.toString().trim());
+        field.setLength(0);
+      } else {
+        field.append(character);
+      }
+    }
+
+    if (quoted) {
+      throw new IllegalArgumentException(INVALID_ACCOUNT_FORMAT);
+    }
+    fields.add(field.toString().trim());
+    return fields;
+  }
+}
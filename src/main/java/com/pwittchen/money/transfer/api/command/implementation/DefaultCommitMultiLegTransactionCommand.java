@@ -0,0 +1,113 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.EmptyTransactionException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import javax.inject.Inject;
+
+/**
+ * Commits a transaction with many legs (e.g. buyer pays seller, platform fee and tax) atomically.
+ * Locks of all accounts of the legs are taken in the order of account numbers, like in
+ * OrderedLockCommitTransactionCommand, so both can share AccountLocks without deadlocks and
+ * transactions with disjoint sets of accounts don't wait for each other. Then legs are
+ * validated one after another against running balances and, only when all of them are valid,
+ * their net movements are applied to the account repository (see TransferNetting).
+ * The transaction is recorded as a single entry of the transaction repository.
+ */
+public class DefaultCommitMultiLegTransactionCommand implements CommitMultiLegTransactionCommand {
+
+  private static final long DEFAULT_TIMEOUT = TimeUnit.SECONDS.toNanos(2);
+
+  private final AccountRepository accountRepository;
+  private final TransactionRepository transactionRepository;
+  private final AccountLocks accountLocks;
+  private final long timeout;
+
+  @Inject public DefaultCommitMultiLegTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks) {
+    this(accountRepository, transactionRepository, accountLocks, DEFAULT_TIMEOUT,
+        TimeUnit.NANOSECONDS);
+  }
+
+  public DefaultCommitMultiLegTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks,
+      long timeout,
+      TimeUnit unit) {
+    this.accountRepository = accountRepository;
+    this.transactionRepository = transactionRepository;
+    this.accountLocks = accountLocks;
+    this.timeout = unit.toNanos(timeout);
+  }
+
+  @Override public void run(final Transaction transaction) {
+    final long deadline = System.nanoTime() + timeout;
+    final Deque<Lock> acquired = new ArrayDeque<>();
+
+    try {
+      if (transaction.legs().isEmpty()) {
+        throw new EmptyTransactionException(transaction.id());
+      }
+
+      // numbers come from the request, so they're checked before they get into AccountLocks
+      final SortedSet<String> numbers = new TreeSet<>();
+      for (TransactionLeg leg : transaction.legs()) {
+        numbers.add(requireAccount(leg.from()));
+        numbers.add(requireAccount(leg.to()));
+      }
+
+      for (String number : numbers) {
+        final Lock lock = accountLocks.get(number);
+        if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          throw new TransactionTimeoutException(transaction.id());
+        }
+        acquired.push(lock);
+      }
+      commit(transaction);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    } finally {
+      while (!acquired.isEmpty()) {
+        acquired.pop().unlock();
+      }
+      transaction.isRunning().set(false);
+    }
+  }
+
+  private void commit(final Transaction transaction) {
+    final TransferNetting netting = new TransferNetting(accountRepository);
+    for (TransactionLeg leg : transaction.legs()) {
+      netting.add(leg.from(), leg.to(), leg.money());
+    }
+    netting.settle();
+    try {
+      transactionRepository.create(transaction);
+    } catch (RuntimeException exception) {
+      netting.revert(exception);
+      throw exception;
+    }
+  }
+
+  private String requireAccount(final String number) {
+    if (number == null || accountRepository.get(number).isEmpty()) {
+      throw new AccountNotExistsException(number);
+    }
+    return number;
+  }
+}
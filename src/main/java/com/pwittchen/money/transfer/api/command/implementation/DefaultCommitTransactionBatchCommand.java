@@ -0,0 +1,207 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionResult;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import javax.inject.Inject;
+
+/**
+ * Commits many transactions as one group. Locks of all existing accounts touched by the batch
+ * are taken once, in the order of account numbers (the same order as in
+ * OrderedLockCommitTransactionCommand, so both can share AccountLocks without deadlocks).
+ * Then all legs are applied one after another and committed transactions are appended to
+ * the transaction repository at once. A leg, which can't be applied is rejected with the
+ * message of its error and doesn't affect the other legs.
+ *
+ * When legs of a batch repeat accounts (e.g. settlement between a group of accounts), they're
+ * validated against running balances and only net movements of the batch are applied to the
+ * account repository (see TransferNetting). Otherwise netting can't save any transfer
+ * (e.g. payroll paid from one account), so every leg is transferred on its own.
+ */
+public class DefaultCommitTransactionBatchCommand implements CommitTransactionBatchCommand {
+
+  private static final long DEFAULT_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+  private final AccountRepository accountRepository;
+  private final TransactionRepository transactionRepository;
+  private final AccountLocks accountLocks;
+  private final long timeout;
+
+  @Inject public DefaultCommitTransactionBatchCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks) {
+    this(accountRepository, transactionRepository, accountLocks, DEFAULT_TIMEOUT,
+        TimeUnit.NANOSECONDS);
+  }
+
+  public DefaultCommitTransactionBatchCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks,
+      long timeout,
+      TimeUnit unit) {
+    this.accountRepository = accountRepository;
+    this.transactionRepository = transactionRepository;
+    this.accountLocks = accountLocks;
+    this.timeout = unit.toNanos(timeout);
+  }
+
+  @Override public List<TransactionResult> run(final List<Transaction> transactions) {
+    // only existing accounts are locked, so numbers of the request don't pile up in AccountLocks
+    final SortedSet<String> numbers = new TreeSet<>();
+    for (Transaction transaction : transactions) {
+      if (transaction.from() != null && accountRepository.get(transaction.from()).isPresent()) {
+        numbers.add(transaction.from());
+      }
+      if (transaction.to() != null && accountRepository.get(transaction.to()).isPresent()) {
+        numbers.add(transaction.to());
+      }
+    }
+
+    final long deadline = System.nanoTime() + timeout;
+    final Deque<Lock> acquired = new ArrayDeque<>(numbers.size());
+
+    try {
+      for (String number : numbers) {
+        final Lock lock = accountLocks.get(number);
+        if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          return rejectAll(transactions);
+        }
+        acquired.push(lock);
+      }
+      return applyAll(transactions, numbers);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      return rejectAll(transactions);
+    } finally {
+      while (!acquired.isEmpty()) {
+        acquired.pop().unlock();
+      }
+      for (Transaction transaction : transactions) {
+        transaction.isRunning().set(false);
+      }
+    }
+  }
+
+  private List<TransactionResult> applyAll(final List<Transaction> transactions,
+      final SortedSet<String> locked) {
+    final TransferNetting netting = transactions.size() >= locked.size()
+        ? new TransferNetting(accountRepository)
+        : null;
+    final List<TransactionResult> results = new ArrayList<>(transactions.size());
+    final List<Transaction> committed = new ArrayList<>(transactions.size());
+
+    for (Transaction transaction : transactions) {
+      try {
+        // an account created after the locks were taken isn't guarded by them
+        checkLocked(locked, transaction.from());
+        checkLocked(locked, transaction.to());
+        if (netting == null) {
+          apply(transaction);
+        } else {
+          netting.add(transaction);
+        }
+        committed.add(transaction);
+        results.add(TransactionResult.committed(transaction));
+      } catch (RuntimeException exception) {
+        results.add(TransactionResult.rejected(transaction, exception.getMessage()));
+      }
+    }
+
+    try {
+      if (netting != null) {
+        netting.settle();
+      }
+      transactionRepository.createAll(committed);
+    } catch (RuntimeException exception) {
+      if (netting != null) {
+        netting.revert(exception);
+      } else {
+        revert(committed, exception);
+      }
+      throw exception;
+    }
+    return results;
+  }
+
+  /**
+   * Moves money of applied transactions back, in reverse order, when they can't be recorded.
+   */
+  private void revert(final List<Transaction> applied, final RuntimeException cause) {
+    for (int i = applied.size() - 1; i >= 0; i--) {
+      final Transaction transaction = applied.get(i);
+      try {
+        accountRepository.transfer(
+            getAccount(transaction.to()), getAccount(transaction.from()), transaction.money()
+        );
+      } catch (RuntimeException exception) {
+        cause.addSuppressed(exception);
+      }
+    }
+  }
+
+  private static void checkLocked(final SortedSet<String> locked, final String number) {
+    if (number == null || !locked.contains(number)) {
+      throw new AccountNotExistsException(number);
+    }
+  }
+
+  private void apply(final Transaction transaction) {
+    if (transaction.money().isNegative()) {
+      throw new NegativeMoneyValueException();
+    }
+
+    final Account sender = getAccount(transaction.from());
+    final Account receiver = getAccount(transaction.to());
+
+    if (sender.number().equals(receiver.number())) {
+      throw new TransferToTheSameAccountException();
+    }
+    if (!sender.money().isSameCurrency(receiver.money())
+        || !sender.money().isSameCurrency(transaction.money())) {
+      throw new DifferentCurrencyException(transaction.from(), transaction.to());
+    }
+    if (sender.money().isLessThan(transaction.money())) {
+      throw new NotEnoughMoneyException(sender.number());
+    }
+
+    accountRepository.transfer(sender, receiver, transaction.money());
+  }
+
+  private Account getAccount(final String number) {
+    return Optional
+        .ofNullable(number)
+        .flatMap(accountRepository::get)
+        .orElseThrow(() -> new AccountNotExistsException(number));
+  }
+
+  private static List<TransactionResult> rejectAll(final List<Transaction> transactions) {
+    final List<TransactionResult> results = new ArrayList<>(transactions.size());
+    for (Transaction transaction : transactions) {
+      results.add(TransactionResult.rejected(
+          transaction, new TransactionTimeoutException(transaction.id()).getMessage()
+      ));
+    }
+    return results;
+  }
+}
@@ -5,7 +5,9 @@ import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsExcept
 import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
 import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
 import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
 import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
 import com.pwittchen.money.transfer.api.model.Account;
 import com.pwittchen.money.transfer.api.model.Transaction;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
@@ -13,6 +15,7 @@ import com.pwittchen.money.transfer.api.repository.TransactionRepository;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import javax.inject.Inject;
 import org.jetbrains.annotations.NotNull;
 
@@ -25,41 +28,56 @@ public class DefaultCommitTransactionCommand implements CommitTransactionCommand
 
   private AccountRepository accountRepository;
   private TransactionRepository transactionRepository;
+  private AccountLocks accountLocks;
 
-  @Inject public DefaultCommitTransactionCommand(
+  public DefaultCommitTransactionCommand(
       AccountRepository accountRepository,
       TransactionRepository transactionRepository) {
+    this(accountRepository, transactionRepository, new AccountLocks());
+  }
+
+  @Inject public DefaultCommitTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks) {
     this.accountRepository = accountRepository;
     this.transactionRepository = transactionRepository;
+    this.accountLocks = accountLocks;
   }
 
   @Override public void run(final Transaction transaction) {
+    final long stopTime = System.nanoTime() + TIMEOUT;
     while (transaction.isRunning().get()) {
-      Account sender, receiver;
       synchronized (this) {
         validateTransaction(transaction);
-        sender = getSender(transaction.from());
-        receiver = getReceiver(transaction.to());
       }
-      if (sender.lock().tryLock()) {
+      final Lock senderLock = accountLocks.get(transaction.from());
+      final Lock receiverLock = accountLocks.get(transaction.to());
+      if (senderLock.tryLock()) {
         try {
-          if (receiver.lock().tryLock()) {
+          if (receiverLock.tryLock()) {
             try {
-              accountRepository.transfer(sender, receiver, transaction.money());
+              // balances might have changed before the locks were taken
+              validateTransaction(transaction);
+              accountRepository.transfer(
+                  getSender(transaction.from()),
+                  getReceiver(transaction.to()),
+                  transaction.money()
+              );
               transactionRepository.create(transaction);
               transaction.isRunning().set(false);
             } finally {
-              receiver.lock().unlock();
+              receiverLock.unlock();
             }
           }
         } finally {
-          sender.lock().unlock();
+          senderLock.unlock();
         }
       }
-      long stopTime = System.nanoTime() + TIMEOUT;
 
-      if (System.nanoTime() > stopTime) {
+      if (transaction.isRunning().get() && System.nanoTime() > stopTime) {
         transaction.isRunning().set(false);
+        throw new TransactionTimeoutException(transaction.id());
       }
 
       try {
@@ -5,21 +5,55 @@ import com.pwittchen.money.transfer.api.command.exception.AccountAlreadyExistsEx
 import com.pwittchen.money.transfer.api.command.exception.EmptyAccountNumberException;
 import com.pwittchen.money.transfer.api.command.exception.EmptyAccountOwnerException;
 import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
 import com.pwittchen.money.transfer.api.model.Account;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
+import java.util.concurrent.locks.Lock;
 import javax.inject.Inject;
 
 public class DefaultCreateAccountCommand implements CreateAccountCommand {
 
   private AccountRepository accountRepository;
+  private LedgerAggregates ledgerAggregates;
+  private TransactionIndex transactionIndex;
+  private AccountLocks accountLocks;
 
-  @Inject public DefaultCreateAccountCommand(AccountRepository accountRepository) {
+  public DefaultCreateAccountCommand(AccountRepository accountRepository) {
+    this(accountRepository, new LedgerAggregates(), new TransactionIndex(), new AccountLocks());
+  }
+
+  /**
+   * Creates command, which adds every created account to the given aggregates and opens it
+   * in the given index with its initial balance. The account is opened under its lock before
+   * it's created, so before any of its transactions is indexed, and only when it doesn't exist.
+   */
+  @Inject public DefaultCreateAccountCommand(AccountRepository accountRepository,
+      LedgerAggregates ledgerAggregates, TransactionIndex transactionIndex,
+      AccountLocks accountLocks) {
     this.accountRepository = accountRepository;
+    this.ledgerAggregates = ledgerAggregates;
+    this.transactionIndex = transactionIndex;
+    this.accountLocks = accountLocks;
   }
 
   @Override public void run(final Account account) {
     validateAccount(account);
-    accountRepository.create(account);
+    final Lock lock = accountLocks.get(account.number());
+    lock.lock();
+    try {
+      if (accountRepository.get(account.number()).isPresent()) {
+        throw new AccountAlreadyExistsException(account.number());
+      }
+      transactionIndex.open(account.number(), account.money().getAmountMinorLong());
+      if (!accountRepository.createIfAbsent(account)) {
+        throw new AccountAlreadyExistsException(account.number());
+      }
+    } finally {
+      lock.unlock();
+    }
+    ledgerAggregates.add(account);
   }
 
   private void validateAccount(final Account account) {
@@ -31,13 +65,6 @@ public class DefaultCreateAccountCommand implements CreateAccountCommand {
       throw new NegativeMoneyValueException();
     }
 
-    if (accountRepository
-        .getAll()
-        .stream()
-        .anyMatch(item -> item.number().equals(account.number()))) {
-      throw new AccountAlreadyExistsException(account.number());
-    }
-
     if (account.owner() == null || account.owner().isEmpty()) {
       throw new EmptyAccountOwnerException();
     }
@@ -0,0 +1,149 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.model.ImportError;
+import com.pwittchen.money.transfer.api.model.ImportFormat;
+import com.pwittchen.money.transfer.api.model.ImportResult;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
+
+/**
+ * Imports accounts streamed as NDJSON or CSV (see {@link AccountLineParser}). Lines are read
+ * one after another and handed over in batches to worker threads, which parse them and create
+ * accounts with {@link CreateAccountCommand}, so every account is validated like a single one
+ * and duplicates are rejected by the atomic {@code createIfAbsent} of the account repository.
+ *
+ * At most two batches per worker are read ahead, so the input is streamed and never held
+ * in memory as a whole. A line, which can't be imported, doesn't stop the import. It's counted
+ * and up to a thousand errors are reported with their line numbers. The first CSV line is skipped
+ * when it's a header.
+ */
+public class DefaultImportAccountsCommand implements ImportAccountsCommand {
+
+  private static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+  private static final int MAX_REPORTED_ERRORS = 1000;
+
+  private final CreateAccountCommand createAccountCommand;
+  private final int threads;
+  private final int batchSize;
+
+  @Inject public DefaultImportAccountsCommand(final CreateAccountCommand createAccountCommand) {
+    this(createAccountCommand, DEFAULT_THREADS, DEFAULT_BATCH_SIZE);
+  }
+
+  public DefaultImportAccountsCommand(final CreateAccountCommand createAccountCommand,
+      final int threads, final int batchSize) {
+    this.createAccountCommand = createAccountCommand;
+    this.threads = threads;
+    this.batchSize = batchSize;
+  }
+
+  @Override public ImportResult run(final Reader reader, final ImportFormat format) {
+    final Progress progress = new Progress();
+    final int maxBatchesInFlight = 2 * threads;
+    final Semaphore batchesInFlight = new Semaphore(maxBatchesInFlight);
+    final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+    try (BufferedReader lines = new BufferedReader(reader)) {
+      List<String> batch = new ArrayList<>(batchSize);
+      long firstLine = 1;
+      long lineNumber = 0;
+      String line;
+
+      while ((line = lines.readLine()) != null) {
+        lineNumber++;
+        if (lineNumber == 1 && format == ImportFormat.CSV && isCsvHeader(line)) {
+          continue;
+        }
+        if (batch.isEmpty()) {
+          firstLine = lineNumber;
+        }
+        batch.add(line);
+        if (batch.size() == batchSize) {
+          submit(executorService, batchesInFlight, batch, firstLine, format, progress);
+          batch = new ArrayList<>(batchSize);
+        }
+      }
+
+      if (!batch.isEmpty()) {
+        submit(executorService, batchesInFlight, batch, firstLine, format, progress);
+      }
+      batchesInFlight.acquire(maxBatchesInFlight);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    return progress.result();
+  }
+
+  private void submit(final ExecutorService executorService, final Semaphore batchesInFlight,
+      final List<String> batch, final long firstLine, final ImportFormat format,
+      final Progress progress) throws InterruptedException {
+    batchesInFlight.acquire();
+    executorService.execute(() -> {
+      try {
+        importBatch(batch, firstLine, format, progress);
+      } finally {
+        batchesInFlight.release();
+      }
+    });
+  }
+
+  private void importBatch(final List<String> batch, final long firstLine,
+      final ImportFormat format, final Progress progress) {
+    for (int i = 0; i < batch.size(); i++) {
+      final String line = batch.get(i);
+      if (line.isBlank()) {
+        continue;
+      }
+      try {
+        createAccountCommand.run(AccountLineParser.parse(line, format));
+        progress.created.increment();
+      } catch (Exception exception) {
+        progress.failed(firstLine + i, exception.getMessage());
+      }
+    }
+  }
+
+  private static boolean isCsvHeader(final String line) {
+    return line.replace(" ", "").equalsIgnoreCase(AccountLineParser.CSV_HEADER);
+  }
+
+  private static final class Progress {
+    private final LongAdder created = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Queue<ImportError> errors = new ConcurrentLinkedQueue<>();
+
+    private void failed(final long line, final String error) {
+      failed.increment();
+      if (failed.sum() <= MAX_REPORTED_ERRORS) {
+        errors.add(new ImportError(line, error));
+      }
+    }
+
+    private ImportResult result() {
+      final List<ImportError> sorted = new ArrayList<>(errors);
+      sorted.sort(Comparator.comparingLong(ImportError::line));
+      return new ImportResult(created.sum(), failed.sum(), sorted);
+    }
+  }
+}
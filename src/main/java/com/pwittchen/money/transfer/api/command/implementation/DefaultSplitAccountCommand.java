@@ -0,0 +1,35 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.InvalidNumberOfShardsException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import javax.inject.Inject;
+
+public class DefaultSplitAccountCommand implements SplitAccountCommand {
+
+  private static final int MAX_SHARDS = 256;
+
+  private AccountRepository accountRepository;
+
+  @Inject public DefaultSplitAccountCommand(AccountRepository accountRepository) {
+    this.accountRepository = accountRepository;
+  }
+
+  @Override public Account run(final String number, final int shards) {
+    if (shards < 1 || shards > MAX_SHARDS) {
+      throw new InvalidNumberOfShardsException(shards, MAX_SHARDS);
+    }
+
+    if (accountRepository.get(number).isEmpty()) {
+      throw new AccountNotExistsException(number);
+    }
+
+    accountRepository.split(number, shards);
+
+    return accountRepository
+        .get(number)
+        .orElseThrow(() -> new AccountNotExistsException(number));
+  }
+}
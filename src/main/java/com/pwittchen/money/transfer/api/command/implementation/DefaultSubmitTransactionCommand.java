@@ -0,0 +1,134 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.SubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Submits transactions for an asynchronous commit. A transaction is validated against
+ * the accounts, marked as pending in the status repository and queued, so the caller
+ * doesn't wait for the commit. Once it's committed or rejected, its status is updated.
+ *
+ * SequencedCommitTransactionCommand is queued directly into its ledger. Other commands block
+ * the calling thread, so they're run on a bounded pool of commit threads.
+ */
+public class DefaultSubmitTransactionCommand implements SubmitTransactionCommand,
+    AutoCloseable {
+
+  private final CommitTransactionCommand commitTransactionCommand;
+  private final AccountRepository accountRepository;
+  private final TransactionStatusRepository transactionStatusRepository;
+  private final ExecutorService executorService;
+
+  public DefaultSubmitTransactionCommand(
+      CommitTransactionCommand commitTransactionCommand,
+      AccountRepository accountRepository,
+      TransactionStatusRepository transactionStatusRepository,
+      int numberOfThreads,
+      int capacity) {
+    this.commitTransactionCommand = commitTransactionCommand;
+    this.accountRepository = accountRepository;
+    this.transactionStatusRepository = transactionStatusRepository;
+    this.executorService = createExecutorService(numberOfThreads, capacity);
+  }
+
+  @Override public TransactionStatus run(final Transaction transaction) {
+    validate(transaction);
+
+    // pending status is saved first, so it can't overwrite the result of a fast commit
+    final TransactionStatus status = transactionStatusRepository.save(
+        TransactionStatus.pending(transaction.id())
+    );
+
+    final CompletableFuture<Transaction> future;
+    try {
+      future = enqueue(transaction);
+    } catch (RejectedExecutionException | CommitQueueFullException exception) {
+      final CommitQueueFullException queueFull = new CommitQueueFullException(transaction.id());
+      transactionStatusRepository.save(
+          TransactionStatus.rejected(transaction.id(), queueFull.getMessage())
+      );
+      throw queueFull;
+    }
+
+    future.whenComplete((committed, error) -> transactionStatusRepository.save(error == null
+        ? TransactionStatus.committed(transaction.id())
+        : TransactionStatus.rejected(transaction.id(), unwrap(error).getMessage())
+    ));
+
+    return status;
+  }
+
+  @Override public void close() {
+    executorService.shutdownNow();
+  }
+
+  private CompletableFuture<Transaction> enqueue(final Transaction transaction) {
+    if (commitTransactionCommand instanceof SequencedCommitTransactionCommand) {
+      return ((SequencedCommitTransactionCommand) commitTransactionCommand).submit(transaction);
+    }
+
+    return CompletableFuture.supplyAsync(() -> {
+      commitTransactionCommand.run(transaction);
+      return transaction;
+    }, executorService);
+  }
+
+  private void validate(final Transaction transaction) {
+    if (transaction.money().isNegative()) {
+      throw new NegativeMoneyValueException();
+    }
+    requireAccount(transaction.from());
+    requireAccount(transaction.to());
+    if (transaction.from().equals(transaction.to())) {
+      throw new TransferToTheSameAccountException();
+    }
+  }
+
+  private void requireAccount(final String number) {
+    Optional
+        .ofNullable(number)
+        .flatMap(accountRepository::get)
+        .orElseThrow(() -> new AccountNotExistsException(number));
+  }
+
+  private static Throwable unwrap(final Throwable error) {
+    if (error instanceof CompletionException && error.getCause() != null) {
+      return error.getCause();
+    }
+    return error;
+  }
+
+  private static ExecutorService createExecutorService(final int numberOfThreads,
+      final int capacity) {
+    final AtomicInteger counter = new AtomicInteger();
+    return new ThreadPoolExecutor(
+        numberOfThreads,
+        numberOfThreads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(capacity),
+        runnable -> {
+          final Thread thread = new Thread(runnable, "commit-" + counter.getAndIncrement());
+          thread.setDaemon(true);
+          return thread;
+        }
+    );
+  }
+}
@@ -0,0 +1,123 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import javax.inject.Inject;
+
+/**
+ * Commits transactions by taking locks of both accounts in the order of account numbers,
+ * so two transfers going in opposite directions can't deadlock. Threads block on the locks
+ * instead of spinning, and give up once the deadline set at the beginning of the commit
+ * passes.
+ */
+public class OrderedLockCommitTransactionCommand implements CommitTransactionCommand {
+
+  private static final long DEFAULT_TIMEOUT = TimeUnit.SECONDS.toNanos(2);
+
+  private final AccountLocks accountLocks;
+  private final AccountRepository accountRepository;
+  private final TransactionRepository transactionRepository;
+  private final long timeout;
+
+  public OrderedLockCommitTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository) {
+    this(accountRepository, transactionRepository, new AccountLocks());
+  }
+
+  @Inject public OrderedLockCommitTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks) {
+    this(accountRepository, transactionRepository, accountLocks, DEFAULT_TIMEOUT,
+        TimeUnit.NANOSECONDS);
+  }
+
+  public OrderedLockCommitTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks,
+      long timeout,
+      TimeUnit unit) {
+    this.accountRepository = accountRepository;
+    this.transactionRepository = transactionRepository;
+    this.accountLocks = accountLocks;
+    this.timeout = unit.toNanos(timeout);
+  }
+
+  @Override public void run(final Transaction transaction) {
+    final long deadline = System.nanoTime() + timeout;
+
+    getAccount(transaction.from());
+    getAccount(transaction.to());
+
+    if (transaction.money().isNegative()) {
+      throw new NegativeMoneyValueException();
+    }
+    if (transaction.from().equals(transaction.to())) {
+      throw new TransferToTheSameAccountException();
+    }
+
+    final boolean senderFirst = transaction.from().compareTo(transaction.to()) < 0;
+    final Lock first = accountLocks.get(senderFirst ? transaction.from() : transaction.to());
+    final Lock second = accountLocks.get(senderFirst ? transaction.to() : transaction.from());
+
+    acquire(first, deadline, transaction);
+    try {
+      acquire(second, deadline, transaction);
+      try {
+        commit(transaction);
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+    }
+  }
+
+  private void commit(final Transaction transaction) {
+    final Account sender = getAccount(transaction.from());
+    final Account receiver = getAccount(transaction.to());
+
+    if (sender.money().isLessThan(transaction.money())) {
+      throw new NotEnoughMoneyException(sender.number());
+    }
+    if (!sender.money().isSameCurrency(receiver.money())) {
+      throw new DifferentCurrencyException(transaction.from(), transaction.to());
+    }
+
+    accountRepository.transfer(sender, receiver, transaction.money());
+    transactionRepository.create(transaction);
+    transaction.isRunning().set(false);
+  }
+
+  private void acquire(final Lock lock, final long deadline, final Transaction transaction) {
+    try {
+      if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        transaction.isRunning().set(false);
+        throw new TransactionTimeoutException(transaction.id());
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private Account getAccount(final String number) {
+    return accountRepository
+        .get(number)
+        .orElseThrow(() -> new AccountNotExistsException(number));
+  }
+}
@@ -0,0 +1,329 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import javax.inject.Inject;
+
+/**
+ * Commits transactions on dedicated ledger threads instead of request threads.
+ * Every transaction is published into a bounded, preallocated ring buffer of the partition
+ * owning the sender account and the caller waits for its future. Each partition is drained
+ * by exactly one thread in batches, so transfers from a given account are applied in order
+ * and its balance is checked without taking any exclusive lock. Every drained batch is a netting
+ * window (see TransferNetting): only net movements of the batch reach the account repository
+ * and its transactions are appended to the transaction repository at once. A window, which
+ * can't be settled or recorded, is reverted and all of its transactions fail.
+ *
+ * With more than one partition, a receiver may be credited by a different ledger thread
+ * than the one debiting it, so the account repository has to apply transfer atomically
+ * against the latest balances (e.g. StripedAccountRepository).
+ *
+ * Ledger threads hold shared account locks of every account in the window until it's settled,
+ * so batches and multi-leg transactions taking exclusive locks can't interleave with it.
+ * A ledger thread never waits for a lock while holding others: when an account is locked
+ * exclusively, the window is settled first.
+ */
+public class SequencedCommitTransactionCommand implements CommitTransactionCommand,
+    AutoCloseable {
+
+  private static final int DEFAULT_NUMBER_OF_PARTITIONS = 1;
+  private static final int DEFAULT_CAPACITY = 8192;
+  private static final int BATCH_SIZE = 256;
+  private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(2);
+
+  private final AccountRepository accountRepository;
+  private final TransactionRepository transactionRepository;
+  private final AccountLocks accountLocks;
+  private final Partition[] partitions;
+
+  @Inject public SequencedCommitTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository) {
+    this(accountRepository, transactionRepository, DEFAULT_NUMBER_OF_PARTITIONS,
+        DEFAULT_CAPACITY);
+  }
+
+  public SequencedCommitTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      int numberOfPartitions,
+      int capacity) {
+    this(accountRepository, transactionRepository, numberOfPartitions, capacity,
+        new AccountLocks());
+  }
+
+  public SequencedCommitTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      int numberOfPartitions,
+      int capacity,
+      AccountLocks accountLocks) {
+    this.accountRepository = accountRepository;
+    this.transactionRepository = transactionRepository;
+    this.accountLocks = accountLocks;
+    this.partitions = new Partition[Math.max(1, numberOfPartitions)];
+    for (int i = 0; i < partitions.length; i++) {
+      partitions[i] = new Partition(i, capacity);
+      partitions[i].start();
+    }
+  }
+
+  @Override public void run(final Transaction transaction) {
+    final long deadline = System.nanoTime() + TIMEOUT;
+    final CompletableFuture<Transaction> future = submit(transaction, TIMEOUT);
+
+    try {
+      future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException exception) {
+      if (transaction.isRunning().compareAndSet(true, false)) {
+        throw new TransactionTimeoutException(transaction.id());
+      }
+      // ledger thread has already picked the transaction up, so its result is on the way
+      await(future);
+    } catch (ExecutionException exception) {
+      throw unwrap(exception);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    }
+  }
+
+  /**
+   * Publishes a transaction into the ring buffer of its partition and returns a future
+   * completed by the ledger thread once the transaction is committed or rejected.
+   * Doesn't wait for space in the ring buffer and throws {@link CommitQueueFullException},
+   * when it's full.
+   */
+  public CompletableFuture<Transaction> submit(final Transaction transaction) {
+    return submit(transaction, 0);
+  }
+
+  /**
+   * Returns the number of transactions waiting in all ring buffers.
+   */
+  public int queueDepth() {
+    int depth = 0;
+    for (Partition partition : partitions) {
+      depth += partition.queue.size();
+    }
+    return depth;
+  }
+
+  @Override public void close() {
+    for (Partition partition : partitions) {
+      partition.interrupt();
+    }
+  }
+
+  /**
+   * Waits at most the given number of nanoseconds for space in the ring buffer and throws
+   * {@link CommitQueueFullException}, when there's still none.
+   */
+  private CompletableFuture<Transaction> submit(final Transaction transaction,
+      final long timeout) {
+    validate(transaction);
+
+    final Entry entry = new Entry(transaction);
+    final Partition partition = partitions[partition(transaction.from())];
+
+    try {
+      if (!partition.queue.offer(entry, timeout, TimeUnit.NANOSECONDS)) {
+        throw new CommitQueueFullException(transaction.id());
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    }
+
+    return entry.future;
+  }
+
+  private void validate(final Transaction transaction) {
+    getAccount(transaction.from());
+    getAccount(transaction.to());
+
+    if (transaction.money().isNegative()) {
+      throw new NegativeMoneyValueException();
+    }
+    if (transaction.from().equals(transaction.to())) {
+      throw new TransferToTheSameAccountException();
+    }
+  }
+
+  private int partition(final String number) {
+    return Math.floorMod(number.hashCode(), partitions.length);
+  }
+
+  private Account getAccount(final String number) {
+    return accountRepository
+        .get(number)
+        .orElseThrow(() -> new AccountNotExistsException(number));
+  }
+
+  private static void await(final CompletableFuture<Transaction> future) {
+    try {
+      future.get();
+    } catch (ExecutionException exception) {
+      throw unwrap(exception);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private static RuntimeException unwrap(final ExecutionException exception) {
+    if (exception.getCause() instanceof RuntimeException) {
+      return (RuntimeException) exception.getCause();
+    }
+    return new RuntimeException(exception.getCause());
+  }
+
+  private static class Entry {
+    private final Transaction transaction;
+    private final CompletableFuture<Transaction> future = new CompletableFuture<>();
+
+    private Entry(final Transaction transaction) {
+      this.transaction = transaction;
+    }
+  }
+
+  private class Partition extends Thread {
+    private final BlockingQueue<Entry> queue;
+    private final List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+    private final List<Entry> accepted = new ArrayList<>(BATCH_SIZE);
+    private final List<Lock> locked = new ArrayList<>(BATCH_SIZE * 2);
+    private final TransferNetting netting = new TransferNetting(accountRepository);
+
+    private Partition(final int index, final int capacity) {
+      super("ledger-" + index);
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      setDaemon(true);
+    }
+
+    @Override public void run() {
+      while (!isInterrupted()) {
+        try {
+          batch.add(queue.take());
+        } catch (InterruptedException exception) {
+          return;
+        }
+        queue.drainTo(batch, BATCH_SIZE - 1);
+        for (Entry entry : batch) {
+          process(entry);
+        }
+        settle();
+        batch.clear();
+      }
+    }
+
+    private void process(final Entry entry) {
+      // the caller flips this flag when it stops waiting, so timed out transactions are skipped
+      if (!entry.transaction.isRunning().compareAndSet(true, false)) {
+        entry.future.completeExceptionally(
+            new TransactionTimeoutException(entry.transaction.id())
+        );
+        return;
+      }
+
+      try {
+        lock(entry.transaction);
+        netting.add(entry.transaction);
+        accepted.add(entry);
+      } catch (RuntimeException exception) {
+        entry.future.completeExceptionally(exception);
+      }
+    }
+
+    private void settle() {
+      try {
+        netting.settle();
+        final List<Transaction> transactions = new ArrayList<>(accepted.size());
+        for (Entry entry : accepted) {
+          transactions.add(entry.transaction);
+        }
+        try {
+          transactionRepository.createAll(transactions);
+        } catch (RuntimeException exception) {
+          netting.revert(exception);
+          throw exception;
+        }
+        for (Entry entry : accepted) {
+          entry.future.complete(entry.transaction);
+        }
+      } catch (RuntimeException exception) {
+        for (Entry entry : accepted) {
+          entry.future.completeExceptionally(exception);
+        }
+      } finally {
+        accepted.clear();
+        for (Lock lock : locked) {
+          lock.unlock();
+        }
+        locked.clear();
+      }
+    }
+
+    /**
+     * Takes shared locks of both accounts of the transaction until the window is settled.
+     * If any of them is locked exclusively or awaited by an exclusive owner, the window
+     * is settled and released first, and only then the ledger thread waits for them.
+     */
+    private void lock(final Transaction transaction) {
+      if (tryLock(transaction, 0)) {
+        return;
+      }
+      settle();
+      if (!tryLock(transaction, TIMEOUT)) {
+        throw new TransactionTimeoutException(transaction.id());
+      }
+    }
+
+    private boolean tryLock(final Transaction transaction, final long timeout) {
+      final long deadline = System.nanoTime() + timeout;
+      final boolean senderFirst = transaction.from().compareTo(transaction.to()) < 0;
+      final Lock first = accountLocks.shared(senderFirst ? transaction.from() : transaction.to());
+      final Lock second = accountLocks.shared(senderFirst ? transaction.to() : transaction.from());
+
+      try {
+        // timed tryLock doesn't barge in front of threads waiting for the exclusive lock
+        if (!first.tryLock(timeout, TimeUnit.NANOSECONDS)) {
+          return false;
+        }
+        try {
+          if (!second.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            first.unlock();
+            return false;
+          }
+        } catch (InterruptedException exception) {
+          first.unlock();
+          throw exception;
+        }
+      } catch (InterruptedException exception) {
+        interrupt();
+        throw new RuntimeException(exception);
+      }
+
+      locked.add(first);
+      locked.add(second);
+      return true;
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Netting stage of a batch window. Transactions are validated one after another against
+ * running balances, which only exist here, and nothing is written to the account repository
+ * until the window is settled. Settlement computes net delta of every account and moves money
+ * from net debtors to net creditors of the same currency, so a window touching n accounts
+ * costs at most n - 1 repository transfers, no matter how many transactions it contains.
+ *
+ * Accounts have to be guarded against other writers debiting them while the window is open
+ * (account locks or a single-writer ledger thread). Credits made by other writers are fine,
+ * because deltas and not balances are applied.
+ *
+ * Settlement is all or nothing: when a repository transfer fails, transfers already made
+ * are reverted before the failure is rethrown. Callers recording transactions of the window
+ * after settlement revert it the same way when recording fails.
+ */
+final class TransferNetting {
+
+  private final AccountRepository accountRepository;
+  private final Map<String, Position> positions = new LinkedHashMap<>();
+  private final Deque<Movement> settled = new ArrayDeque<>();
+
+  TransferNetting(final AccountRepository accountRepository) {
+    this.accountRepository = accountRepository;
+  }
+
+  /**
+   * Validates transaction against running balances and, if it's valid, adds it to the window.
+   */
+  void add(final Transaction transaction) {
+    add(transaction.from(), transaction.to(), transaction.money());
+  }
+
+  /**
+   * Validates movement of money between two accounts against running balances and,
+   * if it's valid, adds it to the window.
+   */
+  void add(final String from, final String to, final Money money) {
+    if (money.isNegative()) {
+      throw new NegativeMoneyValueException();
+    }
+
+    final Position sender = position(from);
+    final Position receiver = position(to);
+
+    if (sender == receiver) {
+      throw new TransferToTheSameAccountException();
+    }
+    if (!sender.balance.isSameCurrency(receiver.balance)
+        || !sender.balance.isSameCurrency(money)) {
+      throw new DifferentCurrencyException(from, to);
+    }
+    if (sender.balance.isLessThan(money)) {
+      throw new NotEnoughMoneyException(from);
+    }
+
+    sender.balance = sender.balance.minus(money);
+    receiver.balance = receiver.balance.plus(money);
+  }
+
+  /**
+   * Applies net movements of the window to the account repository, clears the window
+   * and returns the number of repository transfers it took.
+   */
+  int settle() {
+    settled.clear();
+    try {
+      return transferNetMovements();
+    } catch (RuntimeException exception) {
+      revert(exception);
+      throw exception;
+    } finally {
+      positions.clear();
+    }
+  }
+
+  /**
+   * Moves money of the last settlement back, in reverse order. Transfers, which can't be
+   * reverted, are added as suppressed exceptions to the cause of the revert.
+   */
+  void revert(final RuntimeException cause) {
+    while (!settled.isEmpty()) {
+      final Movement movement = settled.pop();
+      try {
+        accountRepository.transfer(
+            getAccount(movement.to), getAccount(movement.from), movement.money
+        );
+      } catch (RuntimeException exception) {
+        cause.addSuppressed(exception);
+      }
+    }
+  }
+
+  private int transferNetMovements() {
+    final Map<CurrencyUnit, Deque<Position>> debtors = new HashMap<>();
+    final Map<CurrencyUnit, Deque<Position>> creditors = new HashMap<>();
+
+    for (Position position : positions.values()) {
+      // from now on, balance keeps the part of the delta, which is not transferred yet
+      position.balance = position.balance.minus(position.initial);
+      if (position.balance.isNegative()) {
+        position.balance = position.balance.negated();
+        queue(debtors, position).add(position);
+      } else if (position.balance.isPositive()) {
+        queue(creditors, position).add(position);
+      }
+    }
+
+    int transfers = 0;
+    for (Map.Entry<CurrencyUnit, Deque<Position>> entry : debtors.entrySet()) {
+      final Deque<Position> from = entry.getValue();
+      final Deque<Position> to = creditors.get(entry.getKey());
+      while (!from.isEmpty()) {
+        final Position debtor = from.peek();
+        final Position creditor = to.peek();
+        final Money money = debtor.balance.isLessThan(creditor.balance)
+            ? debtor.balance
+            : creditor.balance;
+
+        accountRepository.transfer(
+            getAccount(debtor.number), getAccount(creditor.number), money
+        );
+        settled.push(new Movement(debtor.number, creditor.number, money));
+        transfers++;
+
+        if (debtor.settle(money)) {
+          from.pop();
+        }
+        if (creditor.settle(money)) {
+          to.pop();
+        }
+      }
+    }
+
+    return transfers;
+  }
+
+  private Position position(final String number) {
+    final Position position = positions.get(number);
+    if (position != null) {
+      return position;
+    }
+    final Position created = new Position(number, getAccount(number).money());
+    positions.put(number, created);
+    return created;
+  }
+
+  private Account getAccount(final String number) {
+    return Optional
+        .ofNullable(number)
+        .flatMap(accountRepository::get)
+        .orElseThrow(() -> new AccountNotExistsException(number));
+  }
+
+  private static Deque<Position> queue(final Map<CurrencyUnit, Deque<Position>> queues,
+      final Position position) {
+    return queues.computeIfAbsent(
+        position.initial.getCurrencyUnit(), currency -> new ArrayDeque<>()
+    );
+  }
+
+  private static final class Movement {
+    private final String from;
+    private final String to;
+    private final Money money;
+
+    private Movement(final String from, final String to, final Money money) {
+      this.from = from;
+      this.to = to;
+      this.money = money;
+    }
+  }
+
+  private static final class Position {
+    private final String number;
+    private final Money initial;
+    private Money balance;
+
+    private Position(final String number, final Money initial) {
+      this.number = number;
+      this.initial = initial;
+      this.balance = initial;
+    }
+
+    private boolean settle(final Money settled) {
+      balance = balance.minus(settled);
+      return balance.isZero();
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.pwittchen.money.transfer.api.command.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Registry of locks kept per account number. Account objects are replaced by the repository
+ * on every transfer, so commands guarding a commit lock account numbers instead. Commands
+ * sharing one registry exclude each other on the same accounts.
+ *
+ * Every account has an exclusive and a shared lock. Commands checking balances themselves
+ * (batches, multi-leg transactions and lock based single commits) take the exclusive one.
+ * Commands leaving the check to the account repository or to a single ledger thread take
+ * the shared one, so they don't block each other, but still can't interleave with a batch.
+ * Locks of several accounts are always taken in the order of account numbers.
+ */
+public class AccountLocks {
+
+  private final ConcurrentMap<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
+
+  public Lock get(final String number) {
+    return lock(number).writeLock();
+  }
+
+  public Lock shared(final String number) {
+    return lock(number).readLock();
+  }
+
+  private ReadWriteLock lock(final String number) {
+    return locks.computeIfAbsent(number, key -> new ReentrantReadWriteLock());
+  }
+}
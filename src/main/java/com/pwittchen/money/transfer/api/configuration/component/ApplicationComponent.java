@@ -5,8 +5,18 @@ import com.pwittchen.money.transfer.api.configuration.module.ControllerModule;
 import com.pwittchen.money.transfer.api.configuration.module.QueryModule;
 import com.pwittchen.money.transfer.api.configuration.module.RepositoryModule;
 import com.pwittchen.money.transfer.api.controller.AccountController;
+import com.pwittchen.money.transfer.api.controller.AsyncTransactionController;
+import com.pwittchen.money.transfer.api.controller.StatsController;
 import com.pwittchen.money.transfer.api.controller.TransactionController;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.repository.index.IndexedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.jdbc.ConnectionPool;
+import com.pwittchen.money.transfer.api.repository.journal.MappedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.TieredTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.wal.Snapshotter;
+import com.pwittchen.money.transfer.api.repository.wal.WriteAheadLog;
 import dagger.Component;
+import java.util.Optional;
 import javax.inject.Singleton;
 
 @Singleton
@@ -20,4 +30,22 @@ public interface ApplicationComponent {
   AccountController accountController();
 
   TransactionController transactionController();
+
+  AsyncTransactionController asyncTransactionController();
+
+  StatsController statsController();
+
+  IdempotencyCache idempotencyCache();
+
+  Optional<WriteAheadLog> writeAheadLog();
+
+  Optional<Snapshotter> snapshotter();
+
+  IndexedTransactionRepository indexedTransactionRepository();
+
+  Optional<MappedTransactionRepository> transactionJournal();
+
+  Optional<TieredTransactionRepository> transactionHistory();
+
+  Optional<ConnectionPool> connectionPool();
 }
@@ -1,11 +1,32 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
 import com.pwittchen.money.transfer.api.command.CreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.SubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitTransactionCommand;
 import com.pwittchen.money.transfer.api.command.implementation.DefaultCreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultSplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultSubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OptimisticCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.SequencedCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.configuration.option.AccountStorage;
+import com.pwittchen.money.transfer.api.configuration.option.ApplicationOptions;
+import com.pwittchen.money.transfer.api.configuration.option.CommitStrategy;
+import com.pwittchen.money.transfer.api.configuration.option.Durability;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
 import dagger.Module;
 import dagger.Provides;
 import javax.inject.Inject;
@@ -14,19 +35,163 @@ import javax.inject.Singleton;
 @Module
 public class CommandModule {
 
+  private static final int LEDGER_CAPACITY = 8192;
+  private static final int COMMIT_THREADS =
+      Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  private final CommitStrategy commitStrategy;
+  private final int ledgerPartitions;
+  private final AccountStorage accountStorage;
+  private final Durability durability;
+
+  public CommandModule() {
+    this(ApplicationOptions.builder().build());
+  }
+
+  /**
+   * Creates module for the given options. Partitions of the sequenced strategy credit accounts
+   * of other partitions concurrently, so more than one of them requires an account storage,
+   * which applies a transfer atomically.
+   *
+   * Transfers are applied in memory before their transactions are appended to the write-ahead
+   * log, so with {@link Durability#WAL} the commit strategy has to keep a transfer hidden from
+   * other commits until it's logged. Otherwise a transfer spending money of another one could
+   * be logged before it and be replayed without it after a crash.
+   */
+  public CommandModule(final ApplicationOptions options) {
+    this.commitStrategy = options.commitStrategy();
+    this.ledgerPartitions = options.ledgerPartitions();
+    this.accountStorage = options.accountStorage();
+    this.durability = options.durability();
+  }
+
+  @Provides
+  @Singleton
+  AccountLocks provideAccountLocks() {
+    return new AccountLocks();
+  }
+
   @Inject
   @Provides
   @Singleton
   CommitTransactionCommand provideCommitTransactionCommand(
       AccountRepository accountRepository,
-      TransactionRepository transactionRepository) {
-    return new DefaultCommitTransactionCommand(accountRepository, transactionRepository);
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks) {
+    if (durability == Durability.WAL && !logsTransfersInOrder()) {
+      throw new IllegalStateException(String.format(
+          "%s durability requires transfers to be logged in the order they're applied, "
+              + "which %s commit strategy with %d ledger partitions doesn't guarantee; "
+              + "use default, ordered_lock or sequenced with one partition",
+          durability.name().toLowerCase(), commitStrategy.name().toLowerCase(), ledgerPartitions
+      ));
+    }
+
+    switch (commitStrategy) {
+      case ORDERED_LOCK:
+        return new OrderedLockCommitTransactionCommand(
+            accountRepository, transactionRepository, accountLocks
+        );
+      case SEQUENCED:
+        if (ledgerPartitions > 1 && accountStorage == AccountStorage.IN_MEMORY) {
+          throw new IllegalStateException(String.format(
+              "%d ledger partitions require atomic transfers, which %s account storage "
+                  + "doesn't have; use striped, optimistic, off_heap, minor_units or jdbc",
+              ledgerPartitions, accountStorage.name().toLowerCase()
+          ));
+        }
+        return new SequencedCommitTransactionCommand(
+            accountRepository, transactionRepository, ledgerPartitions, LEDGER_CAPACITY,
+            accountLocks
+        );
+      case OPTIMISTIC:
+        return new OptimisticCommitTransactionCommand(
+            accountRepository, transactionRepository, accountLocks
+        );
+      case DEFAULT:
+      default:
+        return new DefaultCommitTransactionCommand(
+            accountRepository, transactionRepository, accountLocks
+        );
+    }
   }
 
   @Inject
   @Provides
   @Singleton
-  CreateAccountCommand provideCreateAccountCommand(AccountRepository accountRepository) {
-    return new DefaultCreateAccountCommand(accountRepository);
+  CommitTransactionBatchCommand provideCommitTransactionBatchCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks) {
+    return new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  CommitMultiLegTransactionCommand provideCommitMultiLegTransactionCommand(
+      AccountRepository accountRepository,
+      TransactionRepository transactionRepository,
+      AccountLocks accountLocks) {
+    return new DefaultCommitMultiLegTransactionCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  SubmitTransactionCommand provideSubmitTransactionCommand(
+      CommitTransactionCommand commitTransactionCommand,
+      AccountRepository accountRepository,
+      TransactionStatusRepository transactionStatusRepository) {
+    return new DefaultSubmitTransactionCommand(
+        commitTransactionCommand,
+        accountRepository,
+        transactionStatusRepository,
+        COMMIT_THREADS,
+        LEDGER_CAPACITY
+    );
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  CreateAccountCommand provideCreateAccountCommand(AccountRepository accountRepository,
+      LedgerAggregates ledgerAggregates, TransactionIndex transactionIndex,
+      AccountLocks accountLocks) {
+    return new DefaultCreateAccountCommand(
+        accountRepository, ledgerAggregates, transactionIndex, accountLocks
+    );
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  SplitAccountCommand provideSplitAccountCommand(AccountRepository accountRepository) {
+    return new DefaultSplitAccountCommand(accountRepository);
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  ImportAccountsCommand provideImportAccountsCommand(CreateAccountCommand createAccountCommand) {
+    return new DefaultImportAccountsCommand(createAccountCommand);
+  }
+
+  // default and ordered_lock hold exclusive account locks until transactions are logged,
+  // and a single ledger thread logs every window before it settles the next one
+  private boolean logsTransfersInOrder() {
+    switch (commitStrategy) {
+      case DEFAULT:
+      case ORDERED_LOCK:
+        return true;
+      case SEQUENCED:
+        return ledgerPartitions <= 1;
+      default:
+        return false;
+    }
   }
 }
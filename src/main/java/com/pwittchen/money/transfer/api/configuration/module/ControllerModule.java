@@ -1,39 +1,82 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
 import com.pwittchen.money.transfer.api.command.CreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.SubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.configuration.option.ApplicationOptions;
 import com.pwittchen.money.transfer.api.controller.AccountController;
+import com.pwittchen.money.transfer.api.controller.AsyncTransactionController;
+import com.pwittchen.money.transfer.api.controller.StatsController;
 import com.pwittchen.money.transfer.api.controller.TransactionController;
 import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
 import com.pwittchen.money.transfer.api.controller.context.DefaultContextWrapper;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.query.GetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.query.GetTransactionStatusQuery;
 import dagger.Module;
 import dagger.Provides;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Module
 public class ControllerModule {
 
+  private final int idempotencyTtlSeconds;
+  private final int idempotencyMaxEntries;
+
+  public ControllerModule() {
+    this(ApplicationOptions.builder().build());
+  }
+
+  public ControllerModule(final ApplicationOptions options) {
+    this.idempotencyTtlSeconds = options.idempotencyTtl();
+    this.idempotencyMaxEntries = options.idempotencySize();
+  }
+
   @Provides
   @Singleton
   ContextWrapper provideContextWrapper() {
     return new DefaultContextWrapper();
   }
 
+  @Provides
+  @Singleton
+  IdempotencyCache provideIdempotencyCache() {
+    return new IdempotencyCache(idempotencyTtlSeconds, TimeUnit.SECONDS, idempotencyMaxEntries);
+  }
+
   @Inject
   @Provides
   @Singleton
   AccountController provideAccountController(
       final ContextWrapper contextWrapper,
       final GetAllAccountsQuery getAllAccountsQuery,
-      final CreateAccountCommand createAccountCommand
+      final GetAccountTransactionsQuery getAccountTransactionsQuery,
+      final GetAccountBalanceQuery getAccountBalanceQuery,
+      final GetAccountQuery getAccountQuery,
+      final CreateAccountCommand createAccountCommand,
+      final SplitAccountCommand splitAccountCommand,
+      final ImportAccountsCommand importAccountsCommand
   ) {
     return new AccountController(
         contextWrapper,
         getAllAccountsQuery,
-        createAccountCommand
+        getAccountTransactionsQuery,
+        getAccountBalanceQuery,
+        getAccountQuery,
+        createAccountCommand,
+        splitAccountCommand,
+        importAccountsCommand
     );
   }
 
@@ -43,12 +86,45 @@ public class ControllerModule {
   TransactionController provideTransactionController(
       final ContextWrapper contextWrapper,
       final GetAllTransactionsQuery getAllTransactionsQuery,
-      final CommitTransactionCommand commitTransactionCommand
+      final CommitTransactionCommand commitTransactionCommand,
+      final CommitTransactionBatchCommand commitTransactionBatchCommand,
+      final CommitMultiLegTransactionCommand commitMultiLegTransactionCommand,
+      final IdempotencyCache idempotencyCache
   ) {
     return new TransactionController(
         contextWrapper,
         getAllTransactionsQuery,
-        commitTransactionCommand
+        commitTransactionCommand,
+        commitTransactionBatchCommand,
+        commitMultiLegTransactionCommand,
+        idempotencyCache
     );
   }
+
+  @Inject
+  @Provides
+  @Singleton
+  AsyncTransactionController provideAsyncTransactionController(
+      final ContextWrapper contextWrapper,
+      final SubmitTransactionCommand submitTransactionCommand,
+      final GetTransactionStatusQuery getTransactionStatusQuery,
+      final IdempotencyCache idempotencyCache
+  ) {
+    return new AsyncTransactionController(
+        contextWrapper,
+        submitTransactionCommand,
+        getTransactionStatusQuery,
+        idempotencyCache
+    );
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  StatsController provideStatsController(
+      final ContextWrapper contextWrapper,
+      final GetLedgerStatsQuery getLedgerStatsQuery
+  ) {
+    return new StatsController(contextWrapper, getLedgerStatsQuery);
+  }
 }
@@ -1,11 +1,24 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.query.GetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.query.GetTransactionStatusQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAccountQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetTransactionStatusQuery;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
 import dagger.Module;
 import dagger.Provides;
 import javax.inject.Inject;
@@ -24,7 +37,48 @@ public class QueryModule {
   @Inject
   @Provides
   @Singleton
-  GetAllTransactionsQuery provideGetTransactionQuery(TransactionRepository transactionRepository) {
-    return new DefaultGetAllTransactionsQuery(transactionRepository);
+  GetAccountQuery provideGetAccountQuery(AccountRepository accountRepository) {
+    return new DefaultGetAccountQuery(accountRepository);
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  GetAllTransactionsQuery provideGetTransactionQuery(TransactionRepository transactionRepository,
+      TransactionIndex transactionIndex) {
+    return new DefaultGetAllTransactionsQuery(transactionRepository, transactionIndex);
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  GetAccountBalanceQuery provideGetAccountBalanceQuery(AccountRepository accountRepository,
+      TransactionRepository transactionRepository, TransactionIndex transactionIndex) {
+    return new DefaultGetAccountBalanceQuery(
+        accountRepository, transactionRepository, transactionIndex
+    );
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  GetAccountTransactionsQuery provideGetAccountTransactionsQuery(
+      AccountRepository accountRepository, GetAllTransactionsQuery getAllTransactionsQuery) {
+    return new DefaultGetAccountTransactionsQuery(accountRepository, getAllTransactionsQuery);
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  GetTransactionStatusQuery provideGetTransactionStatusQuery(
+      TransactionStatusRepository transactionStatusRepository) {
+    return new DefaultGetTransactionStatusQuery(transactionStatusRepository);
+  }
+
+  @Inject
+  @Provides
+  @Singleton
+  GetLedgerStatsQuery provideGetLedgerStatsQuery(LedgerAggregates ledgerAggregates) {
+    return new DefaultGetLedgerStatsQuery(ledgerAggregates);
   }
 }
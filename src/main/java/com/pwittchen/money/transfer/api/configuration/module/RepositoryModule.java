@@ -1,25 +1,313 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.configuration.option.AccountStorage;
+import com.pwittchen.money.transfer.api.configuration.option.ApplicationOptions;
+import com.pwittchen.money.transfer.api.configuration.option.Durability;
+import com.pwittchen.money.transfer.api.configuration.option.TransactionStorage;
+import com.pwittchen.money.transfer.api.model.Transaction;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.IndexedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
 import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
 import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.MinorUnitAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.OptimisticAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import com.pwittchen.money.transfer.api.repository.jdbc.ConnectionPool;
+import com.pwittchen.money.transfer.api.repository.jdbc.JdbcAccountRepository;
+import com.pwittchen.money.transfer.api.repository.jdbc.JdbcException;
+import com.pwittchen.money.transfer.api.repository.jdbc.JdbcTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.MappedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.TieredTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.offheap.OffHeapAccountRepository;
+import com.pwittchen.money.transfer.api.repository.wal.DurableAccountRepository;
+import com.pwittchen.money.transfer.api.repository.wal.DurableTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.wal.Snapshotter;
+import com.pwittchen.money.transfer.api.repository.wal.WalRecovery;
+import com.pwittchen.money.transfer.api.repository.wal.WriteAheadLog;
 import dagger.Module;
 import dagger.Provides;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Module
 public class RepositoryModule {
 
+  private static final Logger LOG = LoggerFactory.getLogger(RepositoryModule.class);
+  private static final int MAX_RETRIES = 16;
+  private static final int INDEX_SAVE_INTERVAL_SECONDS = 60;
+
+  private final ApplicationOptions options;
+
+  public RepositoryModule() {
+    this(ApplicationOptions.builder().build());
+  }
+
+  public RepositoryModule(final ApplicationOptions options) {
+    this.options = options;
+  }
+
+  /**
+   * Provides write-ahead log, which makes new accounts and transactions durable and restores
+   * them after a restart, when the durability is {@link Durability#WAL}.
+   */
+  @Provides
+  @Singleton
+  Optional<WriteAheadLog> provideWriteAheadLog() {
+    if (options.durability() != Durability.WAL) {
+      return Optional.empty();
+    }
+
+    try {
+      final WriteAheadLog writeAheadLog = WriteAheadLog.open(
+          Paths.get(options.walDirectory()),
+          options.walGroupSize(),
+          options.walGroupDelay(),
+          TimeUnit.MICROSECONDS
+      );
+      LOG.info("write-ahead log opened in {} at lsn {}",
+          options.walDirectory(), writeAheadLog.lastSyncedLsn());
+      return Optional.of(writeAheadLog);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  /**
+   * Provides pool of connections to the database used by the {@code jdbc} storages of
+   * accounts and transactions, when one of them is selected.
+   */
+  @Provides
+  @Singleton
+  Optional<ConnectionPool> provideConnectionPool() {
+    if (options.accountStorage() != AccountStorage.JDBC
+        && options.transactionStorage() != TransactionStorage.JDBC) {
+      return Optional.empty();
+    }
+
+    try {
+      final ConnectionPool connectionPool =
+          ConnectionPool.open(options.jdbcUrl(), options.jdbcPoolSize());
+      LOG.info("database {} opened with {} connections",
+          options.jdbcUrl(), connectionPool.size());
+      return Optional.of(connectionPool);
+    } catch (SQLException exception) {
+      throw new JdbcException(exception);
+    }
+  }
+
+  @Provides
+  @Singleton
+  Optional<MappedTransactionRepository> provideTransactionJournal() {
+    if (options.transactionStorage() != TransactionStorage.MAPPED) {
+      return Optional.empty();
+    }
+
+    try {
+      final MappedTransactionRepository journal = MappedTransactionRepository.open(
+          Paths.get(options.journalDirectory()),
+          options.journalSegmentSize() * 1024 * 1024,
+          options.journalMappedSegments()
+      );
+      LOG.info("transaction journal opened in {} with {} transactions in {} segments",
+          options.journalDirectory(), journal.size(), journal.segments());
+      return Optional.of(journal);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  /**
+   * Provides tiered transaction history with its compaction of the hot tier started.
+   */
+  @Provides
+  @Singleton
+  Optional<TieredTransactionRepository> provideTransactionHistory() {
+    if (options.transactionStorage() != TransactionStorage.TIERED) {
+      return Optional.empty();
+    }
+
+    try {
+      final TieredTransactionRepository history = TieredTransactionRepository.open(
+          Paths.get(options.historyDirectory()),
+          options.historyHotSize(),
+          options.historyHotWindow(),
+          TimeUnit.SECONDS
+      );
+      history.start(1, TimeUnit.SECONDS);
+      LOG.info("transaction history opened in {} with {} transactions in {} files",
+          options.historyDirectory(), history.coldSize(), history.files());
+      return Optional.of(history);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  /**
+   * Provides repository, which keeps transactions outside of the heap and survives restarts,
+   * or nothing, when transactions are kept in memory.
+   */
+  @Provides
+  @Singleton
+  Optional<TransactionRepository> providePersistentTransactionRepository(
+      Optional<MappedTransactionRepository> transactionJournal,
+      Optional<TieredTransactionRepository> transactionHistory,
+      Optional<ConnectionPool> connectionPool) {
+    switch (options.transactionStorage()) {
+      case JDBC:
+        return connectionPool.map(JdbcTransactionRepository::new);
+      case MAPPED:
+        return transactionJournal.map(TransactionRepository.class::cast);
+      case TIERED:
+        return transactionHistory.map(TransactionRepository.class::cast);
+      case IN_MEMORY:
+      default:
+        return Optional.empty();
+    }
+  }
+
+  @Provides
+  @Singleton
+  AccountRepository provideAccountRepository(Optional<WriteAheadLog> writeAheadLog,
+      Optional<ConnectionPool> connectionPool) {
+    final AccountRepository accountRepository = createAccountRepository(connectionPool);
+    if (writeAheadLog.isEmpty()) {
+      return accountRepository;
+    }
+    WalRecovery.recoverAccounts(writeAheadLog.get(), accountRepository);
+    return new DurableAccountRepository(accountRepository, writeAheadLog.get());
+  }
+
+  private AccountRepository createAccountRepository(final Optional<ConnectionPool> connectionPool) {
+    switch (options.accountStorage()) {
+      case STRIPED:
+        return new StripedAccountRepository();
+      case MINOR_UNITS:
+        return new MinorUnitAccountRepository();
+      case OFF_HEAP:
+        return new OffHeapAccountRepository();
+      case OPTIMISTIC:
+        return new OptimisticAccountRepository(MAX_RETRIES, options.splitThreshold());
+      case JDBC:
+        return new JdbcAccountRepository(connectionPool.orElseThrow());
+      case IN_MEMORY:
+      default:
+        return new InMemoryAccountRepository();
+    }
+  }
+
+  @Provides
+  @Singleton
+  IndexedTransactionRepository provideIndexedTransactionRepository(
+      Optional<TransactionRepository> persistentTransactionRepository,
+      Optional<WriteAheadLog> writeAheadLog, AccountRepository accountRepository) {
+    final TransactionRepository transactionRepository =
+        persistentTransactionRepository.orElseGet(InMemoryTransactionRepository::new);
+    boolean truncated = false;
+    if (writeAheadLog.isPresent()) {
+      // a persistent repository survives restarts, so only transactions it's missing are
+      // recovered; an in-memory one gets the whole history, which is kept in the log
+      final Optional<Transaction> last = transactionRepository.last();
+      WalRecovery.recoverTransactions(
+          writeAheadLog.get(), transactionRepository, last.map(Transaction::id).orElse(null)
+      );
+      // transactions in deleted segments are lost, unless the repository already held them
+      truncated = last.isEmpty() && writeAheadLog.get().firstLsn() > 1;
+    }
+    final IndexedTransactionRepository indexedTransactionRepository =
+        persistentTransactionRepository.isPresent()
+            ? openIndex(transactionRepository)
+            : new IndexedTransactionRepository(transactionRepository);
+    if (truncated) {
+      final LocalDateTime retainedFrom = transactionRepository
+          .get(0, 1)
+          .stream()
+          .map(Transaction::createdAt)
+          .filter(Objects::nonNull)
+          .findFirst()
+          .orElseGet(LocalDateTime::now);
+      indexedTransactionRepository.index().retainFrom(retainedFrom);
+    }
+    // accounts, which already exist, e.g. restored after a restart, are added once
+    indexedTransactionRepository.addAccounts(accountRepository.iterator());
+    return indexedTransactionRepository;
+  }
+
+  // a history, which survives restarts, gets an index, which survives them too, so it's not
+  // built from the whole history on every start and doesn't keep it on the heap
+  private IndexedTransactionRepository openIndex(
+      final TransactionRepository transactionRepository) {
+    try {
+      final IndexedTransactionRepository indexedTransactionRepository =
+          IndexedTransactionRepository.open(
+              transactionRepository, Paths.get(options.indexDirectory())
+          );
+      indexedTransactionRepository.start(INDEX_SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+      return indexedTransactionRepository;
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  @Provides
+  @Singleton
+  TransactionRepository provideTransactionRepository(
+      IndexedTransactionRepository transactionRepository, Optional<WriteAheadLog> writeAheadLog) {
+    if (writeAheadLog.isEmpty()) {
+      return transactionRepository;
+    }
+    return new DurableTransactionRepository(transactionRepository, writeAheadLog.get());
+  }
+
+  /**
+   * Provides snapshotter of the write-ahead log, which takes snapshots of accounts
+   * in the background every {@code snapshot.interval} seconds.
+   */
+  @Provides
+  @Singleton
+  Optional<Snapshotter> provideSnapshotter(Optional<WriteAheadLog> writeAheadLog,
+      TransactionRepository transactionRepository) {
+    return writeAheadLog.map(log -> {
+      final Snapshotter snapshotter = new Snapshotter(log, transactionRepository);
+      if (options.snapshotInterval() > 0) {
+        snapshotter.start(options.snapshotInterval(), TimeUnit.SECONDS);
+      }
+      return snapshotter;
+    });
+  }
+
+  @Provides
+  @Singleton
+  TransactionIndex provideTransactionIndex(IndexedTransactionRepository transactionRepository) {
+    return transactionRepository.index();
+  }
+
+  /**
+   * Provides aggregates of accounts and transactions maintained by the indexed repository.
+   * Accounts created later are added by the command, which creates them.
+   */
   @Provides
   @Singleton
-  AccountRepository provideAccountRepository() {
-    return new InMemoryAccountRepository();
+  LedgerAggregates provideLedgerAggregates(IndexedTransactionRepository transactionRepository) {
+    return transactionRepository.aggregates();
   }
 
   @Provides
   @Singleton
-  TransactionRepository provideTransactionRepository() {
-    return new InMemoryTransactionRepository();
+  TransactionStatusRepository provideTransactionStatusRepository() {
+    return new InMemoryTransactionStatusRepository();
   }
 }
@@ -0,0 +1,10 @@
+package com.pwittchen.money.transfer.api.configuration.option;
+
+public enum AccountStorage {
+  IN_MEMORY,
+  STRIPED,
+  MINOR_UNITS,
+  OFF_HEAP,
+  OPTIMISTIC,
+  JDBC
+}
@@ -0,0 +1,350 @@
+package com.pwittchen.money.transfer.api.configuration.option;
+
+import com.pwittchen.money.transfer.api.repository.journal.MappedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.TieredTransactionRepository;
+
+/**
+ * Options of the application passed to the modules, which create its components.
+ * Options, which aren't set, have the default values described in the README.
+ */
+public final class ApplicationOptions {
+  private final AccountStorage accountStorage;
+  private final int splitThreshold;
+  private final CommitStrategy commitStrategy;
+  private final int ledgerPartitions;
+  private final CommitMode commitMode;
+  private final int idempotencyTtl;
+  private final int idempotencySize;
+  private final Durability durability;
+  private final String walDirectory;
+  private final int walGroupSize;
+  private final int walGroupDelay;
+  private final int snapshotInterval;
+  private final TransactionStorage transactionStorage;
+  private final String journalDirectory;
+  private final int journalSegmentSize;
+  private final int journalMappedSegments;
+  private final String historyDirectory;
+  private final int historyHotSize;
+  private final int historyHotWindow;
+  private final String indexDirectory;
+  private final String jdbcUrl;
+  private final int jdbcPoolSize;
+  private final ServerThreads serverThreads;
+
+  private ApplicationOptions(final Builder builder) {
+    this.accountStorage = builder.accountStorage;
+    this.splitThreshold = builder.splitThreshold;
+    this.commitStrategy = builder.commitStrategy;
+    this.ledgerPartitions = builder.ledgerPartitions;
+    this.commitMode = builder.commitMode;
+    this.idempotencyTtl = builder.idempotencyTtl;
+    this.idempotencySize = builder.idempotencySize;
+    this.durability = builder.durability;
+    this.walDirectory = builder.walDirectory;
+    this.walGroupSize = builder.walGroupSize;
+    this.walGroupDelay = builder.walGroupDelay;
+    this.snapshotInterval = builder.snapshotInterval;
+    this.transactionStorage = builder.transactionStorage;
+    this.journalDirectory = builder.journalDirectory;
+    this.journalSegmentSize = builder.journalSegmentSize;
+    this.journalMappedSegments = builder.journalMappedSegments;
+    this.historyDirectory = builder.historyDirectory;
+    this.historyHotSize = builder.historyHotSize;
+    this.historyHotWindow = builder.historyHotWindow;
+    this.indexDirectory = builder.indexDirectory;
+    this.jdbcUrl = builder.jdbcUrl;
+    this.jdbcPoolSize = builder.jdbcPoolSize;
+    this.serverThreads = builder.serverThreads;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public AccountStorage accountStorage() {
+    return accountStorage;
+  }
+
+  public int splitThreshold() {
+    return splitThreshold;
+  }
+
+  public CommitStrategy commitStrategy() {
+    return commitStrategy;
+  }
+
+  public int ledgerPartitions() {
+    return ledgerPartitions;
+  }
+
+  public CommitMode commitMode() {
+    return commitMode;
+  }
+
+  /**
+   * Returns number of seconds, for which responses sent with an idempotency key are kept.
+   */
+  public int idempotencyTtl() {
+    return idempotencyTtl;
+  }
+
+  public int idempotencySize() {
+    return idempotencySize;
+  }
+
+  public Durability durability() {
+    return durability;
+  }
+
+  public String walDirectory() {
+    return walDirectory;
+  }
+
+  public int walGroupSize() {
+    return walGroupSize;
+  }
+
+  /**
+   * Returns time in microseconds the write-ahead log waits for more records of a group.
+   */
+  public int walGroupDelay() {
+    return walGroupDelay;
+  }
+
+  /**
+   * Returns number of seconds between snapshots of accounts, 0 when they're disabled.
+   */
+  public int snapshotInterval() {
+    return snapshotInterval;
+  }
+
+  public TransactionStorage transactionStorage() {
+    return transactionStorage;
+  }
+
+  public String journalDirectory() {
+    return journalDirectory;
+  }
+
+  /**
+   * Returns size of a segment of the mapped journal in MiB.
+   */
+  public int journalSegmentSize() {
+    return journalSegmentSize;
+  }
+
+  public int journalMappedSegments() {
+    return journalMappedSegments;
+  }
+
+  public String historyDirectory() {
+    return historyDirectory;
+  }
+
+  public int historyHotSize() {
+    return historyHotSize;
+  }
+
+  /**
+   * Returns number of seconds transactions stay in the hot tier of the tiered history.
+   */
+  public int historyHotWindow() {
+    return historyHotWindow;
+  }
+
+  public String indexDirectory() {
+    return indexDirectory;
+  }
+
+  public String jdbcUrl() {
+    return jdbcUrl;
+  }
+
+  public int jdbcPoolSize() {
+    return jdbcPoolSize;
+  }
+
+  public ServerThreads serverThreads() {
+    return serverThreads;
+  }
+
+  public static class Builder {
+    private AccountStorage accountStorage = AccountStorage.IN_MEMORY;
+    private int splitThreshold = 0;
+    private CommitStrategy commitStrategy = CommitStrategy.DEFAULT;
+    private int ledgerPartitions = 1;
+    private CommitMode commitMode = CommitMode.SYNC;
+    private int idempotencyTtl = 24 * 60 * 60;
+    private int idempotencySize = 100_000;
+    private Durability durability = Durability.NONE;
+    private String walDirectory = "data/wal";
+    private int walGroupSize = 256;
+    private int walGroupDelay = 0;
+    private int snapshotInterval = 600;
+    private TransactionStorage transactionStorage = TransactionStorage.IN_MEMORY;
+    private String journalDirectory = "data/journal";
+    private int journalSegmentSize = 64;
+    private int journalMappedSegments = MappedTransactionRepository.DEFAULT_MAPPED_SEGMENTS;
+    private String historyDirectory = "data/history";
+    private int historyHotSize = TieredTransactionRepository.DEFAULT_HOT_CAPACITY;
+    private int historyHotWindow = 300;
+    private String indexDirectory = "data/index";
+    private String jdbcUrl = "jdbc:h2:./data/db/ledger;LOCK_TIMEOUT=10000";
+    private int jdbcPoolSize = 8;
+    private ServerThreads serverThreads = ServerThreads.PLATFORM;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets options given as system properties passed to the JVM,
+     * e.g. {@code -Daccount.storage=striped}. Other options keep their current values.
+     */
+    public Builder fromSystemProperties() {
+      accountStorage = Options.get("account.storage", accountStorage);
+      splitThreshold = Options.getInt("account.split.threshold", splitThreshold);
+      commitStrategy = Options.get("commit.strategy", commitStrategy);
+      ledgerPartitions = Options.getInt("commit.partitions", ledgerPartitions);
+      commitMode = Options.get("commit.mode", commitMode);
+      idempotencyTtl = Options.getInt("idempotency.ttl", idempotencyTtl);
+      idempotencySize = Options.getInt("idempotency.size", idempotencySize);
+      durability = Options.get("storage.durability", durability);
+      walDirectory = Options.getString("wal.directory", walDirectory);
+      walGroupSize = Options.getInt("wal.group.size", walGroupSize);
+      walGroupDelay = Options.getInt("wal.group.delay", walGroupDelay);
+      snapshotInterval = Options.getInt("snapshot.interval", snapshotInterval);
+      transactionStorage = Options.get("transaction.storage", transactionStorage);
+      journalDirectory = Options.getString("journal.directory", journalDirectory);
+      journalSegmentSize = Options.getInt("journal.segment.size", journalSegmentSize);
+      journalMappedSegments = Options.getInt("journal.mapped.segments", journalMappedSegments);
+      historyDirectory = Options.getString("history.directory", historyDirectory);
+      historyHotSize = Options.getInt("history.hot.size", historyHotSize);
+      historyHotWindow = Options.getInt("history.hot.window", historyHotWindow);
+      indexDirectory = Options.getString("index.directory", indexDirectory);
+      jdbcUrl = Options.getString("jdbc.url", jdbcUrl);
+      jdbcPoolSize = Options.getInt("jdbc.pool.size", jdbcPoolSize);
+      serverThreads = Options.get("server.threads", serverThreads);
+      return this;
+    }
+
+    public Builder accountStorage(final AccountStorage accountStorage) {
+      this.accountStorage = accountStorage;
+      return this;
+    }
+
+    public Builder splitThreshold(final int splitThreshold) {
+      this.splitThreshold = splitThreshold;
+      return this;
+    }
+
+    public Builder commitStrategy(final CommitStrategy commitStrategy) {
+      this.commitStrategy = commitStrategy;
+      return this;
+    }
+
+    public Builder ledgerPartitions(final int ledgerPartitions) {
+      this.ledgerPartitions = ledgerPartitions;
+      return this;
+    }
+
+    public Builder commitMode(final CommitMode commitMode) {
+      this.commitMode = commitMode;
+      return this;
+    }
+
+    public Builder idempotencyTtl(final int idempotencyTtl) {
+      this.idempotencyTtl = idempotencyTtl;
+      return this;
+    }
+
+    public Builder idempotencySize(final int idempotencySize) {
+      this.idempotencySize = idempotencySize;
+      return this;
+    }
+
+    public Builder durability(final Durability durability) {
+      this.durability = durability;
+      return this;
+    }
+
+    public Builder walDirectory(final String walDirectory) {
+      this.walDirectory = walDirectory;
+      return this;
+    }
+
+    public Builder walGroupSize(final int walGroupSize) {
+      this.walGroupSize = walGroupSize;
+      return this;
+    }
+
+    public Builder walGroupDelay(final int walGroupDelay) {
+      this.walGroupDelay = walGroupDelay;
+      return this;
+    }
+
+    public Builder snapshotInterval(final int snapshotInterval) {
+      this.snapshotInterval = snapshotInterval;
+      return this;
+    }
+
+    public Builder transactionStorage(final TransactionStorage transactionStorage) {
+      this.transactionStorage = transactionStorage;
+      return this;
+    }
+
+    public Builder journalDirectory(final String journalDirectory) {
+      this.journalDirectory = journalDirectory;
+      return this;
+    }
+
+    public Builder journalSegmentSize(final int journalSegmentSize) {
+      this.journalSegmentSize = journalSegmentSize;
+      return this;
+    }
+
+    public Builder journalMappedSegments(final int journalMappedSegments) {
+      this.journalMappedSegments = journalMappedSegments;
+      return this;
+    }
+
+    public Builder historyDirectory(final String historyDirectory) {
+      this.historyDirectory = historyDirectory;
+      return this;
+    }
+
+    public Builder historyHotSize(final int historyHotSize) {
+      this.historyHotSize = historyHotSize;
+      return this;
+    }
+
+    public Builder historyHotWindow(final int historyHotWindow) {
+      this.historyHotWindow = historyHotWindow;
+      return this;
+    }
+
+    public Builder indexDirectory(final String indexDirectory) {
+      this.indexDirectory = indexDirectory;
+      return this;
+    }
+
+    public Builder jdbcUrl(final String jdbcUrl) {
+      this.jdbcUrl = jdbcUrl;
+      return this;
+    }
+
+    public Builder jdbcPoolSize(final int jdbcPoolSize) {
+      this.jdbcPoolSize = jdbcPoolSize;
+      return this;
+    }
+
+    public Builder serverThreads(final ServerThreads serverThreads) {
+      this.serverThreads = serverThreads;
+      return this;
+    }
+
+    public ApplicationOptions build() {
+      return new ApplicationOptions(this);
+    }
+  }
+}
@@ -0,0 +1,6 @@
+package com.pwittchen.money.transfer.api.configuration.option;
+
+public enum CommitMode {
+  SYNC,
+  ASYNC
+}
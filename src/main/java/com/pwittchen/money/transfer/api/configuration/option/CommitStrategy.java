@@ -0,0 +1,8 @@
+package com.pwittchen.money.transfer.api.configuration.option;
+
+public enum CommitStrategy {
+  DEFAULT,
+  ORDERED_LOCK,
+  SEQUENCED,
+  OPTIMISTIC
+}
@@ -0,0 +1,47 @@
+package com.pwittchen.money.transfer.api.configuration.option;
+
+import java.util.Locale;
+
+public final class Options {
+
+  private Options() {
+  }
+
+  /**
+   * Reads an enum option from the system properties, e.g. {@code -Daccount.storage=striped}.
+   * Falls back to the default value when the property is missing or has an unknown value.
+   */
+  public static <T extends Enum<T>> T get(final String key, final T defaultValue) {
+    final String value = System.getProperty(key);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+
+    try {
+      return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException exception) {
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Reads a numeric option from the system properties, e.g. {@code -Dcommit.partitions=4}.
+   * Falls back to the default value when the property is missing or is not a number.
+   */
+  public static int getInt(final String key, final int defaultValue) {
+    try {
+      return Integer.parseInt(System.getProperty(key, String.valueOf(defaultValue)));
+    } catch (NumberFormatException exception) {
+      return defaultValue;
+    }
+  }
+
+  /**
+   * Reads a text option from the system properties, e.g. {@code -Dwal.directory=data/wal}.
+   * Falls back to the default value when the property is missing or empty.
+   */
+  public static String getString(final String key, final String defaultValue) {
+    final String value = System.getProperty(key);
+    return value == null || value.isEmpty() ? defaultValue : value;
+  }
+}
@@ -0,0 +1,8 @@
+package com.pwittchen.money.transfer.api.configuration.option;
+
+public enum TransactionStorage {
+  IN_MEMORY,
+  MAPPED,
+  TIERED,
+  JDBC
+}
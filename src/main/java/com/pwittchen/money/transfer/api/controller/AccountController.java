@@ -1,16 +1,33 @@
 package com.pwittchen.money.transfer.api.controller;
 
 import com.pwittchen.money.transfer.api.command.CreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.HistoryNotAvailableException;
 import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
 import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.AccountBalance;
+import com.pwittchen.money.transfer.api.model.ImportFormat;
+import com.pwittchen.money.transfer.api.model.ImportResult;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.query.GetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllAccountsQuery;
 import io.javalin.http.Context;
 import io.javalin.plugin.openapi.annotations.HttpMethod;
 import io.javalin.plugin.openapi.annotations.OpenApi;
 import io.javalin.plugin.openapi.annotations.OpenApiContent;
 import io.javalin.plugin.openapi.annotations.OpenApiParam;
+import io.javalin.plugin.openapi.annotations.OpenApiRequestBody;
 import io.javalin.plugin.openapi.annotations.OpenApiResponse;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import javax.inject.Inject;
@@ -21,31 +38,174 @@ public class AccountController {
 
   private ContextWrapper contextWrapper;
   private GetAllAccountsQuery getAllAccountsQuery;
+  private GetAccountTransactionsQuery getAccountTransactionsQuery;
+  private GetAccountBalanceQuery getAccountBalanceQuery;
+  private GetAccountQuery getAccountQuery;
   private CreateAccountCommand createAccountCommand;
+  private SplitAccountCommand splitAccountCommand;
+  private ImportAccountsCommand importAccountsCommand;
 
   @Inject public AccountController(
       final ContextWrapper contextWrapper,
       final GetAllAccountsQuery getAllAccountsQuery,
-      final CreateAccountCommand createAccountCommand
+      final GetAccountTransactionsQuery getAccountTransactionsQuery,
+      final GetAccountBalanceQuery getAccountBalanceQuery,
+      final GetAccountQuery getAccountQuery,
+      final CreateAccountCommand createAccountCommand,
+      final SplitAccountCommand splitAccountCommand,
+      final ImportAccountsCommand importAccountsCommand
   ) {
     this.contextWrapper = contextWrapper;
     this.getAllAccountsQuery = getAllAccountsQuery;
+    this.getAccountTransactionsQuery = getAccountTransactionsQuery;
+    this.getAccountBalanceQuery = getAccountBalanceQuery;
+    this.getAccountQuery = getAccountQuery;
     this.createAccountCommand = createAccountCommand;
+    this.splitAccountCommand = splitAccountCommand;
+    this.importAccountsCommand = importAccountsCommand;
   }
 
   @OpenApi(
       method = HttpMethod.GET,
       path = "/account",
-      description = "gets all accounts",
+      description = "gets all accounts; with Accept: application/x-ndjson, accounts are "
+          + "streamed one per line",
       responses = @OpenApiResponse(
           status = "200",
-          content = @OpenApiContent(from = Account.class, isArray = true)
+          content = {
+              @OpenApiContent(from = Account.class, isArray = true),
+              @OpenApiContent(from = Account.class, type = ContextWrapper.NDJSON)
+          }
       )
   )
   public void getAll(final Context context) {
+    if (contextWrapper.accepts(context, ContextWrapper.NDJSON)) {
+      contextWrapper.ndjson(context, getAllAccountsQuery.iterator());
+      return;
+    }
     contextWrapper.json(context, getAllAccountsQuery.run());
   }
 
+  @OpenApi(
+      method = HttpMethod.GET,
+      path = "/account/:number",
+      description = "gets the account with its ETag; with If-None-Match listing the ETag, "
+          + "responds with 304 and no body, when the account hasn't changed",
+      pathParams = @OpenApiParam(name = "number"),
+      headers = @OpenApiParam(name = "If-None-Match"),
+      responses = {
+          @OpenApiResponse(status = "200", content = @OpenApiContent(from = Account.class)),
+          @OpenApiResponse(status = "304"),
+          @OpenApiResponse(status = "404", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void get(final Context context) {
+    final String number = contextWrapper.pathParam(context, "number");
+    final Optional<Account> account = getAccountQuery.run(number);
+    if (account.isEmpty()) {
+      contextWrapper.json(context, new AccountNotExistsException(number).getMessage(),
+          HttpStatus.NOT_FOUND_404);
+      return;
+    }
+
+    final String etag = etag(account.get());
+    contextWrapper.header(context, "ETag", etag);
+    if (matches(contextWrapper.header(context, "If-None-Match"), etag)) {
+      contextWrapper.status(context, HttpStatus.NOT_MODIFIED_304);
+      return;
+    }
+    contextWrapper.json(context, account.get(), HttpStatus.OK_200);
+  }
+
+  @OpenApi(
+      method = HttpMethod.GET,
+      path = "/account/:number/transactions",
+      description = "gets a page of transactions sent or received by the account in the order "
+          + "they were made, with a cursor of the next page",
+      pathParams = @OpenApiParam(name = "number"),
+      queryParams = {
+          @OpenApiParam(name = "limit"),
+          @OpenApiParam(name = "cursor")
+      },
+      responses = {
+          @OpenApiResponse(
+              status = "200",
+              content = @OpenApiContent(from = TransactionPage.class)
+          ),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "404", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void getTransactions(final Context context) {
+    final String limit = contextWrapper.queryParam(context, "limit");
+    final int pageSize;
+    try {
+      pageSize = limit == null ? TransactionPage.DEFAULT_LIMIT : Integer.parseInt(limit);
+    } catch (NumberFormatException exception) {
+      contextWrapper.json(context, "invalid limit", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+    if (pageSize < 1 || pageSize > TransactionPage.MAX_LIMIT) {
+      contextWrapper.json(context, "invalid limit", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    final String number = contextWrapper.pathParam(context, "number");
+    try {
+      final Optional<TransactionPage> page = getAccountTransactionsQuery.run(
+          number, contextWrapper.queryParam(context, "cursor"), pageSize
+      );
+      if (page.isPresent()) {
+        contextWrapper.json(context, page.get(), HttpStatus.OK_200);
+      } else {
+        contextWrapper.json(context, new AccountNotExistsException(number).getMessage(),
+            HttpStatus.NOT_FOUND_404);
+      }
+    } catch (IllegalArgumentException exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+    }
+  }
+
+  @OpenApi(
+      method = HttpMethod.GET,
+      path = "/account/:number/balance",
+      description = "gets balance of the account after all of its transactions made at or before "
+          + "the asOf time, e.g. 2019-12-31T23:59:59, or the current balance without it",
+      pathParams = @OpenApiParam(name = "number"),
+      queryParams = @OpenApiParam(name = "asOf"),
+      responses = {
+          @OpenApiResponse(status = "200", content = @OpenApiContent(from = AccountBalance.class)),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "404", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "422", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void getBalance(final Context context) {
+    final String asOf = contextWrapper.queryParam(context, "asOf");
+    final LocalDateTime time;
+    try {
+      time = asOf == null ? LocalDateTime.now() : LocalDateTime.parse(asOf);
+    } catch (DateTimeParseException exception) {
+      contextWrapper.json(context, "invalid date format", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    final String number = contextWrapper.pathParam(context, "number");
+    final Optional<AccountBalance> balance;
+    try {
+      balance = getAccountBalanceQuery.run(number, time);
+    } catch (HistoryNotAvailableException exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY_422);
+      return;
+    }
+    if (balance.isPresent()) {
+      contextWrapper.json(context, balance.get(), HttpStatus.OK_200);
+    } else {
+      contextWrapper.json(context, new AccountNotExistsException(number).getMessage(),
+          HttpStatus.NOT_FOUND_404);
+    }
+  }
+
   @OpenApi(
       method = HttpMethod.POST,
       path = "/account",
@@ -75,6 +235,105 @@ public class AccountController {
     }
   }
 
+  @OpenApi(
+      method = HttpMethod.POST,
+      path = "/account/import",
+      description = "imports accounts streamed as NDJSON (application/x-ndjson) or CSV (text/csv) "
+          + "lines with number, owner, currency and money; lines are imported in parallel "
+          + "batches and rejected lines are reported with their numbers",
+      requestBody = @OpenApiRequestBody(content = {
+          @OpenApiContent(type = "application/x-ndjson"),
+          @OpenApiContent(type = "text/csv")
+      }),
+      responses = {
+          @OpenApiResponse(status = "200", content = @OpenApiContent(from = ImportResult.class)),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "415", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void importAccounts(final Context context) {
+    final Optional<ImportFormat> format = ImportFormat.of(
+        contextWrapper.header(context, "Content-Type")
+    );
+    if (format.isEmpty()) {
+      contextWrapper.json(context,
+          "Unsupported import format, use application/x-ndjson or text/csv",
+          HttpStatus.UNSUPPORTED_MEDIA_TYPE_415);
+      return;
+    }
+
+    try (Reader reader = new InputStreamReader(
+        contextWrapper.bodyAsInputStream(context), StandardCharsets.UTF_8)) {
+      final ImportResult result = importAccountsCommand.run(reader, format.get());
+      contextWrapper.json(context, result, HttpStatus.OK_200);
+    } catch (Exception exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+    }
+  }
+
+  @OpenApi(
+      method = HttpMethod.POST,
+      path = "/account/:number/split",
+      description = "splits a heavily credited account into sub-balances",
+      pathParams = {
+          @OpenApiParam(name = "number"),
+          @OpenApiParam(name = "shards")
+      },
+      responses = {
+          @OpenApiResponse(status = "200", content = @OpenApiContent(from = Account.class)),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void split(final Context context) {
+    final int shards;
+    try {
+      shards = Integer.parseInt(contextWrapper.formParam(context, "shards"));
+    } catch (NumberFormatException exception) {
+      contextWrapper.json(context, "Invalid number of shards", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    try {
+      final Account account = splitAccountCommand.run(
+          contextWrapper.pathParam(context, "number"), shards
+      );
+      contextWrapper.json(context, account, HttpStatus.OK_200);
+    } catch (Exception exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+    }
+  }
+
+  /**
+   * Returns a strong ETag of the account's representation. Not every storage bumps the version
+   * of an account on a transfer, so the tag has a hash of the account's fields as well. Minor
+   * units of the balance are added to the hash last, with an odd multiplier, so two different
+   * balances of the same account never have the same tag.
+   */
+  private static String etag(final Account account) {
+    long hash = Objects.hash(
+        account.number(), account.owner(), account.money().getCurrencyUnit(), account.createdAt()
+    );
+    hash = 31 * hash + account.money().getAmountMinorLong();
+    return String.format("\"%x-%x\"", account.version(), hash);
+  }
+
+  /**
+   * Returns true, when the If-None-Match header lists the ETag or is a wildcard. Tags are
+   * compared with the weak comparison, as for conditional GET.
+   */
+  private static boolean matches(final String ifNoneMatch, final String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      final String trimmed = tag.trim();
+      if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private Optional<Account> createAccount(Context context) {
     return parseMoney(context)
         .map(money -> Account.builder()
@@ -0,0 +1,160 @@
+package com.pwittchen.money.transfer.api.controller;
+
+import com.pwittchen.money.transfer.api.command.SubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
+import com.pwittchen.money.transfer.api.controller.idempotency.CachedResponse;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyKeyReusedException;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.query.GetTransactionStatusQuery;
+import io.javalin.http.Context;
+import io.javalin.plugin.openapi.annotations.HttpMethod;
+import io.javalin.plugin.openapi.annotations.OpenApi;
+import io.javalin.plugin.openapi.annotations.OpenApiContent;
+import io.javalin.plugin.openapi.annotations.OpenApiParam;
+import io.javalin.plugin.openapi.annotations.OpenApiResponse;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import javax.inject.Inject;
+import org.eclipse.jetty.http.HttpStatus;
+import org.joda.money.Money;
+
+public class AsyncTransactionController {
+
+  private ContextWrapper contextWrapper;
+  private SubmitTransactionCommand submitTransactionCommand;
+  private GetTransactionStatusQuery getTransactionStatusQuery;
+  private IdempotencyCache idempotencyCache;
+
+  @Inject public AsyncTransactionController(
+      ContextWrapper contextWrapper,
+      SubmitTransactionCommand submitTransactionCommand,
+      GetTransactionStatusQuery getTransactionStatusQuery,
+      IdempotencyCache idempotencyCache
+  ) {
+    this.contextWrapper = contextWrapper;
+    this.submitTransactionCommand = submitTransactionCommand;
+    this.getTransactionStatusQuery = getTransactionStatusQuery;
+    this.idempotencyCache = idempotencyCache;
+  }
+
+  @OpenApi(
+      method = HttpMethod.POST,
+      path = "/transaction",
+      description = "submits a transaction for an asynchronous commit; retries sent with "
+          + "the same Idempotency-Key header get the response of the first request",
+      headers = @OpenApiParam(name = IdempotencyCache.HEADER),
+      pathParams = {
+          @OpenApiParam(name = "from"),
+          @OpenApiParam(name = "to"),
+          @OpenApiParam(name = "currency"),
+          @OpenApiParam(name = "money")
+      },
+      responses = {
+          @OpenApiResponse(
+              status = "202",
+              content = @OpenApiContent(from = TransactionStatus.class)
+          ),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "422", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "503", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void commit(final Context context) {
+    final String key = contextWrapper.header(context, IdempotencyCache.HEADER);
+
+    try {
+      final CachedResponse response = key == null
+          ? submit(context)
+          : idempotencyCache.get(key, fingerprint(context), () -> submit(context));
+      contextWrapper.json(context, response.body(), response.status());
+    } catch (IdempotencyKeyReusedException exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY_422);
+    } catch (CommitQueueFullException exception) {
+      // full queue isn't an answer to the request, so it's not cached and a retry can pass
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.SERVICE_UNAVAILABLE_503);
+    }
+  }
+
+  @OpenApi(
+      method = HttpMethod.GET,
+      path = "/transaction/:id/status",
+      description = "gets status of a transaction submitted for an asynchronous commit",
+      pathParams = @OpenApiParam(name = "id"),
+      responses = {
+          @OpenApiResponse(
+              status = "200",
+              content = @OpenApiContent(from = TransactionStatus.class)
+          ),
+          @OpenApiResponse(status = "404", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void getStatus(final Context context) {
+    String id = contextWrapper.pathParam(context, "id");
+    Optional<TransactionStatus> status = getTransactionStatusQuery.run(id);
+
+    if (status.isEmpty()) {
+      contextWrapper.json(context,
+          String.format("Transaction with id %s does not exist", id),
+          HttpStatus.NOT_FOUND_404);
+      return;
+    }
+
+    contextWrapper.json(context, status.get(), HttpStatus.OK_200);
+  }
+
+  private CachedResponse submit(final Context context) {
+    String from = contextWrapper.formParam(context, "from");
+    String to = contextWrapper.formParam(context, "to");
+    Optional<Money> money = parseMoney(context);
+
+    if (money.isEmpty()) {
+      return new CachedResponse("invalid money format", HttpStatus.BAD_REQUEST_400);
+    }
+
+    try {
+      TransactionStatus status = submitTransactionCommand.run(
+          createTransaction(from, to, money.get())
+      );
+      return new CachedResponse(status, HttpStatus.ACCEPTED_202);
+    } catch (CommitQueueFullException exception) {
+      throw exception;
+    } catch (Exception exception) {
+      return new CachedResponse(exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+    }
+  }
+
+  private String fingerprint(final Context context) {
+    return String.join("|",
+        String.valueOf(contextWrapper.formParam(context, "from")),
+        String.valueOf(contextWrapper.formParam(context, "to")),
+        String.valueOf(contextWrapper.formParam(context, "currency")),
+        String.valueOf(contextWrapper.formParam(context, "money"))
+    );
+  }
+
+  private Optional<Money> parseMoney(Context context) {
+    try {
+      Money money = Money.parse(String.format("%s %s",
+          contextWrapper.formParam(context, "currency"),
+          contextWrapper.formParam(context, "money"))
+      );
+      return Optional.of(money);
+    } catch (Exception exception) {
+      return Optional.empty();
+    }
+  }
+
+  private Transaction createTransaction(String senderNumber, String receiverNumber, Money money) {
+    return Transaction.builder()
+        .id(UUID.randomUUID().toString())
+        .createdAt(LocalDateTime.now())
+        .from(senderNumber)
+        .to(receiverNumber)
+        .money(money)
+        .build();
+  }
+}
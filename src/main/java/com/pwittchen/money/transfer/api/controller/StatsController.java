@@ -0,0 +1,40 @@
+package com.pwittchen.money.transfer.api.controller;
+
+import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
+import com.pwittchen.money.transfer.api.model.LedgerStats;
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import io.javalin.http.Context;
+import io.javalin.plugin.openapi.annotations.HttpMethod;
+import io.javalin.plugin.openapi.annotations.OpenApi;
+import io.javalin.plugin.openapi.annotations.OpenApiContent;
+import io.javalin.plugin.openapi.annotations.OpenApiResponse;
+import javax.inject.Inject;
+import org.eclipse.jetty.http.HttpStatus;
+
+public class StatsController {
+
+  private ContextWrapper contextWrapper;
+  private GetLedgerStatsQuery getLedgerStatsQuery;
+
+  @Inject public StatsController(
+      final ContextWrapper contextWrapper,
+      final GetLedgerStatsQuery getLedgerStatsQuery
+  ) {
+    this.contextWrapper = contextWrapper;
+    this.getLedgerStatsQuery = getLedgerStatsQuery;
+  }
+
+  @OpenApi(
+      method = HttpMethod.GET,
+      path = "/stats",
+      description = "gets the number of accounts and their total money per currency, and "
+          + "the number of transactions and the money moved by them per currency",
+      responses = @OpenApiResponse(
+          status = "200",
+          content = @OpenApiContent(from = LedgerStats.class)
+      )
+  )
+  public void get(final Context context) {
+    contextWrapper.json(context, getLedgerStatsQuery.run(), HttpStatus.OK_200);
+  }
+}
@@ -1,18 +1,43 @@
 package com.pwittchen.money.transfer.api.controller;
 
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.exception.TransferConflictException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
 import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
+import com.pwittchen.money.transfer.api.controller.idempotency.CachedResponse;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyKeyReusedException;
+import com.pwittchen.money.transfer.api.controller.request.TransferRequest;
 import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.model.TransactionResult;
 import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.TransactionFilter;
 import io.javalin.http.Context;
 import io.javalin.plugin.openapi.annotations.HttpMethod;
 import io.javalin.plugin.openapi.annotations.OpenApi;
 import io.javalin.plugin.openapi.annotations.OpenApiContent;
 import io.javalin.plugin.openapi.annotations.OpenApiParam;
+import io.javalin.plugin.openapi.annotations.OpenApiRequestBody;
 import io.javalin.plugin.openapi.annotations.OpenApiResponse;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 import javax.inject.Inject;
 import org.eclipse.jetty.http.HttpStatus;
 import org.joda.money.Money;
@@ -22,34 +47,115 @@ public class TransactionController {
   private ContextWrapper contextWrapper;
   private GetAllTransactionsQuery getAllTransactionsQuery;
   private CommitTransactionCommand commitTransactionCommand;
+  private CommitTransactionBatchCommand commitTransactionBatchCommand;
+  private CommitMultiLegTransactionCommand commitMultiLegTransactionCommand;
+  private IdempotencyCache idempotencyCache;
 
   @Inject public TransactionController(
       ContextWrapper contextWrapper,
       GetAllTransactionsQuery getAllTransactionsQuery,
-      CommitTransactionCommand commitTransactionCommand
+      CommitTransactionCommand commitTransactionCommand,
+      CommitTransactionBatchCommand commitTransactionBatchCommand,
+      CommitMultiLegTransactionCommand commitMultiLegTransactionCommand,
+      IdempotencyCache idempotencyCache
   ) {
     this.contextWrapper = contextWrapper;
     this.getAllTransactionsQuery = getAllTransactionsQuery;
     this.commitTransactionCommand = commitTransactionCommand;
+    this.commitTransactionBatchCommand = commitTransactionBatchCommand;
+    this.commitMultiLegTransactionCommand = commitMultiLegTransactionCommand;
+    this.idempotencyCache = idempotencyCache;
   }
 
   @OpenApi(
       method = HttpMethod.GET,
       path = "/transaction",
-      description = "gets all transactions",
-      responses = @OpenApiResponse(
-          status = "200",
-          content = @OpenApiContent(from = Transaction.class, isArray = true)
-      )
+      description = "gets all transactions or, when any of the parameters is given, a page of "
+          + "transactions matching them with a cursor of the next page as a TransactionPage; "
+          + "with Accept: application/x-ndjson, all transactions matching the filters are "
+          + "streamed one per line",
+      queryParams = {
+          @OpenApiParam(name = "limit"),
+          @OpenApiParam(name = "cursor"),
+          @OpenApiParam(name = "account"),
+          @OpenApiParam(name = "from"),
+          @OpenApiParam(name = "to"),
+          @OpenApiParam(name = "minAmount"),
+          @OpenApiParam(name = "maxAmount")
+      },
+      responses = {
+          @OpenApiResponse(
+              status = "200",
+              content = {
+                  @OpenApiContent(from = Transaction.class, isArray = true),
+                  @OpenApiContent(from = Transaction.class, type = ContextWrapper.NDJSON)
+              }
+          ),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class))
+      }
   )
   public void getAll(final Context context) {
-    contextWrapper.json(context, getAllTransactionsQuery.run());
+    final String limit = contextWrapper.queryParam(context, "limit");
+    final String cursor = contextWrapper.queryParam(context, "cursor");
+    final String account = contextWrapper.queryParam(context, "account");
+    final String from = contextWrapper.queryParam(context, "from");
+    final String to = contextWrapper.queryParam(context, "to");
+    final String minAmount = contextWrapper.queryParam(context, "minAmount");
+    final String maxAmount = contextWrapper.queryParam(context, "maxAmount");
+
+    final boolean stream = contextWrapper.accepts(context, ContextWrapper.NDJSON);
+    if (!stream && Stream.of(limit, cursor, account, from, to, minAmount, maxAmount)
+        .allMatch(Objects::isNull)) {
+      contextWrapper.json(context, getAllTransactionsQuery.run());
+      return;
+    }
+
+    final TransactionFilter filter;
+    try {
+      filter = TransactionFilter
+          .builder()
+          .account(account)
+          .from(from == null ? null : LocalDateTime.parse(from))
+          .to(to == null ? null : LocalDateTime.parse(to))
+          .minAmount(minAmount == null ? null : new BigDecimal(minAmount))
+          .maxAmount(maxAmount == null ? null : new BigDecimal(maxAmount))
+          .build();
+    } catch (DateTimeParseException | NumberFormatException exception) {
+      contextWrapper.json(context, "invalid filter format", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    if (stream) {
+      contextWrapper.ndjson(context, getAllTransactionsQuery.iterator(filter));
+      return;
+    }
+
+    final int pageSize;
+    try {
+      pageSize = limit == null ? TransactionPage.DEFAULT_LIMIT : Integer.parseInt(limit);
+    } catch (NumberFormatException exception) {
+      contextWrapper.json(context, "invalid limit", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+    if (pageSize < 1 || pageSize > TransactionPage.MAX_LIMIT) {
+      contextWrapper.json(context, "invalid limit", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    try {
+      final TransactionPage page = getAllTransactionsQuery.run(filter, cursor, pageSize);
+      contextWrapper.json(context, page, HttpStatus.OK_200);
+    } catch (IllegalArgumentException exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+    }
   }
 
   @OpenApi(
       method = HttpMethod.POST,
       path = "/transaction",
-      description = "commits a transaction",
+      description = "commits a transaction; retries sent with the same Idempotency-Key header "
+          + "get the response of the first request",
+      headers = @OpenApiParam(name = IdempotencyCache.HEADER),
       pathParams = {
           @OpenApiParam(name = "from"),
           @OpenApiParam(name = "to"),
@@ -58,28 +164,149 @@ public class TransactionController {
       },
       responses = {
           @OpenApiResponse(status = "200", content = @OpenApiContent(from = Transaction.class)),
-          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class))
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "422", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "500", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "503", content = @OpenApiContent(from = String.class))
       }
   )
   public void commit(final Context context) {
-    String from = contextWrapper.formParam(context, "from");
-    String to = contextWrapper.formParam(context, "to");
-    Optional<Money> money = parseMoney(context);
+    final String key = contextWrapper.header(context, IdempotencyCache.HEADER);
 
-    if (money.isEmpty()) {
-      contextWrapper.json(context, "invalid money format", HttpStatus.BAD_REQUEST_400);
+    try {
+      final CachedResponse response = key == null
+          ? commitTransfer(context)
+          : idempotencyCache.get(key, fingerprint(context), () -> commitTransfer(context));
+      contextWrapper.json(context, response.body(), response.status());
+    } catch (IdempotencyKeyReusedException exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.UNPROCESSABLE_ENTITY_422);
+    } catch (RuntimeException exception) {
+      fail(context, exception);
+    }
+  }
+
+  @OpenApi(
+      method = HttpMethod.POST,
+      path = "/transaction/batch",
+      description = "commits a batch of transactions",
+      requestBody = @OpenApiRequestBody(
+          content = @OpenApiContent(from = TransferRequest.class, isArray = true)
+      ),
+      responses = {
+          @OpenApiResponse(
+              status = "200",
+              content = @OpenApiContent(from = TransactionResult.class, isArray = true)
+          ),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "500", content = @OpenApiContent(from = String.class)),
+          @OpenApiResponse(status = "503", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void commitBatch(final Context context) {
+    final TransferRequest[] requests;
+
+    try {
+      requests = contextWrapper.bodyAsClass(context, TransferRequest[].class);
+    } catch (Exception exception) {
+      contextWrapper.json(context, "invalid batch format", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    if (requests == null || requests.length == 0) {
+      contextWrapper.json(context, "invalid batch format", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    final List<TransactionResult> results = new ArrayList<>(requests.length);
+    final List<Transaction> transactions = new ArrayList<>(requests.length);
+    final List<Integer> positions = new ArrayList<>(requests.length);
+
+    for (TransferRequest request : requests) {
+      Optional<Money> money = parseMoney(request.currency(), request.money());
+      if (money.isEmpty()) {
+        results.add(TransactionResult.rejected(null, "invalid money format"));
+      } else {
+        positions.add(results.size());
+        results.add(null);
+        transactions.add(createTransaction(request.from(), request.to(), money.get()));
+      }
+    }
+
+    final List<TransactionResult> committed;
+    try {
+      committed = commitTransactionBatchCommand.run(transactions);
+    } catch (RuntimeException exception) {
+      fail(context, exception);
       return;
     }
+    for (int i = 0; i < committed.size(); i++) {
+      results.set(positions.get(i), committed.get(i));
+    }
 
-    commit(context, createTransaction(from, to, money.get()));
+    contextWrapper.json(context, results, HttpStatus.OK_200);
+  }
+
+  @OpenApi(
+      method = HttpMethod.POST,
+      path = "/transaction/multi-leg",
+      description = "commits all legs of a transaction atomically",
+      requestBody = @OpenApiRequestBody(
+          content = @OpenApiContent(from = TransferRequest.class, isArray = true)
+      ),
+      responses = {
+          @OpenApiResponse(status = "200", content = @OpenApiContent(from = Transaction.class)),
+          @OpenApiResponse(status = "400", content = @OpenApiContent(from = String.class))
+      }
+  )
+  public void commitMultiLeg(final Context context) {
+    final TransferRequest[] requests;
+
+    try {
+      requests = contextWrapper.bodyAsClass(context, TransferRequest[].class);
+    } catch (Exception exception) {
+      contextWrapper.json(context, "invalid transaction format", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    if (requests == null || requests.length == 0) {
+      contextWrapper.json(context, "invalid transaction format", HttpStatus.BAD_REQUEST_400);
+      return;
+    }
+
+    final List<TransactionLeg> legs = new ArrayList<>(requests.length);
+    for (TransferRequest request : requests) {
+      Optional<Money> money = parseMoney(request.currency(), request.money());
+      if (money.isEmpty()) {
+        contextWrapper.json(context, "invalid money format", HttpStatus.BAD_REQUEST_400);
+        return;
+      }
+      legs.add(new TransactionLeg(request.from(), request.to(), money.get()));
+    }
+
+    final Transaction transaction = Transaction.builder()
+        .id(UUID.randomUUID().toString())
+        .createdAt(LocalDateTime.now())
+        .legs(legs)
+        .build();
+
+    try {
+      commitMultiLegTransactionCommand.run(transaction);
+      contextWrapper.json(context, transaction, HttpStatus.OK_200);
+    } catch (Exception exception) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+    }
   }
 
   private Optional<Money> parseMoney(Context context) {
+    return parseMoney(
+        contextWrapper.formParam(context, "currency"),
+        contextWrapper.formParam(context, "money")
+    );
+  }
+
+  private Optional<Money> parseMoney(String currency, String amount) {
     try {
-      Money money = Money.parse(String.format("%s %s",
-          contextWrapper.formParam(context, "currency"),
-          contextWrapper.formParam(context, "money"))
-      );
+      Money money = Money.parse(String.format("%s %s", currency, amount));
       return Optional.of(money);
     } catch (Exception exception) {
       return Optional.empty();
@@ -96,12 +323,51 @@ public class TransactionController {
         .build();
   }
 
-  private void commit(final Context context, final Transaction transaction) {
+  private CachedResponse commitTransfer(final Context context) {
+    String from = contextWrapper.formParam(context, "from");
+    String to = contextWrapper.formParam(context, "to");
+    Optional<Money> money = parseMoney(context);
+
+    if (money.isEmpty()) {
+      return new CachedResponse("invalid money format", HttpStatus.BAD_REQUEST_400);
+    }
+
+    Transaction transaction = createTransaction(from, to, money.get());
     try {
       commitTransactionCommand.run(transaction);
-      contextWrapper.json(context, transaction, HttpStatus.OK_200);
-    } catch (Exception exception) {
-      contextWrapper.json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+      return new CachedResponse(transaction, HttpStatus.OK_200);
+    } catch (AccountNotExistsException
+        | DifferentCurrencyException
+        | NegativeMoneyValueException
+        | NotEnoughMoneyException
+        | TransferToTheSameAccountException exception) {
+      // only rejections are answers to the request; timeouts and other failures are thrown,
+      // so they aren't cached for its idempotency key and a retry commits it again
+      return new CachedResponse(exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+    }
+  }
+
+  /**
+   * Responds to a transfer, which wasn't answered by the command: timeouts, conflicts and a full
+   * commit queue are temporary, so they're answered with 503 and can be retried, while other
+   * failures (e.g. of the storage) are answered with 500.
+   */
+  private void fail(final Context context, final RuntimeException exception) {
+    if (exception instanceof TransactionTimeoutException
+        || exception instanceof TransferConflictException
+        || exception instanceof CommitQueueFullException) {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.SERVICE_UNAVAILABLE_503);
+    } else {
+      contextWrapper.json(context, exception.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR_500);
     }
   }
+
+  private String fingerprint(final Context context) {
+    return String.join("|",
+        String.valueOf(contextWrapper.formParam(context, "from")),
+        String.valueOf(contextWrapper.formParam(context, "to")),
+        String.valueOf(contextWrapper.formParam(context, "currency")),
+        String.valueOf(contextWrapper.formParam(context, "money"))
+    );
+  }
 }
@@ -1,12 +1,46 @@
 package com.pwittchen.money.transfer.api.controller.context;
 
 import io.javalin.http.Context;
+import java.io.InputStream;
+import java.util.Iterator;
 
 public interface ContextWrapper {
 
+  String NDJSON = "application/x-ndjson";
+
   String formParam(Context context, String param);
 
+  String pathParam(Context context, String param);
+
+  String queryParam(Context context, String param);
+
+  String header(Context context, String header);
+
+  /**
+   * Sets the header of the response.
+   */
+  void header(Context context, String header, String value);
+
+  /**
+   * Sets the status of the response without a body.
+   */
+  void status(Context context, int status);
+
+  <T> T bodyAsClass(Context context, Class<T> clazz);
+
+  InputStream bodyAsInputStream(Context context);
+
   void json(Context context, Object object);
 
   void json(Context context, Object object, int status);
+
+  /**
+   * Returns true, when the Accept header of the request lists the given media type.
+   */
+  boolean accepts(Context context, String mediaType);
+
+  /**
+   * Streams records to the response as newline-delimited JSON, one record at a time.
+   */
+  void ndjson(Context context, Iterator<?> records);
 }
@@ -1,13 +1,57 @@
 package com.pwittchen.money.transfer.api.controller.context;
 
 import io.javalin.http.Context;
+import io.javalin.plugin.json.JavalinJson;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import org.eclipse.jetty.http.HttpStatus;
 
 public class DefaultContextWrapper implements ContextWrapper {
 
+  private static final int BUFFER_SIZE = 16 * 1024;
+
   @Override public String formParam(Context context, String param) {
     return context.formParam(param);
   }
 
+  @Override public String pathParam(Context context, String param) {
+    return context.pathParam(param);
+  }
+
+  @Override public String queryParam(Context context, String param) {
+    return context.queryParam(param);
+  }
+
+  @Override public String header(Context context, String header) {
+    return context.header(header);
+  }
+
+  @Override public void header(Context context, String header, String value) {
+    context.header(header, value);
+  }
+
+  @Override public void status(Context context, int status) {
+    context.status(status);
+  }
+
+  @Override public <T> T bodyAsClass(Context context, Class<T> clazz) {
+    return context.bodyAsClass(clazz);
+  }
+
+  @Override public InputStream bodyAsInputStream(Context context) {
+    try {
+      return context.req.getInputStream();
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
   @Override public void json(Context context, Object object) {
     context.json(object);
   }
@@ -15,4 +59,42 @@ public class DefaultContextWrapper implements ContextWrapper {
   @Override public void json(Context context, Object object, int status) {
     context.status(status).json(object);
   }
+
+  @Override public boolean accepts(Context context, String mediaType) {
+    final String accept = context.header("Accept");
+    if (accept == null) {
+      return false;
+    }
+    for (String range : accept.split(",")) {
+      if (range.split(";", 2)[0].trim().equalsIgnoreCase(mediaType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Writes records straight to the output stream of the response, which has no content
+   * length, so it's sent with chunked transfer encoding as the buffers fill up. The first
+   * record is flushed right away, so the client gets headers without waiting for the whole
+   * stream. Writes block while the client doesn't keep up, so only a few buffers of records
+   * are ever held in memory.
+   */
+  @Override public void ndjson(Context context, Iterator<?> records) {
+    context.status(HttpStatus.OK_200).contentType(NDJSON);
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+        context.res.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+      boolean first = true;
+      while (records.hasNext()) {
+        writer.write(JavalinJson.toJson(records.next()));
+        writer.write('\n');
+        if (first) {
+          writer.flush();
+          first = false;
+        }
+      }
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
 }
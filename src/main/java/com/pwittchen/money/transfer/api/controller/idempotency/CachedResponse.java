@@ -0,0 +1,40 @@
+package com.pwittchen.money.transfer.api.controller.idempotency;
+
+import java.util.Objects;
+
+/**
+ * Body and status of a response, which can be replayed for a retried request.
+ */
+public final class CachedResponse {
+
+  private final Object body;
+  private final int status;
+
+  public CachedResponse(final Object body, final int status) {
+    this.body = body;
+    this.status = status;
+  }
+
+  public Object body() {
+    return body;
+  }
+
+  public int status() {
+    return status;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CachedResponse that = (CachedResponse) o;
+    return status == that.status && Objects.equals(body, that.body);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(body, status);
+  }
+}
@@ -0,0 +1,168 @@
+package com.pwittchen.money.transfer.api.controller.idempotency;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Responses of requests sent with an {@code Idempotency-Key} header. The first request with
+ * a given key is executed and its response (committed transaction or error) is kept for the
+ * given time, so retries of the request get the same response without being executed again.
+ * Retries arriving while the first request is still running wait for its response.
+ *
+ * Hits are a read of a concurrent map and of a completed future, so they don't take locks.
+ * The cache keeps at most the given number of entries. All entries live for the same time,
+ * so the oldest entry is also the first one to expire, and entries are evicted from a queue
+ * in the order of insertion, when they expire or when the cache is full.
+ */
+public class IdempotencyCache {
+
+  public static final String HEADER = "Idempotency-Key";
+
+  // map node, entry, future, response, queue node and object headers of a 64-bit JVM
+  private static final int ENTRY_OVERHEAD = 192;
+  // transaction with its numbers, money and timestamp or an error message
+  private static final int BODY_SIZE = 320;
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final LongAdder memory = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final LongSupplier clock;
+
+  public IdempotencyCache(final long ttl, final TimeUnit unit, final int maxEntries) {
+    this(ttl, unit, maxEntries, System::nanoTime);
+  }
+
+  IdempotencyCache(final long ttl, final TimeUnit unit, final int maxEntries,
+      final LongSupplier clock) {
+    this.ttlNanos = unit.toNanos(ttl);
+    this.maxEntries = maxEntries;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns response cached for the key or executes the request and caches its response.
+   * Throws {@link IdempotencyKeyReusedException} when the key was used for a request
+   * with a different fingerprint.
+   */
+  public CachedResponse get(final String key, final String fingerprint,
+      final Supplier<CachedResponse> request) {
+    while (true) {
+      final long now = clock.getAsLong();
+      final Entry current = entries.get(key);
+
+      if (current != null) {
+        if (current.expiresAt - now > 0) {
+          if (!current.fingerprint.equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException(key);
+          }
+          hits.increment();
+          return current.response.join();
+        }
+        remove(current);
+        continue;
+      }
+
+      final Entry created = new Entry(key, fingerprint, now + ttlNanos);
+      if (entries.putIfAbsent(key, created) != null) {
+        continue;
+      }
+      misses.increment();
+      size.incrementAndGet();
+      memory.add(created.weight);
+      insertionOrder.add(created);
+
+      final CachedResponse response;
+      try {
+        response = request.get();
+      } catch (RuntimeException exception) {
+        // unexpected failure isn't an answer to the request, so a retry executes it again
+        remove(created);
+        created.response.completeExceptionally(exception);
+        throw exception;
+      }
+      created.response.complete(response);
+      evict(now);
+      return response;
+    }
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Returns hits divided by all lookups or zero, when there were no lookups yet.
+   */
+  public double hitRate() {
+    final long hits = hits();
+    final long lookups = hits + misses();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Returns estimated number of bytes taken by cached entries.
+   */
+  public long memory() {
+    return memory.sum();
+  }
+
+  private void evict(final long now) {
+    Entry oldest;
+    while ((oldest = insertionOrder.peek()) != null
+        && (size.get() > maxEntries || oldest.expiresAt - now <= 0)) {
+      if (insertionOrder.remove(oldest) && remove(oldest)) {
+        evictions.increment();
+      }
+    }
+  }
+
+  private boolean remove(final Entry entry) {
+    if (!entries.remove(entry.key, entry)) {
+      return false;
+    }
+    size.decrementAndGet();
+    memory.add(-entry.weight);
+    return true;
+  }
+
+  private static final class Entry {
+    private final String key;
+    private final String fingerprint;
+    private final long expiresAt;
+    private final CompletableFuture<CachedResponse> response = new CompletableFuture<>();
+    private final int weight;
+
+    private Entry(final String key, final String fingerprint, final long expiresAt) {
+      this.key = key;
+      this.fingerprint = fingerprint;
+      this.expiresAt = expiresAt;
+      this.weight = ENTRY_OVERHEAD + 2 * (key.length() + fingerprint.length()) + BODY_SIZE;
+    }
+  }
+}
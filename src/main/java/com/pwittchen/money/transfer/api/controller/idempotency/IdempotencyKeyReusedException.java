@@ -0,0 +1,14 @@
+package com.pwittchen.money.transfer.api.controller.idempotency;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+  private final String key;
+
+  public IdempotencyKeyReusedException(final String key) {
+    this.key = key;
+  }
+
+  @Override public String getMessage() {
+    return String.format("Idempotency key %s was already used for a different request", key);
+  }
+}
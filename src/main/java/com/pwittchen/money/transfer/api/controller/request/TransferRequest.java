@@ -0,0 +1,40 @@
+package com.pwittchen.money.transfer.api.controller.request;
+
+/**
+ * Single transfer of a batch, read from the JSON body of a request.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class TransferRequest {
+  public final String from;
+  public final String to;
+  public final String currency;
+  public final String money;
+
+  private TransferRequest() {
+    this(null, null, null, null);
+  }
+
+  public TransferRequest(final String from, final String to, final String currency,
+      final String money) {
+    this.from = from;
+    this.to = to;
+    this.currency = currency;
+    this.money = money;
+  }
+
+  public String from() {
+    return from;
+  }
+
+  public String to() {
+    return to;
+  }
+
+  public String currency() {
+    return currency;
+  }
+
+  public String money() {
+    return money;
+  }
+}
@@ -13,22 +13,29 @@ public class Account {
   public final String owner;
   public final Money money;
   public final LocalDateTime createdAt;
+  private transient final long version;
 
   private Account() {
     this(builder());
   }
 
   private Account(final Builder builder) {
-    this(builder.number, builder.owner, builder.money, builder.createdAt);
+    this(builder.number, builder.owner, builder.money, builder.createdAt, builder.version);
   }
 
   public Account(final String number, final String owner, final Money money,
       final LocalDateTime createdAt) {
+    this(number, owner, money, createdAt, 0);
+  }
+
+  public Account(final String number, final String owner, final Money money,
+      final LocalDateTime createdAt, final long version) {
     this.lock = new ReentrantLock();
     this.number = number;
     this.owner = owner;
     this.money = money;
     this.createdAt = createdAt;
+    this.version = version;
   }
 
   public static Builder builder() {
@@ -55,6 +62,14 @@ public class Account {
     return createdAt;
   }
 
+  /**
+   * Returns the number of changes of the account kept by storages, which version accounts.
+   * It's not a part of the account in responses and doesn't make accounts different.
+   */
+  public long version() {
+    return version;
+  }
+
   @Override public boolean equals(Object o) {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
@@ -74,6 +89,7 @@ public class Account {
     private String owner;
     private Money money;
     private LocalDateTime createdAt;
+    private long version;
 
     private Builder() {
     }
@@ -98,6 +114,11 @@ public class Account {
       return this;
     }
 
+    public Builder version(final long version) {
+      this.version = version;
+      return this;
+    }
+
     public Account build() {
       return new Account(this);
     }
@@ -0,0 +1,57 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import org.joda.money.Money;
+
+/**
+ * Balance of an account as of the given time.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class AccountBalance {
+  public final String number;
+  public final Money money;
+  public final LocalDateTime asOf;
+
+  private AccountBalance() {
+    this(null, null, null);
+  }
+
+  public AccountBalance(final String number, final Money money, final LocalDateTime asOf) {
+    this.number = number;
+    this.money = money;
+    this.asOf = asOf;
+  }
+
+  public String number() {
+    return number;
+  }
+
+  public Money money() {
+    return money;
+  }
+
+  public LocalDateTime asOf() {
+    return asOf;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    AccountBalance that = (AccountBalance) o;
+
+    return Objects.equals(number, that.number)
+        && Objects.equals(money, that.money)
+        && Objects.equals(asOf, that.asOf);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(number, money, asOf);
+  }
+}
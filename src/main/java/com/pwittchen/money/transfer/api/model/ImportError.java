@@ -0,0 +1,47 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.util.Objects;
+
+/**
+ * Line of the import, which was rejected, and the reason of it.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class ImportError {
+  public final long line;
+  public final String error;
+
+  private ImportError() {
+    this(0, null);
+  }
+
+  public ImportError(final long line, final String error) {
+    this.line = line;
+    this.error = error;
+  }
+
+  public long line() {
+    return line;
+  }
+
+  public String error() {
+    return error;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    ImportError that = (ImportError) o;
+
+    return line == that.line && Objects.equals(error, that.error);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(line, error);
+  }
+}
@@ -0,0 +1,36 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Format of accounts streamed to the import, recognized by the content type of the request.
+ */
+public enum ImportFormat {
+  NDJSON("application/x-ndjson"),
+  CSV("text/csv");
+
+  private final String contentType;
+
+  ImportFormat(final String contentType) {
+    this.contentType = contentType;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  public static Optional<ImportFormat> of(final String contentType) {
+    if (contentType == null) {
+      return Optional.empty();
+    }
+
+    final String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+    for (ImportFormat format : values()) {
+      if (format.contentType.equals(mediaType)) {
+        return Optional.of(format);
+      }
+    }
+    return Optional.empty();
+  }
+}
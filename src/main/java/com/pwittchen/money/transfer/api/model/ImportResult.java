@@ -0,0 +1,57 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Outcome of an account import: numbers of created and rejected accounts and errors of
+ * the rejected lines, ordered by line and limited in number.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class ImportResult {
+  public final long created;
+  public final long failed;
+  public final List<ImportError> errors;
+
+  private ImportResult() {
+    this(0, 0, List.of());
+  }
+
+  public ImportResult(final long created, final long failed, final List<ImportError> errors) {
+    this.created = created;
+    this.failed = failed;
+    this.errors = List.copyOf(errors);
+  }
+
+  public long created() {
+    return created;
+  }
+
+  public long failed() {
+    return failed;
+  }
+
+  public List<ImportError> errors() {
+    return errors;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    ImportResult that = (ImportResult) o;
+
+    return created == that.created
+        && failed == that.failed
+        && Objects.equals(errors, that.errors);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(created, failed, errors);
+  }
+}
@@ -0,0 +1,67 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aggregates of the whole ledger: the number of accounts and the money held by them, and the
+ * number of transactions and the money moved by them. Amounts are in major units and keyed by
+ * the code of their currency.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class LedgerStats {
+  public final long accounts;
+  public final Map<String, BigDecimal> totals;
+  public final long transactions;
+  public final Map<String, BigDecimal> volumes;
+
+  private LedgerStats() {
+    this(0, Map.of(), 0, Map.of());
+  }
+
+  public LedgerStats(final long accounts, final Map<String, BigDecimal> totals,
+      final long transactions, final Map<String, BigDecimal> volumes) {
+    this.accounts = accounts;
+    this.totals = totals;
+    this.transactions = transactions;
+    this.volumes = volumes;
+  }
+
+  public long accounts() {
+    return accounts;
+  }
+
+  public Map<String, BigDecimal> totals() {
+    return totals;
+  }
+
+  public long transactions() {
+    return transactions;
+  }
+
+  public Map<String, BigDecimal> volumes() {
+    return volumes;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    LedgerStats that = (LedgerStats) o;
+
+    return accounts == that.accounts
+        && transactions == that.transactions
+        && Objects.equals(totals, that.totals)
+        && Objects.equals(volumes, that.volumes);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(accounts, totals, transactions, volumes);
+  }
+}
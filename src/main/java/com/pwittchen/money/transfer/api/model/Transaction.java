@@ -1,6 +1,8 @@
 package com.pwittchen.money.transfer.api.model;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.joda.money.Money;
@@ -13,23 +15,26 @@ public class Transaction {
   public final String to;
   public final Money money;
   public final LocalDateTime createdAt;
+  // null for a transfer between two accounts, so it's not serialized
+  public final List<TransactionLeg> legs;
 
   private Transaction() {
     this(builder());
   }
 
   private Transaction(final Builder builder) {
-    this(builder.id, builder.from, builder.to, builder.money, builder.createdAt);
+    this(builder.id, builder.from, builder.to, builder.money, builder.createdAt, builder.legs);
   }
 
   private Transaction(final String id, final String from, final String to,
-      final Money money, final LocalDateTime createdAt) {
+      final Money money, final LocalDateTime createdAt, final List<TransactionLeg> legs) {
     this.isRunning = new AtomicBoolean(true);
     this.id = id;
     this.from = from;
     this.to = to;
     this.money = money;
     this.createdAt = createdAt;
+    this.legs = legs == null || legs.isEmpty() ? null : List.copyOf(legs);
   }
 
   public static Builder builder() {
@@ -60,6 +65,14 @@ public class Transaction {
     return createdAt;
   }
 
+  /**
+   * Returns legs of a multi-leg transaction or an empty list for a transfer between
+   * two accounts described by from, to and money.
+   */
+  public List<TransactionLeg> legs() {
+    return legs == null ? Collections.emptyList() : legs;
+  }
+
   @Override public boolean equals(Object o) {
     if (this == o) {
       return true;
@@ -75,11 +88,12 @@ public class Transaction {
         && Objects.equals(from, that.from)
         && Objects.equals(to, that.to)
         && Objects.equals(money, that.money)
-        && Objects.equals(createdAt, that.createdAt);
+        && Objects.equals(createdAt, that.createdAt)
+        && Objects.equals(legs, that.legs);
   }
 
   @Override public int hashCode() {
-    return Objects.hash(id, from, to, money, createdAt);
+    return Objects.hash(id, from, to, money, createdAt, legs);
   }
 
   public static class Builder {
@@ -88,6 +102,7 @@ public class Transaction {
     private String to;
     private Money money;
     private LocalDateTime createdAt;
+    private List<TransactionLeg> legs;
 
     private Builder() {
     }
@@ -117,6 +132,11 @@ public class Transaction {
       return this;
     }
 
+    public Builder legs(final List<TransactionLeg> legs) {
+      this.legs = legs;
+      return this;
+    }
+
     public Transaction build() {
       return new Transaction(this);
     }
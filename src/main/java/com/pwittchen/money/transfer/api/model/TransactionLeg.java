@@ -0,0 +1,56 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.util.Objects;
+import org.joda.money.Money;
+
+/**
+ * Single movement of money between two accounts, which is a part of a multi-leg transaction.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class TransactionLeg {
+  public final String from;
+  public final String to;
+  public final Money money;
+
+  private TransactionLeg() {
+    this(null, null, null);
+  }
+
+  public TransactionLeg(final String from, final String to, final Money money) {
+    this.from = from;
+    this.to = to;
+    this.money = money;
+  }
+
+  public String from() {
+    return from;
+  }
+
+  public String to() {
+    return to;
+  }
+
+  public Money money() {
+    return money;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    TransactionLeg that = (TransactionLeg) o;
+
+    return Objects.equals(from, that.from)
+        && Objects.equals(to, that.to)
+        && Objects.equals(money, that.money);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(from, to, money);
+  }
+}
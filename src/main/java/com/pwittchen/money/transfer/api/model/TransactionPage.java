@@ -0,0 +1,52 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Page of the transaction history with an opaque cursor of the next page, which is null,
+ * when there are no more transactions to look at.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class TransactionPage {
+  public static final int DEFAULT_LIMIT = 100;
+  public static final int MAX_LIMIT = 1000;
+
+  public final List<Transaction> transactions;
+  public final String next;
+
+  private TransactionPage() {
+    this(List.of(), null);
+  }
+
+  public TransactionPage(final List<Transaction> transactions, final String next) {
+    this.transactions = transactions;
+    this.next = next;
+  }
+
+  public List<Transaction> transactions() {
+    return transactions;
+  }
+
+  public String next() {
+    return next;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    TransactionPage that = (TransactionPage) o;
+
+    return Objects.equals(transactions, that.transactions) && Objects.equals(next, that.next);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(transactions, next);
+  }
+}
@@ -0,0 +1,64 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.util.Objects;
+
+/**
+ * Outcome of a single transaction committed as a part of a batch.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class TransactionResult {
+  public final Transaction transaction;
+  public final boolean committed;
+  public final String error;
+
+  private TransactionResult() {
+    this(null, false, null);
+  }
+
+  private TransactionResult(final Transaction transaction, final boolean committed,
+      final String error) {
+    this.transaction = transaction;
+    this.committed = committed;
+    this.error = error;
+  }
+
+  public static TransactionResult committed(final Transaction transaction) {
+    return new TransactionResult(transaction, true, null);
+  }
+
+  public static TransactionResult rejected(final Transaction transaction, final String error) {
+    return new TransactionResult(transaction, false, error);
+  }
+
+  public Transaction transaction() {
+    return transaction;
+  }
+
+  public boolean committed() {
+    return committed;
+  }
+
+  public String error() {
+    return error;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    TransactionResult that = (TransactionResult) o;
+
+    return committed == that.committed
+        && Objects.equals(transaction, that.transaction)
+        && Objects.equals(error, that.error);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(transaction, committed, error);
+  }
+}
@@ -0,0 +1,73 @@
+package com.pwittchen.money.transfer.api.model;
+
+import java.util.Objects;
+
+/**
+ * Status of a transaction submitted for an asynchronous commit.
+ */
+@SuppressWarnings("WeakerAccess") // public access of class attributes is required by OpenAPI
+public class TransactionStatus {
+  public final String id;
+  public final State state;
+  public final String error;
+
+  public enum State {
+    PENDING,
+    COMMITTED,
+    REJECTED
+  }
+
+  private TransactionStatus() {
+    this(null, null, null);
+  }
+
+  private TransactionStatus(final String id, final State state, final String error) {
+    this.id = id;
+    this.state = state;
+    this.error = error;
+  }
+
+  public static TransactionStatus pending(final String id) {
+    return new TransactionStatus(id, State.PENDING, null);
+  }
+
+  public static TransactionStatus committed(final String id) {
+    return new TransactionStatus(id, State.COMMITTED, null);
+  }
+
+  public static TransactionStatus rejected(final String id, final String error) {
+    return new TransactionStatus(id, State.REJECTED, error);
+  }
+
+  public String id() {
+    return id;
+  }
+
+  public State state() {
+    return state;
+  }
+
+  public String error() {
+    return error;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    TransactionStatus that = (TransactionStatus) o;
+
+    return Objects.equals(id, that.id)
+        && state == that.state
+        && Objects.equals(error, that.error);
+  }
+
+  @Override public int hashCode() {
+    return Objects.hash(id, state, error);
+  }
+}
@@ -0,0 +1,16 @@
+package com.pwittchen.money.transfer.api.query;
+
+import com.pwittchen.money.transfer.api.model.AccountBalance;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface GetAccountBalanceQuery {
+
+  /**
+   * Returns balance of the account after all of its transactions created at or before the
+   * given time. Returns empty result, when the account doesn't exist or wasn't created yet
+   * at that time. Throws HistoryNotAvailableException, when transactions made after that time
+   * were lost.
+   */
+  Optional<AccountBalance> run(String number, LocalDateTime asOf);
+}
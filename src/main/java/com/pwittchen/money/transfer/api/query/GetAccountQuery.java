@@ -0,0 +1,12 @@
+package com.pwittchen.money.transfer.api.query;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import java.util.Optional;
+
+public interface GetAccountQuery {
+
+  /**
+   * Returns the account with the given number or empty result, when it doesn't exist.
+   */
+  Optional<Account> run(String number);
+}
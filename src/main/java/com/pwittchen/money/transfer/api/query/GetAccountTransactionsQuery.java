@@ -0,0 +1,14 @@
+package com.pwittchen.money.transfer.api.query;
+
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import java.util.Optional;
+
+public interface GetAccountTransactionsQuery {
+
+  /**
+   * Returns a page of transactions sent or received by the account in the order they were
+   * made, starting at the cursor returned with the previous page, or at the first one for
+   * a null cursor. Returns empty result, when the account doesn't exist.
+   */
+  Optional<TransactionPage> run(String number, String cursor, int limit);
+}
@@ -1,8 +1,14 @@
 package com.pwittchen.money.transfer.api.query;
 
 import com.pwittchen.money.transfer.api.model.Account;
+import java.util.Iterator;
 import java.util.List;
 
 public interface GetAllAccountsQuery {
   List<Account> run();
+
+  /**
+   * Iterates over accounts one at a time, so they can be streamed in constant memory.
+   */
+  Iterator<Account> iterator();
 }
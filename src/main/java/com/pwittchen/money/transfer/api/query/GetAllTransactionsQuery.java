@@ -1,8 +1,25 @@
 package com.pwittchen.money.transfer.api.query;
 
 import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import java.util.Iterator;
 import java.util.concurrent.BlockingQueue;
 
 public interface GetAllTransactionsQuery {
   BlockingQueue<Transaction> run();
+
+  /**
+   * Returns at most the given number of transactions matching the filter, starting at the
+   * cursor returned with the previous page, or at the beginning of the history for a null one.
+   * A page can have fewer transactions even though there are more, when many of them were
+   * looked at and didn't match; a null cursor of the next page means there are no more.
+   */
+  TransactionPage run(TransactionFilter filter, String cursor, int limit);
+
+  /**
+   * Iterates over transactions matching the filter, which were made before the iterator was
+   * created, reading them page by page, so they can be streamed in constant memory regardless
+   * of the size of the history.
+   */
+  Iterator<Transaction> iterator(TransactionFilter filter);
 }
@@ -0,0 +1,11 @@
+package com.pwittchen.money.transfer.api.query;
+
+import com.pwittchen.money.transfer.api.model.LedgerStats;
+
+public interface GetLedgerStatsQuery {
+
+  /**
+   * Returns aggregates of the whole ledger without reading its accounts or transactions.
+   */
+  LedgerStats run();
+}
@@ -0,0 +1,8 @@
+package com.pwittchen.money.transfer.api.query;
+
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import java.util.Optional;
+
+public interface GetTransactionStatusQuery {
+  Optional<TransactionStatus> run(String id);
+}
@@ -0,0 +1,102 @@
+package com.pwittchen.money.transfer.api.query;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Criteria of transactions in a page of the history. Every criterion is optional. A time
+ * range includes both ends and so does a range of amounts, which are compared in major units
+ * of the currency of a transaction. A multi-leg transaction matches an account, which takes
+ * part in any of its legs, and an amount range, when any of its legs does.
+ */
+public class TransactionFilter {
+  private final String account;
+  private final LocalDateTime from;
+  private final LocalDateTime to;
+  private final BigDecimal minAmount;
+  private final BigDecimal maxAmount;
+
+  private TransactionFilter(final Builder builder) {
+    this.account = builder.account;
+    this.from = builder.from;
+    this.to = builder.to;
+    this.minAmount = builder.minAmount;
+    this.maxAmount = builder.maxAmount;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public String account() {
+    return account;
+  }
+
+  public LocalDateTime from() {
+    return from;
+  }
+
+  public LocalDateTime to() {
+    return to;
+  }
+
+  public BigDecimal minAmount() {
+    return minAmount;
+  }
+
+  public BigDecimal maxAmount() {
+    return maxAmount;
+  }
+
+  public boolean hasAmount() {
+    return minAmount != null || maxAmount != null;
+  }
+
+  /**
+   * Returns true, when the amount is within the range of amounts of the filter.
+   */
+  public boolean matchesAmount(final BigDecimal amount) {
+    return (minAmount == null || amount.compareTo(minAmount) >= 0)
+        && (maxAmount == null || amount.compareTo(maxAmount) <= 0);
+  }
+
+  public static class Builder {
+    private String account;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+
+    private Builder() {
+    }
+
+    public Builder account(final String account) {
+      this.account = account;
+      return this;
+    }
+
+    public Builder from(final LocalDateTime from) {
+      this.from = from;
+      return this;
+    }
+
+    public Builder to(final LocalDateTime to) {
+      this.to = to;
+      return this;
+    }
+
+    public Builder minAmount(final BigDecimal minAmount) {
+      this.minAmount = minAmount;
+      return this;
+    }
+
+    public Builder maxAmount(final BigDecimal maxAmount) {
+      this.maxAmount = maxAmount;
+      return this;
+    }
+
+    public TransactionFilter build() {
+      return new TransactionFilter(this);
+    }
+  }
+}
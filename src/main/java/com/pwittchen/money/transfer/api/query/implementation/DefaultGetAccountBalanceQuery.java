@@ -0,0 +1,64 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.command.exception.HistoryNotAvailableException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.AccountBalance;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.query.GetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import javax.inject.Inject;
+import org.joda.money.Money;
+
+/**
+ * Answers a past balance of an account forward from its base balance in the
+ * {@link TransactionIndex}: the balance after the closest checkpoint at or before the given
+ * time plus at most {@value TransactionIndex#CHECKPOINT_INTERVAL} transactions after it and
+ * transactions of the out-of-order tail created at or before the time. So the time of a query
+ * doesn't depend on the length of the history, and the current balance of the account,
+ * which may already include transfers not indexed yet, is never read.
+ *
+ * A balance before the time, from which the history is complete, is not answered, because
+ * the base balance of an account restored after a restart takes in the transactions, which
+ * were lost, no matter when they were made.
+ */
+public class DefaultGetAccountBalanceQuery implements GetAccountBalanceQuery {
+
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private TransactionIndex transactionIndex;
+
+  @Inject public DefaultGetAccountBalanceQuery(AccountRepository accountRepository,
+      TransactionRepository transactionRepository, TransactionIndex transactionIndex) {
+    this.accountRepository = accountRepository;
+    this.transactionRepository = transactionRepository;
+    this.transactionIndex = transactionIndex;
+  }
+
+  @Override public Optional<AccountBalance> run(String number, LocalDateTime asOf) {
+    final Optional<Account> account = accountRepository.get(number);
+    if (account.isEmpty()) {
+      return Optional.empty();
+    }
+    final LocalDateTime createdAt = account.get().createdAt();
+    if (createdAt != null && asOf.isBefore(createdAt)) {
+      return Optional.empty();
+    }
+    final Optional<LocalDateTime> retainedFrom = transactionIndex.retainedFrom();
+    if (retainedFrom.isPresent() && asOf.isBefore(retainedFrom.get())) {
+      throw new HistoryNotAvailableException(retainedFrom.get());
+    }
+
+    final long balance = transactionIndex.balance(number, asOf, position -> {
+      final List<Transaction> transaction = transactionRepository.get(position, 1);
+      return transaction.isEmpty() ? null : transaction.get(0);
+    });
+    return Optional.of(new AccountBalance(
+        number, Money.ofMinor(account.get().money().getCurrencyUnit(), balance), asOf
+    ));
+  }
+}
@@ -0,0 +1,34 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.query.GetAccountTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.TransactionFilter;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.util.Optional;
+import javax.inject.Inject;
+
+/**
+ * Answers transactions of an account from the positions of its transactions kept in the
+ * transaction index, so a page reads only transactions of the account, no matter how many
+ * transactions of other accounts there are.
+ */
+public class DefaultGetAccountTransactionsQuery implements GetAccountTransactionsQuery {
+
+  private AccountRepository accountRepository;
+  private GetAllTransactionsQuery getAllTransactionsQuery;
+
+  @Inject public DefaultGetAccountTransactionsQuery(AccountRepository accountRepository,
+      GetAllTransactionsQuery getAllTransactionsQuery) {
+    this.accountRepository = accountRepository;
+    this.getAllTransactionsQuery = getAllTransactionsQuery;
+  }
+
+  @Override public Optional<TransactionPage> run(String number, String cursor, int limit) {
+    if (accountRepository.get(number).isEmpty()) {
+      return Optional.empty();
+    }
+    final TransactionFilter filter = TransactionFilter.builder().account(number).build();
+    return Optional.of(getAllTransactionsQuery.run(filter, cursor, limit));
+  }
+}
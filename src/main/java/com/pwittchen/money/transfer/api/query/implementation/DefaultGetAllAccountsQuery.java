@@ -3,6 +3,7 @@ package com.pwittchen.money.transfer.api.query.implementation;
 import com.pwittchen.money.transfer.api.model.Account;
 import com.pwittchen.money.transfer.api.query.GetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.util.Iterator;
 import java.util.List;
 import javax.inject.Inject;
 
@@ -17,4 +18,8 @@ public class DefaultGetAllAccountsQuery implements GetAllAccountsQuery {
   @Override public List<Account> run() {
     return accountRepository.getAll();
   }
+
+  @Override public Iterator<Account> iterator() {
+    return accountRepository.iterator();
+  }
 }
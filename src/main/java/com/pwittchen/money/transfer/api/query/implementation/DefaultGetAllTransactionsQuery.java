@@ -1,20 +1,181 @@
 package com.pwittchen.money.transfer.api.query.implementation;
 
 import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
 import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.TransactionFilter;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.LongColumn;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.BlockingQueue;
 import javax.inject.Inject;
 
+/**
+ * Answers pages of the history from the {@link TransactionIndex}: a time range is narrowed
+ * to a range of positions with a binary search, an account is narrowed to its positions and
+ * amounts are compared in the index, so only matching transactions are read, together in
+ * batches of at most the number of transactions missing from the page. A cursor is
+ * the position, at which the next page starts. The number of positions looked at for a single
+ * page is limited, so the time of a request doesn't depend on the size of the history.
+ */
 public class DefaultGetAllTransactionsQuery implements GetAllTransactionsQuery {
 
+  static final int MAX_SCANNED = 100_000;
+  static final int ITERATOR_PAGE_SIZE = 1000;
+
   private TransactionRepository transactionRepository;
+  private TransactionIndex transactionIndex;
 
-  @Inject public DefaultGetAllTransactionsQuery(TransactionRepository transactionRepository) {
+  @Inject public DefaultGetAllTransactionsQuery(TransactionRepository transactionRepository,
+      TransactionIndex transactionIndex) {
     this.transactionRepository = transactionRepository;
+    this.transactionIndex = transactionIndex;
   }
 
   @Override public BlockingQueue<Transaction> run() {
     return transactionRepository.getAll();
   }
+
+  @Override public TransactionPage run(TransactionFilter filter, String cursor, int limit) {
+    return run(filter, cursor, limit, transactionIndex.size());
+  }
+
+  /**
+   * Iterates over transactions, which were in the history when the iterator was created, so
+   * the iteration ends even when transactions are made faster than they're read.
+   */
+  @Override public Iterator<Transaction> iterator(TransactionFilter filter) {
+    final long size = transactionIndex.size();
+    return new Iterator<>() {
+      private Iterator<Transaction> page = Collections.emptyIterator();
+      private String cursor;
+      private boolean exhausted;
+
+      @Override public boolean hasNext() {
+        while (!page.hasNext() && !exhausted) {
+          final TransactionPage next = run(filter, cursor, ITERATOR_PAGE_SIZE, size);
+          page = next.transactions().iterator();
+          cursor = next.next();
+          exhausted = cursor == null;
+        }
+        return page.hasNext();
+      }
+
+      @Override public Transaction next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return page.next();
+      }
+    };
+  }
+
+  // returns a page of transactions at positions before the given size of the history
+  private TransactionPage run(final TransactionFilter filter, final String cursor,
+      final int limit, final long size) {
+    long start = decode(cursor);
+    if (filter.from() != null) {
+      start = Math.max(start, transactionIndex.from(filter.from()));
+    }
+    final long end = filter.to() == null
+        ? size
+        : Math.min(size, transactionIndex.after(filter.to()));
+
+    if (filter.account() == null && !filter.hasAmount()) {
+      final List<Transaction> transactions = start < end
+          ? transactionRepository.get(start, (int) Math.min(limit, end - start))
+          : new ArrayList<>();
+      final long next = start + transactions.size();
+      return new TransactionPage(transactions, next < end ? encode(next) : null);
+    }
+
+    final LongColumn positions = filter.account() == null
+        ? null
+        : transactionIndex.positions(filter.account());
+    final long candidates = positions == null ? end : positions.size();
+    long candidate = positions == null ? start : positions.search(start);
+    final List<Transaction> transactions = new ArrayList<>();
+    final List<Long> batch = new ArrayList<>();
+    int scanned = 0;
+    while (candidate < candidates && transactions.size() < limit && scanned < MAX_SCANNED) {
+      batch.clear();
+      for (; candidate < candidates && batch.size() < limit - transactions.size()
+          && scanned < MAX_SCANNED; candidate++, scanned++) {
+        final long position = positions == null ? candidate : positions.get(candidate);
+        if (position >= end) {
+          candidate = candidates;
+          break;
+        }
+        if (matchesIndex(filter, position)) {
+          batch.add(position);
+        }
+      }
+      for (Transaction transaction : transactionRepository.get(batch)) {
+        if (matchesLegs(filter, transaction)) {
+          transactions.add(transaction);
+        }
+      }
+    }
+
+    final long next = candidate < candidates
+        ? (positions == null ? candidate : positions.get(candidate))
+        : end;
+    return new TransactionPage(transactions, next < end ? encode(next) : null);
+  }
+
+  // amounts of multi-leg transactions are not in the index, they're checked once read
+  private boolean matchesIndex(final TransactionFilter filter, final long position) {
+    if (!filter.hasAmount()) {
+      return true;
+    }
+    final BigDecimal amount = transactionIndex.amount(position);
+    return amount == null
+        ? transactionIndex.isMultiLeg(position)
+        : filter.matchesAmount(amount);
+  }
+
+  private static boolean matchesLegs(final TransactionFilter filter,
+      final Transaction transaction) {
+    if (!filter.hasAmount() || transaction.legs().isEmpty()) {
+      return true;
+    }
+    for (TransactionLeg leg : transaction.legs()) {
+      if (filter.matchesAmount(leg.money().getAmount())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String encode(final long position) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(
+        Long.toString(position).getBytes(StandardCharsets.UTF_8)
+    );
+  }
+
+  private static long decode(final String cursor) {
+    if (cursor == null) {
+      return 0;
+    }
+    try {
+      final long position = Long.parseLong(
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+      );
+      if (position < 0) {
+        throw new IllegalArgumentException("invalid cursor");
+      }
+      return position;
+    } catch (IllegalArgumentException exception) {
+      throw new IllegalArgumentException("invalid cursor", exception);
+    }
+  }
 }
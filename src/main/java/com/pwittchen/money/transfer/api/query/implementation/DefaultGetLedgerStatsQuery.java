@@ -0,0 +1,19 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.model.LedgerStats;
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import javax.inject.Inject;
+
+public class DefaultGetLedgerStatsQuery implements GetLedgerStatsQuery {
+
+  private LedgerAggregates ledgerAggregates;
+
+  @Inject public DefaultGetLedgerStatsQuery(LedgerAggregates ledgerAggregates) {
+    this.ledgerAggregates = ledgerAggregates;
+  }
+
+  @Override public LedgerStats run() {
+    return ledgerAggregates.stats();
+  }
+}
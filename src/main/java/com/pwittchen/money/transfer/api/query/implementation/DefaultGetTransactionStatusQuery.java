@@ -0,0 +1,21 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.query.GetTransactionStatusQuery;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import java.util.Optional;
+import javax.inject.Inject;
+
+public class DefaultGetTransactionStatusQuery implements GetTransactionStatusQuery {
+
+  private TransactionStatusRepository transactionStatusRepository;
+
+  @Inject public DefaultGetTransactionStatusQuery(
+      TransactionStatusRepository transactionStatusRepository) {
+    this.transactionStatusRepository = transactionStatusRepository;
+  }
+
+  @Override public Optional<TransactionStatus> run(String id) {
+    return transactionStatusRepository.get(id);
+  }
+}
@@ -1,6 +1,8 @@
 package com.pwittchen.money.transfer.api.repository;
 
+import com.pwittchen.money.transfer.api.command.exception.AccountSplitNotSupportedException;
 import com.pwittchen.money.transfer.api.model.Account;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import org.joda.money.Money;
@@ -10,7 +12,29 @@ public interface AccountRepository {
 
   List<Account> getAll();
 
+  /**
+   * Iterates over accounts one at a time, so they can be streamed without materializing all
+   * of them at once. Accounts created or updated during the iteration may or may not be seen.
+   */
+  default Iterator<Account> iterator() {
+    return getAll().iterator();
+  }
+
   Account create(Account account);
 
+  /**
+   * Creates account unless an account with the same number exists, as a single atomic step.
+   * Returns true when the account was created.
+   */
+  boolean createIfAbsent(Account account);
+
   void transfer(Account from, Account to, Money money);
+
+  /**
+   * Splits account into the given number of sub-balances, so concurrent credits of the account
+   * don't contend with each other. Supported only by the storages, which can do it.
+   */
+  default void split(String number, int shards) {
+    throw new AccountSplitNotSupportedException(number);
+  }
 }
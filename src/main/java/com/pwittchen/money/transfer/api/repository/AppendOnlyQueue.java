@@ -0,0 +1,100 @@
+package com.pwittchen.money.transfer.api.repository;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * View of a transaction history as a queue, for repositories, which read transactions at
+ * positions instead of keeping them in a queue. Transactions can be added to it, but they
+ * can't be taken out, because the history is append-only.
+ */
+public final class AppendOnlyQueue extends AbstractQueue<Transaction>
+    implements BlockingQueue<Transaction> {
+
+  private final TransactionRepository repository;
+  private final Supplier<Iterator<Transaction>> iterator;
+  private final LongSupplier size;
+
+  public AppendOnlyQueue(final TransactionRepository repository,
+      final Supplier<Iterator<Transaction>> iterator, final LongSupplier size) {
+    this.repository = repository;
+    this.iterator = iterator;
+    this.size = size;
+  }
+
+  @Override public Iterator<Transaction> iterator() {
+    return iterator.get();
+  }
+
+  @Override public int size() {
+    return (int) Math.min(size.getAsLong(), Integer.MAX_VALUE);
+  }
+
+  @Override public boolean isEmpty() {
+    return size.getAsLong() == 0;
+  }
+
+  @Override public boolean offer(final Transaction transaction) {
+    repository.create(transaction);
+    return true;
+  }
+
+  @Override public boolean offer(final Transaction transaction, final long timeout,
+      final TimeUnit unit) {
+    return offer(transaction);
+  }
+
+  @Override public void put(final Transaction transaction) {
+    repository.create(transaction);
+  }
+
+  @Override public boolean addAll(final Collection<? extends Transaction> transactions) {
+    repository.createAll(new ArrayList<>(transactions));
+    return !transactions.isEmpty();
+  }
+
+  @Override public Transaction peek() {
+    final Iterator<Transaction> iterator = iterator();
+    return iterator.hasNext() ? iterator.next() : null;
+  }
+
+  @Override public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override public void clear() {
+    repository.clear();
+  }
+
+  @Override public Transaction poll() {
+    throw appendOnly();
+  }
+
+  @Override public Transaction poll(final long timeout, final TimeUnit unit) {
+    throw appendOnly();
+  }
+
+  @Override public Transaction take() {
+    throw appendOnly();
+  }
+
+  @Override public int drainTo(final Collection<? super Transaction> collection) {
+    throw appendOnly();
+  }
+
+  @Override public int drainTo(final Collection<? super Transaction> collection,
+      final int maxElements) {
+    throw appendOnly();
+  }
+
+  private UnsupportedOperationException appendOnly() {
+    return new UnsupportedOperationException("Transaction history is append-only");
+  }
+}
@@ -1,6 +1,10 @@
 package com.pwittchen.money.transfer.api.repository;
 
 import com.pwittchen.money.transfer.api.model.Transaction;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 
 public interface TransactionRepository {
@@ -9,5 +13,53 @@ public interface TransactionRepository {
 
   Transaction create(Transaction transaction);
 
+  List<Transaction> createAll(List<Transaction> transactions);
+
   void clear();
+
+  /**
+   * Returns the most recent transaction kept by a repository, which survives restarts.
+   * Repositories, which keep transactions in memory only, are empty after a restart.
+   */
+  default Optional<Transaction> last() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the most recent transaction, which is already on disk, so {@link #last()} returns
+   * it or a newer one even after a crash. Transactions logged after it are still needed in
+   * the write-ahead log. Repositories, which keep transactions in memory only, return nothing.
+   */
+  default Optional<Transaction> lastPersisted() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns at most the given number of transactions, starting at the given position in the
+   * history, i.e. after the given number of transactions created before them. Repositories,
+   * which can't read at a position, iterate over the transactions before it.
+   */
+  default List<Transaction> get(final long position, final int limit) {
+    final List<Transaction> transactions = new ArrayList<>(Math.min(limit, 1024));
+    final Iterator<Transaction> iterator = getAll().iterator();
+    for (long i = 0; i < position && iterator.hasNext(); i++) {
+      iterator.next();
+    }
+    while (transactions.size() < limit && iterator.hasNext()) {
+      transactions.add(iterator.next());
+    }
+    return transactions;
+  }
+
+  /**
+   * Returns transactions at the given positions, which are in ascending order. Repositories,
+   * which can read several positions at once, read them together instead of one by one.
+   */
+  default List<Transaction> get(final List<Long> positions) {
+    final List<Transaction> transactions = new ArrayList<>(positions.size());
+    for (long position : positions) {
+      transactions.addAll(get(position, 1));
+    }
+    return transactions;
+  }
 }
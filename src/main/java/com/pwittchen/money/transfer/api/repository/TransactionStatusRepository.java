@@ -0,0 +1,11 @@
+package com.pwittchen.money.transfer.api.repository;
+
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import java.util.Optional;
+
+public interface TransactionStatusRepository {
+
+  Optional<TransactionStatus> get(String id);
+
+  TransactionStatus save(TransactionStatus status);
+}
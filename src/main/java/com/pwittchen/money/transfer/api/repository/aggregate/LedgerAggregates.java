@@ -0,0 +1,88 @@
+package com.pwittchen.money.transfer.api.repository.aggregate;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.LedgerStats;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Aggregates of the ledger, maintained incrementally when accounts and transactions are
+ * created, so they're read in time independent of the number of accounts and transactions.
+ * Sums are kept in minor units in striped {@link LongAdder} counters, one per currency, so
+ * concurrent writers don't contend on a single value.
+ *
+ * Transfers move money between accounts of the same currency, so they don't change totals
+ * of accounts, which change only when accounts are created. Readers may see a transaction
+ * counted before its volume, since the counters are not updated as a single step.
+ */
+public class LedgerAggregates {
+
+  private final LongAdder accounts = new LongAdder();
+  private final Map<CurrencyUnit, LongAdder> totals = new ConcurrentHashMap<>();
+  private final LongAdder transactions = new LongAdder();
+  private final Map<CurrencyUnit, LongAdder> volumes = new ConcurrentHashMap<>();
+
+  public void add(final Account account) {
+    accounts.increment();
+    add(totals, account.money());
+  }
+
+  public void add(final Transaction transaction) {
+    transactions.increment();
+    if (transaction.legs().isEmpty()) {
+      add(volumes, transaction.money());
+    } else {
+      for (TransactionLeg leg : transaction.legs()) {
+        add(volumes, leg.money());
+      }
+    }
+  }
+
+  /**
+   * Adds the given number of transactions, which moved the given money, e.g. restored from
+   * aggregates saved before a restart.
+   */
+  public void addTransactions(final long count, final Collection<Money> volumes) {
+    transactions.add(count);
+    for (Money volume : volumes) {
+      add(this.volumes, volume);
+    }
+  }
+
+  /**
+   * Resets aggregates of transactions, when the history is cleared.
+   */
+  public void clearTransactions() {
+    transactions.reset();
+    volumes.clear();
+  }
+
+  public LedgerStats stats() {
+    return new LedgerStats(accounts.sum(), amounts(totals), transactions.sum(), amounts(volumes));
+  }
+
+  private static void add(final Map<CurrencyUnit, LongAdder> sums, final Money money) {
+    if (money == null) {
+      return;
+    }
+    sums
+        .computeIfAbsent(money.getCurrencyUnit(), currency -> new LongAdder())
+        .add(money.getAmountMinorLong());
+  }
+
+  private static Map<String, BigDecimal> amounts(final Map<CurrencyUnit, LongAdder> sums) {
+    final Map<String, BigDecimal> amounts = new TreeMap<>();
+    sums.forEach((currency, sum) -> amounts.put(
+        currency.getCode(), BigDecimal.valueOf(sum.sum(), currency.getDecimalPlaces())
+    ));
+    return amounts;
+  }
+}
@@ -0,0 +1,119 @@
+package com.pwittchen.money.transfer.api.repository.index;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped file holding chunks of {@link LongColumn}s outside of the Java heap. The file
+ * grows in regions, which are mapped when they're first used, and a chunk never crosses
+ * a region, so it's a view of a single mapping. A chunk is addressed by the number of longs
+ * before it in the file.
+ *
+ * Chunks are only appended: a chunk, which a column outgrows, stays where it is, so chunks
+ * described by a saved index stay valid while the index goes on. Only the thread, which
+ * appends to the columns, allocates chunks.
+ */
+final class ColumnFile implements Closeable {
+
+  static final int REGION_SIZE = 16 * 1024 * 1024;
+  private static final int REGION_LONGS = REGION_SIZE / Long.BYTES;
+
+  private final Path path;
+  private final List<MappedByteBuffer> regions = new ArrayList<>();
+  // address of the first free long
+  private long end;
+
+  private ColumnFile(final Path path, final long end) {
+    this.path = path;
+    this.end = end;
+  }
+
+  /**
+   * Opens the file, creating it when needed. Longs at and after the given end are free.
+   */
+  static ColumnFile open(final Path path, final long end) throws IOException {
+    if (!Files.exists(path)) {
+      Files.createFile(path);
+    }
+    return new ColumnFile(path, end);
+  }
+
+  long end() {
+    return end;
+  }
+
+  /**
+   * Returns the address of a new chunk of the given number of longs.
+   */
+  long allocate(final int size) {
+    if (size > REGION_LONGS) {
+      throw new IllegalArgumentException(String.format("Chunk of %d longs is too large", size));
+    }
+    final long offset = end % REGION_LONGS;
+    if (offset + size > REGION_LONGS) {
+      end += REGION_LONGS - offset;
+    }
+    final long address = end;
+    end += size;
+    return address;
+  }
+
+  /**
+   * Returns a view of the chunk of the given number of longs at the given address.
+   */
+  LongBuffer chunk(final long address, final int size) {
+    final ByteBuffer region = region((int) (address / REGION_LONGS)).duplicate();
+    final int offset = (int) (address % REGION_LONGS) * Long.BYTES;
+    region.position(offset).limit(offset + size * Long.BYTES);
+    return region.slice().asLongBuffer();
+  }
+
+  /**
+   * Frees all chunks, so they're written over by the next ones.
+   */
+  void clear() {
+    end = 0;
+  }
+
+  /**
+   * Writes the mapped regions to disk.
+   */
+  void force() {
+    for (MappedByteBuffer region : regions) {
+      region.force();
+    }
+  }
+
+  // the mappings are left to the garbage collector, since columns may still read them
+  @Override public void close() {
+    force();
+    regions.clear();
+  }
+
+  private MappedByteBuffer region(final int region) {
+    if (region < regions.size()) {
+      return regions.get(region);
+    }
+    try (FileChannel channel = FileChannel.open(
+        path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      while (regions.size() <= region) {
+        regions.add(channel.map(
+            FileChannel.MapMode.READ_WRITE, (long) regions.size() * REGION_SIZE, REGION_SIZE
+        ));
+      }
+      return regions.get(region);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+}
@@ -0,0 +1,363 @@
+package com.pwittchen.money.transfer.api.repository.index;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.LedgerStats;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transaction repository, which maintains a {@link TransactionIndex} and
+ * {@link LedgerAggregates} of the transactions it creates. Transactions already in the
+ * decorated repository, e.g. restored after a restart, are indexed once, when it's created.
+ * Transactions are created one batch at a time, so positions in the index match positions
+ * in the decorated repository. Threads, which create transactions while a batch is being
+ * written, queue theirs and the next thread to take the lock writes all of them as one batch,
+ * so a slow write, e.g. a database commit, is paid once for all of them. When the combined
+ * batch fails, every caller, which queued transactions into it, gets the failure.
+ *
+ * An index opened in a directory, see {@link #open(TransactionRepository, Path)}, keeps its
+ * columns in a mapped file next to the history, and {@link #save()} writes its state with
+ * the aggregates of transactions into an {@value #STATE_FILE} file. After a restart, only
+ * transactions created after the last save are read from the decorated repository and
+ * indexed. When the last saved transaction is not in the repository at its position, e.g.
+ * the repository lost its tail in a crash, the whole history is indexed again.
+ */
+public class IndexedTransactionRepository implements TransactionRepository, Closeable {
+
+  static final String COLUMN_FILE = "index.col";
+  static final String STATE_FILE = "index.state";
+
+  private static final Logger LOG = LoggerFactory.getLogger(IndexedTransactionRepository.class);
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final int MAGIC = 0x49445832;
+  private static final int BUFFER_SIZE = 256 * 1024;
+  private static final int READ_BATCH_SIZE = 1024;
+
+  private final TransactionRepository transactionRepository;
+  private final TransactionIndex index;
+  private final LedgerAggregates aggregates = new LedgerAggregates();
+  private final Queue<Write> pending = new ConcurrentLinkedQueue<>();
+  private final ReentrantLock writer = new ReentrantLock();
+  // null, when the index is kept on the heap
+  private final Path directory;
+  private final ColumnFile file;
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "index-saver");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  public IndexedTransactionRepository(final TransactionRepository transactionRepository) {
+    this(transactionRepository, new TransactionIndex(), null, null);
+    indexMissing();
+  }
+
+  private IndexedTransactionRepository(final TransactionRepository transactionRepository,
+      final TransactionIndex index, final Path directory, final ColumnFile file) {
+    this.transactionRepository = transactionRepository;
+    this.index = index;
+    this.directory = directory;
+    this.file = file;
+  }
+
+  /**
+   * Opens index of the given repository, which is saved in the given directory, and indexes
+   * transactions created after it was saved. Creates the directory, when needed.
+   */
+  public static IndexedTransactionRepository open(
+      final TransactionRepository transactionRepository, final Path directory)
+      throws IOException {
+    Files.createDirectories(directory);
+    final Path state = directory.resolve(STATE_FILE);
+    IndexedTransactionRepository repository = null;
+    if (Files.exists(state)) {
+      try {
+        repository = read(transactionRepository, directory, state);
+      } catch (IOException | RuntimeException exception) {
+        LOG.warn("saved index {} could not be read, indexing the history again", state, exception);
+      }
+    }
+    if (repository == null) {
+      final ColumnFile file = ColumnFile.open(directory.resolve(COLUMN_FILE), 0);
+      repository = new IndexedTransactionRepository(
+          transactionRepository, new TransactionIndex(file), directory, file
+      );
+    }
+    repository.indexMissing();
+    return repository;
+  }
+
+  private static IndexedTransactionRepository read(
+      final TransactionRepository transactionRepository, final Path directory,
+      final Path state) throws IOException {
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(state), BUFFER_SIZE))) {
+      if (input.readInt() != MAGIC) {
+        throw new IOException(String.format("Index state %s is corrupted", state));
+      }
+      final ColumnFile file = ColumnFile.open(directory.resolve(COLUMN_FILE), input.readLong());
+      final TransactionIndex index = TransactionIndex.read(input, file);
+      final long transactions = input.readLong();
+      final int currencies = input.readInt();
+      final List<Money> volumes = new ArrayList<>(currencies);
+      for (int i = 0; i < currencies; i++) {
+        volumes.add(Money.ofMinor(CurrencyUnit.of(input.readUTF()), input.readLong()));
+      }
+      final IndexedTransactionRepository repository =
+          new IndexedTransactionRepository(transactionRepository, index, directory, file);
+      repository.aggregates.addTransactions(transactions, volumes);
+      return repository;
+    }
+  }
+
+  /**
+   * Saves the index every given period.
+   */
+  public void start(final long period, final TimeUnit unit) {
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        save();
+      } catch (Exception exception) {
+        LOG.error("index could not be saved", exception);
+      }
+    }, period, period, unit);
+  }
+
+  /**
+   * Writes the mapped columns to disk and then the state of the index and the aggregates of
+   * transactions to a temporary file, which replaces the previous state. Transactions aren't
+   * created in the meantime, so the state is consistent. An index kept on the heap isn't
+   * saved.
+   */
+  public void save() throws IOException {
+    if (directory == null) {
+      return;
+    }
+    final Path temporary = directory.resolve(STATE_FILE + TEMPORARY_SUFFIX);
+    writer.lock();
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+      file.force();
+      output.writeInt(MAGIC);
+      output.writeLong(file.end());
+      index.write(output);
+      final LedgerStats stats = aggregates.stats();
+      output.writeLong(stats.transactions());
+      output.writeInt(stats.volumes().size());
+      for (Map.Entry<String, BigDecimal> volume : stats.volumes().entrySet()) {
+        output.writeUTF(volume.getKey());
+        output.writeLong(Money.of(CurrencyUnit.of(volume.getKey()), volume.getValue())
+            .getAmountMinorLong());
+      }
+    } finally {
+      writer.unlock();
+    }
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(temporary, directory.resolve(STATE_FILE), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Stops saving the index in the background and saves it for the last time.
+   */
+  @Override public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.MINUTES);
+      save();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    } catch (IOException exception) {
+      LOG.error("index could not be saved", exception);
+    }
+    if (file != null) {
+      file.close();
+    }
+  }
+
+  /**
+   * Adds accounts, which already exist, e.g. restored after a restart, to the aggregates and
+   * opens them in the index with their current balances. Must be called before any of their
+   * transactions is created.
+   */
+  public void addAccounts(final Iterator<Account> accounts) {
+    writer.lock();
+    try {
+      while (accounts.hasNext()) {
+        final Account account = accounts.next();
+        aggregates.add(account);
+        index.open(account.number(), account.money().getAmountMinorLong());
+      }
+    } finally {
+      writer.unlock();
+    }
+  }
+
+  public TransactionIndex index() {
+    return index;
+  }
+
+  public LedgerAggregates aggregates() {
+    return aggregates;
+  }
+
+  @Override public BlockingQueue<Transaction> getAll() {
+    return transactionRepository.getAll();
+  }
+
+  @Override public Transaction create(Transaction transaction) {
+    createAll(List.of(transaction));
+    return transaction;
+  }
+
+  @Override public List<Transaction> createAll(List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return transactions;
+    }
+    final Write write = new Write(transactions);
+    pending.add(write);
+    writer.lock();
+    try {
+      if (!write.done) {
+        writePending();
+      }
+    } finally {
+      writer.unlock();
+    }
+    if (write.failure != null) {
+      throw write.failure;
+    }
+    return transactions;
+  }
+
+  @Override public void clear() {
+    writer.lock();
+    try {
+      transactionRepository.clear();
+      index.clear();
+      aggregates.clearTransactions();
+    } finally {
+      writer.unlock();
+    }
+  }
+
+  @Override public Optional<Transaction> last() {
+    return transactionRepository.last();
+  }
+
+  @Override public Optional<Transaction> lastPersisted() {
+    return transactionRepository.lastPersisted();
+  }
+
+  @Override public List<Transaction> get(final long position, final int limit) {
+    return transactionRepository.get(position, limit);
+  }
+
+  @Override public List<Transaction> get(final List<Long> positions) {
+    return transactionRepository.get(positions);
+  }
+
+  // indexes transactions of the repository, which are not in the index yet
+  private void indexMissing() {
+    final long start = System.nanoTime();
+    final long restored = index.size();
+    if (restored > 0 && !isIndexed(restored)) {
+      LOG.warn("saved index of {} transactions doesn't match the history, indexing it again",
+          restored);
+      index.clear();
+      aggregates.clearTransactions();
+    }
+    final long indexed = index.size();
+    List<Transaction> transactions;
+    while (!(transactions = transactionRepository.get(index.size(), READ_BATCH_SIZE)).isEmpty()) {
+      for (Transaction transaction : transactions) {
+        index.add(transaction);
+        aggregates.add(transaction);
+      }
+    }
+    if (index.size() > 0) {
+      LOG.info("{} transactions of {} accounts indexed, {} of them in {} ms, "
+              + "{} bytes of heap per transaction",
+          index.size(), index.accounts(), index.size() - indexed,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+          index.memory() / index.size());
+    }
+  }
+
+  // the last transaction saved with the index is still at its position in the repository
+  private boolean isIndexed(final long size) {
+    final List<Transaction> last = transactionRepository.get(size - 1, 1);
+    return !last.isEmpty() && Objects.equals(last.get(0).id(), index.last());
+  }
+
+  // called by the thread holding the writer lock
+  private void writePending() {
+    final List<Write> writes = new ArrayList<>();
+    final List<Transaction> batch = new ArrayList<>();
+    Write write;
+    while ((write = pending.poll()) != null) {
+      writes.add(write);
+      batch.addAll(write.transactions);
+    }
+    // kept only when an error escapes, so no caller takes an unwritten batch for a written one
+    RuntimeException failure = new IllegalStateException("Transactions were not created");
+    try {
+      transactionRepository.createAll(batch);
+      for (Transaction transaction : batch) {
+        index.add(transaction);
+        aggregates.add(transaction);
+      }
+      failure = null;
+    } catch (RuntimeException exception) {
+      failure = exception;
+    } finally {
+      for (Write done : writes) {
+        done.done = true;
+        done.failure = failure;
+      }
+    }
+  }
+
+  private static final class Write {
+    private final List<Transaction> transactions;
+    // guarded by the writer lock
+    private boolean done;
+    private RuntimeException failure;
+
+    private Write(final List<Transaction> transactions) {
+      this.transactions = transactions;
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.pwittchen.money.transfer.api.repository.index;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only column of primitive longs kept in fixed-size chunks, so it grows without copying
+ * the values already in it and without boxing them. The first chunk starts small and doubles
+ * up to the chunk size, so short columns, e.g. of an account with a few transactions, stay
+ * small too. Chunks are kept on the heap or, for a column of a {@link ColumnFile}, in the
+ * mapped file, so only small descriptors of them are on the heap.
+ *
+ * A single thread appends, while any number of threads read. Values below the size, which
+ * a reader has seen, are visible to it.
+ */
+public final class LongColumn {
+
+  private static final int CHUNK_SHIFT = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int INITIAL_SIZE = 4;
+  // buffer object describing a chunk
+  private static final int CHUNK_OVERHEAD = 48;
+
+  // null, when chunks are kept on the heap
+  private final ColumnFile file;
+  private LongBuffer[] chunks = new LongBuffer[1];
+  // addresses of chunks in the file
+  private long[] addresses = new long[1];
+  private volatile long size;
+
+  public LongColumn() {
+    this(null);
+  }
+
+  LongColumn(final ColumnFile file) {
+    this.file = file;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public long get(final long index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(String.format("Index %d, size %d", index, size));
+    }
+    return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) (index & CHUNK_MASK));
+  }
+
+  public long last() {
+    return get(size - 1);
+  }
+
+  public void add(final long value) {
+    final long index = size;
+    final int chunk = (int) (index >>> CHUNK_SHIFT);
+    final int offset = (int) (index & CHUNK_MASK);
+    if (chunk == chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunks.length * 2);
+      addresses = Arrays.copyOf(addresses, addresses.length * 2);
+    }
+    LongBuffer values = chunks[chunk];
+    if (values == null) {
+      values = allocate(chunk, chunk == 0 ? INITIAL_SIZE : CHUNK_SIZE);
+      chunks[chunk] = values;
+    } else if (offset == values.capacity()) {
+      final LongBuffer grown = allocate(chunk, Math.min(CHUNK_SIZE, values.capacity() * 2));
+      grown.put(values.duplicate().clear());
+      chunks[chunk] = grown;
+      values = grown;
+    }
+    values.put(offset, value);
+    size = index + 1;
+  }
+
+  /**
+   * Returns the index of the first value, which is not less than the given one, or the size
+   * of the column, when there's no such value. Values must be in ascending order.
+   */
+  public long search(final long value) {
+    long low = 0;
+    long high = size;
+    while (low < high) {
+      final long middle = (low + high) >>> 1;
+      if (get(middle) < value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the number of bytes taken by the column on the heap.
+   */
+  public long memory() {
+    long memory = 16L + 16L * chunks.length;
+    for (LongBuffer values : chunks) {
+      if (values != null) {
+        memory += CHUNK_OVERHEAD + (values.isDirect() ? 0 : 16L + 8L * values.capacity());
+      }
+    }
+    return memory;
+  }
+
+  /**
+   * Writes the size of the column and the addresses of its chunks in the file.
+   */
+  void write(final DataOutput output) throws IOException {
+    final long size = this.size;
+    output.writeLong(size);
+    for (int chunk = 0; chunk < chunks(size); chunk++) {
+      output.writeLong(addresses[chunk]);
+      output.writeInt(chunks[chunk].capacity());
+    }
+  }
+
+  /**
+   * Reads a column written with {@link #write(DataOutput)}, whose chunks are in the given file.
+   */
+  static LongColumn read(final DataInput input, final ColumnFile file) throws IOException {
+    final LongColumn column = new LongColumn(file);
+    final long size = input.readLong();
+    final int chunks = chunks(size);
+    column.chunks = new LongBuffer[Math.max(1, chunks)];
+    column.addresses = new long[column.chunks.length];
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      column.addresses[chunk] = input.readLong();
+      column.chunks[chunk] = file.chunk(column.addresses[chunk], input.readInt());
+    }
+    column.size = size;
+    return column;
+  }
+
+  private LongBuffer allocate(final int chunk, final int length) {
+    if (file == null) {
+      return LongBuffer.allocate(length);
+    }
+    addresses[chunk] = file.allocate(length);
+    return file.chunk(addresses[chunk], length);
+  }
+
+  private static int chunks(final long size) {
+    return (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+  }
+}
@@ -0,0 +1,449 @@
+package com.pwittchen.money.transfer.api.repository.index;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongFunction;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Secondary index over the transaction history, maintained when transactions are created.
+ * A transaction is identified by its position in the history, i.e. the number of transactions
+ * created before it, and the index keeps primitive columns with one value per position:
+ * <ul>
+ *   <li>created at - creation time in epoch milliseconds (UTC)</li>
+ *   <li>time - the latest creation time of transactions up to the position, so the column is
+ *   ascending and a time range of the history is found with a binary search; concurrent
+ *   commits can record a transaction after a slightly younger one, so the history isn't
+ *   strictly ordered by creation times, but the greatest lag of a creation time behind
+ *   the latest one is kept, which bounds the out-of-order tail of a time range</li>
+ *   <li>amount - minor units of the money of a transfer between two accounts</li>
+ *   <li>currency - number of the currency of the amount, or -1 for a multi-leg transaction,
+ *   which has to be read to check amounts of its legs</li>
+ * </ul>
+ * and the ascending positions of transactions of every account, sent or received, so
+ * transactions of an account are found without scanning transactions of the other ones.
+ *
+ * Every account has a base balance, which is set when it's opened, see
+ * {@link #open(String, long)}, and its balance after any of its transactions is the base plus
+ * the net amount it has received up to it, i.e. the amount received minus the amount sent.
+ * Every {@value #CHECKPOINT_INTERVAL} transactions of an account, that amount is checkpointed,
+ * so a balance at any time is found forward from the closest checkpoint by reading at most
+ * {@value #CHECKPOINT_INTERVAL} transactions after it and the out-of-order tail, see
+ * {@link #balance(String, LocalDateTime, LongFunction)}. The index doesn't read balances of
+ * accounts, which may already include transfers not indexed yet.
+ *
+ * Columns of an index of a {@link ColumnFile} are kept in the mapped file, so heap use doesn't
+ * grow with the number of transactions. Its state, i.e. sizes and chunks of the columns, is
+ * written with {@link #write(DataOutput)} and read back after a restart, so only transactions
+ * made after it was written have to be indexed again.
+ */
+public class TransactionIndex {
+
+  public static final int MULTI_LEG = -1;
+  public static final int CHECKPOINT_INTERVAL = 64;
+  private static final int NO_MONEY = -2;
+  // map node, table slot, postings and their two column objects of every account
+  private static final int ACCOUNT_OVERHEAD = 120;
+
+  private final List<CurrencyUnit> currencies = new CopyOnWriteArrayList<>();
+  private final Map<CurrencyUnit, Integer> currencyNumbers = new ConcurrentHashMap<>();
+  // null, when columns are kept on the heap
+  private final ColumnFile file;
+  private volatile Columns columns;
+  private volatile LocalDateTime retainedFrom;
+
+  public TransactionIndex() {
+    this(null);
+  }
+
+  TransactionIndex(final ColumnFile file) {
+    this.file = file;
+    this.columns = new Columns(file);
+  }
+
+  /**
+   * Appends the transaction at the next position. Must be called by one thread at a time.
+   */
+  public void add(final Transaction transaction) {
+    final Columns columns = this.columns;
+    final long position = columns.times.size();
+    final long previous = position == 0 ? Long.MIN_VALUE : columns.times.last();
+    // a transaction without a time is taken as created with the previous one
+    final long createdAt = transaction.createdAt() == null
+        ? previous
+        : epochMillis(transaction.createdAt());
+    final long time = Math.max(previous, createdAt);
+    columns.createdAt.add(createdAt);
+    columns.times.add(time);
+    if (time - createdAt > columns.lag) {
+      columns.lag = time - createdAt;
+    }
+    columns.last = transaction.id();
+
+    if (transaction.legs().isEmpty()) {
+      final Money money = transaction.money();
+      final long amount = money == null ? 0 : money.getAmountMinorLong();
+      columns.amounts.add(amount);
+      columns.currencies.add(money == null ? NO_MONEY : currencyNumber(money.getCurrencyUnit()));
+      if (Objects.equals(transaction.from(), transaction.to())) {
+        post(columns, transaction.from(), position, 0);
+      } else {
+        post(columns, transaction.from(), position, -amount);
+        post(columns, transaction.to(), position, amount);
+      }
+    } else {
+      columns.amounts.add(0);
+      columns.currencies.add(MULTI_LEG);
+      final Map<String, Long> flows = new LinkedHashMap<>();
+      for (TransactionLeg leg : transaction.legs()) {
+        final long amount = leg.money().getAmountMinorLong();
+        flows.merge(leg.from(), -amount, Long::sum);
+        flows.merge(leg.to(), amount, Long::sum);
+      }
+      flows.forEach((account, flow) -> post(columns, account, position, flow));
+    }
+  }
+
+  /**
+   * Opens the account with the given balance in minor units, so its balances after the
+   * transactions indexed from now on are counted from it. A new account is opened with its
+   * initial balance before it's created, so before any of its transactions can be indexed,
+   * and an account, which already exists, e.g. restored after a restart, with its current
+   * balance before its next transaction is created.
+   */
+  public void open(final String account, final long balance) {
+    final Postings postings =
+        columns.accounts.computeIfAbsent(account, number -> new Postings(file));
+    postings.base = balance - postings.flow;
+  }
+
+  /**
+   * Removes all transactions and base balances of accounts. Chunks of columns kept in a file
+   * are written over by the next transactions, so the index must not be cleared while it's
+   * read.
+   */
+  public void clear() {
+    if (file != null) {
+      file.clear();
+    }
+    columns = new Columns(file);
+  }
+
+  /**
+   * Marks the history as incomplete before the given time, because transactions made before
+   * it were lost, e.g. when the log segments holding them were deleted.
+   */
+  public void retainFrom(final LocalDateTime time) {
+    retainedFrom = time;
+  }
+
+  /**
+   * Returns the time, from which the history is complete, or nothing, when it's complete since
+   * the first transaction.
+   */
+  public Optional<LocalDateTime> retainedFrom() {
+    return Optional.ofNullable(retainedFrom);
+  }
+
+  /**
+   * Returns the number of indexed transactions.
+   */
+  public long size() {
+    return columns.currencies.size();
+  }
+
+  /**
+   * Returns the id of the last indexed transaction, or null, when there's none.
+   */
+  String last() {
+    return columns.last;
+  }
+
+  /**
+   * Returns the number of accounts with indexed transactions.
+   */
+  public int accounts() {
+    return columns.accounts.size();
+  }
+
+  /**
+   * Returns an estimate of the number of bytes taken by the index, not counting account
+   * numbers, which are kept by the transactions as well.
+   */
+  public long memory() {
+    final Columns columns = this.columns;
+    long memory = columns.createdAt.memory() + columns.times.memory()
+        + columns.amounts.memory() + columns.currencies.memory();
+    for (Postings postings : columns.accounts.values()) {
+      memory += ACCOUNT_OVERHEAD + postings.positions.memory() + postings.checkpoints.memory();
+    }
+    return memory;
+  }
+
+  /**
+   * Returns the first position with a transaction created at or after the given time or
+   * after a transaction created then.
+   */
+  public long from(final LocalDateTime time) {
+    return columns.times.search(epochMillis(time));
+  }
+
+  /**
+   * Returns the first position with a transaction created after the given time and after
+   * all transactions created before it.
+   */
+  public long after(final LocalDateTime time) {
+    return after(columns, epochMillis(time));
+  }
+
+  /**
+   * Returns the greatest number of milliseconds, by which a transaction was created before
+   * a transaction preceding it in the history.
+   */
+  public long lag() {
+    return columns.lag;
+  }
+
+  /**
+   * Returns the amount of the transaction at the given position in major units of its
+   * currency, or null for a transaction without money or with legs.
+   */
+  public BigDecimal amount(final long position) {
+    final Columns columns = this.columns;
+    final int currency = (int) columns.currencies.get(position);
+    if (currency < 0) {
+      return null;
+    }
+    return BigDecimal.valueOf(
+        columns.amounts.get(position), currencies.get(currency).getDecimalPlaces()
+    );
+  }
+
+  /**
+   * Returns true, when the transaction at the given position has legs.
+   */
+  public boolean isMultiLeg(final long position) {
+    return columns.currencies.get(position) == MULTI_LEG;
+  }
+
+  /**
+   * Returns ascending positions of transactions of the given account.
+   */
+  public LongColumn positions(final String account) {
+    final Postings postings = columns.accounts.get(account);
+    return postings == null ? new LongColumn() : postings.positions;
+  }
+
+  /**
+   * Returns the balance in minor units of the account after all of its transactions created at
+   * or before the given time: the base balance of the account plus the amount it received up
+   * to the last transaction, after which every transaction was created later. That amount is
+   * taken from the closest checkpoint and only transactions after it, read with the given
+   * function, which returns the transaction at a position, are added. Transactions of the
+   * out-of-order tail, which were recorded after it, but could have been created at or before
+   * the time, are checked one by one with their creation times.
+   */
+  public long balance(final String account, final LocalDateTime time,
+      final LongFunction<Transaction> transactions) {
+    final Columns columns = this.columns;
+    final Postings postings = columns.accounts.get(account);
+    if (postings == null) {
+      return 0;
+    }
+    final LongColumn positions = postings.positions;
+    final long size = positions.size();
+    // read after the size, so it bounds the lag of every transaction below the size
+    final long lag = columns.lag;
+    final long millis = epochMillis(time);
+    final long count = Math.min(size, positions.search(after(columns, millis)));
+    final long tail = millis > Long.MAX_VALUE - lag
+        ? size
+        : Math.min(size, positions.search(after(columns, millis + lag)));
+
+    final long checkpoint = count / CHECKPOINT_INTERVAL;
+    long balance = postings.base
+        + (checkpoint == 0 ? 0 : postings.checkpoints.get(checkpoint - 1));
+    for (long i = checkpoint * CHECKPOINT_INTERVAL; i < count; i++) {
+      balance += flow(transactions.apply(positions.get(i)), account);
+    }
+    for (long i = count; i < tail; i++) {
+      final long position = positions.get(i);
+      if (columns.createdAt.get(position) <= millis) {
+        balance += flow(transactions.apply(position), account);
+      }
+    }
+    return balance;
+  }
+
+  private static long flow(final Transaction transaction, final String account) {
+    if (transaction == null) {
+      return 0;
+    }
+    long flow = 0;
+    if (transaction.legs().isEmpty()) {
+      final long amount = transaction.money() == null
+          ? 0
+          : transaction.money().getAmountMinorLong();
+      flow -= account.equals(transaction.from()) ? amount : 0;
+      flow += account.equals(transaction.to()) ? amount : 0;
+    } else {
+      for (TransactionLeg leg : transaction.legs()) {
+        final long amount = leg.money().getAmountMinorLong();
+        flow -= account.equals(leg.from()) ? amount : 0;
+        flow += account.equals(leg.to()) ? amount : 0;
+      }
+    }
+    return flow;
+  }
+
+  /**
+   * Appends the position to the postings of the account, checkpointing the amount received
+   * by it before the position becomes visible to readers. An account, which wasn't opened,
+   * has a zero base balance.
+   */
+  private void post(final Columns columns, final String account, final long position,
+      final long flow) {
+    if (account == null) {
+      return;
+    }
+    final Postings postings =
+        columns.accounts.computeIfAbsent(account, number -> new Postings(file));
+    postings.flow += flow;
+    if ((postings.positions.size() + 1) % CHECKPOINT_INTERVAL == 0) {
+      postings.checkpoints.add(postings.flow);
+    }
+    postings.positions.add(position);
+  }
+
+  /**
+   * Writes sizes and chunks of the columns and the state of the accounts. Must be called
+   * by the thread, which adds transactions, or while no transaction is added.
+   */
+  void write(final DataOutput output) throws IOException {
+    final Columns columns = this.columns;
+    output.writeUTF(columns.last == null ? "" : columns.last);
+    output.writeInt(currencies.size());
+    for (CurrencyUnit currency : currencies) {
+      output.writeUTF(currency.getCode());
+    }
+    output.writeLong(columns.lag);
+    columns.createdAt.write(output);
+    columns.times.write(output);
+    columns.amounts.write(output);
+    columns.currencies.write(output);
+    output.writeInt(columns.accounts.size());
+    for (Map.Entry<String, Postings> account : columns.accounts.entrySet()) {
+      output.writeUTF(account.getKey());
+      output.writeLong(account.getValue().flow);
+      account.getValue().positions.write(output);
+      account.getValue().checkpoints.write(output);
+    }
+  }
+
+  /**
+   * Reads an index written with {@link #write(DataOutput)}, whose columns are in the given
+   * file.
+   */
+  static TransactionIndex read(final DataInput input, final ColumnFile file)
+      throws IOException {
+    final TransactionIndex index = new TransactionIndex(file);
+    final String last = input.readUTF();
+    final int currencies = input.readInt();
+    for (int i = 0; i < currencies; i++) {
+      index.currencyNumber(CurrencyUnit.of(input.readUTF()));
+    }
+    final long lag = input.readLong();
+    final Columns columns = new Columns(
+        LongColumn.read(input, file), LongColumn.read(input, file),
+        LongColumn.read(input, file), LongColumn.read(input, file)
+    );
+    columns.last = last.isEmpty() ? null : last;
+    columns.lag = lag;
+    final int accounts = input.readInt();
+    for (int i = 0; i < accounts; i++) {
+      final String number = input.readUTF();
+      final long flow = input.readLong();
+      final Postings postings = new Postings(
+          LongColumn.read(input, file), LongColumn.read(input, file)
+      );
+      postings.flow = flow;
+      columns.accounts.put(number, postings);
+    }
+    index.columns = columns;
+    return index;
+  }
+
+  private int currencyNumber(final CurrencyUnit currency) {
+    final Integer number = currencyNumbers.get(currency);
+    if (number != null) {
+      return number;
+    }
+    currencies.add(currency);
+    currencyNumbers.put(currency, currencies.size() - 1);
+    return currencies.size() - 1;
+  }
+
+  private static long after(final Columns columns, final long millis) {
+    return millis == Long.MAX_VALUE
+        ? columns.currencies.size()
+        : columns.times.search(millis + 1);
+  }
+
+  private static long epochMillis(final LocalDateTime time) {
+    return time == null ? Long.MIN_VALUE : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  private static final class Columns {
+    private final LongColumn createdAt;
+    private final LongColumn times;
+    private final LongColumn amounts;
+    private final LongColumn currencies;
+    private final Map<String, Postings> accounts = new ConcurrentHashMap<>();
+    // written by the single writer only
+    private String last;
+    private volatile long lag;
+
+    private Columns(final ColumnFile file) {
+      this(new LongColumn(file), new LongColumn(file), new LongColumn(file), new LongColumn(file));
+    }
+
+    private Columns(final LongColumn createdAt, final LongColumn times, final LongColumn amounts,
+        final LongColumn currencies) {
+      this.createdAt = createdAt;
+      this.times = times;
+      this.amounts = amounts;
+      this.currencies = currencies;
+    }
+  }
+
+  private static final class Postings {
+    private final LongColumn positions;
+    private final LongColumn checkpoints;
+    // written by the single writer only, read when the account is opened
+    private volatile long flow;
+    private volatile long base;
+
+    private Postings(final ColumnFile file) {
+      this(new LongColumn(file), new LongColumn(file));
+    }
+
+    private Postings(final LongColumn positions, final LongColumn checkpoints) {
+      this.positions = positions;
+      this.checkpoints = checkpoints;
+    }
+  }
+}
@@ -3,15 +3,21 @@ package com.pwittchen.money.transfer.api.repository.inmemory;
 import com.pwittchen.money.transfer.api.model.Account;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import org.joda.money.Money;
 
+/**
+ * Account repository, which keeps accounts in a map and updates it under a single monitor.
+ * Reads don't take the monitor, so the map is concurrent, which also lets {@link #iterator()}
+ * stream accounts while they're updated, instead of copying all of them.
+ */
 public class InMemoryAccountRepository implements AccountRepository {
 
-  private final Map<String, Account> accounts = new HashMap<>();
+  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
 
   @Override public Optional<Account> get(String number) {
     return Optional.ofNullable(accounts.get(number));
@@ -21,11 +27,19 @@ public class InMemoryAccountRepository implements AccountRepository {
     return new ArrayList<>(accounts.values());
   }
 
-  @Override public Account create(Account account) {
+  @Override public Iterator<Account> iterator() {
+    return accounts.values().iterator();
+  }
+
+  @Override public synchronized Account create(Account account) {
     accounts.put(account.number(), account);
     return account;
   }
 
+  @Override public synchronized boolean createIfAbsent(Account account) {
+    return accounts.putIfAbsent(account.number(), account) == null;
+  }
+
   @Override
   public synchronized void transfer(final Account from, final Account to, final Money money) {
     withdraw(from, money);
@@ -1,24 +1,84 @@
 package com.pwittchen.money.transfer.api.repository.inmemory;
 
 import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AppendOnlyQueue;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
+/**
+ * Transaction repository, which keeps the history on the heap in a list, so transactions are
+ * read at a position without iterating over the ones before it. The history is exposed as
+ * a queue by a view of the list.
+ */
 public class InMemoryTransactionRepository implements TransactionRepository {
 
-  private final BlockingQueue<Transaction> transactions = new LinkedBlockingQueue<>();
+  private static final int ITERATOR_PAGE_SIZE = 1024;
+
+  // guarded by this
+  private final List<Transaction> transactions = new ArrayList<>();
+  private final BlockingQueue<Transaction> queue =
+      new AppendOnlyQueue(this, TransactionIterator::new, this::size);
 
   @Override public BlockingQueue<Transaction> getAll() {
-    return transactions;
+    return queue;
   }
 
-  @Override public Transaction create(Transaction transaction) {
+  @Override public synchronized Transaction create(Transaction transaction) {
     transactions.add(transaction);
     return transaction;
   }
 
-  @Override public void clear() {
+  @Override public synchronized List<Transaction> createAll(List<Transaction> transactions) {
+    this.transactions.addAll(transactions);
+    return transactions;
+  }
+
+  @Override public synchronized void clear() {
     transactions.clear();
   }
+
+  @Override public synchronized List<Transaction> get(final long position, final int limit) {
+    if (position >= transactions.size()) {
+      return new ArrayList<>();
+    }
+    final int from = (int) position;
+    final int to = (int) Math.min(transactions.size(), position + limit);
+    return new ArrayList<>(transactions.subList(from, to));
+  }
+
+  private synchronized long size() {
+    return transactions.size();
+  }
+
+  /**
+   * Iterates over transactions, which were in the history when the iterator was created,
+   * reading them in pages, so the list isn't locked for the whole iteration.
+   */
+  private final class TransactionIterator implements Iterator<Transaction> {
+    private final long size = size();
+    private long position;
+    private Iterator<Transaction> page = Collections.emptyIterator();
+
+    @Override public boolean hasNext() {
+      if (!page.hasNext() && position < size) {
+        final List<Transaction> next =
+            get(position, (int) Math.min(ITERATOR_PAGE_SIZE, size - position));
+        position = next.isEmpty() ? size : position + next.size();
+        page = next.iterator();
+      }
+      return page.hasNext();
+    }
+
+    @Override public Transaction next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+  }
 }
@@ -0,0 +1,88 @@
+package com.pwittchen.money.transfer.api.repository.inmemory;
+
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Index of transaction statuses by transaction id, so a status is looked up in O(1)
+ * instead of scanning the transaction repository.
+ *
+ * A status is kept for the given time since it was saved and the repository keeps at most
+ * the given number of statuses, like IdempotencyCache: saved statuses are queued in the order
+ * of saving and evicted from the head of the queue, when they expire or when the repository
+ * is full. A status replaced by a newer one of the same transaction is dropped from the queue
+ * without evicting the newer one.
+ */
+public class InMemoryTransactionStatusRepository implements TransactionStatusRepository {
+
+  private static final long DEFAULT_TTL = TimeUnit.HOURS.toNanos(24);
+  private static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+  private final ConcurrentMap<String, Entry> statuses = new ConcurrentHashMap<>();
+  private final Queue<Entry> saveOrder = new ConcurrentLinkedQueue<>();
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final LongSupplier clock;
+
+  public InMemoryTransactionStatusRepository() {
+    this(DEFAULT_TTL, TimeUnit.NANOSECONDS, DEFAULT_MAX_ENTRIES);
+  }
+
+  public InMemoryTransactionStatusRepository(final long ttl, final TimeUnit unit,
+      final int maxEntries) {
+    this(ttl, unit, maxEntries, System::nanoTime);
+  }
+
+  InMemoryTransactionStatusRepository(final long ttl, final TimeUnit unit,
+      final int maxEntries, final LongSupplier clock) {
+    this.ttlNanos = unit.toNanos(ttl);
+    this.maxEntries = maxEntries;
+    this.clock = clock;
+  }
+
+  @Override public Optional<TransactionStatus> get(String id) {
+    final Entry entry = statuses.get(id);
+    if (entry == null || entry.expiresAt - clock.getAsLong() <= 0) {
+      return Optional.empty();
+    }
+    return Optional.of(entry.status);
+  }
+
+  @Override public TransactionStatus save(TransactionStatus status) {
+    final long now = clock.getAsLong();
+    final Entry entry = new Entry(status, now + ttlNanos);
+    statuses.put(status.id(), entry);
+    saveOrder.add(entry);
+    evict(now);
+    return status;
+  }
+
+  private void evict(final long now) {
+    Entry oldest;
+    while ((oldest = saveOrder.peek()) != null
+        && (statuses.get(oldest.status.id()) != oldest
+        || statuses.size() > maxEntries
+        || oldest.expiresAt - now <= 0)) {
+      if (saveOrder.remove(oldest)) {
+        statuses.remove(oldest.status.id(), oldest);
+      }
+    }
+  }
+
+  private static final class Entry {
+    private final TransactionStatus status;
+    private final long expiresAt;
+
+    private Entry(final TransactionStatus status, final long expiresAt) {
+      this.status = status;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.pwittchen.money.transfer.api.repository.inmemory;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Account repository, which keeps balances as primitive long amounts of minor units
+ * (e.g. cents) of the account currency. Debit and credit are plain long arithmetic under
+ * the monitors of both entries (taken in the order of account numbers), so a transfer
+ * doesn't allocate. Money and Account objects are created only when accounts are read.
+ */
+public class MinorUnitAccountRepository implements AccountRepository {
+
+  private final ConcurrentMap<String, Entry> accounts = new ConcurrentHashMap<>();
+
+  @Override public Optional<Account> get(String number) {
+    final Entry entry = accounts.get(number);
+    return entry == null ? Optional.empty() : Optional.of(entry.toAccount());
+  }
+
+  @Override public List<Account> getAll() {
+    final List<Account> list = new ArrayList<>(accounts.size());
+    for (Entry entry : accounts.values()) {
+      list.add(entry.toAccount());
+    }
+    return list;
+  }
+
+  @Override public Iterator<Account> iterator() {
+    return accounts.values().stream().map(Entry::toAccount).iterator();
+  }
+
+  @Override public Account create(Account account) {
+    accounts.put(account.number(), new Entry(account));
+    return account;
+  }
+
+  @Override public boolean createIfAbsent(Account account) {
+    return accounts.putIfAbsent(account.number(), new Entry(account)) == null;
+  }
+
+  @Override public void transfer(final Account from, final Account to, final Money money) {
+    final Entry sender = entry(from.number());
+    if (!sender.currency.equals(money.getCurrencyUnit())) {
+      throw new DifferentCurrencyException(from.number(), to.number());
+    }
+    transfer(from.number(), to.number(), money.getAmountMinorLong());
+  }
+
+  /**
+   * Moves the given amount of minor units of the sender currency between two accounts.
+   * This is the allocation-free path of the repository.
+   */
+  public void transfer(final String from, final String to, final long amount) {
+    final Entry sender = entry(from);
+    final Entry receiver = entry(to);
+
+    if (!sender.currency.equals(receiver.currency)) {
+      throw new DifferentCurrencyException(from, to);
+    }
+
+    final boolean senderFirst = from.compareTo(to) <= 0;
+    final Entry first = senderFirst ? sender : receiver;
+    final Entry second = senderFirst ? receiver : sender;
+
+    synchronized (first) {
+      synchronized (second) {
+        if (sender.amount < amount) {
+          throw new NotEnoughMoneyException(from);
+        }
+        sender.amount -= amount;
+        receiver.amount += amount;
+      }
+    }
+  }
+
+  /**
+   * Returns the balance of the account in minor units of its currency.
+   */
+  public long balance(final String number) {
+    final Entry entry = entry(number);
+    synchronized (entry) {
+      return entry.amount;
+    }
+  }
+
+  private Entry entry(final String number) {
+    final Entry entry = accounts.get(number);
+    if (entry == null) {
+      throw new AccountNotExistsException(number);
+    }
+    return entry;
+  }
+
+  private static final class Entry {
+    private final String number;
+    private final String owner;
+    private final CurrencyUnit currency;
+    private final LocalDateTime createdAt;
+    private long amount;
+
+    private Entry(final Account account) {
+      this.number = account.number();
+      this.owner = account.owner();
+      this.currency = account.money().getCurrencyUnit();
+      this.createdAt = account.createdAt();
+      this.amount = account.money().getAmountMinorLong();
+    }
+
+    private synchronized Account toAccount() {
+      return Account
+          .builder()
+          .number(number)
+          .owner(owner)
+          .money(Money.ofMinor(currency, amount))
+          .createdAt(createdAt)
+          .build();
+    }
+  }
+}
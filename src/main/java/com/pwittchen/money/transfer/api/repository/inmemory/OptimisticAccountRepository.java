@@ -0,0 +1,436 @@
+package com.pwittchen.money.transfer.api.repository.inmemory;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransferConflictException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Account repository with optimistic concurrency control. Every account is kept as an
+ * immutable, versioned snapshot in an atomic reference and reads never block.
+ *
+ * A transfer changes both accounts atomically in two phases. First, it swaps a claim into the
+ * reference of each account, in the order of account numbers, holding the current snapshot
+ * and the next one with the next version. Then it commits all of its claims at once with
+ * a single compare-and-swap of its status. Until then, a claim is read as the current
+ * snapshot, so readers never see money, which left the sender, but didn't reach the receiver.
+ * When a swap fails because of a concurrent update, the attempt is aborted, its claims are
+ * rolled back and the transfer reads the accounts again, validates them once more and
+ * retries, up to the given number of retries.
+ *
+ * A transfer finding an account claimed by another one waits for it to be committed or
+ * aborted. A claim, which is still pending after a short while (e.g. its thread was
+ * descheduled or failed half way through), is aborted, so transfers never block each other.
+ *
+ * An account receiving most of the transfers can be split into sub-balances, explicitly or
+ * automatically, after its credits ran into the given number of conflicts. Credits go to
+ * a random sub-balance, so concurrent credits rarely claim the same snapshot, debits claim
+ * money from sub-balances one after another as a part of the same transfer and reads add
+ * balances and versions of sub-balances up.
+ */
+public class OptimisticAccountRepository implements AccountRepository {
+
+  private static final int DEFAULT_MAX_RETRIES = 16;
+  private static final int DEFAULT_SHARDS =
+      Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+  private static final int MAX_SPINS = 1 << 12;
+
+  private final ConcurrentMap<String, Entry> accounts = new ConcurrentHashMap<>();
+  private final LongAdder conflicts = new LongAdder();
+  private final LongAdder retries = new LongAdder();
+  private final int maxRetries;
+  private final long splitThreshold;
+
+  public OptimisticAccountRepository() {
+    this(DEFAULT_MAX_RETRIES);
+  }
+
+  public OptimisticAccountRepository(final int maxRetries) {
+    this(maxRetries, 0);
+  }
+
+  /**
+   * Creates repository, which splits an account into sub-balances once its credits ran into
+   * {@code splitThreshold} conflicts. Zero turns automatic splitting off.
+   */
+  public OptimisticAccountRepository(final int maxRetries, final long splitThreshold) {
+    this.maxRetries = maxRetries;
+    this.splitThreshold = splitThreshold;
+  }
+
+  @Override public Optional<Account> get(String number) {
+    return Optional.ofNullable(accounts.get(number)).map(Entry::aggregate);
+  }
+
+  @Override public List<Account> getAll() {
+    final List<Account> list = new ArrayList<>(accounts.size());
+    for (Entry entry : accounts.values()) {
+      list.add(entry.aggregate());
+    }
+    return list;
+  }
+
+  @Override public Iterator<Account> iterator() {
+    return accounts.values().stream().map(Entry::aggregate).iterator();
+  }
+
+  @Override public Account create(Account account) {
+    accounts.put(account.number(), new Entry(account));
+    return account;
+  }
+
+  @Override public boolean createIfAbsent(Account account) {
+    return accounts.putIfAbsent(account.number(), new Entry(account)) == null;
+  }
+
+  @Override public void transfer(final Account from, final Account to, final Money money) {
+    final Entry sender = entry(from.number());
+    final Entry receiver = entry(to.number());
+
+    if (sender == receiver) {
+      throw new TransferToTheSameAccountException();
+    }
+    // currency of an account never changes, so it's enough to check it once
+    if (!sender.currency.equals(money.getCurrencyUnit())
+        || !receiver.currency.equals(money.getCurrencyUnit())) {
+      throw new DifferentCurrencyException(from.number(), to.number());
+    }
+
+    final boolean senderFirst = from.number().compareTo(to.number()) < 0;
+    for (int attempt = 0; ; attempt++) {
+      final Transfer transfer = new Transfer();
+      try {
+        final boolean claimed = senderFirst
+            ? debit(sender, money, transfer) && credit(receiver, money, transfer)
+            : credit(receiver, money, transfer) && debit(sender, money, transfer);
+        if (claimed && transfer.commit()) {
+          return;
+        }
+      } finally {
+        transfer.release();
+      }
+      conflicted(from.number(), attempt);
+    }
+  }
+
+  /**
+   * Splits account into the given number of sub-balances. New sub-balances are empty, so
+   * the balance doesn't change. Sub-balances are never merged back, so a number lower than
+   * the current one is ignored.
+   */
+  @Override public void split(final String number, final int shards) {
+    entry(number).split(shards);
+  }
+
+  /**
+   * Returns the number of sub-balances of the account.
+   */
+  public int shards(final String number) {
+    return entry(number).shards.length;
+  }
+
+  /**
+   * Returns the number of transfer attempts, which failed because of concurrent updates.
+   */
+  public long conflicts() {
+    return conflicts.sum();
+  }
+
+  /**
+   * Returns the number of times a transfer was attempted again after a conflict.
+   * Transfers aborted with {@link TransferConflictException} make up the difference between
+   * conflicts and retries.
+   */
+  public long retries() {
+    return retries.sum();
+  }
+
+  /**
+   * Claims the money from sub-balances of the account one after another. Returns false, when
+   * a sub-balance was changed concurrently or the transfer was aborted by another one.
+   */
+  private boolean debit(final Entry entry, final Money money, final Transfer transfer) {
+    final AtomicReference<Object>[] shards = entry.shards;
+    final int start = shards.length == 1 ? 0 : ThreadLocalRandom.current().nextInt(shards.length);
+    Money remaining = money;
+
+    for (int i = 0; i < shards.length && remaining.isPositive(); i++) {
+      final AtomicReference<Object> reference = shards[(start + i) % shards.length];
+      final Account current = await(reference, transfer, null);
+      if (current == null) {
+        return false;
+      }
+      final Money part = current.money().isLessThan(remaining) ? current.money() : remaining;
+      if (part.isZero()) {
+        continue;
+      }
+      if (!transfer.claim(reference, current, withMoney(current, current.money().minus(part)))) {
+        return false;
+      }
+      remaining = remaining.minus(part);
+    }
+
+    if (remaining.isPositive()) {
+      // sub-balances credited after they were looked at may still hold the rest of the money
+      final Account account = entry.aggregate();
+      if (account.money().isLessThan(money)) {
+        throw new NotEnoughMoneyException(account.number());
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Claims the money for a random sub-balance of the account. Returns false, when it was
+   * changed concurrently or the transfer was aborted by another one.
+   */
+  private boolean credit(final Entry entry, final Money money, final Transfer transfer) {
+    final AtomicReference<Object>[] shards = entry.shards;
+    final AtomicReference<Object> reference = shards.length == 1
+        ? shards[0]
+        : shards[ThreadLocalRandom.current().nextInt(shards.length)];
+    final Account current = await(reference, transfer, entry);
+    if (current == null) {
+      return false;
+    }
+    if (transfer.claim(reference, current, withMoney(current, current.money().plus(money)))) {
+      return true;
+    }
+    creditConflicted(entry);
+    return false;
+  }
+
+  /**
+   * Returns the snapshot of the reference, once it isn't claimed by another transfer, or null,
+   * when the given transfer was aborted in the meantime. A claim, which is still pending after
+   * {@link #MAX_SPINS} spins, is aborted; when it's a claim of the credited account, it counts
+   * as a conflict of its credits.
+   */
+  private Account await(final AtomicReference<Object> reference, final Transfer transfer,
+      final Entry credited) {
+    int spins = 0;
+    while (transfer.pending()) {
+      final Object state = reference.get();
+      if (state instanceof Account) {
+        return (Account) state;
+      }
+
+      final Claim claim = (Claim) state;
+      if (spins++ >= MAX_SPINS && claim.transfer.abort() && credited != null) {
+        creditConflicted(credited);
+      }
+      if (claim.transfer.pending()) {
+        Thread.onSpinWait();
+      } else {
+        reference.compareAndSet(claim, claim.resolve());
+        spins = 0;
+      }
+    }
+    return null;
+  }
+
+  private void creditConflicted(final Entry entry) {
+    if (splitThreshold > 0 && entry.shards.length == 1) {
+      entry.creditConflicts.increment();
+      if (entry.creditConflicts.sum() >= splitThreshold) {
+        entry.split(DEFAULT_SHARDS);
+      }
+    }
+  }
+
+  private void conflicted(final String number, final int attempt) {
+    conflicts.increment();
+    if (attempt == maxRetries) {
+      throw new TransferConflictException(number, attempt + 1);
+    }
+    retries.increment();
+    Thread.onSpinWait();
+  }
+
+  private Entry entry(final String number) {
+    final Entry entry = accounts.get(number);
+    if (entry == null) {
+      throw new AccountNotExistsException(number);
+    }
+    return entry;
+  }
+
+  private static Account read(final Object state) {
+    return state instanceof Claim ? ((Claim) state).resolve() : (Account) state;
+  }
+
+  private static Account withMoney(final Account account, final Money money) {
+    return Account
+        .builder()
+        .number(account.number())
+        .owner(account.owner())
+        .money(money)
+        .createdAt(account.createdAt())
+        .version(account.version() + 1)
+        .build();
+  }
+
+  /**
+   * Attempt of a transfer. It's pending until all of its claims are in place and then
+   * committed, or aborted by its own thread or by another transfer waiting for its claims.
+   * Only the thread running the attempt adds claims.
+   */
+  private static final class Transfer {
+    private static final int PENDING = 0;
+    private static final int COMMITTED = 1;
+    private static final int ABORTED = 2;
+
+    private final AtomicInteger status = new AtomicInteger(PENDING);
+    private final List<Claim> claims = new ArrayList<>(2);
+
+    private boolean claim(final AtomicReference<Object> reference, final Account current,
+        final Account next) {
+      final Claim claim = new Claim(this, reference, current, next);
+      if (!reference.compareAndSet(current, claim)) {
+        return false;
+      }
+      claims.add(claim);
+      return true;
+    }
+
+    private boolean pending() {
+      return status.get() == PENDING;
+    }
+
+    private boolean commit() {
+      return status.compareAndSet(PENDING, COMMITTED);
+    }
+
+    private boolean abort() {
+      return status.compareAndSet(PENDING, ABORTED);
+    }
+
+    /**
+     * Aborts the attempt, unless it's committed, and replaces its claims with the snapshots
+     * they resolve to, unless another transfer already did it.
+     */
+    private void release() {
+      abort();
+      for (Claim claim : claims) {
+        claim.reference.compareAndSet(claim, claim.resolve());
+      }
+    }
+  }
+
+  private static final class Claim {
+    private final Transfer transfer;
+    private final AtomicReference<Object> reference;
+    private final Account current;
+    private final Account next;
+
+    private Claim(final Transfer transfer, final AtomicReference<Object> reference,
+        final Account current, final Account next) {
+      this.transfer = transfer;
+      this.reference = reference;
+      this.current = current;
+      this.next = next;
+    }
+
+    private Account resolve() {
+      return transfer.status.get() == Transfer.COMMITTED ? next : current;
+    }
+  }
+
+  private static final class Entry {
+    private final CurrencyUnit currency;
+    private final LongAdder creditConflicts = new LongAdder();
+    private volatile AtomicReference<Object>[] shards;
+
+    private Entry(final Account account) {
+      final AtomicReference<Object>[] shards = newShards(1);
+      shards[0] = new AtomicReference<>(account);
+      this.currency = account.money().getCurrencyUnit();
+      this.shards = shards;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReference<Object>[] newShards(final int length) {
+      return (AtomicReference<Object>[]) new AtomicReference<?>[length];
+    }
+
+    private Account aggregate() {
+      final AtomicReference<Object>[] current = shards;
+      if (current.length == 1) {
+        return read(current[0].get());
+      }
+
+      // sub-balances are collected again until none of them changed in between, so a debit
+      // claiming money from several of them is seen either as a whole or not at all
+      Account[] collected = collect(current);
+      Account[] again = collect(current);
+      while (!Arrays.equals(collected, again, (first, second) -> first == second ? 0 : 1)) {
+        collected = again;
+        again = collect(current);
+      }
+
+      final Account first = collected[0];
+      Money money = first.money();
+      long version = first.version();
+      for (int i = 1; i < collected.length; i++) {
+        money = money.plus(collected[i].money());
+        version += collected[i].version();
+      }
+
+      return Account
+          .builder()
+          .number(first.number())
+          .owner(first.owner())
+          .money(money)
+          .createdAt(first.createdAt())
+          .version(version)
+          .build();
+    }
+
+    private static Account[] collect(final AtomicReference<Object>[] shards) {
+      final Account[] collected = new Account[shards.length];
+      for (int i = 0; i < shards.length; i++) {
+        collected[i] = read(shards[i].get());
+      }
+      return collected;
+    }
+
+    // existing sub-balances are carried over to the new array, so transfers still working
+    // on the previous array don't lose their updates
+    private synchronized void split(final int count) {
+      final AtomicReference<Object>[] current = shards;
+      if (count <= current.length) {
+        return;
+      }
+
+      final AtomicReference<Object>[] extended = Arrays.copyOf(current, count);
+      final Account first = read(current[0].get());
+      for (int i = current.length; i < count; i++) {
+        extended[i] = new AtomicReference<>(Account
+            .builder()
+            .number(first.number())
+            .owner(first.owner())
+            .money(Money.zero(currency))
+            .createdAt(first.createdAt())
+            .build());
+      }
+      shards = extended;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.pwittchen.money.transfer.api.repository.inmemory;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.joda.money.Money;
+
+/**
+ * Account repository, which guards transfers with a fixed array of lock stripes instead of
+ * a single monitor. Transfers between accounts hashed to different stripes run in parallel,
+ * while lookups go straight to the concurrent map and never block.
+ */
+public class StripedAccountRepository implements AccountRepository {
+
+  private static final int DEFAULT_NUMBER_OF_STRIPES = 256;
+
+  private final ConcurrentMap<String, Account> accounts = new ConcurrentHashMap<>();
+  private final Lock[] stripes;
+  private final int mask;
+
+  public StripedAccountRepository() {
+    this(DEFAULT_NUMBER_OF_STRIPES);
+  }
+
+  public StripedAccountRepository(final int numberOfStripes) {
+    final int size = Integer.highestOneBit(Math.max(1, numberOfStripes - 1) << 1);
+    this.stripes = new Lock[size];
+    this.mask = size - 1;
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  @Override public Optional<Account> get(String number) {
+    return Optional.ofNullable(accounts.get(number));
+  }
+
+  @Override public List<Account> getAll() {
+    return new ArrayList<>(accounts.values());
+  }
+
+  @Override public Iterator<Account> iterator() {
+    return accounts.values().iterator();
+  }
+
+  @Override public Account create(Account account) {
+    accounts.put(account.number(), account);
+    return account;
+  }
+
+  @Override public boolean createIfAbsent(Account account) {
+    return accounts.putIfAbsent(account.number(), account) == null;
+  }
+
+  @Override public void transfer(final Account from, final Account to, final Money money) {
+    final int first = Math.min(stripe(from.number()), stripe(to.number()));
+    final int second = Math.max(stripe(from.number()), stripe(to.number()));
+
+    stripes[first].lock();
+    try {
+      if (first != second) {
+        stripes[second].lock();
+      }
+      try {
+        final Account sender = account(from.number());
+        final Account receiver = account(to.number());
+        if (sender.money().isLessThan(money)) {
+          throw new NotEnoughMoneyException(sender.number());
+        }
+        accounts.put(sender.number(), withMoney(sender, sender.money().minus(money)));
+        final Account credited = accounts.get(receiver.number());
+        accounts.put(credited.number(), withMoney(credited, credited.money().plus(money)));
+      } finally {
+        if (first != second) {
+          stripes[second].unlock();
+        }
+      }
+    } finally {
+      stripes[first].unlock();
+    }
+  }
+
+  private Account account(final String number) {
+    final Account account = accounts.get(number);
+    if (account == null) {
+      throw new AccountNotExistsException(number);
+    }
+    return account;
+  }
+
+  private int stripe(final String number) {
+    final int hash = number.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private Account withMoney(final Account account, final Money money) {
+    return Account
+        .builder()
+        .number(account.number())
+        .owner(account.owner())
+        .money(money)
+        .createdAt(account.createdAt())
+        .build();
+  }
+}
@@ -0,0 +1,143 @@
+package com.pwittchen.money.transfer.api.repository.jdbc;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed-size pool of JDBC connections. Connections are opened up front and handed out one
+ * at a time, so at most the given number of database transactions run at once and callers
+ * wait for a free connection instead of opening new ones.
+ *
+ * Every connection caches statements it has prepared, so a statement is parsed and planned
+ * once per connection instead of on every call. Cached statements must not be closed by
+ * the caller; they're closed together with the pool.
+ */
+public class ConnectionPool implements Closeable {
+
+  private final List<PooledConnection> connections;
+  private final BlockingQueue<PooledConnection> idle;
+
+  private ConnectionPool(final List<PooledConnection> connections) {
+    this.connections = connections;
+    this.idle = new ArrayBlockingQueue<>(connections.size(), false, connections);
+  }
+
+  /**
+   * Opens the given number of connections to the database with the given JDBC url.
+   */
+  public static ConnectionPool open(final String url, final int size) throws SQLException {
+    final List<PooledConnection> connections = new ArrayList<>(size);
+    try {
+      for (int i = 0; i < Math.max(1, size); i++) {
+        final Connection connection = DriverManager.getConnection(url);
+        connection.setAutoCommit(false);
+        connections.add(new PooledConnection(connection));
+      }
+    } catch (SQLException exception) {
+      for (PooledConnection connection : connections) {
+        connection.close();
+      }
+      throw exception;
+    }
+    return new ConnectionPool(connections);
+  }
+
+  /**
+   * Runs the work in a database transaction on a connection taken from the pool, waiting
+   * for one when all are in use. The transaction is committed when the work returns and
+   * rolled back when it throws.
+   */
+  public <T> T transaction(final Work<T> work) {
+    final PooledConnection connection = borrow();
+    try {
+      final T result = work.run(connection);
+      connection.connection.commit();
+      return result;
+    } catch (SQLException exception) {
+      connection.rollback();
+      throw new JdbcException(exception);
+    } catch (RuntimeException exception) {
+      connection.rollback();
+      throw exception;
+    } finally {
+      idle.add(connection);
+    }
+  }
+
+  public int size() {
+    return connections.size();
+  }
+
+  /**
+   * Returns the number of statements prepared by all connections so far.
+   */
+  public int preparedStatements() {
+    return connections.stream().mapToInt(connection -> connection.statements.size()).sum();
+  }
+
+  @Override public void close() {
+    for (PooledConnection connection : connections) {
+      connection.close();
+    }
+  }
+
+  private PooledConnection borrow() {
+    try {
+      return idle.take();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    }
+  }
+
+  public interface Work<T> {
+    T run(PooledConnection connection) throws SQLException;
+  }
+
+  public static final class PooledConnection {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    private PooledConnection(final Connection connection) {
+      this.connection = connection;
+    }
+
+    /**
+     * Returns statement prepared by this connection for the given SQL, preparing it
+     * only the first time.
+     */
+    public PreparedStatement prepare(final String sql) throws SQLException {
+      PreparedStatement statement = statements.get(sql);
+      if (statement == null) {
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+      }
+      return statement;
+    }
+
+    private void rollback() {
+      try {
+        connection.rollback();
+      } catch (SQLException exception) {
+        // the connection is broken, the next transaction on it will fail, too
+      }
+    }
+
+    private void close() {
+      try {
+        connection.close();
+      } catch (SQLException exception) {
+        // there's nothing more to do with a connection, which can't be closed
+      }
+    }
+  }
+}
@@ -0,0 +1,211 @@
+package com.pwittchen.money.transfer.api.repository.jdbc;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Account repository, which keeps accounts in a relational database over JDBC, e.g. an
+ * embedded H2 database in a file, so they can be queried with SQL offline. Balances are
+ * stored as minor units of their currency.
+ *
+ * A transfer is a single database transaction: rows of both accounts are locked with
+ * {@code SELECT ... FOR UPDATE} in the order of account numbers, so concurrent transfers
+ * don't deadlock, then the balance of the sender is checked and both balances are updated
+ * with one batch.
+ *
+ * {@link #iterator()} reads accounts in pages ordered by number, each starting after the last
+ * number of the previous one, so neither the heap nor a connection is held for the whole scan.
+ */
+public class JdbcAccountRepository implements AccountRepository {
+
+  private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS accounts ("
+      + "number VARCHAR(255) PRIMARY KEY, "
+      + "owner VARCHAR(255), "
+      + "currency CHAR(3) NOT NULL, "
+      + "balance BIGINT NOT NULL, "
+      + "created_at TIMESTAMP(9), "
+      + "version BIGINT NOT NULL)";
+  private static final String COLUMNS = "number, owner, currency, balance, created_at, version";
+  private static final String SELECT = "SELECT " + COLUMNS + " FROM accounts WHERE number = ?";
+  private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM accounts ORDER BY number";
+  private static final String SELECT_PAGE = "SELECT " + COLUMNS
+      + " FROM accounts WHERE number > ? ORDER BY number FETCH FIRST ? ROWS ONLY";
+  private static final String MERGE =
+      "MERGE INTO accounts (" + COLUMNS + ") KEY (number) VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String INSERT =
+      "INSERT INTO accounts (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String LOCK =
+      "SELECT currency, balance FROM accounts WHERE number = ? FOR UPDATE";
+  private static final String UPDATE_BALANCE =
+      "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE number = ?";
+  private static final String DUPLICATE_KEY = "23505";
+  private static final int PAGE_SIZE = 1000;
+
+  private final ConnectionPool connectionPool;
+
+  public JdbcAccountRepository(final ConnectionPool connectionPool) {
+    this.connectionPool = connectionPool;
+    connectionPool.transaction(connection -> connection.prepare(CREATE_TABLE).execute());
+  }
+
+  @Override public Optional<Account> get(String number) {
+    return connectionPool.transaction(connection -> {
+      final PreparedStatement select = connection.prepare(SELECT);
+      select.setString(1, number);
+      try (ResultSet resultSet = select.executeQuery()) {
+        return resultSet.next() ? Optional.of(account(resultSet)) : Optional.empty();
+      }
+    });
+  }
+
+  @Override public List<Account> getAll() {
+    return connectionPool.transaction(connection -> {
+      final List<Account> accounts = new ArrayList<>();
+      try (ResultSet resultSet = connection.prepare(SELECT_ALL).executeQuery()) {
+        while (resultSet.next()) {
+          accounts.add(account(resultSet));
+        }
+      }
+      return accounts;
+    });
+  }
+
+  @Override public Iterator<Account> iterator() {
+    return new Iterator<>() {
+      private Iterator<Account> page = Collections.emptyIterator();
+      private String last = "";
+      private boolean exhausted;
+
+      @Override public boolean hasNext() {
+        if (!page.hasNext() && !exhausted) {
+          final List<Account> accounts = page(last);
+          exhausted = accounts.size() < PAGE_SIZE;
+          if (!accounts.isEmpty()) {
+            last = accounts.get(accounts.size() - 1).number();
+          }
+          page = accounts.iterator();
+        }
+        return page.hasNext();
+      }
+
+      @Override public Account next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return page.next();
+      }
+    };
+  }
+
+  @Override public Account create(Account account) {
+    return connectionPool.transaction(connection -> {
+      bind(connection.prepare(MERGE), account).executeUpdate();
+      return account;
+    });
+  }
+
+  @Override public boolean createIfAbsent(Account account) {
+    return connectionPool.transaction(connection -> {
+      try {
+        bind(connection.prepare(INSERT), account).executeUpdate();
+        return true;
+      } catch (SQLException exception) {
+        if (DUPLICATE_KEY.equals(exception.getSQLState())) {
+          return false;
+        }
+        throw exception;
+      }
+    });
+  }
+
+  @Override public void transfer(final Account from, final Account to, final Money money) {
+    connectionPool.transaction(connection -> {
+      final boolean senderFirst = from.number().compareTo(to.number()) <= 0;
+      final Money first = lock(connection, senderFirst ? from.number() : to.number());
+      final Money second = lock(connection, senderFirst ? to.number() : from.number());
+      final Money sender = senderFirst ? first : second;
+      final Money receiver = senderFirst ? second : first;
+
+      if (!sender.getCurrencyUnit().equals(money.getCurrencyUnit())
+          || !receiver.getCurrencyUnit().equals(money.getCurrencyUnit())) {
+        throw new DifferentCurrencyException(from.number(), to.number());
+      }
+      if (sender.isLessThan(money)) {
+        throw new NotEnoughMoneyException(from.number());
+      }
+
+      final PreparedStatement update = connection.prepare(UPDATE_BALANCE);
+      update.setLong(1, -money.getAmountMinorLong());
+      update.setString(2, from.number());
+      update.addBatch();
+      update.setLong(1, money.getAmountMinorLong());
+      update.setString(2, to.number());
+      update.addBatch();
+      update.executeBatch();
+      return null;
+    });
+  }
+
+  private static Money lock(final ConnectionPool.PooledConnection connection,
+      final String number) throws SQLException {
+    final PreparedStatement lock = connection.prepare(LOCK);
+    lock.setString(1, number);
+    try (ResultSet resultSet = lock.executeQuery()) {
+      if (!resultSet.next()) {
+        throw new AccountNotExistsException(number);
+      }
+      return Money.ofMinor(CurrencyUnit.of(resultSet.getString(1)), resultSet.getLong(2));
+    }
+  }
+
+  private static PreparedStatement bind(final PreparedStatement statement,
+      final Account account) throws SQLException {
+    statement.setString(1, account.number());
+    statement.setString(2, account.owner());
+    statement.setString(3, account.money().getCurrencyUnit().getCode());
+    statement.setLong(4, account.money().getAmountMinorLong());
+    statement.setObject(5, account.createdAt());
+    statement.setLong(6, account.version());
+    return statement;
+  }
+
+  private List<Account> page(final String after) {
+    return connectionPool.transaction(connection -> {
+      final PreparedStatement select = connection.prepare(SELECT_PAGE);
+      select.setString(1, after);
+      select.setInt(2, PAGE_SIZE);
+      final List<Account> accounts = new ArrayList<>(PAGE_SIZE);
+      try (ResultSet resultSet = select.executeQuery()) {
+        while (resultSet.next()) {
+          accounts.add(account(resultSet));
+        }
+      }
+      return accounts;
+    });
+  }
+
+  private static Account account(final ResultSet resultSet) throws SQLException {
+    return new Account(
+        resultSet.getString(1),
+        resultSet.getString(2),
+        Money.ofMinor(CurrencyUnit.of(resultSet.getString(3)), resultSet.getLong(4)),
+        resultSet.getObject(5, LocalDateTime.class),
+        resultSet.getLong(6)
+    );
+  }
+}
@@ -0,0 +1,10 @@
+package com.pwittchen.money.transfer.api.repository.jdbc;
+
+import java.sql.SQLException;
+
+public class JdbcException extends RuntimeException {
+
+  public JdbcException(final SQLException cause) {
+    super(cause);
+  }
+}
@@ -0,0 +1,320 @@
+package com.pwittchen.money.transfer.api.repository.jdbc;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Transaction repository, which keeps the history in a relational database over JDBC.
+ * Transactions are ordered by an identity column and legs of multi-leg transactions are
+ * kept in a separate table. Transactions created together are inserted with one batch
+ * per table in a single database transaction.
+ *
+ * Reads at a position look the row up by its identity instead of skipping rows before it.
+ * The repository assigns identities itself, one after another, so a position maps to
+ * an identity by adding a constant. Gaps left in tables written before are found, when the
+ * repository is created, and kept as runs of positions with their own constant.
+ */
+public class JdbcTransactionRepository implements TransactionRepository {
+
+  private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS transactions ("
+      + "seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+      + "id VARCHAR(255), "
+      + "from_account VARCHAR(255), "
+      + "to_account VARCHAR(255), "
+      + "currency CHAR(3), "
+      + "amount BIGINT, "
+      + "created_at TIMESTAMP(9))";
+  private static final String CREATE_LEGS_TABLE = "CREATE TABLE IF NOT EXISTS transaction_legs ("
+      + "transaction_id VARCHAR(255) NOT NULL, "
+      + "ordinal INT NOT NULL, "
+      + "from_account VARCHAR(255) NOT NULL, "
+      + "to_account VARCHAR(255) NOT NULL, "
+      + "currency CHAR(3) NOT NULL, "
+      + "amount BIGINT NOT NULL)";
+  private static final String CREATE_LEGS_INDEX = "CREATE INDEX IF NOT EXISTS "
+      + "transaction_legs_transaction_id ON transaction_legs (transaction_id)";
+  private static final String COLUMNS =
+      "id, from_account, to_account, currency, amount, created_at";
+  private static final String LEG_COLUMNS =
+      "transaction_id, ordinal, from_account, to_account, currency, amount";
+  private static final String INSERT =
+      "INSERT INTO transactions (seq, " + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_LEG =
+      "INSERT INTO transaction_legs (" + LEG_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM transactions ORDER BY seq";
+  private static final String SELECT_PAGE = "SELECT " + COLUMNS
+      + " FROM transactions WHERE seq >= ? ORDER BY seq FETCH FIRST ? ROWS ONLY";
+  private static final int SELECT_AT_SIZE = 64;
+  private static final String SELECT_AT = "SELECT " + COLUMNS + " FROM transactions WHERE seq IN ("
+      + String.join(", ", Collections.nCopies(SELECT_AT_SIZE, "?")) + ") ORDER BY seq";
+  private static final String SELECT_SEQ = "SELECT seq FROM transactions ORDER BY seq";
+  private static final String SELECT_LAST =
+      "SELECT " + COLUMNS + " FROM transactions ORDER BY seq DESC LIMIT 1";
+  private static final String SELECT_ALL_LEGS =
+      "SELECT " + LEG_COLUMNS + " FROM transaction_legs ORDER BY transaction_id, ordinal";
+  private static final String SELECT_LEGS = "SELECT " + LEG_COLUMNS
+      + " FROM transaction_legs WHERE transaction_id = ? ORDER BY ordinal";
+  private static final String DELETE_ALL = "DELETE FROM transactions";
+  private static final String DELETE_ALL_LEGS = "DELETE FROM transaction_legs";
+
+  private final ConnectionPool connectionPool;
+  // first position of every run of consecutive identities mapped to its identity, guarded by this
+  private final NavigableMap<Long, Long> runs = new TreeMap<>();
+  // guarded by this
+  private long size;
+  private long lastSeq;
+
+  public JdbcTransactionRepository(final ConnectionPool connectionPool) {
+    this.connectionPool = connectionPool;
+    connectionPool.transaction(connection -> {
+      connection.prepare(CREATE_TABLE).execute();
+      connection.prepare(CREATE_LEGS_TABLE).execute();
+      connection.prepare(CREATE_LEGS_INDEX).execute();
+      try (ResultSet resultSet = connection.prepare(SELECT_SEQ).executeQuery()) {
+        while (resultSet.next()) {
+          final long seq = resultSet.getLong(1);
+          if (size == 0 || seq != lastSeq + 1) {
+            runs.put(size, seq);
+          }
+          lastSeq = seq;
+          size++;
+        }
+      }
+      return size;
+    });
+  }
+
+  /**
+   * Returns a copy of the whole history, read in a single database transaction.
+   */
+  @Override public BlockingQueue<Transaction> getAll() {
+    return connectionPool.transaction(connection -> {
+      final Map<String, List<TransactionLeg>> legs = new HashMap<>();
+      try (ResultSet resultSet = connection.prepare(SELECT_ALL_LEGS).executeQuery()) {
+        while (resultSet.next()) {
+          legs.computeIfAbsent(resultSet.getString(1), id -> new ArrayList<>()).add(leg(resultSet));
+        }
+      }
+      final BlockingQueue<Transaction> transactions = new LinkedBlockingQueue<>();
+      try (ResultSet resultSet = connection.prepare(SELECT_ALL).executeQuery()) {
+        while (resultSet.next()) {
+          transactions.add(transaction(resultSet, legs.get(resultSet.getString(1))));
+        }
+      }
+      return transactions;
+    });
+  }
+
+  @Override public Transaction create(Transaction transaction) {
+    createAll(List.of(transaction));
+    return transaction;
+  }
+
+  /**
+   * Inserts transactions in a single database transaction. Calls are serialized, so
+   * identities are assigned in the order, in which transactions are committed.
+   */
+  @Override public synchronized List<Transaction> createAll(List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return transactions;
+    }
+    connectionPool.transaction(connection -> {
+      final PreparedStatement insert = connection.prepare(INSERT);
+      final PreparedStatement insertLeg = connection.prepare(INSERT_LEG);
+      boolean hasLegs = false;
+      long seq = lastSeq;
+      for (Transaction transaction : transactions) {
+        insert.setLong(1, ++seq);
+        insert.setString(2, transaction.id());
+        insert.setString(3, transaction.from());
+        insert.setString(4, transaction.to());
+        bindMoney(insert, 5, transaction.money());
+        insert.setObject(7, transaction.createdAt());
+        insert.addBatch();
+
+        final List<TransactionLeg> legs = transaction.legs();
+        for (int i = 0; i < legs.size(); i++) {
+          insertLeg.setString(1, transaction.id());
+          insertLeg.setInt(2, i);
+          insertLeg.setString(3, legs.get(i).from());
+          insertLeg.setString(4, legs.get(i).to());
+          bindMoney(insertLeg, 5, legs.get(i).money());
+          insertLeg.addBatch();
+          hasLegs = true;
+        }
+      }
+      insert.executeBatch();
+      if (hasLegs) {
+        insertLeg.executeBatch();
+      }
+      return transactions;
+    });
+    if (size == 0) {
+      runs.put(0L, lastSeq + 1);
+    }
+    lastSeq += transactions.size();
+    size += transactions.size();
+    return transactions;
+  }
+
+  @Override public Optional<Transaction> last() {
+    return connectionPool.transaction(connection -> {
+      try (ResultSet resultSet = connection.prepare(SELECT_LAST).executeQuery()) {
+        return resultSet.next()
+            ? Optional.of(transaction(resultSet, legs(connection, resultSet)))
+            : Optional.empty();
+      }
+    });
+  }
+
+  // transactions are committed to the database before they're acknowledged
+  @Override public Optional<Transaction> lastPersisted() {
+    return last();
+  }
+
+  /**
+   * Returns a page of the history ordered by the identity column, starting at the identity
+   * of the given position. Legs are read only for multi-leg transactions, which have no sender.
+   */
+  @Override public List<Transaction> get(final long position, final int limit) {
+    final long seq;
+    synchronized (this) {
+      if (position < 0 || position >= size) {
+        return new ArrayList<>();
+      }
+      seq = seqOf(position);
+    }
+    return connectionPool.transaction(connection -> {
+      final PreparedStatement select = connection.prepare(SELECT_PAGE);
+      select.setLong(1, seq);
+      select.setInt(2, limit);
+      return transactions(connection, select);
+    });
+  }
+
+  /**
+   * Reads transactions at the given positions with one query per {@value #SELECT_AT_SIZE} of
+   * them, all in a single database transaction.
+   */
+  @Override public List<Transaction> get(final List<Long> positions) {
+    final List<Long> seqs = new ArrayList<>(positions.size());
+    synchronized (this) {
+      for (long position : positions) {
+        if (position >= 0 && position < size) {
+          seqs.add(seqOf(position));
+        }
+      }
+    }
+    if (seqs.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return connectionPool.transaction(connection -> {
+      final PreparedStatement select = connection.prepare(SELECT_AT);
+      final List<Transaction> transactions = new ArrayList<>(seqs.size());
+      for (int from = 0; from < seqs.size(); from += SELECT_AT_SIZE) {
+        // unused parameters repeat the last identity, so the statement is prepared once
+        final int to = Math.min(from + SELECT_AT_SIZE, seqs.size());
+        for (int i = 0; i < SELECT_AT_SIZE; i++) {
+          select.setLong(i + 1, seqs.get(Math.min(from + i, to - 1)));
+        }
+        transactions.addAll(transactions(connection, select));
+      }
+      return transactions;
+    });
+  }
+
+  @Override public synchronized void clear() {
+    connectionPool.transaction(connection -> {
+      connection.prepare(DELETE_ALL_LEGS).executeUpdate();
+      return connection.prepare(DELETE_ALL).executeUpdate();
+    });
+    runs.clear();
+    size = 0;
+    lastSeq = 0;
+  }
+
+  // guarded by this
+  private long seqOf(final long position) {
+    final Map.Entry<Long, Long> run = runs.floorEntry(position);
+    return run.getValue() + position - run.getKey();
+  }
+
+  private static List<Transaction> transactions(final ConnectionPool.PooledConnection connection,
+      final PreparedStatement select) throws SQLException {
+    final List<Transaction> transactions = new ArrayList<>();
+    try (ResultSet resultSet = select.executeQuery()) {
+      while (resultSet.next()) {
+        transactions.add(transaction(
+            resultSet, resultSet.getString(2) == null ? legs(connection, resultSet) : null
+        ));
+      }
+    }
+    return transactions;
+  }
+
+  private static List<TransactionLeg> legs(final ConnectionPool.PooledConnection connection,
+      final ResultSet resultSet) throws SQLException {
+    final PreparedStatement selectLegs = connection.prepare(SELECT_LEGS);
+    selectLegs.setString(1, resultSet.getString(1));
+    final List<TransactionLeg> legs = new ArrayList<>();
+    try (ResultSet legResultSet = selectLegs.executeQuery()) {
+      while (legResultSet.next()) {
+        legs.add(leg(legResultSet));
+      }
+    }
+    return legs;
+  }
+
+  private static void bindMoney(final PreparedStatement statement, final int index,
+      final Money money) throws SQLException {
+    if (money == null) {
+      statement.setNull(index, Types.CHAR);
+      statement.setNull(index + 1, Types.BIGINT);
+      return;
+    }
+    statement.setString(index, money.getCurrencyUnit().getCode());
+    statement.setLong(index + 1, money.getAmountMinorLong());
+  }
+
+  private static Money money(final ResultSet resultSet, final int index) throws SQLException {
+    final String currency = resultSet.getString(index);
+    return currency == null
+        ? null
+        : Money.ofMinor(CurrencyUnit.of(currency), resultSet.getLong(index + 1));
+  }
+
+  private static Transaction transaction(final ResultSet resultSet,
+      final List<TransactionLeg> legs) throws SQLException {
+    return Transaction
+        .builder()
+        .id(resultSet.getString(1))
+        .from(resultSet.getString(2))
+        .to(resultSet.getString(3))
+        .money(money(resultSet, 4))
+        .createdAt(resultSet.getObject(6, LocalDateTime.class))
+        .legs(legs)
+        .build();
+  }
+
+  private static TransactionLeg leg(final ResultSet resultSet) throws SQLException {
+    return new TransactionLeg(resultSet.getString(3), resultSet.getString(4), money(resultSet, 5));
+  }
+}
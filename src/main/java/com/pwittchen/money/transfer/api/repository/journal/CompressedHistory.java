@@ -0,0 +1,548 @@
+package com.pwittchen.money.transfer.api.repository.journal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Cold tier of {@link TieredTransactionRepository}. Transactions are encoded with
+ * {@link TransactionCodec}, compressed in blocks with deflate and appended to data files on
+ * local disk. Every data file has an index file next to it with one fixed-size entry per block:
+ * <pre>
+ * [first ordinal (long)][offset (long)][compressed length (int)][length (int)][count (int)]
+ * [crc32c of compressed block (int)]
+ * </pre>
+ * so a block is found and read without touching the blocks before it, and only a small
+ * descriptor of every file is kept on the heap. The most recently read block is cached,
+ * so reading transactions one by one at close positions decompresses it only once. Files are
+ * named after the ordinal of their first transaction and a new one is started, when the active
+ * one reaches the size limit.
+ *
+ * Blocks are appended by a single writer and become visible to readers once they're
+ * published, after both files were forced to disk. Index entries torn by a crash are cut off,
+ * together with their blocks, when the history is opened again.
+ */
+final class CompressedHistory implements Closeable {
+
+  static final int INDEX_ENTRY_SIZE = 8 + 8 + 4 + 4 + 4 + 4;
+
+  private static final String FILE_PREFIX = "history-";
+  private static final String DATA_SUFFIX = ".dat";
+  private static final String INDEX_SUFFIX = ".idx";
+  private static final int INITIAL_SCRATCH_SIZE = 64 * 1024;
+
+  private final Path directory;
+  private final long fileSize;
+  private final List<HistoryFile> files = new CopyOnWriteArrayList<>();
+  private volatile long size;
+  private volatile CachedBlock cached;
+
+  // guarded by the writer
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private final CRC32C checksum = new CRC32C();
+  private final List<HistoryFile> unpublished = new ArrayList<>();
+  private HistoryFile active;
+  private FileChannel data;
+  private FileChannel index;
+  private long written;
+  private byte[] compressed = new byte[INITIAL_SCRATCH_SIZE];
+
+  private CompressedHistory(final Path directory, final long fileSize) throws IOException {
+    this.directory = directory;
+    this.fileSize = fileSize;
+
+    Files.createDirectories(directory);
+    final List<Path> indexFiles = indexFiles();
+    for (int i = 0; i < indexFiles.size(); i++) {
+      final HistoryFile file = HistoryFile.open(indexFiles.get(i), i == indexFiles.size() - 1);
+      if (file.blocks == 0) {
+        file.delete();
+        continue;
+      }
+      files.add(file);
+      size += file.transactions;
+      active = file;
+    }
+    written = size;
+  }
+
+  static CompressedHistory open(final Path directory, final long fileSize) throws IOException {
+    return new CompressedHistory(directory, fileSize);
+  }
+
+  /**
+   * Returns the number of published transactions.
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of files with published blocks.
+   */
+  int files() {
+    return files.size();
+  }
+
+  /**
+   * Returns the number of bytes taken by published blocks.
+   */
+  long bytes() {
+    return files.stream().mapToLong(file -> file.end).sum();
+  }
+
+  /**
+   * Compresses transactions into a single block and appends it to the active file. The block
+   * isn't visible to readers until {@link #publish()} is called.
+   */
+  void append(final List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return;
+    }
+    try {
+      int length = 0;
+      for (Transaction transaction : transactions) {
+        length += TransactionCodec.size(transaction);
+      }
+      final ByteBuffer raw = ByteBuffer.allocate(length);
+      for (Transaction transaction : transactions) {
+        TransactionCodec.encode(transaction, raw);
+      }
+      final int compressedLength = compress(raw.array());
+      checksum.reset();
+      checksum.update(compressed, 0, compressedLength);
+
+      if (active == null || active.written >= fileSize) {
+        roll();
+      } else if (data == null) {
+        reopen();
+      }
+      final long offset = active.written;
+      final ByteBuffer block = ByteBuffer.wrap(compressed, 0, compressedLength);
+      while (block.hasRemaining()) {
+        data.write(block);
+      }
+      final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE)
+          .putLong(written)
+          .putLong(offset)
+          .putInt(compressedLength)
+          .putInt(length)
+          .putInt(transactions.size())
+          .putInt((int) checksum.getValue())
+          .flip();
+      while (entry.hasRemaining()) {
+        index.write(entry);
+      }
+
+      active.written += compressedLength;
+      active.writtenBlocks++;
+      active.writtenTransactions += transactions.size();
+      written += transactions.size();
+      if (!unpublished.contains(active)) {
+        unpublished.add(active);
+      }
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  /**
+   * Forces appended blocks to disk and makes them visible to readers.
+   */
+  void publish() {
+    if (unpublished.isEmpty()) {
+      return;
+    }
+    try {
+      data.force(false);
+      index.force(false);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+    for (HistoryFile file : unpublished) {
+      file.end = file.written;
+      file.transactions = file.writtenTransactions;
+      file.blocks = file.writtenBlocks;
+      if (!files.contains(file)) {
+        files.add(file);
+      }
+    }
+    unpublished.clear();
+    size = written;
+  }
+
+  /**
+   * Returns files with the number of their blocks published so far, so the history can be
+   * iterated as it was at this moment.
+   */
+  List<FileView> view() {
+    final List<FileView> view = new ArrayList<>(files.size());
+    for (HistoryFile file : files) {
+      view.add(new FileView(file, file.blocks));
+    }
+    return view;
+  }
+
+  /**
+   * Iterates over transactions in the given view, decompressing one block at a time.
+   */
+  Iterator<Transaction> iterator(final List<FileView> view) {
+    return new HistoryIterator(view);
+  }
+
+  /**
+   * Returns at most the given number of transactions in the given view, starting at the given
+   * position.
+   */
+  List<Transaction> get(final List<FileView> view, final long position, final int limit) {
+    final List<Transaction> transactions = new ArrayList<>(Math.min(limit, INITIAL_SCRATCH_SIZE));
+    int i = view.size() - 1;
+    while (i >= 0 && view.get(i).file.first > position) {
+      i--;
+    }
+    for (; i >= 0 && i < view.size() && transactions.size() < limit; i++) {
+      final FileView file = view.get(i);
+      final ByteBuffer entries = file.file.readIndex(file.blocks);
+      for (int block = file.file.blockAt(entries, file.blocks, position);
+          block < file.blocks && transactions.size() < limit; block++) {
+        final List<Transaction> blockTransactions = read(file.file, entries, block);
+        final long first = entries.getLong(block * INDEX_ENTRY_SIZE);
+        for (int k = (int) Math.max(0, position - first);
+            k < blockTransactions.size() && transactions.size() < limit; k++) {
+          transactions.add(blockTransactions.get(k));
+        }
+      }
+    }
+    return transactions;
+  }
+
+  Optional<Transaction> last() {
+    if (files.isEmpty()) {
+      return Optional.empty();
+    }
+    final HistoryFile file = files.get(files.size() - 1);
+    final int blocks = file.blocks;
+    final List<Transaction> block = file.readBlock(file.readIndex(blocks), blocks - 1);
+    return Optional.of(block.get(block.size() - 1));
+  }
+
+  /**
+   * Deletes all files. Must not be called concurrently with the writer.
+   */
+  void clear() {
+    close();
+    try {
+      for (HistoryFile file : files) {
+        file.delete();
+      }
+      for (HistoryFile file : unpublished) {
+        file.delete();
+      }
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+    files.clear();
+    unpublished.clear();
+    cached = null;
+    active = null;
+    size = 0;
+    written = 0;
+  }
+
+  @Override public void close() {
+    try {
+      if (data != null) {
+        data.close();
+        index.close();
+      }
+      data = null;
+      index = null;
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private int compress(final byte[] raw) {
+    deflater.reset();
+    deflater.setInput(raw);
+    deflater.finish();
+    int length = 0;
+    while (!deflater.finished()) {
+      if (length == compressed.length) {
+        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+      }
+      length += deflater.deflate(compressed, length, compressed.length - length);
+    }
+    return length;
+  }
+
+  private List<Transaction> read(final HistoryFile file, final ByteBuffer entries,
+      final int block) {
+    final CachedBlock cached = this.cached;
+    if (cached != null && cached.file == file && cached.block == block) {
+      return cached.transactions;
+    }
+    final List<Transaction> transactions = file.readBlock(entries, block);
+    this.cached = new CachedBlock(file, block, transactions);
+    return transactions;
+  }
+
+  // blocks of the previous file are forced before it's closed, so they can be published later
+  private void roll() throws IOException {
+    if (data != null) {
+      data.force(false);
+      index.force(false);
+      close();
+    }
+    final String name = String.format("%s%020d", FILE_PREFIX, written);
+    active = new HistoryFile(
+        directory.resolve(name + DATA_SUFFIX), directory.resolve(name + INDEX_SUFFIX), written
+    );
+    data = FileChannel.open(active.data, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    index = FileChannel.open(
+        active.index, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE
+    );
+  }
+
+  private void reopen() throws IOException {
+    data = FileChannel.open(active.data, StandardOpenOption.WRITE);
+    data.position(active.written);
+    index = FileChannel.open(active.index, StandardOpenOption.WRITE);
+    index.position((long) active.writtenBlocks * INDEX_ENTRY_SIZE);
+  }
+
+  private List<Path> indexFiles() throws IOException {
+    try (Stream<Path> paths = Files.list(directory)) {
+      return paths
+          .filter(path -> {
+            final String name = path.getFileName().toString();
+            return name.startsWith(FILE_PREFIX) && name.endsWith(INDEX_SUFFIX);
+          })
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  static final class FileView {
+    private final HistoryFile file;
+    private final int blocks;
+
+    private FileView(final HistoryFile file, final int blocks) {
+      this.file = file;
+      this.blocks = blocks;
+    }
+  }
+
+  private static final class CachedBlock {
+    private final HistoryFile file;
+    private final int block;
+    private final List<Transaction> transactions;
+
+    private CachedBlock(final HistoryFile file, final int block,
+        final List<Transaction> transactions) {
+      this.file = file;
+      this.block = block;
+      this.transactions = transactions;
+    }
+  }
+
+  private static final class HistoryFile {
+    private final Path data;
+    private final Path index;
+    private final long first;
+    // published state, read by readers
+    private volatile long end;
+    private volatile long transactions;
+    private volatile int blocks;
+    // state of the writer
+    private long written;
+    private long writtenTransactions;
+    private int writtenBlocks;
+
+    private HistoryFile(final Path data, final Path index, final long first) {
+      this.data = data;
+      this.index = index;
+      this.first = first;
+    }
+
+    /**
+     * Opens existing file and reads its index. Entries of the last file are verified against
+     * its data file, and everything after the first invalid one is truncated.
+     */
+    private static HistoryFile open(final Path index, final boolean last) throws IOException {
+      final String name = index.getFileName().toString();
+      final String base = name.substring(0, name.length() - INDEX_SUFFIX.length());
+      final HistoryFile file = new HistoryFile(
+          index.resolveSibling(base + DATA_SUFFIX),
+          index,
+          Long.parseLong(base.substring(FILE_PREFIX.length()))
+      );
+      final long dataSize = Files.exists(file.data) ? Files.size(file.data) : 0;
+      final ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(index));
+      while (entries.remaining() >= INDEX_ENTRY_SIZE) {
+        final int start = entries.position();
+        final long offset = entries.getLong(start + 8);
+        final int length = entries.getInt(start + 16);
+        if (offset != file.written || offset + length > dataSize) {
+          break;
+        }
+        file.written += length;
+        file.writtenTransactions += entries.getInt(start + 24);
+        file.writtenBlocks++;
+        entries.position(start + INDEX_ENTRY_SIZE);
+      }
+      file.end = file.written;
+      file.transactions = file.writtenTransactions;
+      file.blocks = file.writtenBlocks;
+
+      if (last) {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+          channel.truncate((long) file.blocks * INDEX_ENTRY_SIZE);
+        }
+        if (Files.exists(file.data)) {
+          try (FileChannel channel = FileChannel.open(file.data, StandardOpenOption.WRITE)) {
+            channel.truncate(file.end);
+          }
+        }
+      }
+      return file;
+    }
+
+    private void delete() throws IOException {
+      Files.deleteIfExists(data);
+      Files.deleteIfExists(index);
+    }
+
+    private ByteBuffer readIndex(final int blocks) {
+      try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+        final ByteBuffer entries = ByteBuffer.allocate(blocks * INDEX_ENTRY_SIZE);
+        readFully(channel, entries, 0);
+        return entries.flip();
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    }
+
+    // the last block starting at or before the position
+    private int blockAt(final ByteBuffer entries, final int blocks, final long position) {
+      int low = 0;
+      int high = blocks - 1;
+      while (low < high) {
+        final int middle = (low + high + 1) >>> 1;
+        if (entries.getLong(middle * INDEX_ENTRY_SIZE) <= position) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return low;
+    }
+
+    private List<Transaction> readBlock(final ByteBuffer entries, final int block) {
+      final int entry = block * INDEX_ENTRY_SIZE;
+      final long offset = entries.getLong(entry + 8);
+      final int compressedLength = entries.getInt(entry + 16);
+      final int length = entries.getInt(entry + 20);
+      final int count = entries.getInt(entry + 24);
+      try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ)) {
+        final ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+        readFully(channel, compressed, offset);
+        final CRC32C checksum = new CRC32C();
+        checksum.update(compressed.array());
+        if ((int) checksum.getValue() != entries.getInt(entry + 28)) {
+          throw new IOException(String.format("Block at %d of %s is corrupted", offset, data));
+        }
+
+        final byte[] raw = new byte[length];
+        final Inflater inflater = new Inflater();
+        try {
+          inflater.setInput(compressed.array());
+          int inflated = 0;
+          while (inflated < length && !inflater.finished()) {
+            inflated += inflater.inflate(raw, inflated, length - inflated);
+          }
+        } catch (DataFormatException exception) {
+          throw new IOException(String.format("Block at %d of %s is corrupted", offset, data));
+        } finally {
+          inflater.end();
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(raw);
+        final List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          transactions.add(TransactionCodec.decode(buffer));
+        }
+        return transactions;
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer,
+        final long position) throws IOException {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("Unexpected end of history file");
+        }
+      }
+    }
+  }
+
+  /**
+   * Iterates over blocks of the files in a view. Files are opened only while a block is read.
+   */
+  private static final class HistoryIterator implements Iterator<Transaction> {
+    private final Iterator<FileView> fileIterator;
+    private FileView file;
+    private ByteBuffer entries;
+    private int block;
+    private Iterator<Transaction> transactions = Collections.emptyIterator();
+
+    private HistoryIterator(final List<FileView> view) {
+      this.fileIterator = view.iterator();
+    }
+
+    @Override public boolean hasNext() {
+      while (!transactions.hasNext()) {
+        if (file == null || block == file.blocks) {
+          if (!fileIterator.hasNext()) {
+            return false;
+          }
+          file = fileIterator.next();
+          entries = file.file.readIndex(file.blocks);
+          block = 0;
+          continue;
+        }
+        transactions = file.file.readBlock(entries, block++).iterator();
+      }
+      return true;
+    }
+
+    @Override public Transaction next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return transactions.next();
+    }
+  }
+}
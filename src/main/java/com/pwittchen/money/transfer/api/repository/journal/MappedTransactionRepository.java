@@ -0,0 +1,480 @@
+package com.pwittchen.money.transfer.api.repository.journal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AppendOnlyQueue;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Transaction repository, which keeps the history in memory-mapped segment files instead of
+ * the Java heap, so heap use stays flat no matter how many transactions were made. Only
+ * a small descriptor of every segment is kept on the heap.
+ *
+ * Segments are preallocated files of a fixed size, named after the ordinal number of their
+ * first transaction. When a transaction doesn't fit into the active segment, a new one is
+ * created. Every record is {@code [length][crc32c][transaction]}, see {@link TransactionCodec}
+ * for the layout of a transaction. The most recent segments stay mapped and transactions are
+ * decoded straight from the mapped memory. Older segments are released: the journal drops
+ * its mapping, which is unmapped, once it's garbage collected. Records of a released segment
+ * are read from the file, so reading a few of them doesn't map the whole segment again; only
+ * iterators scanning it map it for the time of the scan. Every segment keeps offsets of every
+ * 64th record, so a transaction at a position is found by skipping at most 63 records.
+ *
+ * Records are written to the page cache. A segment is forced to disk when the next one is
+ * created and the active one on {@link #close()}; transactions of forced segments are reported
+ * as persisted, so the write-ahead log keeps the rest. A record torn by a crash fails
+ * the checksum and is cut off when the journal is opened again.
+ */
+public class MappedTransactionRepository implements TransactionRepository, Closeable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+  public static final int DEFAULT_MAPPED_SEGMENTS = 4;
+
+  private static final String SEGMENT_PREFIX = "journal-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final int HEADER_SIZE = 4 + 4;
+  private static final int INITIAL_SCRATCH_SIZE = 1024;
+  private static final int CHECKPOINT_INTERVAL = 64;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final int mappedSegments;
+  private final List<Segment> segments = new CopyOnWriteArrayList<>();
+  private volatile long size;
+  // number of transactions forced to disk, guarded by this
+  private long persisted;
+  private final BlockingQueue<Transaction> queue =
+      new AppendOnlyQueue(this, JournalIterator::new, this::size);
+
+  // guarded by this
+  private final CRC32C checksum = new CRC32C();
+  private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_SCRATCH_SIZE);
+
+  private MappedTransactionRepository(final Path directory, final int segmentSize,
+      final int mappedSegments) throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.mappedSegments = Math.max(1, mappedSegments);
+
+    Files.createDirectories(directory);
+    final List<Path> files = segmentFiles();
+    for (int i = 0; i < files.size(); i++) {
+      final boolean active = i == files.size() - 1;
+      final Segment segment = Segment.open(files.get(i), size, active);
+      segments.add(segment);
+      size += segment.records;
+      if (active) {
+        persisted = segment.first;
+        segment.buffer = segment.map(FileChannel.MapMode.READ_WRITE);
+      } else if (i >= files.size() - this.mappedSegments) {
+        segment.buffer = segment.map(FileChannel.MapMode.READ_ONLY);
+      }
+    }
+    if (segments.isEmpty()) {
+      roll();
+    }
+  }
+
+  public static MappedTransactionRepository open(final Path directory) throws IOException {
+    return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAPPED_SEGMENTS);
+  }
+
+  /**
+   * Opens journal in the given directory, creating it when needed. Up to the given number
+   * of the most recent segments stay mapped.
+   */
+  public static MappedTransactionRepository open(final Path directory, final int segmentSize,
+      final int mappedSegments) throws IOException {
+    return new MappedTransactionRepository(directory, segmentSize, mappedSegments);
+  }
+
+  @Override public BlockingQueue<Transaction> getAll() {
+    return queue;
+  }
+
+  @Override public synchronized Transaction create(Transaction transaction) {
+    append(transaction);
+    return transaction;
+  }
+
+  @Override public synchronized List<Transaction> createAll(List<Transaction> transactions) {
+    for (Transaction transaction : transactions) {
+      append(transaction);
+    }
+    return transactions;
+  }
+
+  @Override public synchronized void clear() {
+    try {
+      for (Segment segment : segments) {
+        segment.buffer = null;
+        Files.deleteIfExists(segment.path);
+      }
+      segments.clear();
+      size = 0;
+      persisted = 0;
+      roll();
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  @Override public synchronized Optional<Transaction> last() {
+    return size == 0 ? Optional.empty() : Optional.of(get(size - 1, 1).get(0));
+  }
+
+  @Override public synchronized Optional<Transaction> lastPersisted() {
+    return persisted == 0 ? Optional.empty() : Optional.of(get(persisted - 1, 1).get(0));
+  }
+
+  @Override public synchronized List<Transaction> get(final long position, final int limit) {
+    final List<Transaction> transactions = new ArrayList<>(Math.min(limit, INITIAL_SCRATCH_SIZE));
+    long index = position;
+    for (int i = segmentAt(position); i >= 0 && i < segments.size(); i++) {
+      final Segment segment = segments.get(i);
+      if (transactions.size() == limit || index - segment.first >= segment.records) {
+        break;
+      }
+      final long record = index - segment.first;
+      final int count = (int) Math.min(segment.records - record, limit - transactions.size());
+      segment.read(record, count, transactions);
+      index += count;
+    }
+    return transactions;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of segment files.
+   */
+  public int segments() {
+    return segments.size();
+  }
+
+  /**
+   * Returns the number of segments, which are mapped at the moment.
+   */
+  public int mappedSegments() {
+    return (int) segments.stream().filter(segment -> segment.buffer != null).count();
+  }
+
+  /**
+   * Flushes the active segment to disk and releases all segments.
+   */
+  @Override public synchronized void close() {
+    final MappedByteBuffer active = segments.get(segments.size() - 1).buffer;
+    if (active != null) {
+      active.force();
+      persisted = size;
+    }
+    for (Segment segment : segments) {
+      segment.buffer = null;
+    }
+  }
+
+  private void append(final Transaction transaction) {
+    final int length = TransactionCodec.size(transaction);
+    if (HEADER_SIZE + length > segmentSize) {
+      throw new IllegalArgumentException(String.format(
+          "Transaction %s is too large for a journal segment", transaction.id()
+      ));
+    }
+
+    Segment segment = segments.get(segments.size() - 1);
+    if (segment.end + HEADER_SIZE + length > segment.capacity) {
+      segment = roll();
+    }
+
+    if (scratch.capacity() < length) {
+      scratch = ByteBuffer.allocate(Math.max(length, scratch.capacity() * 2));
+    }
+    scratch.clear();
+    TransactionCodec.encode(transaction, scratch);
+    scratch.flip();
+    checksum.reset();
+    checksum.update(scratch);
+    scratch.flip();
+
+    // the length goes last, so a reader never sees a record, which is not fully written
+    final int position = segment.end;
+    final ByteBuffer target = segment.buffer.duplicate();
+    target.position(position + HEADER_SIZE);
+    target.put(scratch);
+    target.putInt(position + 4, (int) checksum.getValue());
+    target.putInt(position, length);
+
+    segment.checkpoint(position);
+    segment.end = position + HEADER_SIZE + length;
+    segment.records++;
+    size++;
+  }
+
+  private Segment roll() {
+    try {
+      if (!segments.isEmpty()) {
+        segments.get(segments.size() - 1).buffer.force();
+        persisted = size;
+      }
+      final Segment segment = Segment.create(
+          directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, size, SEGMENT_SUFFIX)),
+          size,
+          segmentSize
+      );
+      segments.add(segment);
+      final int released = segments.size() - 1 - mappedSegments;
+      // readers may still hold the mapping, so it's left to the garbage collector to unmap
+      if (released >= 0) {
+        segments.get(released).buffer = null;
+      }
+      return segment;
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  // index of the last segment starting at or before the position, or -1 past the end
+  private int segmentAt(final long position) {
+    if (position < 0 || position >= size) {
+      return -1;
+    }
+    int low = 0;
+    int high = segments.size() - 1;
+    while (low < high) {
+      final int middle = (low + high + 1) >>> 1;
+      if (segments.get(middle).first <= position) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> {
+            final String name = path.getFileName().toString();
+            return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+          })
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static final class Segment {
+    private final Path path;
+    private final long first;
+    private final int capacity;
+    // null, when the segment is not mapped
+    private volatile MappedByteBuffer buffer;
+    private volatile int end;
+    private volatile long records;
+    // offsets of every CHECKPOINT_INTERVAL-th record
+    private int[] checkpoints = new int[16];
+
+    private Segment(final Path path, final long first, final int capacity) {
+      this.path = path;
+      this.first = first;
+      this.capacity = capacity;
+    }
+
+    private static Segment create(final Path path, final long first, final int capacity)
+        throws IOException {
+      final Segment segment = new Segment(path, first, capacity);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      }
+      return segment;
+    }
+
+    /**
+     * Opens existing segment and finds its end. Records of the active segment are verified,
+     * and everything after the first broken one is erased, so it can be written over.
+     */
+    private static Segment open(final Path path, final long first, final boolean active)
+        throws IOException {
+      final Segment segment = new Segment(path, first, (int) Files.size(path));
+      final MappedByteBuffer buffer = segment.map(
+          active ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY
+      );
+      final CRC32C checksum = new CRC32C();
+      int position = 0;
+      while (position + HEADER_SIZE <= segment.capacity) {
+        final int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > segment.capacity) {
+          break;
+        }
+        if (active) {
+          final ByteBuffer record = buffer.duplicate();
+          record.position(position + HEADER_SIZE).limit(position + HEADER_SIZE + length);
+          checksum.reset();
+          checksum.update(record);
+          if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+            break;
+          }
+        }
+        segment.checkpoint(position);
+        segment.records++;
+        position += HEADER_SIZE + length;
+      }
+      segment.end = position;
+
+      if (active) {
+        for (int i = position; i < segment.capacity && buffer.get(i) != 0; i++) {
+          buffer.put(i, (byte) 0);
+        }
+      }
+      return segment;
+    }
+
+    // called before the record at the offset is counted
+    private void checkpoint(final int offset) {
+      if (records % CHECKPOINT_INTERVAL != 0) {
+        return;
+      }
+      final int checkpoint = (int) (records / CHECKPOINT_INTERVAL);
+      if (checkpoint == checkpoints.length) {
+        checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+      }
+      checkpoints[checkpoint] = offset;
+    }
+
+    private MappedByteBuffer map(final FileChannel.MapMode mode) throws IOException {
+      final StandardOpenOption[] options = mode == FileChannel.MapMode.READ_WRITE
+          ? new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE}
+          : new StandardOpenOption[] {StandardOpenOption.READ};
+      try (FileChannel channel = FileChannel.open(path, options)) {
+        return channel.map(mode, 0, capacity);
+      }
+    }
+
+    /**
+     * Adds the given number of transactions starting at the given record of the segment to
+     * the list. Records of a released segment are read from the file.
+     */
+    private void read(final long record, final int count, final List<Transaction> transactions) {
+      int offset = checkpoints[(int) (record / CHECKPOINT_INTERVAL)];
+      final long skipped = record % CHECKPOINT_INTERVAL;
+      final MappedByteBuffer mapped = buffer;
+      if (mapped != null) {
+        final ByteBuffer view = mapped.duplicate();
+        for (long i = 0; i < skipped; i++) {
+          offset += HEADER_SIZE + view.getInt(offset);
+        }
+        for (int i = 0; i < count; i++) {
+          view.position(offset + HEADER_SIZE);
+          transactions.add(TransactionCodec.decode(view));
+          offset += HEADER_SIZE + view.getInt(offset);
+        }
+        return;
+      }
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        for (long i = 0; i < skipped; i++) {
+          offset += HEADER_SIZE + readFully(channel, header, offset).getInt(0);
+        }
+        for (int i = 0; i < count; i++) {
+          final int length = readFully(channel, header, offset).getInt(0);
+          final ByteBuffer bytes = ByteBuffer.allocate(length);
+          transactions.add(TransactionCodec.decode(
+              readFully(channel, bytes, offset + HEADER_SIZE)
+          ));
+          offset += HEADER_SIZE + length;
+        }
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    }
+
+    private ByteBuffer readFully(final FileChannel channel, final ByteBuffer buffer,
+        final long position) throws IOException {
+      buffer.clear();
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new EOFException(String.format("Journal segment %s is truncated", path));
+        }
+      }
+      buffer.flip();
+      return buffer;
+    }
+
+    /**
+     * Returns a view of the whole segment for a scan, which maps it again, when it was
+     * released.
+     */
+    private ByteBuffer read() {
+      final MappedByteBuffer mapped = buffer;
+      if (mapped != null) {
+        return mapped.duplicate();
+      }
+      try {
+        return map(FileChannel.MapMode.READ_ONLY);
+      } catch (IOException exception) {
+        throw new UncheckedIOException(exception);
+      }
+    }
+  }
+
+  /**
+   * Iterates over transactions, which were in the journal when the iterator was created.
+   */
+  private final class JournalIterator implements Iterator<Transaction> {
+    private final Iterator<Segment> segmentIterator;
+    private long remaining;
+    private ByteBuffer buffer;
+    private int end;
+
+    private JournalIterator() {
+      this.remaining = size;
+      this.segmentIterator = segments.iterator();
+    }
+
+    @Override public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override public Transaction next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      while (buffer == null || buffer.position() >= end) {
+        final Segment segment = segmentIterator.next();
+        end = segment.end;
+        buffer = segment.read();
+        buffer.position(0);
+      }
+      final int length = buffer.getInt();
+      final int start = buffer.position() + 4;
+      buffer.position(start);
+      final Transaction transaction = TransactionCodec.decode(buffer);
+      buffer.position(start + length);
+      remaining--;
+      return transaction;
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package com.pwittchen.money.transfer.api.repository.journal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AppendOnlyQueue;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transaction repository, which keeps the history in two tiers, so memory stays bounded no
+ * matter how long the application runs. The most recent transactions are kept in an in-memory
+ * ring. Once there are more of them than the capacity of the ring, or they're older than the
+ * retention window, they're compacted in the background into compressed, block-indexed files
+ * on local disk, see {@link CompressedHistory}. Queries go through both tiers transparently:
+ * {@link #getAll()} iterates over the files first and over the ring after them.
+ *
+ * Compaction copies a batch from the ring and compresses it to disk while it's still in the
+ * ring, then publishes the blocks and removes the batch from the ring in a single step, so
+ * readers never miss a transaction or see one twice. When writers outpace the background
+ * compaction and the ring grows to twice its capacity, the writer compacts it itself.
+ *
+ * The whole ring is compacted on {@link #close()}. Only compacted transactions are reported
+ * as persisted, so the snapshotter keeps log segments with the ring's transactions and
+ * the ones lost from it by a crash are recovered from the write-ahead log.
+ */
+public class TieredTransactionRepository implements TransactionRepository, Closeable {
+
+  public static final int DEFAULT_HOT_CAPACITY = 100_000;
+  public static final int DEFAULT_BLOCK_SIZE = 1024;
+  public static final long DEFAULT_FILE_SIZE = 64L * 1024 * 1024;
+
+  private static final Logger LOG = LoggerFactory.getLogger(TieredTransactionRepository.class);
+
+  private final CompressedHistory cold;
+  private final int hotCapacity;
+  private final long hotWindowNanos;
+  private final int blockSize;
+  private final BlockingQueue<Transaction> queue =
+      new AppendOnlyQueue(this, this::iterator, this::size);
+  private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+  private final Object compactionLock = new Object();
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "history-compactor");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  // guarded by this
+  private final ArrayDeque<HotEntry> hot = new ArrayDeque<>();
+
+  private TieredTransactionRepository(final CompressedHistory cold, final int hotCapacity,
+      final long hotWindowNanos, final int blockSize) {
+    this.cold = cold;
+    this.hotCapacity = hotCapacity;
+    this.hotWindowNanos = hotWindowNanos;
+    this.blockSize = blockSize;
+  }
+
+  public static TieredTransactionRepository open(final Path directory, final int hotCapacity,
+      final long hotWindow, final TimeUnit unit) throws IOException {
+    return open(directory, hotCapacity, hotWindow, unit, DEFAULT_BLOCK_SIZE, DEFAULT_FILE_SIZE);
+  }
+
+  /**
+   * Opens history in the given directory, creating it when needed. At most the given number
+   * of transactions made within the given window stay in memory. Older ones are compressed
+   * in blocks of the given number of transactions, into files of about the given size.
+   */
+  public static TieredTransactionRepository open(final Path directory, final int hotCapacity,
+      final long hotWindow, final TimeUnit unit, final int blockSize, final long fileSize)
+      throws IOException {
+    return new TieredTransactionRepository(
+        CompressedHistory.open(directory, fileSize),
+        hotCapacity,
+        unit.toNanos(hotWindow),
+        Math.max(1, blockSize)
+    );
+  }
+
+  /**
+   * Compacts transactions, which are out of the ring's bounds, every given period.
+   */
+  public void start(final long period, final TimeUnit unit) {
+    scheduler.scheduleWithFixedDelay(this::compactInBackground, period, period, unit);
+  }
+
+  @Override public BlockingQueue<Transaction> getAll() {
+    return queue;
+  }
+
+  @Override public Transaction create(Transaction transaction) {
+    final int size;
+    synchronized (this) {
+      hot.addLast(new HotEntry(transaction, System.nanoTime()));
+      size = hot.size();
+    }
+    afterCreate(size);
+    return transaction;
+  }
+
+  @Override public List<Transaction> createAll(List<Transaction> transactions) {
+    final int size;
+    synchronized (this) {
+      final long now = System.nanoTime();
+      for (Transaction transaction : transactions) {
+        hot.addLast(new HotEntry(transaction, now));
+      }
+      size = hot.size();
+    }
+    afterCreate(size);
+    return transactions;
+  }
+
+  @Override public Optional<Transaction> last() {
+    synchronized (this) {
+      if (!hot.isEmpty()) {
+        return Optional.of(hot.getLast().transaction);
+      }
+    }
+    return cold.last();
+  }
+
+  // blocks are forced to disk before they're published
+  @Override public Optional<Transaction> lastPersisted() {
+    return cold.last();
+  }
+
+  @Override public void clear() {
+    synchronized (compactionLock) {
+      synchronized (this) {
+        hot.clear();
+        cold.clear();
+      }
+    }
+  }
+
+  @Override public List<Transaction> get(final long position, final int limit) {
+    final List<CompressedHistory.FileView> view;
+    final long coldSize;
+    final List<Transaction> recent = new ArrayList<>();
+    synchronized (this) {
+      view = cold.view();
+      coldSize = cold.size();
+      long skipped = Math.max(0, position - coldSize);
+      for (HotEntry entry : hot) {
+        if (recent.size() == limit) {
+          break;
+        }
+        if (skipped > 0) {
+          skipped--;
+        } else {
+          recent.add(entry.transaction);
+        }
+      }
+    }
+    final List<Transaction> transactions = position < coldSize
+        ? cold.get(view, position, limit)
+        : new ArrayList<>(recent.size());
+    for (Transaction transaction : recent) {
+      if (transactions.size() == limit) {
+        break;
+      }
+      transactions.add(transaction);
+    }
+    return transactions;
+  }
+
+  public synchronized long size() {
+    return cold.size() + hot.size();
+  }
+
+  /**
+   * Returns the number of transactions in the in-memory ring.
+   */
+  public synchronized int hotSize() {
+    return hot.size();
+  }
+
+  /**
+   * Returns the number of transactions compacted to disk.
+   */
+  public long coldSize() {
+    return cold.size();
+  }
+
+  /**
+   * Returns the number of bytes taken by compacted transactions on disk.
+   */
+  public long coldBytes() {
+    return cold.bytes();
+  }
+
+  /**
+   * Returns the number of files with compacted transactions.
+   */
+  public int files() {
+    return cold.files();
+  }
+
+  /**
+   * Moves transactions, which are out of the ring's bounds, to disk and returns their number.
+   */
+  public int compact() {
+    return compact(false);
+  }
+
+  /**
+   * Stops the background compaction and moves the whole ring to disk.
+   */
+  @Override public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+    compact(true);
+    cold.close();
+  }
+
+  private void afterCreate(final int size) {
+    if (size >= 2 * hotCapacity) {
+      compact();
+    } else if (size >= hotCapacity + blockSize && compactionScheduled.compareAndSet(false, true)
+        && !scheduler.isShutdown()) {
+      scheduler.execute(this::compactInBackground);
+    }
+  }
+
+  private void compactInBackground() {
+    try {
+      compactionScheduled.set(false);
+      final int compacted = compact();
+      if (compacted > 0) {
+        LOG.debug("{} transactions compacted", compacted);
+      }
+    } catch (Exception exception) {
+      LOG.error("compaction has failed", exception);
+    }
+  }
+
+  private int compact(final boolean all) {
+    synchronized (compactionLock) {
+      final List<Transaction> batch = new ArrayList<>();
+      synchronized (this) {
+        final int excess = all ? hot.size() : hot.size() - hotCapacity;
+        final long now = System.nanoTime();
+        for (HotEntry entry : hot) {
+          if (batch.size() >= excess && now - entry.createdNanos < hotWindowNanos) {
+            break;
+          }
+          batch.add(entry.transaction);
+        }
+      }
+      if (batch.isEmpty()) {
+        return 0;
+      }
+
+      for (int from = 0; from < batch.size(); from += blockSize) {
+        cold.append(batch.subList(from, Math.min(from + blockSize, batch.size())));
+      }
+      synchronized (this) {
+        cold.publish();
+        for (int i = 0; i < batch.size(); i++) {
+          hot.removeFirst();
+        }
+      }
+      return batch.size();
+    }
+  }
+
+  private Iterator<Transaction> iterator() {
+    final List<CompressedHistory.FileView> view;
+    final List<Transaction> recent;
+    synchronized (this) {
+      view = cold.view();
+      recent = new ArrayList<>(hot.size());
+      for (HotEntry entry : hot) {
+        recent.add(entry.transaction);
+      }
+    }
+    return new TieredIterator(cold.iterator(view), recent.iterator());
+  }
+
+  private static final class HotEntry {
+    private final Transaction transaction;
+    private final long createdNanos;
+
+    private HotEntry(final Transaction transaction, final long createdNanos) {
+      this.transaction = transaction;
+      this.createdNanos = createdNanos;
+    }
+  }
+
+  /**
+   * Iterates over transactions on disk and then over the ones, which were in memory, when
+   * the iterator was created.
+   */
+  private static final class TieredIterator implements Iterator<Transaction> {
+    private final Iterator<Transaction> cold;
+    private final Iterator<Transaction> hot;
+
+    private TieredIterator(final Iterator<Transaction> cold, final Iterator<Transaction> hot) {
+      this.cold = cold;
+      this.hot = hot;
+    }
+
+    @Override public boolean hasNext() {
+      return cold.hasNext() || hot.hasNext();
+    }
+
+    @Override public Transaction next() {
+      if (cold.hasNext()) {
+        return cold.next();
+      }
+      if (hot.hasNext()) {
+        return hot.next();
+      }
+      throw new NoSuchElementException();
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package com.pwittchen.money.transfer.api.repository.journal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Compact binary form of a transaction:
+ * <pre>
+ * [id][from][to][money][created at][number of legs (short)][legs...]
+ * </pre>
+ * where texts are a length (short, -1 for null) followed by UTF-8 bytes, money is a currency
+ * code followed by minor units (long), created at is an epoch second in UTC (long,
+ * Long.MIN_VALUE for null) followed by nano of second (int), and every leg is
+ * {@code [from][to][money]}.
+ */
+final class TransactionCodec {
+
+  private static final short NULL = -1;
+  private static final long NO_DATE = Long.MIN_VALUE;
+
+  private TransactionCodec() {
+  }
+
+  /**
+   * Returns the number of bytes the transaction takes when encoded.
+   */
+  static int size(final Transaction transaction) {
+    int size = size(transaction.id()) + size(transaction.from()) + size(transaction.to())
+        + size(transaction.money())
+        + (transaction.createdAt() == null ? Long.BYTES : Long.BYTES + Integer.BYTES)
+        + Short.BYTES;
+    for (TransactionLeg leg : transaction.legs()) {
+      size += size(leg.from()) + size(leg.to()) + size(leg.money());
+    }
+    return size;
+  }
+
+  static void encode(final Transaction transaction, final ByteBuffer buffer) {
+    putString(buffer, transaction.id());
+    putString(buffer, transaction.from());
+    putString(buffer, transaction.to());
+    putMoney(buffer, transaction.money());
+    if (transaction.createdAt() == null) {
+      buffer.putLong(NO_DATE);
+    } else {
+      buffer.putLong(transaction.createdAt().toEpochSecond(ZoneOffset.UTC));
+      buffer.putInt(transaction.createdAt().getNano());
+    }
+    buffer.putShort((short) transaction.legs().size());
+    for (TransactionLeg leg : transaction.legs()) {
+      putString(buffer, leg.from());
+      putString(buffer, leg.to());
+      putMoney(buffer, leg.money());
+    }
+  }
+
+  /**
+   * Decodes a transaction straight from the buffer, starting at its position.
+   */
+  static Transaction decode(final ByteBuffer buffer) {
+    final Transaction.Builder builder = Transaction
+        .builder()
+        .id(getString(buffer))
+        .from(getString(buffer))
+        .to(getString(buffer))
+        .money(getMoney(buffer));
+    final long seconds = buffer.getLong();
+    if (seconds != NO_DATE) {
+      builder.createdAt(LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC));
+    }
+    final int numberOfLegs = buffer.getShort();
+    if (numberOfLegs > 0) {
+      final List<TransactionLeg> legs = new ArrayList<>(numberOfLegs);
+      for (int i = 0; i < numberOfLegs; i++) {
+        legs.add(new TransactionLeg(getString(buffer), getString(buffer), getMoney(buffer)));
+      }
+      builder.legs(legs);
+    }
+    return builder.build();
+  }
+
+  private static int size(final String value) {
+    return Short.BYTES + (value == null ? 0 : utf8Length(value));
+  }
+
+  private static int size(final Money money) {
+    return money == null
+        ? Short.BYTES
+        : size(money.getCurrencyUnit().getCode()) + Long.BYTES;
+  }
+
+  private static int utf8Length(final String value) {
+    final int length = value.getBytes(StandardCharsets.UTF_8).length;
+    if (length > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Text is too long to be stored in a journal");
+    }
+    return length;
+  }
+
+  private static void putString(final ByteBuffer buffer, final String value) {
+    if (value == null) {
+      buffer.putShort(NULL);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    buffer.putShort((short) bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String getString(final ByteBuffer buffer) {
+    final short length = buffer.getShort();
+    if (length == NULL) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void putMoney(final ByteBuffer buffer, final Money money) {
+    if (money == null) {
+      buffer.putShort(NULL);
+      return;
+    }
+    putString(buffer, money.getCurrencyUnit().getCode());
+    buffer.putLong(money.getAmountMinorLong());
+  }
+
+  private static Money getMoney(final ByteBuffer buffer) {
+    final String currency = getString(buffer);
+    return currency == null ? null : Money.ofMinor(CurrencyUnit.of(currency), buffer.getLong());
+  }
+}
@@ -0,0 +1,393 @@
+package com.pwittchen.money.transfer.api.repository.offheap;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Account repository, which keeps all accounts outside of the Java heap, in direct byte
+ * buffers, so tens of millions of accounts don't put any pressure on the garbage collector.
+ *
+ * Accounts are stored as fixed-size records in chunks of slots. Account numbers and owners
+ * are appended to separate string chunks and the record keeps their offset. Numbers are
+ * mapped to slots with an open-addressing hash table of ints, which lives off-heap as well.
+ * Account objects are created only when they are read.
+ *
+ * Record layout (40 bytes):
+ * <pre>
+ *  0 balance in minor units (long)
+ *  8 createdAt epoch second in UTC, Long.MIN_VALUE when empty (long)
+ * 16 createdAt nano of second (int)
+ * 20 currency code (3 ASCII bytes, padded)
+ * 24 offset of number and owner in the string chunks (long)
+ * 32 length of number in bytes (int)
+ * 36 length of owner in bytes, -1 when empty (int)
+ * </pre>
+ */
+public class OffHeapAccountRepository implements AccountRepository {
+
+  private static final int RECORD_SIZE = 40;
+  private static final int BALANCE = 0;
+  private static final int CREATED_AT_SECOND = 8;
+  private static final int CREATED_AT_NANO = 16;
+  private static final int CURRENCY = 20;
+  private static final int STRING_OFFSET = 24;
+  private static final int NUMBER_LENGTH = 32;
+  private static final int OWNER_LENGTH = 36;
+
+  private static final int RECORDS_PER_CHUNK = 1 << 16;
+  private static final int STRING_CHUNK_SIZE = 1 << 24;
+  private static final int INITIAL_INDEX_CAPACITY = 1 << 10;
+  private static final int NUMBER_OF_STRIPES = 256;
+  private static final long NO_DATE = Long.MIN_VALUE;
+
+  private final List<ByteBuffer> records = new ArrayList<>();
+  private final List<ByteBuffer> strings = new ArrayList<>();
+  private final ReadWriteLock structureLock = new ReentrantReadWriteLock();
+  private final Lock[] stripes = new Lock[NUMBER_OF_STRIPES];
+
+  private ByteBuffer index;
+  private int indexMask;
+  private int size;
+
+  public OffHeapAccountRepository() {
+    for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    index = ByteBuffer.allocateDirect(INITIAL_INDEX_CAPACITY * Integer.BYTES);
+    indexMask = INITIAL_INDEX_CAPACITY - 1;
+  }
+
+  @Override public Optional<Account> get(String number) {
+    structureLock.readLock().lock();
+    try {
+      final int slot = find(number.getBytes(StandardCharsets.UTF_8), number.hashCode());
+      return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+    } finally {
+      structureLock.readLock().unlock();
+    }
+  }
+
+  @Override public List<Account> getAll() {
+    structureLock.readLock().lock();
+    try {
+      final List<Account> accounts = new ArrayList<>(size);
+      for (int slot = 0; slot < size; slot++) {
+        accounts.add(materialize(slot));
+      }
+      return accounts;
+    } finally {
+      structureLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Materializes accounts one at a time, taking the read lock only for a single slot, so
+   * a slow reader doesn't block creation of accounts.
+   */
+  @Override public Iterator<Account> iterator() {
+    return new Iterator<>() {
+      private int slot;
+
+      @Override public boolean hasNext() {
+        structureLock.readLock().lock();
+        try {
+          return slot < size;
+        } finally {
+          structureLock.readLock().unlock();
+        }
+      }
+
+      @Override public Account next() {
+        structureLock.readLock().lock();
+        try {
+          if (slot >= size) {
+            throw new NoSuchElementException();
+          }
+          return materialize(slot++);
+        } finally {
+          structureLock.readLock().unlock();
+        }
+      }
+    };
+  }
+
+  @Override public Account create(Account account) {
+    create(account, true);
+    return account;
+  }
+
+  @Override public boolean createIfAbsent(Account account) {
+    return create(account, false);
+  }
+
+  @Override public void transfer(final Account from, final Account to, final Money money) {
+    structureLock.readLock().lock();
+    try {
+      final int sender = slot(from.number());
+      final int receiver = slot(to.number());
+
+      if (!currency(sender).equals(money.getCurrencyUnit())
+          || !currency(receiver).equals(money.getCurrencyUnit())) {
+        throw new DifferentCurrencyException(from.number(), to.number());
+      }
+
+      final long amount = money.getAmountMinorLong();
+      final int first = Math.min(sender % NUMBER_OF_STRIPES, receiver % NUMBER_OF_STRIPES);
+      final int second = Math.max(sender % NUMBER_OF_STRIPES, receiver % NUMBER_OF_STRIPES);
+
+      stripes[first].lock();
+      stripes[second].lock();
+      try {
+        final long balance = record(sender).getLong(offset(sender) + BALANCE);
+        if (balance < amount) {
+          throw new NotEnoughMoneyException(from.number());
+        }
+        record(sender).putLong(offset(sender) + BALANCE, balance - amount);
+        final long receiverBalance = record(receiver).getLong(offset(receiver) + BALANCE);
+        record(receiver).putLong(offset(receiver) + BALANCE, receiverBalance + amount);
+      } finally {
+        stripes[second].unlock();
+        stripes[first].unlock();
+      }
+    } finally {
+      structureLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of stored accounts.
+   */
+  public int size() {
+    structureLock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      structureLock.readLock().unlock();
+    }
+  }
+
+  private boolean create(final Account account, final boolean overwrite) {
+    final byte[] number = account.number().getBytes(StandardCharsets.UTF_8);
+    final byte[] owner = account.owner() == null
+        ? null
+        : account.owner().getBytes(StandardCharsets.UTF_8);
+
+    structureLock.writeLock().lock();
+    try {
+      int slot = find(number, account.number().hashCode());
+      if (slot < 0) {
+        slot = size++;
+        if (slot / RECORDS_PER_CHUNK == records.size()) {
+          records.add(ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_SIZE));
+        }
+        write(slot, account, number, owner);
+        insert(slot, account.number().hashCode());
+        return true;
+      }
+      if (overwrite) {
+        write(slot, account, number, owner);
+      }
+      return false;
+    } finally {
+      structureLock.writeLock().unlock();
+    }
+  }
+
+  private int slot(final String number) {
+    final int slot = find(number.getBytes(StandardCharsets.UTF_8), number.hashCode());
+    if (slot < 0) {
+      throw new AccountNotExistsException(number);
+    }
+    return slot;
+  }
+
+  private int find(final byte[] number, final int hash) {
+    int position = mix(hash) & indexMask;
+    while (true) {
+      final int value = index.getInt(position * Integer.BYTES);
+      if (value == 0) {
+        return -1;
+      }
+      final int slot = value - 1;
+      if (hasNumber(slot, number)) {
+        return slot;
+      }
+      position = (position + 1) & indexMask;
+    }
+  }
+
+  private void insert(final int slot, final int hash) {
+    if ((size << 1) > indexMask) {
+      resizeIndex();
+    }
+    int position = mix(hash) & indexMask;
+    while (index.getInt(position * Integer.BYTES) != 0) {
+      position = (position + 1) & indexMask;
+    }
+    index.putInt(position * Integer.BYTES, slot + 1);
+  }
+
+  private void resizeIndex() {
+    final int capacity = (indexMask + 1) << 1;
+    index = ByteBuffer.allocateDirect(capacity * Integer.BYTES);
+    indexMask = capacity - 1;
+    // the slot being inserted is not indexed yet, it's added by the caller
+    for (int slot = 0; slot < size - 1; slot++) {
+      int position = mix(number(slot).hashCode()) & indexMask;
+      while (index.getInt(position * Integer.BYTES) != 0) {
+        position = (position + 1) & indexMask;
+      }
+      index.putInt(position * Integer.BYTES, slot + 1);
+    }
+  }
+
+  private void write(final int slot, final Account account, final byte[] number,
+      final byte[] owner) {
+    final ByteBuffer record = record(slot);
+    final int offset = offset(slot);
+    final Money money = account.money();
+    final String currency = money.getCurrencyUnit().getCode();
+
+    record.putLong(offset + BALANCE, money.getAmountMinorLong());
+    if (account.createdAt() == null) {
+      record.putLong(offset + CREATED_AT_SECOND, NO_DATE);
+      record.putInt(offset + CREATED_AT_NANO, 0);
+    } else {
+      record.putLong(offset + CREATED_AT_SECOND,
+          account.createdAt().toEpochSecond(ZoneOffset.UTC));
+      record.putInt(offset + CREATED_AT_NANO, account.createdAt().getNano());
+    }
+    for (int i = 0; i < 3; i++) {
+      record.put(offset + CURRENCY + i, (byte) currency.charAt(i));
+    }
+    record.putLong(offset + STRING_OFFSET, append(number, owner));
+    record.putInt(offset + NUMBER_LENGTH, number.length);
+    record.putInt(offset + OWNER_LENGTH, owner == null ? -1 : owner.length);
+  }
+
+  private long append(final byte[] number, final byte[] owner) {
+    final int length = number.length + (owner == null ? 0 : owner.length);
+    ByteBuffer chunk = strings.isEmpty() ? null : strings.get(strings.size() - 1);
+    if (chunk == null || chunk.remaining() < length) {
+      chunk = ByteBuffer.allocateDirect(Math.max(STRING_CHUNK_SIZE, length));
+      strings.add(chunk);
+    }
+    final long offset = ((long) (strings.size() - 1) << 32) | chunk.position();
+    chunk.put(number);
+    if (owner != null) {
+      chunk.put(owner);
+    }
+    return offset;
+  }
+
+  private Account materialize(final int slot) {
+    final ByteBuffer record = record(slot);
+    final int offset = offset(slot);
+    final long balance;
+
+    final Lock stripe = stripes[slot % NUMBER_OF_STRIPES];
+    stripe.lock();
+    try {
+      balance = record.getLong(offset + BALANCE);
+    } finally {
+      stripe.unlock();
+    }
+
+    final long second = record.getLong(offset + CREATED_AT_SECOND);
+    final LocalDateTime createdAt = second == NO_DATE
+        ? null
+        : LocalDateTime.ofEpochSecond(second, record.getInt(offset + CREATED_AT_NANO),
+            ZoneOffset.UTC);
+
+    return Account
+        .builder()
+        .number(number(slot))
+        .owner(owner(slot))
+        .money(Money.ofMinor(currency(slot), balance))
+        .createdAt(createdAt)
+        .build();
+  }
+
+  private CurrencyUnit currency(final int slot) {
+    final ByteBuffer record = record(slot);
+    final int offset = offset(slot) + CURRENCY;
+    final char[] code = {
+        (char) record.get(offset), (char) record.get(offset + 1), (char) record.get(offset + 2)
+    };
+    return CurrencyUnit.of(new String(code));
+  }
+
+  private String number(final int slot) {
+    final int length = record(slot).getInt(offset(slot) + NUMBER_LENGTH);
+    return string(record(slot).getLong(offset(slot) + STRING_OFFSET), length);
+  }
+
+  private String owner(final int slot) {
+    final ByteBuffer record = record(slot);
+    final int offset = offset(slot);
+    final int length = record.getInt(offset + OWNER_LENGTH);
+    if (length < 0) {
+      return null;
+    }
+    return string(record.getLong(offset + STRING_OFFSET)
+        + record.getInt(offset + NUMBER_LENGTH), length);
+  }
+
+  private boolean hasNumber(final int slot, final byte[] number) {
+    final ByteBuffer record = record(slot);
+    final int offset = offset(slot);
+    if (record.getInt(offset + NUMBER_LENGTH) != number.length) {
+      return false;
+    }
+    final long stringOffset = record.getLong(offset + STRING_OFFSET);
+    final ByteBuffer chunk = strings.get((int) (stringOffset >>> 32));
+    final int position = (int) stringOffset;
+    for (int i = 0; i < number.length; i++) {
+      if (chunk.get(position + i) != number[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String string(final long stringOffset, final int length) {
+    final ByteBuffer chunk = strings.get((int) (stringOffset >>> 32));
+    final byte[] bytes = new byte[length];
+    final int position = (int) stringOffset;
+    for (int i = 0; i < length; i++) {
+      bytes[i] = chunk.get(position + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private ByteBuffer record(final int slot) {
+    return records.get(slot / RECORDS_PER_CHUNK);
+  }
+
+  private int offset(final int slot) {
+    return (slot % RECORDS_PER_CHUNK) * RECORD_SIZE;
+  }
+
+  private static int mix(final int hash) {
+    final int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
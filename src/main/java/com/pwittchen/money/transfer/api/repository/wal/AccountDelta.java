@@ -0,0 +1,141 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Changes of a single account made by a part of the log: the account itself, when it was
+ * created there, and the money it received (or sent, when negative) in minor units together
+ * with the number of transfers. Balances are sums of transfers, so deltas of an account can
+ * be computed and applied independently of deltas of other accounts.
+ */
+final class AccountDelta {
+
+  private Account created;
+  private long minorUnits;
+  private long transfers;
+
+  /**
+   * Reads records after {@code afterLsn} and groups their changes by snapshot partitions.
+   */
+  static List<NavigableMap<String, AccountDelta>> read(final WriteAheadLog writeAheadLog,
+      final long afterLsn, final long upToLsn) {
+    final List<NavigableMap<String, AccountDelta>> partitions =
+        new ArrayList<>(LedgerSnapshot.PARTITIONS);
+    for (int i = 0; i < LedgerSnapshot.PARTITIONS; i++) {
+      partitions.add(new TreeMap<>());
+    }
+
+    writeAheadLog.forEach(afterLsn, record -> {
+      if (record.lsn() > upToLsn) {
+        return;
+      }
+      if (record.type() == WalRecord.Type.ACCOUNT) {
+        final Account account = record.account();
+        final AccountDelta delta = delta(partitions, account.number());
+        // creating an account again replaces it, together with transfers made before
+        delta.created = account;
+        delta.minorUnits = 0;
+        delta.transfers = 0;
+        return;
+      }
+      for (TransactionLeg leg : legs(record.transaction())) {
+        final long minorUnits = leg.money().getAmountMinorLong();
+        delta(partitions, leg.from()).add(-minorUnits);
+        delta(partitions, leg.to()).add(minorUnits);
+      }
+    });
+    return partitions;
+  }
+
+  /**
+   * Merges accounts of a snapshot partition, sorted by number, with their deltas. Accounts
+   * come out sorted by number, too. Deltas of accounts, which don't exist, are dropped.
+   */
+  static void merge(final LedgerSnapshot snapshot, final int partition,
+      final NavigableMap<String, AccountDelta> deltas, final Consumer<Account> consumer) {
+    final Iterator<Map.Entry<String, AccountDelta>> pending = deltas.entrySet().iterator();
+    final Cursor cursor = new Cursor(pending);
+
+    if (snapshot != null) {
+      snapshot.read(partition, account -> {
+        // accounts created after the snapshot, which come before this one
+        while (cursor.current != null && cursor.current.getKey().compareTo(account.number()) < 0) {
+          cursor.current.getValue().emit(null, consumer);
+          cursor.advance();
+        }
+        if (cursor.current != null && cursor.current.getKey().equals(account.number())) {
+          cursor.current.getValue().emit(account, consumer);
+          cursor.advance();
+        } else {
+          consumer.accept(account);
+        }
+      });
+    }
+
+    while (cursor.current != null) {
+      cursor.current.getValue().emit(null, consumer);
+      cursor.advance();
+    }
+  }
+
+  static List<TransactionLeg> legs(final Transaction transaction) {
+    if (!transaction.legs().isEmpty()) {
+      return transaction.legs();
+    }
+    return List.of(new TransactionLeg(transaction.from(), transaction.to(), transaction.money()));
+  }
+
+  private static AccountDelta delta(final List<NavigableMap<String, AccountDelta>> partitions,
+      final String number) {
+    return partitions
+        .get(LedgerSnapshot.partition(number))
+        .computeIfAbsent(number, key -> new AccountDelta());
+  }
+
+  private void add(final long minorUnits) {
+    this.minorUnits += minorUnits;
+    this.transfers++;
+  }
+
+  private void emit(final Account snapshotted, final Consumer<Account> consumer) {
+    final Account base = created != null ? created : snapshotted;
+    if (base == null) {
+      return;
+    }
+    if (transfers == 0) {
+      consumer.accept(base);
+      return;
+    }
+    consumer.accept(Account
+        .builder()
+        .number(base.number())
+        .owner(base.owner())
+        .money(base.money().plusMinor(minorUnits))
+        .createdAt(base.createdAt())
+        .version(base.version() + transfers)
+        .build());
+  }
+
+  private static final class Cursor {
+    private final Iterator<Map.Entry<String, AccountDelta>> iterator;
+    private Map.Entry<String, AccountDelta> current;
+
+    private Cursor(final Iterator<Map.Entry<String, AccountDelta>> iterator) {
+      this.iterator = iterator;
+      advance();
+    }
+
+    private void advance() {
+      current = iterator.hasNext() ? iterator.next() : null;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import org.joda.money.Money;
+
+/**
+ * Account repository, which appends every created account to the write-ahead log and returns
+ * only after it's durable. Transfers are not logged here, they're made durable together with
+ * their transactions by {@link DurableTransactionRepository}.
+ */
+public class DurableAccountRepository implements AccountRepository {
+
+  private final AccountRepository accountRepository;
+  private final WriteAheadLog writeAheadLog;
+
+  public DurableAccountRepository(final AccountRepository accountRepository,
+      final WriteAheadLog writeAheadLog) {
+    this.accountRepository = accountRepository;
+    this.writeAheadLog = writeAheadLog;
+  }
+
+  @Override public Optional<Account> get(String number) {
+    return accountRepository.get(number);
+  }
+
+  @Override public List<Account> getAll() {
+    return accountRepository.getAll();
+  }
+
+  @Override public Iterator<Account> iterator() {
+    return accountRepository.iterator();
+  }
+
+  @Override public Account create(Account account) {
+    accountRepository.create(account);
+    writeAheadLog.append(WalRecord.of(account));
+    return account;
+  }
+
+  @Override public boolean createIfAbsent(Account account) {
+    if (!accountRepository.createIfAbsent(account)) {
+      return false;
+    }
+    writeAheadLog.append(WalRecord.of(account));
+    return true;
+  }
+
+  @Override public void transfer(Account from, Account to, Money money) {
+    accountRepository.transfer(from, to, money);
+  }
+
+  @Override public void split(String number, int shards) {
+    accountRepository.split(number, shards);
+  }
+}
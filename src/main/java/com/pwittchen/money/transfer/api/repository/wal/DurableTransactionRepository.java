@@ -0,0 +1,66 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Transaction repository, which appends every committed transaction to the write-ahead log
+ * and returns only after it's durable, so a commit is acknowledged only once it survives
+ * a restart. Transactions of a batch are appended together and share a single sync.
+ */
+public class DurableTransactionRepository implements TransactionRepository {
+
+  private final TransactionRepository transactionRepository;
+  private final WriteAheadLog writeAheadLog;
+
+  public DurableTransactionRepository(final TransactionRepository transactionRepository,
+      final WriteAheadLog writeAheadLog) {
+    this.transactionRepository = transactionRepository;
+    this.writeAheadLog = writeAheadLog;
+  }
+
+  @Override public BlockingQueue<Transaction> getAll() {
+    return transactionRepository.getAll();
+  }
+
+  @Override public Transaction create(Transaction transaction) {
+    writeAheadLog.append(WalRecord.of(transaction));
+    return transactionRepository.create(transaction);
+  }
+
+  @Override public List<Transaction> createAll(List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return transactions;
+    }
+    final List<WalRecord> records = new ArrayList<>(transactions.size());
+    for (Transaction transaction : transactions) {
+      records.add(WalRecord.of(transaction));
+    }
+    writeAheadLog.appendAll(records);
+    return transactionRepository.createAll(transactions);
+  }
+
+  @Override public void clear() {
+    transactionRepository.clear();
+  }
+
+  @Override public Optional<Transaction> last() {
+    return transactionRepository.last();
+  }
+
+  @Override public Optional<Transaction> lastPersisted() {
+    return transactionRepository.lastPersisted();
+  }
+
+  @Override public List<Transaction> get(final long position, final int limit) {
+    return transactionRepository.get(position, limit);
+  }
+
+  @Override public List<Transaction> get(final List<Long> positions) {
+    return transactionRepository.get(positions);
+  }
+}
@@ -0,0 +1,253 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Point-in-time snapshot of all accounts, as they were after the record with the given log
+ * sequence number. It's a directory next to the log segments with one binary file per
+ * partition of accounts (by hash of the number), so partitions can be written and read
+ * independently. Accounts in a file are sorted by number and every file ends with a checksum.
+ * Every account is {@code [number][owner][currency][minor units][created at][version]}, where
+ * texts are UTF-8 bytes preceded by their length.
+ *
+ * A snapshot is written to a temporary directory, synced and renamed, so a directory with
+ * the snapshot name is always complete.
+ */
+public final class LedgerSnapshot {
+
+  static final int PARTITIONS = 16;
+
+  private static final String PREFIX = "snapshot-";
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final int MAGIC = 0x4c534e50;
+  private static final int BUFFER_SIZE = 256 * 1024;
+  private static final short END_OF_PARTITION = -1;
+  private static final long NO_DATE = Long.MIN_VALUE;
+
+  private final Path path;
+  private final long lsn;
+
+  private LedgerSnapshot(final Path path, final long lsn) {
+    this.path = path;
+    this.lsn = lsn;
+  }
+
+  /**
+   * Returns the newest complete snapshot in the given directory.
+   */
+  public static Optional<LedgerSnapshot> latest(final Path directory) {
+    final List<LedgerSnapshot> snapshots = all(directory);
+    return snapshots.isEmpty()
+        ? Optional.empty()
+        : Optional.of(snapshots.get(snapshots.size() - 1));
+  }
+
+  /**
+   * Writes snapshot of accounts after the given log sequence number. The writer is called
+   * for every partition and has to pass its accounts sorted by number.
+   */
+  static LedgerSnapshot write(final Path directory, final long lsn,
+      final PartitionWriter writer) throws IOException {
+    final String name = String.format("%s%020d", PREFIX, lsn);
+    final Path temporary = directory.resolve(name + TEMPORARY_SUFFIX);
+    delete(temporary);
+    Files.createDirectories(temporary);
+
+    for (int partition = 0; partition < PARTITIONS; partition++) {
+      final Path file = temporary.resolve(partitionFile(partition));
+      final CheckedOutputStream checked = new CheckedOutputStream(
+          Files.newOutputStream(file), new CRC32C()
+      );
+      try (DataOutputStream output = new DataOutputStream(
+          new BufferedOutputStream(checked, BUFFER_SIZE))) {
+        output.writeInt(MAGIC);
+        output.writeLong(lsn);
+        final int current = partition;
+        writer.write(partition, account -> writeAccount(output, current, account));
+        output.writeShort(END_OF_PARTITION);
+        output.flush();
+        output.writeLong(checked.getChecksum().getValue());
+      }
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+    }
+    syncDirectory(temporary);
+
+    final Path target = directory.resolve(name);
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory(directory);
+    return new LedgerSnapshot(target, lsn);
+  }
+
+  /**
+   * Deletes snapshots older than this one.
+   */
+  void deleteOlder() throws IOException {
+    for (LedgerSnapshot snapshot : all(path.getParent())) {
+      if (snapshot.lsn < lsn) {
+        delete(snapshot.path);
+      }
+    }
+  }
+
+  static int partition(final String number) {
+    return Math.floorMod(number.hashCode(), PARTITIONS);
+  }
+
+  public long lsn() {
+    return lsn;
+  }
+
+  /**
+   * Reads accounts of the given partition sorted by number. The file is read and verified
+   * as a whole, which is much faster than decoding it from a stream byte by byte.
+   */
+  public void read(final int partition, final Consumer<Account> consumer) {
+    final Path file = path.resolve(partitionFile(partition));
+    final ByteBuffer buffer;
+    try {
+      buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+      final CRC32C checksum = new CRC32C();
+      checksum.update(buffer.array(), 0, buffer.limit() - Long.BYTES);
+      if (buffer.getLong(buffer.limit() - Long.BYTES) != checksum.getValue()) {
+        throw new IOException(String.format("Snapshot file %s is corrupted", file));
+      }
+      if (buffer.getInt() != MAGIC || buffer.getLong() != lsn) {
+        throw new IOException(String.format("Snapshot file %s has invalid header", file));
+      }
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+
+    final Map<String, CurrencyUnit> currencies = new HashMap<>();
+    int length;
+    while ((length = buffer.getShort()) != END_OF_PARTITION) {
+      final String number = readString(buffer, length);
+      final String owner = readString(buffer, buffer.getShort());
+      final CurrencyUnit currency = currencies.computeIfAbsent(
+          readString(buffer, buffer.getShort()), CurrencyUnit::of
+      );
+      final Money money = Money.ofMinor(currency, buffer.getLong());
+      final long seconds = buffer.getLong();
+      final LocalDateTime createdAt = seconds == NO_DATE
+          ? null
+          : LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC);
+      consumer.accept(new Account(number, owner, money, createdAt, buffer.getLong()));
+    }
+  }
+
+  private static void writeAccount(final DataOutputStream output, final int partition,
+      final Account account) {
+    if (partition(account.number()) != partition) {
+      throw new IllegalArgumentException(String.format(
+          "Account %s does not belong to partition %d", account.number(), partition
+      ));
+    }
+    try {
+      writeString(output, account.number());
+      writeString(output, account.owner());
+      writeString(output, account.money().getCurrencyUnit().getCode());
+      output.writeLong(account.money().getAmountMinorLong());
+      if (account.createdAt() == null) {
+        output.writeLong(NO_DATE);
+      } else {
+        output.writeLong(account.createdAt().toEpochSecond(ZoneOffset.UTC));
+        output.writeInt(account.createdAt().getNano());
+      }
+      output.writeLong(account.version());
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private static void writeString(final DataOutputStream output, final String value)
+      throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Text is too long to be stored in a snapshot");
+    }
+    output.writeShort(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(final ByteBuffer buffer, final int length) {
+    final String value = new String(
+        buffer.array(), buffer.position(), length, StandardCharsets.UTF_8
+    );
+    buffer.position(buffer.position() + length);
+    return value;
+  }
+
+  private static List<LedgerSnapshot> all(final Path directory) {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> {
+            final String name = path.getFileName().toString();
+            return name.startsWith(PREFIX) && !name.endsWith(TEMPORARY_SUFFIX);
+          })
+          .sorted()
+          .map(path -> new LedgerSnapshot(
+              path, Long.parseLong(path.getFileName().toString().substring(PREFIX.length()))
+          ))
+          .collect(Collectors.toList());
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private static String partitionFile(final int partition) {
+    return String.format("part-%02d.bin", partition);
+  }
+
+  private static void syncDirectory(final Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException exception) {
+      // some platforms can't open a directory, there's nothing more to do there
+    }
+  }
+
+  private static void delete(final Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(path)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  interface PartitionWriter {
+    void write(int partition, Consumer<Account> consumer);
+  }
+}
@@ -0,0 +1,104 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Takes snapshots of accounts in the background. A new snapshot is the previous one with
+ * records appended to the log since then applied to it, so it's computed from the log alone:
+ * it doesn't read the account repository and doesn't pause commits, and it's consistent,
+ * because it's exactly the state after a single log record. Only accounts changed since the
+ * previous snapshot are held in memory, the rest is streamed from the previous snapshot.
+ *
+ * Once a snapshot is written, older snapshots are deleted, so a restart restores accounts from
+ * the snapshot and replays only the tail of the log. Log segments it covers are deleted only up
+ * to the last transaction the transaction repository has persisted, because transactions are
+ * restored from the log. When the history is kept in memory only, no segment is deleted.
+ */
+public class Snapshotter implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(Snapshotter.class);
+
+  private final WriteAheadLog writeAheadLog;
+  private final TransactionRepository transactionRepository;
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "wal-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  public Snapshotter(final WriteAheadLog writeAheadLog,
+      final TransactionRepository transactionRepository) {
+    this.writeAheadLog = writeAheadLog;
+    this.transactionRepository = transactionRepository;
+  }
+
+  /**
+   * Takes a snapshot every given period, unless nothing was logged since the previous one.
+   */
+  public void start(final long period, final TimeUnit unit) {
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        snapshot();
+      } catch (Exception exception) {
+        LOG.error("snapshot has failed", exception);
+      }
+    }, period, period, unit);
+  }
+
+  /**
+   * Takes a snapshot of all records synced so far and returns it, or returns the previous
+   * snapshot, when there are no new records.
+   */
+  public synchronized Optional<LedgerSnapshot> snapshot() throws IOException {
+    final Optional<LedgerSnapshot> previous = LedgerSnapshot.latest(writeAheadLog.directory());
+    final long previousLsn = previous.map(LedgerSnapshot::lsn).orElse(0L);
+    final long lsn = writeAheadLog.lastSyncedLsn();
+    if (lsn <= previousLsn) {
+      return previous;
+    }
+
+    final long startTime = System.nanoTime();
+    final List<NavigableMap<String, AccountDelta>> deltas =
+        AccountDelta.read(writeAheadLog, previousLsn, lsn);
+    final LedgerSnapshot snapshot = LedgerSnapshot.write(
+        writeAheadLog.directory(), lsn, (partition, consumer) -> AccountDelta.merge(
+            previous.orElse(null), partition, deltas.get(partition), consumer
+        )
+    );
+    snapshot.deleteOlder();
+    final int segments = writeAheadLog.deleteSegmentsUpTo(Math.min(lsn, persistedLsn()));
+    LOG.info("snapshot at lsn {} taken in {} ms, {} log segments deleted",
+        lsn, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), segments);
+    return Optional.of(snapshot);
+  }
+
+  private long persistedLsn() {
+    return transactionRepository
+        .lastPersisted()
+        .map(transaction -> WalRecovery.lsnOf(writeAheadLog, 0, transaction.id()))
+        .orElse(0L);
+  }
+
+  /**
+   * Stops taking snapshots. A snapshot in progress is finished first.
+   */
+  @Override public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * Single entry of the write-ahead log: a created account or a committed transaction, encoded
+ * in a compact binary form. Money is kept as an amount of minor units of its currency.
+ * Records read from the log carry their log sequence number, new ones get it on append.
+ */
+public final class WalRecord {
+
+  public enum Type {
+    ACCOUNT,
+    TRANSACTION
+  }
+
+  private static final long NO_DATE = Long.MIN_VALUE;
+
+  private final long lsn;
+  private final Type type;
+  private final byte[] payload;
+
+  WalRecord(final long lsn, final Type type, final byte[] payload) {
+    this.lsn = lsn;
+    this.type = type;
+    this.payload = payload;
+  }
+
+  public static WalRecord of(final Account account) {
+    return new WalRecord(0, Type.ACCOUNT, encode(output -> {
+      output.writeUTF(account.number());
+      output.writeUTF(account.owner());
+      writeMoney(output, account.money());
+      writeDate(output, account.createdAt());
+    }));
+  }
+
+  public static WalRecord of(final Transaction transaction) {
+    return new WalRecord(0, Type.TRANSACTION, encode(output -> {
+      output.writeUTF(transaction.id());
+      writeDate(output, transaction.createdAt());
+      final List<TransactionLeg> legs = transaction.legs();
+      if (legs.isEmpty()) {
+        output.writeInt(0);
+        output.writeUTF(transaction.from());
+        output.writeUTF(transaction.to());
+        writeMoney(output, transaction.money());
+        return;
+      }
+      output.writeInt(legs.size());
+      for (TransactionLeg leg : legs) {
+        output.writeUTF(leg.from());
+        output.writeUTF(leg.to());
+        writeMoney(output, leg.money());
+      }
+    }));
+  }
+
+  /**
+   * Returns log sequence number of the record or zero, when it's not appended yet.
+   */
+  public long lsn() {
+    return lsn;
+  }
+
+  public Type type() {
+    return type;
+  }
+
+  byte[] payload() {
+    return payload;
+  }
+
+  public Account account() {
+    if (type != Type.ACCOUNT) {
+      throw new IllegalStateException(String.format("Record %d is not an account", lsn));
+    }
+    try (DataInputStream input = input()) {
+      return Account
+          .builder()
+          .number(input.readUTF())
+          .owner(input.readUTF())
+          .money(readMoney(input))
+          .createdAt(readDate(input))
+          .build();
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  public Transaction transaction() {
+    if (type != Type.TRANSACTION) {
+      throw new IllegalStateException(String.format("Record %d is not a transaction", lsn));
+    }
+    try (DataInputStream input = input()) {
+      final Transaction.Builder builder = Transaction
+          .builder()
+          .id(input.readUTF())
+          .createdAt(readDate(input));
+      final int numberOfLegs = input.readInt();
+      if (numberOfLegs == 0) {
+        return builder
+            .from(input.readUTF())
+            .to(input.readUTF())
+            .money(readMoney(input))
+            .build();
+      }
+      final List<TransactionLeg> legs = new ArrayList<>(numberOfLegs);
+      for (int i = 0; i < numberOfLegs; i++) {
+        legs.add(new TransactionLeg(input.readUTF(), input.readUTF(), readMoney(input)));
+      }
+      return builder.legs(legs).build();
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  private DataInputStream input() {
+    return new DataInputStream(new ByteArrayInputStream(payload));
+  }
+
+  private static byte[] encode(final Encoder encoder) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      encoder.write(output);
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeMoney(final DataOutputStream output, final Money money)
+      throws IOException {
+    output.writeUTF(money.getCurrencyUnit().getCode());
+    output.writeLong(money.getAmountMinorLong());
+  }
+
+  private static Money readMoney(final DataInputStream input) throws IOException {
+    return Money.ofMinor(CurrencyUnit.of(input.readUTF()), input.readLong());
+  }
+
+  private static void writeDate(final DataOutputStream output, final LocalDateTime date)
+      throws IOException {
+    if (date == null) {
+      output.writeLong(NO_DATE);
+      return;
+    }
+    output.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+    output.writeInt(date.getNano());
+  }
+
+  private static LocalDateTime readDate(final DataInputStream input) throws IOException {
+    final long seconds = input.readLong();
+    if (seconds == NO_DATE) {
+      return null;
+    }
+    return LocalDateTime.ofEpochSecond(seconds, input.readInt(), ZoneOffset.UTC);
+  }
+
+  private interface Encoder {
+    void write(DataOutputStream output) throws IOException;
+  }
+}
@@ -0,0 +1,138 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rebuilds repositories after a restart from the latest snapshot and the tail of the
+ * write-ahead log after it. The tail is read once and its changes are grouped by snapshot
+ * partitions; then every partition of the snapshot is streamed, merged with its changes and
+ * written to the account repository on its own thread. Transactions are restored from
+ * the whole log, in the order they were committed, skipping those a persistent repository
+ * already holds. The snapshotter keeps every log segment with a transaction, which isn't
+ * persisted, so nothing is lost by a snapshot.
+ */
+public final class WalRecovery {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WalRecovery.class);
+  private static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+  private static final int BATCH_SIZE = 10_000;
+
+  private WalRecovery() {
+  }
+
+  /**
+   * Creates accounts in the given (empty) repository and returns their number.
+   */
+  public static long recoverAccounts(final WriteAheadLog writeAheadLog,
+      final AccountRepository accountRepository) {
+    return recoverAccounts(writeAheadLog, accountRepository, DEFAULT_THREADS);
+  }
+
+  public static long recoverAccounts(final WriteAheadLog writeAheadLog,
+      final AccountRepository accountRepository, final int threads) {
+    final long startTime = System.nanoTime();
+    final Optional<LedgerSnapshot> snapshot = LedgerSnapshot.latest(writeAheadLog.directory());
+    final List<NavigableMap<String, AccountDelta>> deltas = AccountDelta.read(
+        writeAheadLog, snapshot.map(LedgerSnapshot::lsn).orElse(0L), Long.MAX_VALUE
+    );
+
+    final LongAdder recovered = new LongAdder();
+    final ExecutorService executorService = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(threads, LedgerSnapshot.PARTITIONS))
+    );
+    try {
+      final List<Future<?>> partitions = new ArrayList<>(LedgerSnapshot.PARTITIONS);
+      for (int i = 0; i < LedgerSnapshot.PARTITIONS; i++) {
+        final int partition = i;
+        partitions.add(executorService.submit(() -> AccountDelta.merge(
+            snapshot.orElse(null), partition, deltas.get(partition), account -> {
+              accountRepository.create(account);
+              recovered.increment();
+            }
+        )));
+      }
+      for (Future<?> partition : partitions) {
+        partition.get();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    } catch (ExecutionException exception) {
+      throw new RuntimeException(exception.getCause());
+    } finally {
+      executorService.shutdownNow();
+    }
+    LOG.info("{} accounts recovered from snapshot at lsn {} and log tail in {} ms",
+        recovered.sum(), snapshot.map(LedgerSnapshot::lsn).orElse(0L),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    return recovered.sum();
+  }
+
+  /**
+   * Creates transactions kept in the log in the given (empty) repository and returns their
+   * number.
+   */
+  public static long recoverTransactions(final WriteAheadLog writeAheadLog,
+      final TransactionRepository transactionRepository) {
+    return recoverTransactions(writeAheadLog, transactionRepository, null);
+  }
+
+  /**
+   * Creates transactions logged after the transaction with the given id, which a persistent
+   * repository already holds, and returns their number. When the transaction is not in the
+   * log, segments up to it were deleted, so all transactions kept in the log are created.
+   */
+  public static long recoverTransactions(final WriteAheadLog writeAheadLog,
+      final TransactionRepository transactionRepository, final String lastTransactionId) {
+    final long afterLsn = lastTransactionId == null
+        ? 0
+        : lsnOf(writeAheadLog, 0, lastTransactionId);
+    final List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+    final LongAdder recovered = new LongAdder();
+    writeAheadLog.forEach(afterLsn, record -> {
+      if (record.type() != WalRecord.Type.TRANSACTION) {
+        return;
+      }
+      batch.add(record.transaction());
+      recovered.increment();
+      if (batch.size() == BATCH_SIZE) {
+        transactionRepository.createAll(new ArrayList<>(batch));
+        batch.clear();
+      }
+    });
+    if (!batch.isEmpty()) {
+      transactionRepository.createAll(batch);
+    }
+    return recovered.sum();
+  }
+
+  /**
+   * Returns the sequence number of the record of the transaction with the given id, or the
+   * given one, when the transaction is not logged after it.
+   */
+  static long lsnOf(final WriteAheadLog writeAheadLog, final long afterLsn,
+      final String transactionId) {
+    final long[] lsn = {afterLsn};
+    writeAheadLog.forEach(afterLsn, record -> {
+      if (record.type() == WalRecord.Type.TRANSACTION
+          && transactionId.equals(record.transaction().id())) {
+        lsn[0] = record.lsn();
+      }
+    });
+    return lsn[0];
+  }
+}
@@ -0,0 +1,472 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of records, which are durable once {@link #append(WalRecord)} returns.
+ *
+ * Appending threads only encode their records and queue them. A single writer thread takes
+ * all queued records (up to the group size, but never a part of records appended together),
+ * writes them with one gathering write and makes them durable with one {@code fsync},
+ * so concurrent commits share the cost of a sync. When
+ * the group is not full, the writer can wait up to the given delay for more records, which
+ * trades latency of a single commit for fewer syncs. Without the delay, records still group
+ * up while the previous sync is in progress.
+ *
+ * The log is a sequence of segment files named after the sequence number of their first
+ * record. Every record is {@code [length][crc32c][lsn][type][payload]}. A record torn
+ * by a crash fails the checksum and is cut off, together with everything after it, when
+ * the log is opened again. Once a write or a sync fails, the log rejects all further appends,
+ * because it can't tell what reached the disk.
+ */
+public class WriteAheadLog implements Closeable {
+
+  public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+  private static final String SEGMENT_PREFIX = "wal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final int HEADER_SIZE = 4 + 4;
+  private static final int BODY_HEADER_SIZE = 8 + 1;
+
+  private final Path directory;
+  private final long segmentSize;
+  private final int groupSize;
+  private final long maxDelayNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition recordsQueued = lock.newCondition();
+  private final Condition recordsSynced = lock.newCondition();
+  // records of every append are queued together, so they're never split between two syncs
+  private final Deque<List<ByteBuffer>> queue = new ArrayDeque<>();
+  private int queuedRecords;
+  private long lastQueuedLsn;
+  private long lastSyncedLsn;
+  private IOException failure;
+  private boolean closed;
+
+  // touched only by the writer thread after opening
+  private final CRC32C checksum = new CRC32C();
+  private FileChannel segment;
+  private volatile long records;
+  private volatile long syncs;
+
+  private final Thread writer;
+
+  private WriteAheadLog(final Path directory, final long segmentSize, final int groupSize,
+      final long maxDelayNanos) throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.groupSize = groupSize;
+    this.maxDelayNanos = maxDelayNanos;
+
+    Files.createDirectories(directory);
+    final List<Path> segments = segments();
+    if (segments.isEmpty()) {
+      segment = openSegment(1);
+    } else {
+      // only the last segment can end with a torn record, older ones were synced as a whole
+      final Path last = segments.get(segments.size() - 1);
+      lastQueuedLsn = firstLsn(last) - 1;
+      final Scan scan = scan(last, record -> lastQueuedLsn = record.lsn());
+      segment = FileChannel.open(last, StandardOpenOption.WRITE);
+      segment.truncate(scan.validBytes);
+      segment.position(scan.validBytes);
+    }
+    lastSyncedLsn = lastQueuedLsn;
+
+    writer = new Thread(this::write, "wal-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Opens log in the given directory, creating it when needed. Every sync covers at most
+   * {@code groupSize} records and the writer waits at most {@code maxDelay} for a group
+   * to fill up; group size of one and no delay means a sync per record.
+   */
+  public static WriteAheadLog open(final Path directory, final int groupSize,
+      final long maxDelay, final TimeUnit unit) throws IOException {
+    return open(directory, DEFAULT_SEGMENT_SIZE, groupSize, maxDelay, unit);
+  }
+
+  public static WriteAheadLog open(final Path directory, final long segmentSize,
+      final int groupSize, final long maxDelay, final TimeUnit unit) throws IOException {
+    return new WriteAheadLog(
+        directory, segmentSize, Math.max(1, groupSize), unit.toNanos(Math.max(0, maxDelay))
+    );
+  }
+
+  /**
+   * Appends record and waits until it's durable. Returns its log sequence number.
+   */
+  public long append(final WalRecord record) {
+    return appendAll(Collections.singletonList(record));
+  }
+
+  /**
+   * Appends records in the given order and waits until all of them are durable.
+   * Returns log sequence number of the last one.
+   */
+  public long appendAll(final List<WalRecord> records) {
+    final List<ByteBuffer> buffers = new ArrayList<>(records.size());
+    for (WalRecord record : records) {
+      buffers.add(frame(record));
+    }
+
+    lock.lock();
+    try {
+      ensureWritable();
+      for (ByteBuffer buffer : buffers) {
+        buffer.putLong(HEADER_SIZE, ++lastQueuedLsn);
+      }
+      if (!buffers.isEmpty()) {
+        queue.add(buffers);
+        queuedRecords += buffers.size();
+      }
+      final long lsn = lastQueuedLsn;
+      recordsQueued.signal();
+
+      while (lastSyncedLsn < lsn) {
+        if (failure != null) {
+          throw new UncheckedIOException(failure);
+        }
+        recordsSynced.await();
+      }
+      return lsn;
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(exception);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Reads all durable records in the order of their sequence numbers.
+   */
+  public void forEach(final Consumer<WalRecord> consumer) {
+    forEach(0, consumer);
+  }
+
+  /**
+   * Reads durable records with sequence numbers greater than the given one, in their order.
+   * Segments, which hold only older records, are not read at all.
+   */
+  public void forEach(final long afterLsn, final Consumer<WalRecord> consumer) {
+    final long last = lastSyncedLsn();
+    try {
+      final List<Path> segments = segments();
+      for (int i = 0; i < segments.size(); i++) {
+        if (i + 1 < segments.size() && firstLsn(segments.get(i + 1)) <= afterLsn + 1) {
+          continue;
+        }
+        scan(segments.get(i), record -> {
+          if (record.lsn() > afterLsn && record.lsn() <= last) {
+            consumer.accept(record);
+          }
+        });
+      }
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  /**
+   * Deletes segments, which hold only records with sequence numbers up to the given one,
+   * e.g. because they're covered by a snapshot. The segment being written is never deleted.
+   * Returns the number of deleted segments.
+   */
+  public int deleteSegmentsUpTo(final long lsn) throws IOException {
+    final List<Path> segments = segments();
+    int deleted = 0;
+    for (int i = 0; i + 1 < segments.size(); i++) {
+      if (firstLsn(segments.get(i + 1)) > lsn + 1) {
+        break;
+      }
+      Files.delete(segments.get(i));
+      deleted++;
+    }
+    if (deleted > 0) {
+      syncDirectory();
+    }
+    return deleted;
+  }
+
+  public Path directory() {
+    return directory;
+  }
+
+  /**
+   * Returns the sequence number of the oldest record kept in the log. Records before it were
+   * deleted together with segments covered by a snapshot.
+   */
+  public long firstLsn() {
+    try {
+      final List<Path> segments = segments();
+      return segments.isEmpty() ? lastSyncedLsn() + 1 : firstLsn(segments.get(0));
+    } catch (IOException exception) {
+      throw new UncheckedIOException(exception);
+    }
+  }
+
+  public long lastSyncedLsn() {
+    lock.lock();
+    try {
+      return lastSyncedLsn;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the number of records written since the log was opened.
+   */
+  public long records() {
+    return records;
+  }
+
+  /**
+   * Returns the number of syncs since the log was opened.
+   */
+  public long syncs() {
+    return syncs;
+  }
+
+  /**
+   * Syncs records queued so far, stops the writer and closes the log.
+   */
+  @Override public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      recordsQueued.signal();
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      writer.join();
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+    segment.close();
+  }
+
+  private void ensureWritable() {
+    if (closed) {
+      throw new IllegalStateException("Write-ahead log is closed");
+    }
+    if (failure != null) {
+      throw new UncheckedIOException(failure);
+    }
+  }
+
+  private void write() {
+    while (true) {
+      final List<ByteBuffer> group;
+      lock.lock();
+      try {
+        while (queue.isEmpty() && !closed) {
+          recordsQueued.awaitUninterruptibly();
+        }
+        if (queue.isEmpty()) {
+          return;
+        }
+        long remaining = maxDelayNanos;
+        while (queuedRecords < groupSize && remaining > 0 && !closed) {
+          remaining = recordsQueued.awaitNanos(remaining);
+        }
+        group = takeGroup();
+      } catch (InterruptedException exception) {
+        return;
+      } finally {
+        lock.unlock();
+      }
+
+      IOException error = null;
+      try {
+        writeAndSync(group);
+      } catch (IOException exception) {
+        error = exception;
+      }
+
+      lock.lock();
+      try {
+        if (error != null) {
+          failure = error;
+        } else if (failure == null) {
+          lastSyncedLsn = group.get(group.size() - 1).getLong(HEADER_SIZE);
+        }
+        recordsSynced.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Takes whole appends from the head of the queue, as long as they fit in the group size.
+   * An append larger than the group size makes a group on its own.
+   */
+  private List<ByteBuffer> takeGroup() {
+    final List<ByteBuffer> group = new ArrayList<>(Math.min(queuedRecords, groupSize));
+    while (!queue.isEmpty()
+        && (group.isEmpty() || group.size() + queue.peek().size() <= groupSize)) {
+      group.addAll(queue.poll());
+    }
+    queuedRecords -= group.size();
+    return group;
+  }
+
+  private void writeAndSync(final List<ByteBuffer> group) throws IOException {
+    if (failure != null) {
+      throw failure;
+    }
+
+    long bytes = 0;
+    for (ByteBuffer buffer : group) {
+      seal(buffer);
+      bytes += buffer.remaining();
+    }
+    if (segment.position() > 0 && segment.position() + bytes > segmentSize) {
+      segment.force(false);
+      segment.close();
+      segment = openSegment(group.get(0).getLong(HEADER_SIZE));
+    }
+
+    final ByteBuffer[] buffers = group.toArray(new ByteBuffer[0]);
+    long written = 0;
+    while (written < bytes) {
+      written += segment.write(buffers);
+    }
+    segment.force(false);
+    records += group.size();
+    syncs++;
+  }
+
+  private FileChannel openSegment(final long firstLsn) throws IOException {
+    final Path path = directory.resolve(
+        String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX)
+    );
+    final FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    syncDirectory();
+    return channel;
+  }
+
+  // a new or a deleted file is durable only when its directory entry is, too
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException exception) {
+      // some platforms can't open a directory, there's nothing more to do there
+    }
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> {
+            final String name = path.getFileName().toString();
+            return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+          })
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static long firstLsn(final Path segment) {
+    final String name = segment.getFileName().toString();
+    return Long.parseLong(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())
+    );
+  }
+
+  private static ByteBuffer frame(final WalRecord record) {
+    final byte[] payload = record.payload();
+    final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + BODY_HEADER_SIZE + payload.length);
+    buffer.putInt(BODY_HEADER_SIZE + payload.length);
+    buffer.putInt(0);
+    buffer.putLong(0);
+    buffer.put((byte) record.type().ordinal());
+    buffer.put(payload);
+    buffer.flip();
+    return buffer;
+  }
+
+  // checksum covers the sequence number, which is known only after the record is queued
+  private void seal(final ByteBuffer buffer) {
+    checksum.reset();
+    checksum.update(buffer.array(), HEADER_SIZE, buffer.limit() - HEADER_SIZE);
+    buffer.putInt(4, (int) checksum.getValue());
+  }
+
+  private Scan scan(final Path path, final Consumer<WalRecord> consumer) throws IOException {
+    final Scan scan = new Scan();
+    final CRC32C crc = new CRC32C();
+    try (DataInputStream input = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+      while (true) {
+        final int length;
+        try {
+          length = input.readInt();
+        } catch (EOFException exception) {
+          return scan;
+        }
+        if (length < BODY_HEADER_SIZE || length > segmentSize) {
+          return scan;
+        }
+        final byte[] body = new byte[length];
+        final int expectedChecksum;
+        try {
+          expectedChecksum = input.readInt();
+          input.readFully(body);
+        } catch (EOFException exception) {
+          return scan;
+        }
+        crc.reset();
+        crc.update(body);
+        if ((int) crc.getValue() != expectedChecksum) {
+          return scan;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(body);
+        final long lsn = buffer.getLong();
+        final WalRecord.Type type = WalRecord.Type.values()[buffer.get()];
+        final byte[] payload = new byte[length - BODY_HEADER_SIZE];
+        buffer.get(payload);
+        consumer.accept(new WalRecord(lsn, type, payload));
+        scan.validBytes += HEADER_SIZE + length;
+      }
+    }
+  }
+
+  private static final class Scan {
+    private long validBytes;
+  }
+}
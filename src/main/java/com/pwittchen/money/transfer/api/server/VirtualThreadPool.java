@@ -0,0 +1,81 @@
+package com.pwittchen.money.transfer.api.server;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+/**
+ * Jetty thread pool, which starts a new virtual thread for every task instead of reusing
+ * a bounded set of platform threads. Request handlers, including the blocking commit path,
+ * run on these threads, so the number of requests in flight is not capped by the pool size
+ * and a request blocked on a lock or I/O costs a small heap-allocated stack instead of
+ * a parked OS thread.
+ *
+ * Virtual threads are available from Java 21 on, while the project targets Java 11, so the
+ * executor is looked up reflectively and {@link #create()} returns nothing on older JVMs.
+ */
+public final class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+  private final ExecutorService executorService;
+  private final AtomicInteger threads = new AtomicInteger();
+
+  VirtualThreadPool(final ExecutorService executorService) {
+    this.executorService = executorService;
+  }
+
+  /**
+   * Creates the pool if the JVM supports virtual threads.
+   */
+  public static Optional<VirtualThreadPool> create() {
+    try {
+      final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return Optional.of(new VirtualThreadPool((ExecutorService) factory.invoke(null)));
+    } catch (ReflectiveOperationException exception) {
+      return Optional.empty();
+    }
+  }
+
+  @Override public void execute(final Runnable task) {
+    threads.incrementAndGet();
+    try {
+      executorService.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          threads.decrementAndGet();
+        }
+      });
+    } catch (RejectedExecutionException exception) {
+      threads.decrementAndGet();
+      throw exception;
+    }
+  }
+
+  @Override public void join() throws InterruptedException {
+    executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  @Override public int getThreads() {
+    return threads.get();
+  }
+
+  @Override public int getIdleThreads() {
+    // threads are never parked waiting for tasks, so there are no idle ones
+    return 0;
+  }
+
+  @Override public boolean isLowOnThreads() {
+    return false;
+  }
+
+  @Override protected void doStop() throws Exception {
+    executorService.shutdown();
+    super.doStop();
+  }
+}
@@ -0,0 +1,240 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.EmptyTransactionException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+public class DefaultCommitMultiLegTransactionCommandTest {
+
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private AccountLocks accountLocks;
+  private CommitMultiLegTransactionCommand command;
+
+  @Before public void setUp() {
+    accountRepository = new StripedAccountRepository();
+    transactionRepository = new InMemoryTransactionRepository();
+    accountLocks = new AccountLocks();
+    command = new DefaultCommitMultiLegTransactionCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+  }
+
+  @Test public void shouldCommitAllLegsAsOneTransaction() {
+    // given
+    createAccounts(100, 0, 0, 0);
+    Transaction transaction = createTransaction(
+        leg("BUYER", "SELLER", 90),
+        leg("BUYER", "PLATFORM", 8),
+        leg("BUYER", "TAX", 2)
+    );
+
+    // when
+    command.run(transaction);
+
+    // then
+    assertThat(transactionRepository.getAll()).containsExactly(transaction);
+    assertThat(transaction.isRunning().get()).isFalse();
+    assertThat(balance("BUYER")).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(balance("SELLER")).isEqualTo(Money.of(CurrencyUnit.EUR, 90));
+    assertThat(balance("PLATFORM")).isEqualTo(Money.of(CurrencyUnit.EUR, 8));
+    assertThat(balance("TAX")).isEqualTo(Money.of(CurrencyUnit.EUR, 2));
+  }
+
+  @Test public void shouldNotApplyAnyLegWhenOneOfThemIsRejected() {
+    // given
+    createAccounts(95, 0, 0, 0);
+    Transaction transaction = createTransaction(
+        leg("BUYER", "SELLER", 90),
+        leg("BUYER", "PLATFORM", 8),
+        leg("BUYER", "TAX", 2)
+    );
+
+    // when
+    try {
+      command.run(transaction);
+    } catch (NotEnoughMoneyException exception) {
+      // then
+      assertThat(transactionRepository.getAll()).isEmpty();
+      assertThat(transaction.isRunning().get()).isFalse();
+      assertThat(balance("BUYER")).isEqualTo(Money.of(CurrencyUnit.EUR, 95));
+      assertThat(balance("SELLER")).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+      assertThat(balance("PLATFORM")).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+      return;
+    }
+    throw new AssertionError("NotEnoughMoneyException was not thrown");
+  }
+
+  @Test public void shouldFundLegWithMoneyReceivedInPreviousLeg() {
+    // given
+    createAccounts(100, 0, 0, 0);
+    Transaction transaction = createTransaction(
+        leg("BUYER", "SELLER", 100),
+        leg("SELLER", "PLATFORM", 10)
+    );
+
+    // when
+    command.run(transaction);
+
+    // then
+    assertThat(balance("BUYER")).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(balance("SELLER")).isEqualTo(Money.of(CurrencyUnit.EUR, 90));
+    assertThat(balance("PLATFORM")).isEqualTo(Money.of(CurrencyUnit.EUR, 10));
+  }
+
+  @Test(expected = EmptyTransactionException.class)
+  public void shouldNotCommitTransactionWithoutLegs() {
+    // when
+    command.run(Transaction.builder().id("TR1").legs(Collections.emptyList()).build());
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotCommitTransactionWhenAccountDoesNotExist() {
+    // given
+    createAccounts(100, 0, 0, 0);
+
+    // when
+    command.run(createTransaction(leg("BUYER", "SELLER", 90), leg("BUYER", "UNKNOWN", 1)));
+  }
+
+  @Test public void shouldNotLockAccountsBeforeCheckingTheyExist() {
+    // given
+    createAccounts(100, 0, 0, 0);
+    final AccountLocks accountLocks = spy(new AccountLocks());
+    final CommitMultiLegTransactionCommand command = new DefaultCommitMultiLegTransactionCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+
+    // when
+    try {
+      command.run(createTransaction(leg("BUYER", "SELLER", 90), leg("BUYER", "UNKNOWN", 1)));
+      throw new AssertionError("AccountNotExistsException was not thrown");
+    } catch (AccountNotExistsException exception) {
+      // then
+      verifyNoInteractions(accountLocks);
+      assertThat(transactionRepository.getAll()).isEmpty();
+    }
+  }
+
+  @Test(expected = TransactionTimeoutException.class)
+  public void shouldTimeoutWhenAccountIsLockedForTooLong() throws Exception {
+    // given
+    createAccounts(100, 0, 0, 0);
+    final CommitMultiLegTransactionCommand command = new DefaultCommitMultiLegTransactionCommand(
+        accountRepository, transactionRepository, accountLocks, 100, TimeUnit.MILLISECONDS
+    );
+    final CountDownLatch locked = new CountDownLatch(1);
+    final CountDownLatch released = new CountDownLatch(1);
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    executorService.submit(() -> {
+      accountLocks.get("TAX").lock();
+      locked.countDown();
+      released.await(5, TimeUnit.SECONDS);
+      accountLocks.get("TAX").unlock();
+      return null;
+    });
+    locked.await(5, TimeUnit.SECONDS);
+
+    // when
+    try {
+      command.run(createTransaction(leg("BUYER", "SELLER", 90), leg("BUYER", "TAX", 2)));
+    } finally {
+      released.countDown();
+      executorService.shutdown();
+    }
+  }
+
+  @Test public void shouldCommitConcurrentTransactionsWithDisjointAccounts() throws Exception {
+    // given
+    final int numberOfGroups = 4;
+    final int transactionsPerGroup = 250;
+    for (int group = 0; group < numberOfGroups; group++) {
+      accountRepository.create(createAccount("BUYER" + group, 1000));
+      accountRepository.create(createAccount("SELLER" + group, 0));
+      accountRepository.create(createAccount("FEE" + group, 0));
+    }
+    final ExecutorService executorService = Executors.newFixedThreadPool(numberOfGroups);
+
+    // when
+    for (int group = 0; group < numberOfGroups; group++) {
+      final String suffix = String.valueOf(group);
+      executorService.submit(() -> {
+        for (int i = 0; i < transactionsPerGroup; i++) {
+          command.run(createTransaction(
+              leg("BUYER" + suffix, "SELLER" + suffix, 3),
+              leg("BUYER" + suffix, "FEE" + suffix, 1)
+          ));
+        }
+      });
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(transactionRepository.getAll().size())
+        .isEqualTo(numberOfGroups * transactionsPerGroup);
+    for (int group = 0; group < numberOfGroups; group++) {
+      assertThat(balance("BUYER" + group)).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+      assertThat(balance("SELLER" + group)).isEqualTo(Money.of(CurrencyUnit.EUR, 750));
+      assertThat(balance("FEE" + group)).isEqualTo(Money.of(CurrencyUnit.EUR, 250));
+    }
+  }
+
+  private void createAccounts(final double buyer, final double seller, final double platform,
+      final double tax) {
+    accountRepository.create(createAccount("BUYER", buyer));
+    accountRepository.create(createAccount("SELLER", seller));
+    accountRepository.create(createAccount("PLATFORM", platform));
+    accountRepository.create(createAccount("TAX", tax));
+  }
+
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  private Money balance(final String number) {
+    return accountRepository.get(number).get().money();
+  }
+
+  private static TransactionLeg leg(final String from, final String to, final double money) {
+    return new TransactionLeg(from, to, Money.of(CurrencyUnit.EUR, money));
+  }
+
+  private static Transaction createTransaction(final TransactionLeg... legs) {
+    return Transaction
+        .builder()
+        .id(String.valueOf(System.nanoTime()))
+        .legs(Arrays.asList(legs))
+        .build();
+  }
+
+  private static Account createAccount(final String number, final double money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .build();
+  }
+}
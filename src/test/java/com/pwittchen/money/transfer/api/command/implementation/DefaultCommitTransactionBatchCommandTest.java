@@ -0,0 +1,331 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionResult;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DefaultCommitTransactionBatchCommandTest {
+
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private AccountLocks accountLocks;
+  private CommitTransactionBatchCommand commitTransactionBatchCommand;
+
+  @Before public void setUp() {
+    accountRepository = new StripedAccountRepository();
+    transactionRepository = new InMemoryTransactionRepository();
+    accountLocks = new AccountLocks();
+    commitTransactionBatchCommand = new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCommitAllTransactionsOfBatch() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    accountRepository.create(createAccount("AC3", Money.of(CurrencyUnit.EUR, 0)));
+    List<Transaction> transactions = Arrays.asList(
+        createTransaction("TR1", "AC1", "AC2", 30),
+        createTransaction("TR2", "AC1", "AC3", 20),
+        createTransaction("TR3", "AC2", "AC3", 10)
+    );
+
+    // when
+    List<TransactionResult> results = commitTransactionBatchCommand.run(transactions);
+
+    // then
+    assertThat(results).containsExactly(
+        TransactionResult.committed(transactions.get(0)),
+        TransactionResult.committed(transactions.get(1)),
+        TransactionResult.committed(transactions.get(2))
+    ).inOrder();
+    assertThat(transactionRepository.getAll()).containsExactlyElementsIn(transactions).inOrder();
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 50));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 20));
+    assertThat(accountRepository.get("AC3").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 30));
+    assertThat(transactions.get(0).isRunning().get()).isFalse();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldRejectOnlyFailedTransactionsOfBatch() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 50)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    List<Transaction> transactions = Arrays.asList(
+        createTransaction("TR1", "AC1", "AC2", 40),
+        createTransaction("TR2", "AC1", "AC2", 20),
+        createTransaction("TR3", "AC1", "AC1", 1),
+        createTransaction("TR4", "AC1", "AC2", 10)
+    );
+
+    // when
+    List<TransactionResult> results = commitTransactionBatchCommand.run(transactions);
+
+    // then
+    assertThat(results).containsExactly(
+        TransactionResult.committed(transactions.get(0)),
+        TransactionResult.rejected(
+            transactions.get(1), new NotEnoughMoneyException("AC1").getMessage()
+        ),
+        TransactionResult.rejected(
+            transactions.get(2), new TransferToTheSameAccountException().getMessage()
+        ),
+        TransactionResult.committed(transactions.get(3))
+    ).inOrder();
+    assertThat(transactionRepository.getAll())
+        .containsExactly(transactions.get(0), transactions.get(3))
+        .inOrder();
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 50));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldApplyOnlyNetMovementsWhenTransactionsRepeatAccounts() {
+    // given
+    final AccountRepository accountRepository = spy(new StripedAccountRepository());
+    final CommitTransactionBatchCommand command = new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 100)));
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      transactions.add(createTransaction("F" + i, "AC1", "AC2", i % 2 == 0 ? 10 : 9));
+      transactions.add(createTransaction("B" + i, "AC2", "AC1", 10));
+    }
+
+    // when
+    List<TransactionResult> results = command.run(transactions);
+
+    // then
+    for (TransactionResult result : results) {
+      assertThat(result.committed()).isTrue();
+    }
+    verify(accountRepository, times(1)).transfer(any(), any(), any());
+    assertThat(transactionRepository.getAll()).containsExactlyElementsIn(transactions).inOrder();
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 150));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 50));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldRevertNetMovementsWhenSecondNetTransferFails() {
+    // given
+    final AccountRepository accountRepository = spy(new StripedAccountRepository());
+    final CommitTransactionBatchCommand command = new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC3", Money.of(CurrencyUnit.EUR, 0)));
+    doCallRealMethod()
+        .doThrow(new IllegalStateException("storage failure"))
+        .doCallRealMethod()
+        .when(accountRepository).transfer(any(), any(), any());
+
+    // when
+    try {
+      command.run(Arrays.asList(
+          createTransaction("TR1", "AC1", "AC3", 10),
+          createTransaction("TR2", "AC2", "AC3", 20),
+          createTransaction("TR3", "AC1", "AC3", 5)
+      ));
+      throw new AssertionError("IllegalStateException was not thrown");
+    } catch (IllegalStateException exception) {
+      assertThat(exception).hasMessageThat().isEqualTo("storage failure");
+    }
+
+    // then
+    assertThat(transactionRepository.getAll()).isEmpty();
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 100));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 100));
+    assertThat(accountRepository.get("AC3").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldRevertTransfersWhenTransactionsCannotBeRecorded() {
+    // given
+    final TransactionRepository transactionRepository = spy(new InMemoryTransactionRepository());
+    final CommitTransactionBatchCommand command = new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    doThrow(new IllegalStateException("storage failure"))
+        .when(transactionRepository).createAll(any());
+
+    // when
+    try {
+      command.run(Arrays.asList(createTransaction("TR1", "AC1", "AC2", 10)));
+      throw new AssertionError("IllegalStateException was not thrown");
+    } catch (IllegalStateException exception) {
+      assertThat(exception).hasMessageThat().isEqualTo("storage failure");
+    }
+
+    // then
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 100));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+  }
+
+  @Test public void shouldRejectTransactionFromNotExistingAccount() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 50)));
+    Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+
+    // when
+    List<TransactionResult> results = commitTransactionBatchCommand.run(
+        Arrays.asList(transaction)
+    );
+
+    // then
+    assertThat(results).containsExactly(TransactionResult.rejected(
+        transaction, "Account with number AC2 does not exist"
+    ));
+    assertThat(transactionRepository.getAll()).isEmpty();
+  }
+
+  @Test public void shouldNotLockNotExistingAccounts() {
+    // given
+    final AccountLocks accountLocks = spy(new AccountLocks());
+    final CommitTransactionBatchCommand command = new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 50)));
+
+    // when
+    command.run(Arrays.asList(createTransaction("TR1", "AC1", "AC2", 10)));
+
+    // then
+    verify(accountLocks).get("AC1");
+    verify(accountLocks, never()).get("AC2");
+  }
+
+  @Test public void shouldRejectBatchWhenAccountIsLockedForTooLong() throws Exception {
+    // given
+    final CommitTransactionBatchCommand command = new DefaultCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, accountLocks, 100, TimeUnit.MILLISECONDS
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 50)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    final Lock lock = accountLocks.get("AC2");
+    executorService.submit(lock::lock).get();
+
+    // when
+    List<TransactionResult> results;
+    try {
+      results = command.run(Arrays.asList(transaction));
+    } finally {
+      executorService.submit(lock::unlock).get();
+      executorService.shutdown();
+    }
+
+    // then
+    assertThat(results).containsExactly(TransactionResult.rejected(
+        transaction, new TransactionTimeoutException("TR1").getMessage()
+    ));
+    assertThat(transactionRepository.getAll()).isEmpty();
+    assertThat(((WriteLock) accountLocks.get("AC1")).getHoldCount()).isEqualTo(0);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldHandleConcurrentBatchesInOppositeDirections() throws Exception {
+    // given
+    final int numberOfBatches = 200;
+    final int batchSize = 10;
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 1000)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 1000)));
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfBatches; i++) {
+      final List<Transaction> batch = new ArrayList<>(batchSize);
+      for (int j = 0; j < batchSize; j++) {
+        final boolean forward = (i + j) % 2 == 0;
+        batch.add(createTransaction(
+            i + "-" + j, forward ? "AC1" : "AC2", forward ? "AC2" : "AC1", 1
+        ));
+      }
+      executorService.submit(() -> commitTransactionBatchCommand.run(batch));
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(transactionRepository.getAll().size()).isEqualTo(numberOfBatches * batchSize);
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 1000));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 1000));
+  }
+
+  private Transaction createTransaction(final String id, final String from, final String to,
+      final double money) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from(from)
+        .to(to)
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .build();
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(money)
+        .build();
+  }
+}
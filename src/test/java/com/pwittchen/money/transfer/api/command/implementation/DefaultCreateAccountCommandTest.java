@@ -5,9 +5,15 @@ import com.pwittchen.money.transfer.api.command.exception.AccountAlreadyExistsEx
 import com.pwittchen.money.transfer.api.command.exception.EmptyAccountNumberException;
 import com.pwittchen.money.transfer.api.command.exception.EmptyAccountOwnerException;
 import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
 import com.pwittchen.money.transfer.api.model.Account;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
-import java.util.Collections;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
@@ -41,12 +47,85 @@ public class DefaultCreateAccountCommandTest {
         .number(UUID.randomUUID().toString())
         .money(Money.of(CurrencyUnit.EUR, 10.00))
         .build();
+    when(accountRepository.createIfAbsent(account)).thenReturn(true);
 
     // when
     createAccountCommand.run(account);
 
     // then
-    verify(accountRepository).create(account);
+    verify(accountRepository).createIfAbsent(account);
+    verify(accountRepository, times(0)).getAll();
+  }
+
+  @Test public void shouldAddCreatedAccountToAggregates() {
+    // given
+    LedgerAggregates ledgerAggregates = new LedgerAggregates();
+    createAccountCommand = new DefaultCreateAccountCommand(
+        accountRepository, ledgerAggregates, new TransactionIndex(), new AccountLocks()
+    );
+    Account account = Account
+        .builder()
+        .owner("testOwner")
+        .number(UUID.randomUUID().toString())
+        .money(Money.of(CurrencyUnit.EUR, 10.00))
+        .build();
+    when(accountRepository.createIfAbsent(account)).thenReturn(true);
+
+    // when
+    createAccountCommand.run(account);
+
+    // then
+    assertThat(ledgerAggregates.stats().accounts()).isEqualTo(1);
+    assertThat(ledgerAggregates.stats().totals()).isEqualTo(Map.of("EUR", new BigDecimal("10.00")));
+  }
+
+  @Test public void shouldOpenCreatedAccountInIndexWithItsInitialBalance() {
+    // given
+    TransactionIndex transactionIndex = new TransactionIndex();
+    createAccountCommand = new DefaultCreateAccountCommand(
+        accountRepository, new LedgerAggregates(), transactionIndex, new AccountLocks()
+    );
+    Account account = Account
+        .builder()
+        .owner("testOwner")
+        .number("AC1")
+        .money(Money.of(CurrencyUnit.EUR, 10.00))
+        .build();
+    when(accountRepository.createIfAbsent(account)).thenReturn(true);
+
+    // when
+    createAccountCommand.run(account);
+
+    // then
+    assertThat(transactionIndex.balance("AC1", LocalDateTime.now(), position -> null))
+        .isEqualTo(1000);
+  }
+
+  @Test public void shouldNotOpenAccountInIndexWhenItAlreadyExists() {
+    // given
+    TransactionIndex transactionIndex = new TransactionIndex();
+    transactionIndex.open("AC1", 500);
+    createAccountCommand = new DefaultCreateAccountCommand(
+        accountRepository, new LedgerAggregates(), transactionIndex, new AccountLocks()
+    );
+    Account account = Account
+        .builder()
+        .owner("testOwner")
+        .number("AC1")
+        .money(Money.of(CurrencyUnit.EUR, 10.00))
+        .build();
+    when(accountRepository.get("AC1")).thenReturn(Optional.of(account));
+
+    // when
+    try {
+      createAccountCommand.run(account);
+      throw new AssertionError("AccountAlreadyExistsException was not thrown");
+    } catch (AccountAlreadyExistsException exception) {
+      // then
+      assertThat(transactionIndex.balance("AC1", LocalDateTime.now(), position -> null))
+          .isEqualTo(500);
+      verify(accountRepository, times(0)).createIfAbsent(account);
+    }
   }
 
   @Test(expected = EmptyAccountNumberException.class)
@@ -93,13 +172,10 @@ public class DefaultCreateAccountCommandTest {
         .money(Money.of(CurrencyUnit.EUR, 10.00))
         .build();
 
-    when(accountRepository.getAll()).thenReturn(Collections.singletonList(account));
+    when(accountRepository.createIfAbsent(account)).thenReturn(false);
 
     // when
     createAccountCommand.run(account);
-
-    // then
-    verify(accountRepository, times(0)).create(account);
   }
 
   @Test(expected = EmptyAccountOwnerException.class)
@@ -0,0 +1,143 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.ImportError;
+import com.pwittchen.money.transfer.api.model.ImportFormat;
+import com.pwittchen.money.transfer.api.model.ImportResult;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.io.StringReader;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DefaultImportAccountsCommandTest {
+
+  private AccountRepository accountRepository;
+
+  private ImportAccountsCommand importAccountsCommand;
+
+  @Before public void setUp() {
+    accountRepository = new StripedAccountRepository();
+    importAccountsCommand = new DefaultImportAccountsCommand(
+        new DefaultCreateAccountCommand(accountRepository)
+    );
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldImportAccountsFromNdjson() {
+    // given
+    final String input = String.join("\n",
+        "{\"number\":\"AC1\",\"owner\":\"owner1\",\"currency\":\"EUR\",\"money\":\"10.00\"}",
+        "",
+        "{\"number\":\"AC2\",\"owner\":\"owner2\",\"currency\":\"GBP\",\"money\":\"20.50\"}"
+    );
+
+    // when
+    final ImportResult result = importAccountsCommand.run(
+        new StringReader(input), ImportFormat.NDJSON
+    );
+
+    // then
+    assertThat(result.created()).isEqualTo(2);
+    assertThat(result.failed()).isEqualTo(0);
+    assertThat(result.errors()).isEmpty();
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 10));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.parse("GBP 20.50"));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldImportAccountsFromCsvWithHeaderAndQuotedFields() {
+    // given
+    final String input = String.join("\n",
+        "number,owner,currency,money",
+        "AC1,\"Doe, John \"\"JD\"\"\",EUR,10.00",
+        "AC2,owner2,EUR,20.00"
+    );
+
+    // when
+    final ImportResult result = importAccountsCommand.run(
+        new StringReader(input), ImportFormat.CSV
+    );
+
+    // then
+    assertThat(result.created()).isEqualTo(2);
+    assertThat(result.failed()).isEqualTo(0);
+    assertThat(accountRepository.get("AC1").get().owner()).isEqualTo("Doe, John \"JD\"");
+  }
+
+  @Test public void shouldGenerateNumberWhenItIsEmpty() {
+    // given
+    final String input = ",owner,EUR,10.00";
+
+    // when
+    final ImportResult result = importAccountsCommand.run(
+        new StringReader(input), ImportFormat.CSV
+    );
+
+    // then
+    assertThat(result.created()).isEqualTo(1);
+    final Account account = accountRepository.getAll().get(0);
+    assertThat(account.number()).isNotEmpty();
+    assertThat(account.owner()).isEqualTo("owner");
+  }
+
+  @Test public void shouldReportInvalidLinesWithTheirNumbers() {
+    // given
+    final String input = String.join("\n",
+        "number,owner,currency,money",
+        "AC1,owner1,EUR,10.00",
+        "AC1,duplicate,EUR,10.00",
+        "AC2,owner2,EUR,INVALID",
+        "AC3,owner3",
+        "AC4,,EUR,10.00",
+        "AC5,owner5,EUR,-10.00"
+    );
+
+    // when
+    final ImportResult result = importAccountsCommand.run(
+        new StringReader(input), ImportFormat.CSV
+    );
+
+    // then
+    assertThat(result.created()).isEqualTo(1);
+    assertThat(result.failed()).isEqualTo(5);
+    assertThat(result.errors()).containsExactly(
+        new ImportError(3, "Account with number AC1 already exists"),
+        new ImportError(4, AccountLineParser.INVALID_MONEY_FORMAT),
+        new ImportError(5, AccountLineParser.INVALID_ACCOUNT_FORMAT),
+        new ImportError(6, "Account owner is empty"),
+        new ImportError(7, "Money could not be negative")
+    ).inOrder();
+    assertThat(accountRepository.getAll()).hasSize(1);
+  }
+
+  @Test public void shouldImportAccountsInParallelBatches() {
+    // given
+    final ImportAccountsCommand command = new DefaultImportAccountsCommand(
+        new DefaultCreateAccountCommand(accountRepository), 4, 7
+    );
+    final int numberOfAccounts = 1000;
+    final StringBuilder input = new StringBuilder();
+    for (int i = 0; i < numberOfAccounts; i++) {
+      input.append(String.format("AC%d,owner,EUR,1.00%n", i % (numberOfAccounts - 10)));
+    }
+
+    // when
+    final ImportResult result = command.run(new StringReader(input.toString()), ImportFormat.CSV);
+
+    // then
+    assertThat(result.created()).isEqualTo(numberOfAccounts - 10);
+    assertThat(result.failed()).isEqualTo(10);
+    assertThat(result.errors()).hasSize(10);
+    assertThat(accountRepository.getAll()).hasSize(numberOfAccounts - 10);
+  }
+}
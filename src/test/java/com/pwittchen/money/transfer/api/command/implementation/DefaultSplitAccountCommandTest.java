@@ -0,0 +1,96 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.AccountSplitNotSupportedException;
+import com.pwittchen.money.transfer.api.command.exception.InvalidNumberOfShardsException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.OptimisticAccountRepository;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultSplitAccountCommandTest {
+
+  @Mock private AccountRepository accountRepository;
+
+  private SplitAccountCommand splitAccountCommand;
+
+  @Before public void setUp() {
+    splitAccountCommand = new DefaultSplitAccountCommand(accountRepository);
+  }
+
+  @Test public void shouldSplitAccount() {
+    // given
+    Account account = createAccount();
+    OptimisticAccountRepository accountRepository = new OptimisticAccountRepository();
+    accountRepository.create(account);
+    splitAccountCommand = new DefaultSplitAccountCommand(accountRepository);
+
+    // when
+    Account splitAccount = splitAccountCommand.run("AC1", 8);
+
+    // then
+    assertThat(splitAccount).isEqualTo(account);
+    assertThat(accountRepository.shards("AC1")).isEqualTo(8);
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotSplitAccountWhenAccountDoesNotExist() {
+    // given
+    when(accountRepository.get("AC1")).thenReturn(Optional.empty());
+
+    // when
+    splitAccountCommand.run("AC1", 8);
+  }
+
+  @Test public void shouldNotSplitAccountWhenNumberOfShardsIsInvalid() {
+    for (int shards : new int[] {0, -1, 257}) {
+      // when
+      try {
+        splitAccountCommand.run("AC1", shards);
+        throw new AssertionError("InvalidNumberOfShardsException was not thrown");
+      } catch (InvalidNumberOfShardsException exception) {
+        // then
+        verify(accountRepository, times(0)).split(anyString(), anyInt());
+      }
+    }
+  }
+
+  @Test(expected = AccountSplitNotSupportedException.class)
+  public void shouldNotSplitAccountWhenStorageDoesNotSupportIt() {
+    // given
+    AccountRepository accountRepository = new InMemoryAccountRepository();
+    accountRepository.create(createAccount());
+    splitAccountCommand = new DefaultSplitAccountCommand(accountRepository);
+
+    // when
+    splitAccountCommand.run("AC1", 8);
+  }
+
+  private Account createAccount() {
+    return Account
+        .builder()
+        .number("AC1")
+        .owner("testOwner")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,184 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DefaultSubmitTransactionCommandTest {
+
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private TransactionStatusRepository transactionStatusRepository;
+  private SequencedCommitTransactionCommand sequencedCommitTransactionCommand;
+  private DefaultSubmitTransactionCommand submitTransactionCommand;
+
+  @Before public void setUp() {
+    accountRepository = new StripedAccountRepository();
+    transactionRepository = new InMemoryTransactionRepository();
+    transactionStatusRepository = new InMemoryTransactionStatusRepository();
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+  }
+
+  @After public void tearDown() {
+    if (submitTransactionCommand != null) {
+      submitTransactionCommand.close();
+    }
+    if (sequencedCommitTransactionCommand != null) {
+      sequencedCommitTransactionCommand.close();
+    }
+  }
+
+  @Test public void shouldCommitTransactionOnCommitThread() throws Exception {
+    // given
+    submitTransactionCommand = createCommand(
+        new OrderedLockCommitTransactionCommand(accountRepository, transactionRepository), 1
+    );
+    Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+
+    // when
+    TransactionStatus status = submitTransactionCommand.run(transaction);
+
+    // then
+    assertThat(status).isEqualTo(TransactionStatus.pending("TR1"));
+    awaitStatus("TR1", TransactionStatus.committed("TR1"));
+    assertThat(transactionRepository.getAll()).containsExactly(transaction);
+  }
+
+  @Test public void shouldCommitTransactionOnLedgerThread() throws Exception {
+    // given
+    sequencedCommitTransactionCommand = new SequencedCommitTransactionCommand(
+        accountRepository, transactionRepository
+    );
+    submitTransactionCommand = createCommand(sequencedCommitTransactionCommand, 1);
+    Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+
+    // when
+    submitTransactionCommand.run(transaction);
+
+    // then
+    awaitStatus("TR1", TransactionStatus.committed("TR1"));
+    assertThat(transactionRepository.getAll()).containsExactly(transaction);
+  }
+
+  @Test public void shouldRejectTransactionWhenCommitFails() throws Exception {
+    // given
+    submitTransactionCommand = createCommand(
+        new OrderedLockCommitTransactionCommand(accountRepository, transactionRepository), 1
+    );
+
+    // when
+    submitTransactionCommand.run(createTransaction("TR1", "AC2", "AC1", 60));
+
+    // then
+    awaitStatus("TR1", TransactionStatus.rejected(
+        "TR1", new NotEnoughMoneyException("AC2").getMessage()
+    ));
+    assertThat(transactionRepository.getAll()).isEmpty();
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotSubmitTransactionWhenAccountDoesNotExist() {
+    // given
+    submitTransactionCommand = createCommand(
+        new OrderedLockCommitTransactionCommand(accountRepository, transactionRepository), 1
+    );
+
+    // when
+    try {
+      submitTransactionCommand.run(createTransaction("TR1", "AC1", "AC3", 10));
+    } finally {
+      // then
+      assertThat(transactionStatusRepository.get("TR1")).isEqualTo(Optional.empty());
+    }
+  }
+
+  @Test public void shouldRejectTransactionWhenCommitQueueIsFull() throws Exception {
+    // given
+    final CountDownLatch released = new CountDownLatch(1);
+    final CommitTransactionCommand blockingCommand = transaction -> {
+      try {
+        released.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException exception) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    submitTransactionCommand = new DefaultSubmitTransactionCommand(
+        blockingCommand, accountRepository, transactionStatusRepository, 1, 1
+    );
+    submitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", 1));
+    submitTransactionCommand.run(createTransaction("TR2", "AC1", "AC2", 1));
+
+    // when
+    try {
+      submitTransactionCommand.run(createTransaction("TR3", "AC1", "AC2", 1));
+    } catch (CommitQueueFullException exception) {
+      // then
+      assertThat(transactionStatusRepository.get("TR3"))
+          .isEqualTo(Optional.of(TransactionStatus.rejected("TR3", exception.getMessage())));
+      return;
+    } finally {
+      released.countDown();
+    }
+    throw new AssertionError("expected CommitQueueFullException");
+  }
+
+  private DefaultSubmitTransactionCommand createCommand(final CommitTransactionCommand command,
+      final int numberOfThreads) {
+    return new DefaultSubmitTransactionCommand(
+        command, accountRepository, transactionStatusRepository, numberOfThreads, 16
+    );
+  }
+
+  private void awaitStatus(final String id, final TransactionStatus expected)
+      throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      if (transactionStatusRepository.get(id).filter(expected::equals).isPresent()) {
+        return;
+      }
+      Thread.sleep(5);
+    }
+    assertThat(transactionStatusRepository.get(id)).isEqualTo(Optional.of(expected));
+  }
+
+  private Transaction createTransaction(final String id, final String from, final String to,
+      final double money) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from(from)
+        .to(to)
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .build();
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(money)
+        .build();
+  }
+}
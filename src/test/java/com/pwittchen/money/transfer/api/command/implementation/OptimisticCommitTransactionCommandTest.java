@@ -0,0 +1,183 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.OptimisticAccountRepository;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class OptimisticCommitTransactionCommandTest {
+
+  private OptimisticAccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private CommitTransactionCommand commitTransactionCommand;
+
+  @Before public void setUp() {
+    accountRepository = new OptimisticAccountRepository();
+    transactionRepository = new InMemoryTransactionRepository();
+    commitTransactionCommand = new OptimisticCommitTransactionCommand(
+        accountRepository, transactionRepository
+    );
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCommitTransaction() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+    Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+
+    // when
+    commitTransactionCommand.run(transaction);
+
+    // then
+    assertThat(transactionRepository.getAll()).containsExactly(transaction);
+    assertThat(transaction.isRunning().get()).isFalse();
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 90));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 60));
+  }
+
+  @Test(expected = NotEnoughMoneyException.class)
+  public void shouldNotCommitTransactionWhenSenderHasNotEnoughMoney() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 5)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", 10));
+  }
+
+  @Test(expected = DifferentCurrencyException.class)
+  public void shouldNotCommitTransactionWhenMoneyOnTwoAccountsHasDifferentCurrency() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.GBP, 50)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", 10));
+  }
+
+  @Test(expected = TransferToTheSameAccountException.class)
+  public void shouldNotCommitTransactionWhenTransferIsToTheSameAccount() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC1", 10));
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotCommitTransactionWhenReceiverAccountDoesNotExist() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", 10));
+  }
+
+  @Test(expected = NegativeMoneyValueException.class)
+  public void shouldNotCommitTransactionWhenMoneyValueIsNegative() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", -10));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldNeverOverdrawAccountUnderConcurrentTransactions() throws Exception {
+    // given
+    final int numberOfTransactions = 1000;
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfTransactions; i++) {
+      final String id = "TR" + i;
+      executorService.submit(() ->
+          commitTransactionCommand.run(createTransaction(id, "AC1", "AC2", 1))
+      );
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(transactionRepository.getAll().size()).isEqualTo(100);
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 100));
+  }
+
+  @Test public void shouldWaitForBatchHoldingExclusiveAccountLock() throws Exception {
+    // given
+    final AccountLocks accountLocks = new AccountLocks();
+    final CommitTransactionCommand command = new OptimisticCommitTransactionCommand(
+        accountRepository, transactionRepository, accountLocks
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+    final Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+    final ExecutorService batchThread = Executors.newSingleThreadExecutor();
+    final ExecutorService commitThread = Executors.newSingleThreadExecutor();
+    final Lock lock = accountLocks.get("AC2");
+    batchThread.submit(lock::lock).get();
+
+    // when
+    final Future<?> commit = commitThread.submit(() -> command.run(transaction));
+    TimeUnit.MILLISECONDS.sleep(200);
+    final int committedWhileLocked = transactionRepository.getAll().size();
+    batchThread.submit(lock::unlock).get();
+    commit.get(1, TimeUnit.SECONDS);
+    batchThread.shutdown();
+    commitThread.shutdown();
+
+    // then
+    assertThat(committedWhileLocked).isEqualTo(0);
+    assertThat(transactionRepository.getAll()).containsExactly(transaction);
+  }
+
+  private Transaction createTransaction(final String id, final String from, final String to,
+      final double money) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from(from)
+        .to(to)
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .build();
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(money)
+        .build();
+  }
+}
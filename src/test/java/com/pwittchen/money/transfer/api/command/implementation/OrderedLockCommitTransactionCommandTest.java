@@ -0,0 +1,220 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderedLockCommitTransactionCommandTest {
+
+  @Mock private AccountRepository accountRepository;
+
+  @Mock private TransactionRepository transactionRepository;
+
+  private CommitTransactionCommand commitTransactionCommand;
+
+  @Before public void setUp() {
+    commitTransactionCommand = new OrderedLockCommitTransactionCommand(
+        accountRepository, transactionRepository
+    );
+  }
+
+  @Test public void shouldCommitTransaction() {
+    // given
+    Account sender = createAccount("AC1", Money.of(CurrencyUnit.EUR, 100));
+    Account receiver = createAccount("AC2", Money.of(CurrencyUnit.EUR, 50));
+    Transaction transaction = createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10));
+    when(accountRepository.get("AC1")).thenReturn(Optional.of(sender));
+    when(accountRepository.get("AC2")).thenReturn(Optional.of(receiver));
+
+    // when
+    commitTransactionCommand.run(transaction);
+
+    // then
+    verify(accountRepository).transfer(sender, receiver, transaction.money());
+    verify(transactionRepository).create(transaction);
+    assertThat(transaction.isRunning().get()).isFalse();
+  }
+
+  @Test(expected = NotEnoughMoneyException.class)
+  public void shouldNotCommitTransactionWhenSenderHasNotEnoughMoney() {
+    // given
+    when(accountRepository.get("AC1"))
+        .thenReturn(Optional.of(createAccount("AC1", Money.of(CurrencyUnit.EUR, 5))));
+    when(accountRepository.get("AC2"))
+        .thenReturn(Optional.of(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50))));
+
+    // when
+    commitTransactionCommand.run(
+        createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10))
+    );
+  }
+
+  @Test(expected = DifferentCurrencyException.class)
+  public void shouldNotCommitTransactionWhenMoneyOnTwoAccountsHasDifferentCurrency() {
+    // given
+    when(accountRepository.get("AC1"))
+        .thenReturn(Optional.of(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100))));
+    when(accountRepository.get("AC2"))
+        .thenReturn(Optional.of(createAccount("AC2", Money.of(CurrencyUnit.GBP, 50))));
+
+    // when
+    commitTransactionCommand.run(
+        createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10))
+    );
+  }
+
+  @Test(expected = TransferToTheSameAccountException.class)
+  public void shouldNotCommitTransactionWhenTransferIsToTheSameAccount() {
+    // given
+    when(accountRepository.get("AC1"))
+        .thenReturn(Optional.of(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100))));
+
+    // when
+    commitTransactionCommand.run(
+        createTransaction("AC1", "AC1", Money.of(CurrencyUnit.EUR, 10))
+    );
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotCommitTransactionWhenReceiverAccountDoesNotExist() {
+    // given
+    when(accountRepository.get("AC1"))
+        .thenReturn(Optional.of(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100))));
+    when(accountRepository.get("AC2")).thenReturn(Optional.empty());
+
+    // when
+    commitTransactionCommand.run(
+        createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10))
+    );
+  }
+
+  @Test(expected = NegativeMoneyValueException.class)
+  public void shouldNotCommitTransactionWhenMoneyValueIsNegative() {
+    // given
+    when(accountRepository.get("AC1"))
+        .thenReturn(Optional.of(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100))));
+    when(accountRepository.get("AC2"))
+        .thenReturn(Optional.of(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50))));
+
+    // when
+    commitTransactionCommand.run(
+        createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, -10))
+    );
+  }
+
+  @Test(expected = TransactionTimeoutException.class)
+  public void shouldTimeoutWhenAccountIsLockedForTooLong() throws Exception {
+    // given
+    final CommitTransactionCommand command = new OrderedLockCommitTransactionCommand(
+        accountRepository, transactionRepository, new AccountLocks(), 100, TimeUnit.MILLISECONDS
+    );
+    final CountDownLatch transferStarted = new CountDownLatch(1);
+    final CountDownLatch transferReleased = new CountDownLatch(1);
+    when(accountRepository.get("AC1"))
+        .thenReturn(Optional.of(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100))));
+    when(accountRepository.get("AC2"))
+        .thenReturn(Optional.of(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50))));
+    doAnswer(invocation -> {
+      transferStarted.countDown();
+      transferReleased.await(5, TimeUnit.SECONDS);
+      return null;
+    }).when(accountRepository).transfer(any(), any(), any());
+
+    final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    executorService.submit(() ->
+        command.run(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)))
+    );
+    transferStarted.await(5, TimeUnit.SECONDS);
+
+    // when
+    try {
+      command.run(createTransaction("AC2", "AC1", Money.of(CurrencyUnit.EUR, 1)));
+    } finally {
+      transferReleased.countDown();
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldHandleConcurrentTransactionsInOppositeDirections() throws Exception {
+    // given
+    final AccountRepository accountRepository = new StripedAccountRepository();
+    final TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+    final CommitTransactionCommand command = new OrderedLockCommitTransactionCommand(
+        accountRepository, transactionRepository
+    );
+    final int numberOfTransactions = 1000;
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 1000)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 1000)));
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfTransactions; i++) {
+      final boolean forward = i % 2 == 0;
+      executorService.submit(() -> command.run(createTransaction(
+          forward ? "AC1" : "AC2",
+          forward ? "AC2" : "AC1",
+          Money.of(CurrencyUnit.EUR, 1)
+      )));
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(transactionRepository.getAll().size()).isEqualTo(numberOfTransactions);
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 1000));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 1000));
+  }
+
+  private Transaction createTransaction(final String from, final String to, final Money money) {
+    return Transaction
+        .builder()
+        .id(String.format("%s-%s-%s", from, to, money))
+        .from(from)
+        .to(to)
+        .money(money)
+        .build();
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(money)
+        .build();
+  }
+}
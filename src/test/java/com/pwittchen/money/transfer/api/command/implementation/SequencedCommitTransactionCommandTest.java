@@ -0,0 +1,247 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.command.exception.NegativeMoneyValueException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class SequencedCommitTransactionCommandTest {
+
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private SequencedCommitTransactionCommand commitTransactionCommand;
+
+  @Before public void setUp() {
+    accountRepository = new StripedAccountRepository();
+    transactionRepository = new InMemoryTransactionRepository();
+    commitTransactionCommand = new SequencedCommitTransactionCommand(
+        accountRepository, transactionRepository, 4, 1024
+    );
+  }
+
+  @After public void tearDown() {
+    commitTransactionCommand.close();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCommitTransaction() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+    Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+
+    // when
+    commitTransactionCommand.run(transaction);
+
+    // then
+    assertThat(transactionRepository.getAll()).containsExactly(transaction);
+    assertThat(transaction.isRunning().get()).isFalse();
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 90));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 60));
+  }
+
+  @Test(expected = NotEnoughMoneyException.class)
+  public void shouldRethrowErrorFromLedgerThread() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 5)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", 10));
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotPublishTransactionWhenAccountDoesNotExist() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 5)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", 1));
+  }
+
+  @Test(expected = TransferToTheSameAccountException.class)
+  public void shouldNotPublishTransactionToTheSameAccount() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 5)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC1", 1));
+  }
+
+  @Test(expected = NegativeMoneyValueException.class)
+  public void shouldNotPublishTransactionWithNegativeMoney() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 5)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 5)));
+
+    // when
+    commitTransactionCommand.run(createTransaction("TR1", "AC1", "AC2", -1));
+  }
+
+  @Test public void shouldApplyTransactionsFromTheSameSenderInOrder() throws Exception {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 1000)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      transactions.add(createTransaction("TR" + i, "AC1", "AC2", 1));
+    }
+
+    // when
+    for (Transaction transaction : transactions) {
+      commitTransactionCommand.submit(transaction);
+    }
+    commitTransactionCommand
+        .submit(createTransaction("LAST", "AC1", "AC2", 1))
+        .get(5, TimeUnit.SECONDS);
+
+    // then
+    assertThat(new ArrayList<>(transactionRepository.getAll()).subList(0, 100))
+        .containsExactlyElementsIn(transactions)
+        .inOrder();
+    assertThat(commitTransactionCommand.queueDepth()).isEqualTo(0);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldHandleConcurrentTransactions() throws Exception {
+    // given
+    final int numberOfAccounts = 8;
+    final int numberOfTransactions = 2000;
+    for (int i = 0; i < numberOfAccounts; i++) {
+      accountRepository.create(createAccount("AC" + i, Money.of(CurrencyUnit.EUR, 1000)));
+    }
+    final ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+    // when
+    for (int i = 0; i < numberOfTransactions; i++) {
+      final String from = "AC" + (i % numberOfAccounts);
+      final String to = "AC" + ((i + 1 + i % 3) % numberOfAccounts);
+      final String id = "TR" + i;
+      executorService.submit(() ->
+          commitTransactionCommand.run(createTransaction(id, from, to, 1))
+      );
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    Money total = Money.zero(CurrencyUnit.EUR);
+    for (int i = 0; i < numberOfAccounts; i++) {
+      total = total.plus(accountRepository.get("AC" + i).get().money());
+    }
+    assertThat(transactionRepository.getAll().size()).isEqualTo(numberOfTransactions);
+    assertThat(total).isEqualTo(Money.of(CurrencyUnit.EUR, 1000 * numberOfAccounts));
+  }
+
+  @Test public void shouldNotWaitForSpaceInFullRingBuffer() throws Exception {
+    // given
+    final AccountLocks accountLocks = new AccountLocks();
+    final SequencedCommitTransactionCommand command = new SequencedCommitTransactionCommand(
+        accountRepository, transactionRepository, 1, 1, accountLocks
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    final ExecutorService batchThread = Executors.newSingleThreadExecutor();
+    final Lock lock = accountLocks.get("AC2");
+    batchThread.submit(lock::lock).get();
+    // ledger thread picks the first transaction up and waits for the lock
+    final Future<Transaction> first = command.submit(createTransaction("TR1", "AC1", "AC2", 1));
+    while (command.queueDepth() > 0) {
+      TimeUnit.MILLISECONDS.sleep(1);
+    }
+    final Future<Transaction> second = command.submit(createTransaction("TR2", "AC1", "AC2", 1));
+
+    // when
+    final long start = System.nanoTime();
+    try {
+      command.submit(createTransaction("TR3", "AC1", "AC2", 1));
+      throw new AssertionError("CommitQueueFullException was not thrown");
+    } catch (CommitQueueFullException exception) {
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+    } finally {
+      batchThread.submit(lock::unlock).get();
+      batchThread.shutdown();
+    }
+
+    // then
+    first.get(1, TimeUnit.SECONDS);
+    second.get(1, TimeUnit.SECONDS);
+    command.close();
+    assertThat(transactionRepository.getAll().size()).isEqualTo(2);
+  }
+
+  @Test public void shouldWaitForBatchHoldingExclusiveAccountLock() throws Exception {
+    // given
+    final AccountLocks accountLocks = new AccountLocks();
+    final SequencedCommitTransactionCommand command = new SequencedCommitTransactionCommand(
+        accountRepository, transactionRepository, 4, 1024, accountLocks
+    );
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 50)));
+    final Transaction transaction = createTransaction("TR1", "AC1", "AC2", 10);
+    final ExecutorService batchThread = Executors.newSingleThreadExecutor();
+    final ExecutorService commitThread = Executors.newSingleThreadExecutor();
+    final Lock lock = accountLocks.get("AC2");
+    batchThread.submit(lock::lock).get();
+
+    // when
+    final Future<?> commit = commitThread.submit(() -> command.run(transaction));
+    TimeUnit.MILLISECONDS.sleep(200);
+    final int committedWhileLocked = transactionRepository.getAll().size();
+    batchThread.submit(lock::unlock).get();
+    commit.get(1, TimeUnit.SECONDS);
+    batchThread.shutdown();
+    commitThread.shutdown();
+    command.close();
+
+    // then
+    assertThat(committedWhileLocked).isEqualTo(0);
+    assertThat(transactionRepository.getAll()).containsExactly(transaction);
+  }
+
+  private Transaction createTransaction(final String id, final String from, final String to,
+      final double money) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from(from)
+        .to(to)
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .build();
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(money)
+        .build();
+  }
+}
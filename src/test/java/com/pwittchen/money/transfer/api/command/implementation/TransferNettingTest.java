@@ -0,0 +1,176 @@
+package com.pwittchen.money.transfer.api.command.implementation;
+
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public class TransferNettingTest {
+
+  private AccountRepository accountRepository;
+  private TransferNetting netting;
+
+  @Before public void setUp() {
+    accountRepository = spy(new StripedAccountRepository());
+    netting = new TransferNetting(accountRepository);
+  }
+
+  @Test public void shouldApplyOnlyNetMovementBetweenTwoAccounts() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 100)));
+    netting.add(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10)));
+    netting.add(createTransaction("AC2", "AC1", Money.of(CurrencyUnit.EUR, 4)));
+    netting.add(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)));
+
+    // when
+    int transfers = netting.settle();
+
+    // then
+    assertThat(transfers).isEqualTo(1);
+    assertThat(balance("AC1")).isEqualTo(Money.of(CurrencyUnit.EUR, 93));
+    assertThat(balance("AC2")).isEqualTo(Money.of(CurrencyUnit.EUR, 107));
+  }
+
+  @Test public void shouldCheckOverdraftAgainstRunningBalance() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 0)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.create(createAccount("AC3", Money.of(CurrencyUnit.EUR, 0)));
+    netting.add(createTransaction("AC2", "AC1", Money.of(CurrencyUnit.EUR, 10)));
+    netting.add(createTransaction("AC1", "AC3", Money.of(CurrencyUnit.EUR, 10)));
+
+    // when
+    int transfers = netting.settle();
+
+    // then
+    assertThat(transfers).isEqualTo(1);
+    assertThat(balance("AC1")).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(balance("AC2")).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(balance("AC3")).isEqualTo(Money.of(CurrencyUnit.EUR, 10));
+  }
+
+  @Test(expected = NotEnoughMoneyException.class)
+  public void shouldNotAddTransactionExceedingRunningBalance() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    netting.add(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10)));
+
+    // when
+    netting.add(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)));
+  }
+
+  @Test public void shouldNotTransferWhenMovementsCancelOut() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 10)));
+    for (int i = 0; i < 100; i++) {
+      netting.add(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 5)));
+      netting.add(createTransaction("AC2", "AC1", Money.of(CurrencyUnit.EUR, 5)));
+    }
+
+    // when
+    int transfers = netting.settle();
+
+    // then
+    assertThat(transfers).isEqualTo(0);
+    verify(accountRepository, never()).transfer(any(), any(), any());
+  }
+
+  @Test public void shouldSettleEveryCurrencySeparately() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    accountRepository.create(createAccount("AC3", Money.of(CurrencyUnit.GBP, 10)));
+    accountRepository.create(createAccount("AC4", Money.of(CurrencyUnit.GBP, 0)));
+    netting.add(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 3)));
+    netting.add(createTransaction("AC3", "AC4", Money.of(CurrencyUnit.GBP, 4)));
+
+    // when
+    int transfers = netting.settle();
+
+    // then
+    assertThat(transfers).isEqualTo(2);
+    assertThat(balance("AC2")).isEqualTo(Money.of(CurrencyUnit.EUR, 3));
+    assertThat(balance("AC4")).isEqualTo(Money.of(CurrencyUnit.GBP, 4));
+  }
+
+  @Test public void shouldStartNewWindowAfterSettlement() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+    netting.add(createTransaction("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10)));
+    netting.settle();
+
+    // when
+    netting.add(createTransaction("AC2", "AC1", Money.of(CurrencyUnit.EUR, 4)));
+    netting.settle();
+
+    // then
+    assertThat(balance("AC1")).isEqualTo(Money.of(CurrencyUnit.EUR, 4));
+    assertThat(balance("AC2")).isEqualTo(Money.of(CurrencyUnit.EUR, 6));
+  }
+
+  @Test public void shouldRevertSettledTransfersWhenNextTransferFails() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 100)));
+    accountRepository.create(createAccount("AC3", Money.of(CurrencyUnit.EUR, 0)));
+    netting.add(createTransaction("AC1", "AC3", Money.of(CurrencyUnit.EUR, 10)));
+    netting.add(createTransaction("AC2", "AC3", Money.of(CurrencyUnit.EUR, 20)));
+    doCallRealMethod()
+        .doThrow(new IllegalStateException("storage failure"))
+        .doCallRealMethod()
+        .when(accountRepository).transfer(any(), any(), any());
+
+    // when
+    try {
+      netting.settle();
+      throw new AssertionError("IllegalStateException was not thrown");
+    } catch (IllegalStateException exception) {
+      assertThat(exception).hasMessageThat().isEqualTo("storage failure");
+    }
+
+    // then
+    assertThat(balance("AC1")).isEqualTo(Money.of(CurrencyUnit.EUR, 100));
+    assertThat(balance("AC2")).isEqualTo(Money.of(CurrencyUnit.EUR, 100));
+    assertThat(balance("AC3")).isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+  }
+
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  private Money balance(final String number) {
+    return accountRepository.get(number).get().money();
+  }
+
+  private Transaction createTransaction(final String from, final String to, final Money money) {
+    return Transaction
+        .builder()
+        .id(String.format("%s-%s-%s", from, to, money))
+        .from(from)
+        .to(to)
+        .money(money)
+        .build();
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(money)
+        .build();
+  }
+}
@@ -1,11 +1,32 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
 import com.pwittchen.money.transfer.api.command.CreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.SubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitTransactionCommand;
 import com.pwittchen.money.transfer.api.command.implementation.DefaultCreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultSplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.implementation.DefaultSubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OptimisticCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.SequencedCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.lock.AccountLocks;
+import com.pwittchen.money.transfer.api.configuration.option.AccountStorage;
+import com.pwittchen.money.transfer.api.configuration.option.ApplicationOptions;
+import com.pwittchen.money.transfer.api.configuration.option.CommitStrategy;
+import com.pwittchen.money.transfer.api.configuration.option.Durability;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -22,10 +43,14 @@ public class CommandModuleTest {
 
   @Mock private TransactionRepository transactionRepository;
 
+  @Mock private TransactionStatusRepository transactionStatusRepository;
+
+  @Mock private CommitTransactionCommand commitTransactionCommand;
+
   @Test public void shouldProvideCommitTransactionCommand() {
     // when
     CommitTransactionCommand command = commandModule.provideCommitTransactionCommand(
-        accountRepository, transactionRepository
+        accountRepository, transactionRepository, new AccountLocks()
     );
 
     // then
@@ -33,12 +58,169 @@ public class CommandModuleTest {
     assertThat(command).isInstanceOf(DefaultCommitTransactionCommand.class);
   }
 
+  @Test public void shouldProvideOrderedLockCommitTransactionCommand() {
+    // given
+    CommandModule commandModule = new CommandModule(ApplicationOptions
+        .builder()
+        .commitStrategy(CommitStrategy.ORDERED_LOCK)
+        .build());
+
+    // when
+    CommitTransactionCommand command = commandModule.provideCommitTransactionCommand(
+        accountRepository, transactionRepository, new AccountLocks()
+    );
+
+    // then
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(OrderedLockCommitTransactionCommand.class);
+  }
+
+  @Test public void shouldProvideSequencedCommitTransactionCommand() {
+    // given
+    CommandModule commandModule = new CommandModule(ApplicationOptions
+        .builder()
+        .commitStrategy(CommitStrategy.SEQUENCED)
+        .ledgerPartitions(2)
+        .accountStorage(AccountStorage.STRIPED)
+        .build());
+
+    // when
+    CommitTransactionCommand command = commandModule.provideCommitTransactionCommand(
+        accountRepository, transactionRepository, new AccountLocks()
+    );
+
+    // then
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(SequencedCommitTransactionCommand.class);
+    ((SequencedCommitTransactionCommand) command).close();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotProvideSequencedCommitTransactionCommandWithPartitionsOfInMemoryStorage() {
+    // given
+    CommandModule commandModule = new CommandModule(ApplicationOptions
+        .builder()
+        .commitStrategy(CommitStrategy.SEQUENCED)
+        .ledgerPartitions(2)
+        .accountStorage(AccountStorage.IN_MEMORY)
+        .build());
+
+    // when
+    commandModule.provideCommitTransactionCommand(
+        accountRepository, transactionRepository, new AccountLocks()
+    );
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotProvideOptimisticCommitTransactionCommandWithWriteAheadLog() {
+    // given
+    CommandModule commandModule = new CommandModule(ApplicationOptions
+        .builder()
+        .commitStrategy(CommitStrategy.OPTIMISTIC)
+        .accountStorage(AccountStorage.OPTIMISTIC)
+        .durability(Durability.WAL)
+        .build());
+
+    // when
+    commandModule.provideCommitTransactionCommand(
+        accountRepository, transactionRepository, new AccountLocks()
+    );
+  }
+
+  @Test public void shouldProvideOrderedLockCommitTransactionCommandWithWriteAheadLog() {
+    // given
+    CommandModule commandModule = new CommandModule(ApplicationOptions
+        .builder()
+        .commitStrategy(CommitStrategy.ORDERED_LOCK)
+        .accountStorage(AccountStorage.STRIPED)
+        .durability(Durability.WAL)
+        .build());
+
+    // when
+    CommitTransactionCommand command = commandModule.provideCommitTransactionCommand(
+        accountRepository, transactionRepository, new AccountLocks()
+    );
+
+    // then
+    assertThat(command).isInstanceOf(OrderedLockCommitTransactionCommand.class);
+  }
+
+  @Test public void shouldProvideOptimisticCommitTransactionCommand() {
+    // given
+    CommandModule commandModule = new CommandModule(ApplicationOptions
+        .builder()
+        .commitStrategy(CommitStrategy.OPTIMISTIC)
+        .build());
+
+    // when
+    CommitTransactionCommand command = commandModule.provideCommitTransactionCommand(
+        accountRepository, transactionRepository, new AccountLocks()
+    );
+
+    // then
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(OptimisticCommitTransactionCommand.class);
+  }
+
+  @Test public void shouldProvideCommitTransactionBatchCommand() {
+    // when
+    CommitTransactionBatchCommand command = commandModule.provideCommitTransactionBatchCommand(
+        accountRepository, transactionRepository, commandModule.provideAccountLocks()
+    );
+
+    // then
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(DefaultCommitTransactionBatchCommand.class);
+  }
+
+  @Test public void shouldProvideCommitMultiLegTransactionCommand() {
+    // when
+    CommitMultiLegTransactionCommand command =
+        commandModule.provideCommitMultiLegTransactionCommand(
+            accountRepository, transactionRepository, commandModule.provideAccountLocks()
+        );
+
+    // then
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(DefaultCommitMultiLegTransactionCommand.class);
+  }
+
+  @Test public void shouldProvideSubmitTransactionCommand() {
+    // when
+    SubmitTransactionCommand command = commandModule.provideSubmitTransactionCommand(
+        commitTransactionCommand, accountRepository, transactionStatusRepository
+    );
+
+    // then
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(DefaultSubmitTransactionCommand.class);
+    ((DefaultSubmitTransactionCommand) command).close();
+  }
+
   @Test public void shouldProvideCreateAccountCommand() {
     CreateAccountCommand command = commandModule.provideCreateAccountCommand(
-        accountRepository
+        accountRepository, new LedgerAggregates(), new TransactionIndex(), new AccountLocks()
     );
 
     assertThat(command).isNotNull();
     assertThat(command).isInstanceOf(DefaultCreateAccountCommand.class);
   }
-}
\ No newline at end of file
+
+  @Test public void shouldProvideSplitAccountCommand() {
+    SplitAccountCommand command = commandModule.provideSplitAccountCommand(accountRepository);
+
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(DefaultSplitAccountCommand.class);
+  }
+
+  @Test public void shouldProvideImportAccountsCommand() {
+    ImportAccountsCommand command = commandModule.provideImportAccountsCommand(
+        commandModule.provideCreateAccountCommand(
+            accountRepository, new LedgerAggregates(), new TransactionIndex(), new AccountLocks()
+        )
+    );
+
+    assertThat(command).isNotNull();
+    assertThat(command).isInstanceOf(DefaultImportAccountsCommand.class);
+  }
+}
@@ -1,13 +1,27 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
 import com.pwittchen.money.transfer.api.command.CreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
+import com.pwittchen.money.transfer.api.command.SubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.configuration.option.ApplicationOptions;
 import com.pwittchen.money.transfer.api.controller.AccountController;
+import com.pwittchen.money.transfer.api.controller.AsyncTransactionController;
+import com.pwittchen.money.transfer.api.controller.StatsController;
 import com.pwittchen.money.transfer.api.controller.TransactionController;
 import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
 import com.pwittchen.money.transfer.api.controller.context.DefaultContextWrapper;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.query.GetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.query.GetTransactionStatusQuery;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -20,12 +34,32 @@ public class ControllerModuleTest {
 
   @Mock private GetAllAccountsQuery getAllAccountsQuery;
 
+  @Mock private GetAccountTransactionsQuery getAccountTransactionsQuery;
+
+  @Mock private GetAccountBalanceQuery getAccountBalanceQuery;
+
+  @Mock private GetAccountQuery getAccountQuery;
+
   @Mock private GetAllTransactionsQuery getAllTransactionsQuery;
 
   @Mock private CommitTransactionCommand commitTransactionCommand;
 
+  @Mock private CommitTransactionBatchCommand commitTransactionBatchCommand;
+
+  @Mock private CommitMultiLegTransactionCommand commitMultiLegTransactionCommand;
+
   @Mock private CreateAccountCommand createAccountCommand;
 
+  @Mock private SplitAccountCommand splitAccountCommand;
+
+  @Mock private ImportAccountsCommand importAccountsCommand;
+
+  @Mock private SubmitTransactionCommand submitTransactionCommand;
+
+  @Mock private GetTransactionStatusQuery getTransactionStatusQuery;
+
+  @Mock private GetLedgerStatsQuery getLedgerStatsQuery;
+
   @Mock private ContextWrapper contextWrapper;
 
   private ControllerModule controllerModule = new ControllerModule();
@@ -35,7 +69,12 @@ public class ControllerModuleTest {
     AccountController controller = controllerModule.provideAccountController(
         contextWrapper,
         getAllAccountsQuery,
-        createAccountCommand
+        getAccountTransactionsQuery,
+        getAccountBalanceQuery,
+        getAccountQuery,
+        createAccountCommand,
+        splitAccountCommand,
+        importAccountsCommand
     );
 
     // then
@@ -47,13 +86,40 @@ public class ControllerModuleTest {
     TransactionController transactionController = controllerModule.provideTransactionController(
         contextWrapper,
         getAllTransactionsQuery,
-        commitTransactionCommand
+        commitTransactionCommand,
+        commitTransactionBatchCommand,
+        commitMultiLegTransactionCommand,
+        controllerModule.provideIdempotencyCache()
     );
 
     // then
     assertThat(transactionController).isNotNull();
   }
 
+  @Test public void shouldProvideAsyncTransactionController() {
+    // when
+    AsyncTransactionController controller = controllerModule.provideAsyncTransactionController(
+        contextWrapper,
+        submitTransactionCommand,
+        getTransactionStatusQuery,
+        controllerModule.provideIdempotencyCache()
+    );
+
+    // then
+    assertThat(controller).isNotNull();
+  }
+
+  @Test public void shouldProvideStatsController() {
+    // when
+    StatsController controller = controllerModule.provideStatsController(
+        contextWrapper,
+        getLedgerStatsQuery
+    );
+
+    // then
+    assertThat(controller).isNotNull();
+  }
+
   @Test public void shouldProvideContextWrapper() {
     // when
     ContextWrapper contextWrapper = controllerModule.provideContextWrapper();
@@ -62,4 +128,20 @@ public class ControllerModuleTest {
     assertThat(contextWrapper).isNotNull();
     assertThat(contextWrapper).isInstanceOf(DefaultContextWrapper.class);
   }
-}
\ No newline at end of file
+
+  @Test public void shouldProvideIdempotencyCache() {
+    // given
+    ControllerModule controllerModule = new ControllerModule(ApplicationOptions
+        .builder()
+        .idempotencyTtl(60)
+        .idempotencySize(10)
+        .build());
+
+    // when
+    IdempotencyCache idempotencyCache = controllerModule.provideIdempotencyCache();
+
+    // then
+    assertThat(idempotencyCache).isNotNull();
+    assertThat(idempotencyCache.size()).isEqualTo(0);
+  }
+}
@@ -1,11 +1,24 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.query.GetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.query.GetTransactionStatusQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAccountQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.query.implementation.DefaultGetTransactionStatusQuery;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -22,6 +35,10 @@ public class QueryModuleTest {
 
   @Mock private TransactionRepository transactionRepository;
 
+  @Mock private TransactionStatusRepository transactionStatusRepository;
+
+  @Mock private TransactionIndex transactionIndex;
+
   @Test public void shouldProvideGetAllAccountsQuery() {
     // when
     GetAllAccountsQuery query = queryModule.provideGetAllAccountsQuery(accountRepository);
@@ -33,10 +50,68 @@ public class QueryModuleTest {
 
   @Test public void shouldProvideGetAllTransactionsQuery() {
     // when
-    GetAllTransactionsQuery query = queryModule.provideGetTransactionQuery(transactionRepository);
+    GetAllTransactionsQuery query = queryModule.provideGetTransactionQuery(
+        transactionRepository, transactionIndex
+    );
 
     // then
     assertThat(query).isNotNull();
     assertThat(query).isInstanceOf(DefaultGetAllTransactionsQuery.class);
   }
-}
\ No newline at end of file
+
+  @Test public void shouldProvideGetAccountQuery() {
+    // when
+    GetAccountQuery query = queryModule.provideGetAccountQuery(accountRepository);
+
+    // then
+    assertThat(query).isNotNull();
+    assertThat(query).isInstanceOf(DefaultGetAccountQuery.class);
+  }
+
+  @Test public void shouldProvideGetAccountBalanceQuery() {
+    // when
+    GetAccountBalanceQuery query = queryModule.provideGetAccountBalanceQuery(
+        accountRepository, transactionRepository, transactionIndex
+    );
+
+    // then
+    assertThat(query).isNotNull();
+    assertThat(query).isInstanceOf(DefaultGetAccountBalanceQuery.class);
+  }
+
+  @Test public void shouldProvideGetAccountTransactionsQuery() {
+    // given
+    GetAllTransactionsQuery getAllTransactionsQuery = queryModule.provideGetTransactionQuery(
+        transactionRepository, transactionIndex
+    );
+
+    // when
+    GetAccountTransactionsQuery query = queryModule.provideGetAccountTransactionsQuery(
+        accountRepository, getAllTransactionsQuery
+    );
+
+    // then
+    assertThat(query).isNotNull();
+    assertThat(query).isInstanceOf(DefaultGetAccountTransactionsQuery.class);
+  }
+
+  @Test public void shouldProvideGetTransactionStatusQuery() {
+    // when
+    GetTransactionStatusQuery query = queryModule.provideGetTransactionStatusQuery(
+        transactionStatusRepository
+    );
+
+    // then
+    assertThat(query).isNotNull();
+    assertThat(query).isInstanceOf(DefaultGetTransactionStatusQuery.class);
+  }
+
+  @Test public void shouldProvideGetLedgerStatsQuery() {
+    // when
+    GetLedgerStatsQuery query = queryModule.provideGetLedgerStatsQuery(new LedgerAggregates());
+
+    // then
+    assertThat(query).isNotNull();
+    assertThat(query).isInstanceOf(DefaultGetLedgerStatsQuery.class);
+  }
+}
@@ -1,10 +1,40 @@
 package com.pwittchen.money.transfer.api.configuration.module;
 
+import com.pwittchen.money.transfer.api.configuration.option.AccountStorage;
+import com.pwittchen.money.transfer.api.configuration.option.ApplicationOptions;
+import com.pwittchen.money.transfer.api.configuration.option.Durability;
+import com.pwittchen.money.transfer.api.configuration.option.TransactionStorage;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import com.pwittchen.money.transfer.api.repository.index.IndexedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
 import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
-import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionStatusRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.MinorUnitAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.OptimisticAccountRepository;
+import com.pwittchen.money.transfer.api.repository.jdbc.ConnectionPool;
+import com.pwittchen.money.transfer.api.repository.jdbc.JdbcAccountRepository;
+import com.pwittchen.money.transfer.api.repository.journal.MappedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.journal.TieredTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.offheap.OffHeapAccountRepository;
+import com.pwittchen.money.transfer.api.repository.wal.DurableAccountRepository;
+import com.pwittchen.money.transfer.api.repository.wal.DurableTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.wal.Snapshotter;
+import com.pwittchen.money.transfer.api.repository.wal.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
 
@@ -13,23 +43,269 @@ import static com.google.common.truth.Truth.assertThat;
 @RunWith(MockitoJUnitRunner.class)
 public class RepositoryModuleTest {
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private RepositoryModule repositoryModule = new RepositoryModule();
 
   @Test public void shouldProvideAccountRepository() {
     // when
-    AccountRepository accountRepository = repositoryModule.provideAccountRepository();
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), Optional.empty());
 
     // then
     assertThat(accountRepository).isNotNull();
     assertThat(accountRepository).isInstanceOf(InMemoryAccountRepository.class);
   }
 
+  @Test public void shouldProvideStripedAccountRepository() {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .accountStorage(AccountStorage.STRIPED)
+        .build());
+
+    // when
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), Optional.empty());
+
+    // then
+    assertThat(accountRepository).isNotNull();
+    assertThat(accountRepository).isInstanceOf(StripedAccountRepository.class);
+  }
+
+  @Test public void shouldProvideMinorUnitAccountRepository() {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .accountStorage(AccountStorage.MINOR_UNITS)
+        .build());
+
+    // when
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), Optional.empty());
+
+    // then
+    assertThat(accountRepository).isInstanceOf(MinorUnitAccountRepository.class);
+  }
+
+  @Test public void shouldProvideOffHeapAccountRepository() {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .accountStorage(AccountStorage.OFF_HEAP)
+        .build());
+
+    // when
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), Optional.empty());
+
+    // then
+    assertThat(accountRepository).isInstanceOf(OffHeapAccountRepository.class);
+  }
+
+  @Test public void shouldProvideOptimisticAccountRepository() {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .accountStorage(AccountStorage.OPTIMISTIC)
+        .build());
+
+    // when
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), Optional.empty());
+
+    // then
+    assertThat(accountRepository).isInstanceOf(OptimisticAccountRepository.class);
+  }
+
+  @Test public void shouldProvideOptimisticAccountRepositoryWithSplitThreshold() {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .accountStorage(AccountStorage.OPTIMISTIC)
+        .splitThreshold(100)
+        .build());
+
+    // when
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), Optional.empty());
+
+    // then
+    assertThat(accountRepository).isInstanceOf(OptimisticAccountRepository.class);
+  }
+
   @Test
   public void shouldProvideTransactionRepository() {
     // when
-    TransactionRepository transactionRepository = repositoryModule.provideTransactionRepository();
+    IndexedTransactionRepository indexedTransactionRepository =
+        repositoryModule.provideIndexedTransactionRepository(
+            Optional.empty(), Optional.empty(), new InMemoryAccountRepository()
+        );
+    TransactionRepository transactionRepository = repositoryModule.provideTransactionRepository(
+        indexedTransactionRepository, Optional.empty()
+    );
 
     assertThat(transactionRepository).isNotNull();
-    assertThat(transactionRepository).isInstanceOf(InMemoryTransactionRepository.class);
+    assertThat(transactionRepository).isSameInstanceAs(indexedTransactionRepository);
+  }
+
+  @Test public void shouldProvideIndexOfTransactionRepository() {
+    // given
+    IndexedTransactionRepository transactionRepository =
+        repositoryModule.provideIndexedTransactionRepository(
+            Optional.empty(), Optional.empty(), new InMemoryAccountRepository()
+        );
+
+    // when
+    TransactionIndex transactionIndex =
+        repositoryModule.provideTransactionIndex(transactionRepository);
+
+    // then
+    assertThat(transactionIndex).isSameInstanceAs(transactionRepository.index());
+  }
+
+  @Test public void shouldAddExistingAccountsToAggregatesAndIndex() {
+    // given
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), Optional.empty());
+    accountRepository.create(Account
+        .builder()
+        .number("AC1")
+        .owner("owner")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .createdAt(LocalDateTime.now())
+        .build());
+    IndexedTransactionRepository transactionRepository =
+        repositoryModule.provideIndexedTransactionRepository(
+            Optional.empty(), Optional.empty(), accountRepository
+        );
+    transactionRepository.create(Transaction
+        .builder()
+        .id("TR1")
+        .from("AC1")
+        .to("AC2")
+        .money(Money.of(CurrencyUnit.EUR, 1))
+        .createdAt(LocalDateTime.now())
+        .build());
+
+    // when
+    LedgerAggregates ledgerAggregates =
+        repositoryModule.provideLedgerAggregates(transactionRepository);
+
+    // then
+    assertThat(ledgerAggregates).isSameInstanceAs(transactionRepository.aggregates());
+    assertThat(ledgerAggregates.stats().accounts()).isEqualTo(1);
+    assertThat(ledgerAggregates.stats().transactions()).isEqualTo(1);
+    assertThat(transactionRepository.index().balance("AC1", LocalDateTime.now(), position ->
+        transactionRepository.get(position, 1).get(0))).isEqualTo(900);
+  }
+
+  @Test public void shouldNotOpenStoragesOfDataKeptInMemory() {
+    // when
+    Optional<WriteAheadLog> writeAheadLog = repositoryModule.provideWriteAheadLog();
+    Optional<ConnectionPool> connectionPool = repositoryModule.provideConnectionPool();
+    Optional<MappedTransactionRepository> journal = repositoryModule.provideTransactionJournal();
+    Optional<TieredTransactionRepository> history = repositoryModule.provideTransactionHistory();
+    Optional<TransactionRepository> transactionRepository =
+        repositoryModule.providePersistentTransactionRepository(journal, history, connectionPool);
+
+    // then
+    assertThat(writeAheadLog.isPresent()).isFalse();
+    assertThat(connectionPool.isPresent()).isFalse();
+    assertThat(journal.isPresent()).isFalse();
+    assertThat(history.isPresent()).isFalse();
+    assertThat(transactionRepository.isPresent()).isFalse();
+  }
+
+  @Test public void shouldProvideDurableRepositories() throws IOException {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .accountStorage(AccountStorage.STRIPED)
+        .durability(Durability.WAL)
+        .walDirectory(temporaryFolder.getRoot().getPath())
+        .walGroupSize(1)
+        .snapshotInterval(0)
+        .build());
+
+    // when
+    Optional<WriteAheadLog> writeAheadLog = repositoryModule.provideWriteAheadLog();
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(writeAheadLog, Optional.empty());
+    TransactionRepository transactionRepository = repositoryModule.provideTransactionRepository(
+        repositoryModule.provideIndexedTransactionRepository(
+            Optional.empty(), writeAheadLog, accountRepository
+        ),
+        writeAheadLog
+    );
+    Optional<Snapshotter> snapshotter =
+        repositoryModule.provideSnapshotter(writeAheadLog, transactionRepository);
+
+    // then
+    assertThat(accountRepository).isInstanceOf(DurableAccountRepository.class);
+    assertThat(transactionRepository).isInstanceOf(DurableTransactionRepository.class);
+    assertThat(snapshotter.isPresent()).isTrue();
+    snapshotter.get().close();
+    writeAheadLog.get().close();
+  }
+
+  @Test public void shouldProvideMappedTransactionRepository() throws IOException {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .transactionStorage(TransactionStorage.MAPPED)
+        .journalDirectory(temporaryFolder.newFolder("journal").getPath())
+        .journalSegmentSize(1)
+        .indexDirectory(temporaryFolder.getRoot().toPath().resolve("index").toString())
+        .build());
+    Optional<MappedTransactionRepository> journal = repositoryModule.provideTransactionJournal();
+
+    // when
+    IndexedTransactionRepository indexedTransactionRepository =
+        repositoryModule.provideIndexedTransactionRepository(
+            repositoryModule.providePersistentTransactionRepository(
+                journal, Optional.empty(), Optional.empty()
+            ),
+            Optional.empty(),
+            new InMemoryAccountRepository()
+        );
+    TransactionRepository transactionRepository = repositoryModule.provideTransactionRepository(
+        indexedTransactionRepository, Optional.empty()
+    );
+    indexedTransactionRepository.close();
+
+    // then
+    assertThat(transactionRepository.getAll()).isSameInstanceAs(journal.get().getAll());
+    assertThat(Files.exists(temporaryFolder.getRoot().toPath().resolve("index/index.state")))
+        .isTrue();
+    journal.get().close();
+  }
+
+  @Test public void shouldProvideJdbcAccountRepository() {
+    // given
+    RepositoryModule repositoryModule = new RepositoryModule(ApplicationOptions
+        .builder()
+        .accountStorage(AccountStorage.JDBC)
+        .jdbcUrl("jdbc:h2:mem:accounts")
+        .jdbcPoolSize(1)
+        .build());
+    Optional<ConnectionPool> connectionPool = repositoryModule.provideConnectionPool();
+
+    // when
+    AccountRepository accountRepository =
+        repositoryModule.provideAccountRepository(Optional.empty(), connectionPool);
+
+    // then
+    assertThat(accountRepository).isInstanceOf(JdbcAccountRepository.class);
+    connectionPool.get().close();
+  }
+
+  @Test public void shouldProvideTransactionStatusRepository() {
+    // when
+    TransactionStatusRepository repository = repositoryModule.provideTransactionStatusRepository();
+
+    // then
+    assertThat(repository).isNotNull();
+    assertThat(repository).isInstanceOf(InMemoryTransactionStatusRepository.class);
   }
-}
\ No newline at end of file
+}
@@ -1,24 +1,48 @@
 package com.pwittchen.money.transfer.api.controller;
 
 import com.pwittchen.money.transfer.api.command.CreateAccountCommand;
+import com.pwittchen.money.transfer.api.command.ImportAccountsCommand;
+import com.pwittchen.money.transfer.api.command.SplitAccountCommand;
 import com.pwittchen.money.transfer.api.command.exception.AccountAlreadyExistsException;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.HistoryNotAvailableException;
 import com.pwittchen.money.transfer.api.command.implementation.DefaultCreateAccountCommand;
 import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
 import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.AccountBalance;
+import com.pwittchen.money.transfer.api.model.ImportFormat;
+import com.pwittchen.money.transfer.api.model.ImportResult;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.query.GetAccountBalanceQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountQuery;
+import com.pwittchen.money.transfer.api.query.GetAccountTransactionsQuery;
 import com.pwittchen.money.transfer.api.query.GetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.query.implementation.DefaultGetAllAccountsQuery;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import io.javalin.http.Context;
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import org.eclipse.jetty.http.HttpStatus;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -38,13 +62,28 @@ public class AccountControllerTest {
   private GetAllAccountsQuery getAllAccountsQuery;
   private CreateAccountCommand createAccountCommand;
 
+  @Mock private GetAccountTransactionsQuery getAccountTransactionsQuery;
+
+  @Mock private GetAccountBalanceQuery getAccountBalanceQuery;
+
+  @Mock private GetAccountQuery getAccountQuery;
+
+  @Mock private SplitAccountCommand splitAccountCommand;
+
+  @Mock private ImportAccountsCommand importAccountsCommand;
+
   @Before public void setUp() {
     getAllAccountsQuery = spy(new DefaultGetAllAccountsQuery(accountRepository));
     createAccountCommand = spy(new DefaultCreateAccountCommand(accountRepository));
     controller = new AccountController(
         contextWrapper,
         getAllAccountsQuery,
-        createAccountCommand
+        getAccountTransactionsQuery,
+        getAccountBalanceQuery,
+        getAccountQuery,
+        createAccountCommand,
+        splitAccountCommand,
+        importAccountsCommand
     );
   }
 
@@ -60,6 +99,182 @@ public class AccountControllerTest {
     verify(contextWrapper).json(context, accounts);
   }
 
+  @Test public void shouldStreamAllAccountsAsNdjson() {
+    // given
+    Iterator<Account> accounts = Collections.emptyIterator();
+    when(contextWrapper.accepts(context, ContextWrapper.NDJSON)).thenReturn(true);
+    when(accountRepository.iterator()).thenReturn(accounts);
+
+    // when
+    controller.getAll(context);
+
+    // then
+    verify(contextWrapper).ndjson(context, accounts);
+    verify(accountRepository, times(0)).getAll();
+  }
+
+  @Test public void shouldGetAccountWithEtag() {
+    // given
+    final Account account = createAccount(100);
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(getAccountQuery.run("AC1")).thenReturn(Optional.of(account));
+
+    // when
+    controller.get(context);
+
+    // then
+    verify(contextWrapper).header(eq(context), eq("ETag"), any(String.class));
+    verify(contextWrapper).json(context, account, HttpStatus.OK_200);
+  }
+
+  @Test public void shouldNotGetAccountWhichDoesNotExist() {
+    // given
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(getAccountQuery.run("AC1")).thenReturn(Optional.empty());
+
+    // when
+    controller.get(context);
+
+    // then
+    verify(contextWrapper).json(context, "Account with number AC1 does not exist",
+        HttpStatus.NOT_FOUND_404);
+  }
+
+  @Test public void shouldRespondNotModifiedWhenEtagMatches() {
+    // given
+    final ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(getAccountQuery.run("AC1")).thenReturn(Optional.of(createAccount(100)));
+    controller.get(context);
+    verify(contextWrapper).header(eq(context), eq("ETag"), etag.capture());
+    when(contextWrapper.header(context, "If-None-Match"))
+        .thenReturn("\"other\", W/" + etag.getValue());
+
+    // when
+    controller.get(context);
+
+    // then
+    verify(contextWrapper).status(context, HttpStatus.NOT_MODIFIED_304);
+    verify(contextWrapper, times(1)).json(any(Context.class), any(Account.class), anyInt());
+  }
+
+  @Test public void shouldChangeEtagWhenBalanceChanges() {
+    // given
+    final ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(getAccountQuery.run("AC1"))
+        .thenReturn(Optional.of(createAccount(100)))
+        .thenReturn(Optional.of(createAccount(90)));
+    controller.get(context);
+    verify(contextWrapper).header(eq(context), eq("ETag"), etag.capture());
+    when(contextWrapper.header(context, "If-None-Match")).thenReturn(etag.getValue());
+
+    // when
+    controller.get(context);
+
+    // then
+    final ArgumentCaptor<String> changed = ArgumentCaptor.forClass(String.class);
+    verify(contextWrapper, times(2)).header(eq(context), eq("ETag"), changed.capture());
+    verify(contextWrapper, times(2)).json(any(Context.class), any(Account.class), anyInt());
+    assertThat(changed.getValue()).isNotEqualTo(etag.getValue());
+  }
+
+  @Test public void shouldGetPageOfTransactionsOfAccount() {
+    // given
+    TransactionPage page = new TransactionPage(List.of(), "next");
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(contextWrapper.queryParam(context, "cursor")).thenReturn("cursor");
+    when(contextWrapper.queryParam(context, "limit")).thenReturn("10");
+    when(getAccountTransactionsQuery.run("AC1", "cursor", 10)).thenReturn(Optional.of(page));
+
+    // when
+    controller.getTransactions(context);
+
+    // then
+    verify(contextWrapper).json(context, page, HttpStatus.OK_200);
+  }
+
+  @Test public void shouldNotGetTransactionsOfAccountWhichDoesNotExist() {
+    // given
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(getAccountTransactionsQuery.run("AC1", null, TransactionPage.DEFAULT_LIMIT))
+        .thenReturn(Optional.empty());
+
+    // when
+    controller.getTransactions(context);
+
+    // then
+    verify(contextWrapper).json(context, "Account with number AC1 does not exist",
+        HttpStatus.NOT_FOUND_404);
+  }
+
+  @Test public void shouldNotGetTransactionsOfAccountIfLimitIsInvalid() {
+    // given
+    when(contextWrapper.queryParam(context, "limit")).thenReturn("INVALID");
+
+    // when
+    controller.getTransactions(context);
+
+    // then
+    verify(getAccountTransactionsQuery, times(0)).run(any(), any(), anyInt());
+    verify(contextWrapper).json(context, "invalid limit", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldGetBalanceOfAccountAsOfTime() {
+    // given
+    LocalDateTime asOf = LocalDateTime.of(2019, 12, 31, 23, 59);
+    AccountBalance balance = new AccountBalance("AC1", Money.of(CurrencyUnit.EUR, 10), asOf);
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(contextWrapper.queryParam(context, "asOf")).thenReturn("2019-12-31T23:59");
+    when(getAccountBalanceQuery.run("AC1", asOf)).thenReturn(Optional.of(balance));
+
+    // when
+    controller.getBalance(context);
+
+    // then
+    verify(contextWrapper).json(context, balance, HttpStatus.OK_200);
+  }
+
+  @Test public void shouldNotGetBalanceOfAccountWhichDoesNotExist() {
+    // given
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(getAccountBalanceQuery.run(eq("AC1"), any(LocalDateTime.class)))
+        .thenReturn(Optional.empty());
+
+    // when
+    controller.getBalance(context);
+
+    // then
+    verify(contextWrapper).json(context, "Account with number AC1 does not exist",
+        HttpStatus.NOT_FOUND_404);
+  }
+
+  @Test public void shouldNotGetBalanceOfAccountBeforeHistoryIsComplete() {
+    // given
+    LocalDateTime retainedFrom = LocalDateTime.of(2020, 1, 1, 0, 0);
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(getAccountBalanceQuery.run(eq("AC1"), any(LocalDateTime.class)))
+        .thenThrow(new HistoryNotAvailableException(retainedFrom));
+
+    // when
+    controller.getBalance(context);
+
+    // then
+    verify(contextWrapper).json(context, "History is not available before 2020-01-01T00:00",
+        HttpStatus.UNPROCESSABLE_ENTITY_422);
+  }
+
+  @Test public void shouldNotGetBalanceOfAccountIfDateIsInvalid() {
+    // given
+    when(contextWrapper.queryParam(context, "asOf")).thenReturn("INVALID");
+
+    // when
+    controller.getBalance(context);
+
+    // then
+    verify(contextWrapper).json(context, "invalid date format", HttpStatus.BAD_REQUEST_400);
+  }
+
   @Test public void shouldCreateAccount() throws Exception {
     // given
     when(contextWrapper.formParam(context, "currency")).thenReturn("EUR");
@@ -104,7 +319,7 @@ public class AccountControllerTest {
     when(contextWrapper.formParam(context, "owner")).thenReturn("testOwner");
     when(contextWrapper.formParam(context, "currency")).thenReturn("EUR");
     when(contextWrapper.formParam(context, "money")).thenReturn("100.00");
-    when(accountRepository.create(any())).thenThrow(exception);
+    when(accountRepository.createIfAbsent(any())).thenThrow(exception);
 
     // when
     controller.create(context);
@@ -112,4 +327,84 @@ public class AccountControllerTest {
     // then
     verify(contextWrapper).json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
   }
-}
\ No newline at end of file
+
+  @Test public void shouldSplitAccount() {
+    // given
+    Account account = Account.builder().number("AC1").build();
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(contextWrapper.formParam(context, "shards")).thenReturn("8");
+    when(splitAccountCommand.run("AC1", 8)).thenReturn(account);
+
+    // when
+    controller.split(context);
+
+    // then
+    verify(contextWrapper).json(context, account, HttpStatus.OK_200);
+  }
+
+  @Test public void shouldNotSplitAccountIfNumberOfShardsIsInvalid() {
+    // given
+    when(contextWrapper.formParam(context, "shards")).thenReturn("INVALID");
+
+    // when
+    controller.split(context);
+
+    // then
+    verify(splitAccountCommand, times(0)).run(any(), anyInt());
+    verify(contextWrapper).json(context, "Invalid number of shards", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldNotSplitAccountIfErrorOccurred() {
+    // given
+    AccountNotExistsException exception = new AccountNotExistsException("AC1");
+    when(contextWrapper.pathParam(context, "number")).thenReturn("AC1");
+    when(contextWrapper.formParam(context, "shards")).thenReturn("8");
+    when(splitAccountCommand.run("AC1", 8)).thenThrow(exception);
+
+    // when
+    controller.split(context);
+
+    // then
+    verify(contextWrapper).json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldImportAccounts() {
+    // given
+    ImportResult result = new ImportResult(1, 0, List.of());
+    when(contextWrapper.header(context, "Content-Type")).thenReturn("text/csv; charset=utf-8");
+    when(contextWrapper.bodyAsInputStream(context)).thenReturn(new ByteArrayInputStream(
+        "AC1,testOwner,EUR,10.00".getBytes(StandardCharsets.UTF_8)
+    ));
+    when(importAccountsCommand.run(any(Reader.class), eq(ImportFormat.CSV))).thenReturn(result);
+
+    // when
+    controller.importAccounts(context);
+
+    // then
+    verify(contextWrapper).json(context, result, HttpStatus.OK_200);
+  }
+
+  @Test public void shouldNotImportAccountsInUnsupportedFormat() {
+    // given
+    when(contextWrapper.header(context, "Content-Type")).thenReturn("application/xml");
+
+    // when
+    controller.importAccounts(context);
+
+    // then
+    verify(importAccountsCommand, times(0)).run(any(), any());
+    verify(contextWrapper).json(context,
+        "Unsupported import format, use application/x-ndjson or text/csv",
+        HttpStatus.UNSUPPORTED_MEDIA_TYPE_415);
+  }
+
+  private static Account createAccount(final int money) {
+    return Account
+        .builder()
+        .number("AC1")
+        .owner("owner")
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .createdAt(LocalDateTime.of(2019, 12, 31, 0, 0))
+        .build();
+  }
+}
@@ -0,0 +1,168 @@
+package com.pwittchen.money.transfer.api.controller;
+
+import com.pwittchen.money.transfer.api.command.SubmitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.query.GetTransactionStatusQuery;
+import io.javalin.http.Context;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncTransactionControllerTest {
+
+  private AsyncTransactionController controller;
+
+  @Mock private ContextWrapper contextWrapper;
+
+  @Mock private Context context;
+
+  @Mock private SubmitTransactionCommand submitTransactionCommand;
+
+  @Mock private GetTransactionStatusQuery getTransactionStatusQuery;
+
+  @Before public void setUp() {
+    controller = new AsyncTransactionController(
+        contextWrapper,
+        submitTransactionCommand,
+        getTransactionStatusQuery,
+        new IdempotencyCache(1, TimeUnit.HOURS, 100)
+    );
+  }
+
+  @Test public void shouldAcceptTransaction() {
+    // given
+    TransactionStatus status = TransactionStatus.pending("TR1");
+    givenTransferParams("EUR", "10.00");
+    when(submitTransactionCommand.run(any(Transaction.class))).thenReturn(status);
+
+    // when
+    controller.commit(context);
+
+    // then
+    verify(contextWrapper).json(context, status, HttpStatus.ACCEPTED_202);
+  }
+
+  @Test public void shouldNotAcceptTransactionIfMoneyHasInvalidFormat() {
+    // given
+    givenTransferParams("EUR", "INVALID");
+
+    // when
+    controller.commit(context);
+
+    // then
+    verify(submitTransactionCommand, times(0)).run(any(Transaction.class));
+    verify(contextWrapper).json(context, "invalid money format", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldNotAcceptTransactionIfAccountDoesNotExist() {
+    // given
+    AccountNotExistsException exception = new AccountNotExistsException("AC2");
+    givenTransferParams("EUR", "10.00");
+    when(submitTransactionCommand.run(any(Transaction.class))).thenThrow(exception);
+
+    // when
+    controller.commit(context);
+
+    // then
+    verify(contextWrapper).json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldNotAcceptTransactionIfCommitQueueIsFull() {
+    // given
+    CommitQueueFullException exception = new CommitQueueFullException("TR1");
+    givenTransferParams("EUR", "10.00");
+    when(submitTransactionCommand.run(any(Transaction.class))).thenThrow(exception);
+
+    // when
+    controller.commit(context);
+
+    // then
+    verify(contextWrapper).json(context, exception.getMessage(),
+        HttpStatus.SERVICE_UNAVAILABLE_503);
+  }
+
+  @Test public void shouldGetTransactionStatus() {
+    // given
+    TransactionStatus status = TransactionStatus.committed("TR1");
+    when(contextWrapper.pathParam(context, "id")).thenReturn("TR1");
+    when(getTransactionStatusQuery.run("TR1")).thenReturn(Optional.of(status));
+
+    // when
+    controller.getStatus(context);
+
+    // then
+    verify(contextWrapper).json(context, status, HttpStatus.OK_200);
+  }
+
+  @Test public void shouldNotGetStatusOfUnknownTransaction() {
+    // given
+    when(contextWrapper.pathParam(context, "id")).thenReturn("TR1");
+    when(getTransactionStatusQuery.run("TR1")).thenReturn(Optional.empty());
+
+    // when
+    controller.getStatus(context);
+
+    // then
+    verify(contextWrapper).json(context, "Transaction with id TR1 does not exist",
+        HttpStatus.NOT_FOUND_404);
+  }
+
+  @Test public void shouldReplayAcceptedTransactionForTheSameIdempotencyKey() {
+    // given
+    TransactionStatus status = TransactionStatus.pending("TR1");
+    givenTransferParams("EUR", "10.00");
+    when(contextWrapper.header(context, IdempotencyCache.HEADER)).thenReturn("KEY1");
+    when(submitTransactionCommand.run(any(Transaction.class))).thenReturn(status);
+
+    // when
+    controller.commit(context);
+    controller.commit(context);
+
+    // then
+    verify(submitTransactionCommand, times(1)).run(any(Transaction.class));
+    verify(contextWrapper, times(2)).json(context, status, HttpStatus.ACCEPTED_202);
+  }
+
+  @Test public void shouldSubmitTransactionAgainWhenQueueWasFull() {
+    // given
+    CommitQueueFullException exception = new CommitQueueFullException("TR1");
+    TransactionStatus status = TransactionStatus.pending("TR1");
+    givenTransferParams("EUR", "10.00");
+    when(contextWrapper.header(context, IdempotencyCache.HEADER)).thenReturn("KEY1");
+    when(submitTransactionCommand.run(any(Transaction.class)))
+        .thenThrow(exception)
+        .thenReturn(status);
+
+    // when
+    controller.commit(context);
+    controller.commit(context);
+
+    // then
+    verify(contextWrapper).json(context, exception.getMessage(),
+        HttpStatus.SERVICE_UNAVAILABLE_503);
+    verify(contextWrapper).json(context, status, HttpStatus.ACCEPTED_202);
+  }
+
+  private void givenTransferParams(final String currency, final String money) {
+    when(contextWrapper.formParam(context, "from")).thenReturn("AC1");
+    when(contextWrapper.formParam(context, "to")).thenReturn("AC2");
+    when(contextWrapper.formParam(context, "currency")).thenReturn(currency);
+    when(contextWrapper.formParam(context, "money")).thenReturn(money);
+  }
+}
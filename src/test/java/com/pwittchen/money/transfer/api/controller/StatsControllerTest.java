@@ -0,0 +1,47 @@
+package com.pwittchen.money.transfer.api.controller;
+
+import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
+import com.pwittchen.money.transfer.api.model.LedgerStats;
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import io.javalin.http.Context;
+import java.math.BigDecimal;
+import java.util.Map;
+import org.eclipse.jetty.http.HttpStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatsControllerTest {
+
+  private StatsController controller;
+
+  @Mock private ContextWrapper contextWrapper;
+
+  @Mock private Context context;
+
+  @Mock private GetLedgerStatsQuery getLedgerStatsQuery;
+
+  @Before public void setUp() {
+    controller = new StatsController(contextWrapper, getLedgerStatsQuery);
+  }
+
+  @Test public void shouldGetStats() {
+    // given
+    final LedgerStats stats = new LedgerStats(
+        1, Map.of("EUR", new BigDecimal("10.00")), 0, Map.of()
+    );
+    when(getLedgerStatsQuery.run()).thenReturn(stats);
+
+    // when
+    controller.get(context);
+
+    // then
+    verify(contextWrapper).json(context, stats, HttpStatus.OK_200);
+  }
+}
@@ -1,26 +1,50 @@
 package com.pwittchen.money.transfer.api.controller;
 
+import com.pwittchen.money.transfer.api.command.CommitMultiLegTransactionCommand;
+import com.pwittchen.money.transfer.api.command.CommitTransactionBatchCommand;
 import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.exception.CommitQueueFullException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.command.exception.TransactionTimeoutException;
 import com.pwittchen.money.transfer.api.command.exception.TransferToTheSameAccountException;
 import com.pwittchen.money.transfer.api.command.implementation.DefaultCommitTransactionCommand;
 import com.pwittchen.money.transfer.api.controller.context.ContextWrapper;
+import com.pwittchen.money.transfer.api.controller.idempotency.IdempotencyCache;
+import com.pwittchen.money.transfer.api.controller.request.TransferRequest;
 import com.pwittchen.money.transfer.api.model.Account;
 import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.model.TransactionResult;
 import com.pwittchen.money.transfer.api.query.GetAllTransactionsQuery;
+import com.pwittchen.money.transfer.api.query.TransactionFilter;
 import com.pwittchen.money.transfer.api.repository.AccountRepository;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
 import io.javalin.http.Context;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.eclipse.jetty.http.HttpStatus;
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -43,6 +67,10 @@ public class TransactionControllerTest {
 
   @Mock private GetAllTransactionsQuery getAllTransactionsQuery;
 
+  @Mock private CommitTransactionBatchCommand commitTransactionBatchCommand;
+
+  @Mock private CommitMultiLegTransactionCommand commitMultiLegTransactionCommand;
+
   private CommitTransactionCommand commitTransactionCommand;
 
   @Before public void setUp() {
@@ -53,7 +81,10 @@ public class TransactionControllerTest {
     this.controller = new TransactionController(
         contextWrapper,
         getAllTransactionsQuery,
-        commitTransactionCommand
+        commitTransactionCommand,
+        commitTransactionBatchCommand,
+        commitMultiLegTransactionCommand,
+        new IdempotencyCache(1, TimeUnit.HOURS, 100)
     );
   }
 
@@ -75,6 +106,173 @@ public class TransactionControllerTest {
     verify(commitTransactionCommand).run(any(Transaction.class));
   }
 
+  @Test public void shouldGetAllTransactionsWithoutPagination() {
+    // given
+    BlockingQueue<Transaction> transactions = new LinkedBlockingQueue<>();
+    when(getAllTransactionsQuery.run()).thenReturn(transactions);
+
+    // when
+    controller.getAll(context);
+
+    // then
+    verify(contextWrapper).json(context, transactions);
+  }
+
+  @Test public void shouldGetPageOfTransactions() {
+    // given
+    TransactionPage page = new TransactionPage(List.of(), null);
+    when(contextWrapper.queryParam(context, "limit")).thenReturn("10");
+    when(contextWrapper.queryParam(context, "account")).thenReturn("AC1");
+    when(getAllTransactionsQuery.run(any(TransactionFilter.class), isNull(), eq(10)))
+        .thenReturn(page);
+
+    // when
+    controller.getAll(context);
+
+    // then
+    verify(contextWrapper).json(context, page, HttpStatus.OK_200);
+  }
+
+  @Test public void shouldStreamTransactionsAsNdjson() {
+    // given
+    Iterator<Transaction> transactions = Collections.emptyIterator();
+    when(contextWrapper.accepts(context, ContextWrapper.NDJSON)).thenReturn(true);
+    when(contextWrapper.queryParam(context, "account")).thenReturn("AC1");
+    when(getAllTransactionsQuery.iterator(any(TransactionFilter.class))).thenReturn(transactions);
+
+    // when
+    controller.getAll(context);
+
+    // then
+    verify(contextWrapper).ndjson(context, transactions);
+  }
+
+  @Test public void shouldNotGetPageOfTransactionsIfLimitIsInvalid() {
+    // given
+    when(contextWrapper.queryParam(context, "limit")).thenReturn("0");
+
+    // when
+    controller.getAll(context);
+
+    // then
+    verify(contextWrapper).json(context, "invalid limit", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldNotGetPageOfTransactionsIfCursorIsInvalid() {
+    // given
+    when(contextWrapper.queryParam(context, "cursor")).thenReturn("INVALID");
+    when(getAllTransactionsQuery.run(any(TransactionFilter.class), eq("INVALID"), eq(100)))
+        .thenThrow(new IllegalArgumentException("invalid cursor"));
+
+    // when
+    controller.getAll(context);
+
+    // then
+    verify(contextWrapper).json(context, "invalid cursor", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldReplayTransactionForTheSameIdempotencyKey() {
+    // given
+    when(contextWrapper.header(context, IdempotencyCache.HEADER)).thenReturn("KEY1");
+    when(contextWrapper.formParam(context, "from")).thenReturn("senderNo");
+    when(contextWrapper.formParam(context, "to")).thenReturn("receiverNo");
+    when(contextWrapper.formParam(context, "currency")).thenReturn("EUR");
+    when(contextWrapper.formParam(context, "money")).thenReturn("10.00");
+    doNothing().when(commitTransactionCommand).run(any(Transaction.class));
+    ArgumentCaptor<Object> responses = ArgumentCaptor.forClass(Object.class);
+
+    // when
+    controller.commit(context);
+    controller.commit(context);
+
+    // then
+    verify(commitTransactionCommand, times(1)).run(any(Transaction.class));
+    verify(contextWrapper, times(2)).json(eq(context), responses.capture(), eq(HttpStatus.OK_200));
+    assertThat(responses.getAllValues().get(1)).isSameInstanceAs(responses.getAllValues().get(0));
+  }
+
+  @Test public void shouldReplayErrorForTheSameIdempotencyKey() {
+    // given
+    when(contextWrapper.header(context, IdempotencyCache.HEADER)).thenReturn("KEY1");
+    when(contextWrapper.formParam(context, "from")).thenReturn("senderNo");
+    when(contextWrapper.formParam(context, "to")).thenReturn("receiverNo");
+    when(contextWrapper.formParam(context, "currency")).thenReturn("EUR");
+    when(contextWrapper.formParam(context, "money")).thenReturn("10.00");
+    when(accountRepository.get("senderNo")).thenReturn(Optional.empty());
+
+    // when
+    controller.commit(context);
+    controller.commit(context);
+
+    // then
+    verify(commitTransactionCommand, times(1)).run(any(Transaction.class));
+    verify(contextWrapper, times(2)).json(context,
+        "Account with number senderNo does not exist",
+        HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldCommitTransactionAgainWhenItTimedOutForTheSameIdempotencyKey() {
+    // given
+    when(contextWrapper.header(context, IdempotencyCache.HEADER)).thenReturn("KEY1");
+    when(contextWrapper.formParam(context, "from")).thenReturn("senderNo");
+    when(contextWrapper.formParam(context, "to")).thenReturn("receiverNo");
+    when(contextWrapper.formParam(context, "currency")).thenReturn("EUR");
+    when(contextWrapper.formParam(context, "money")).thenReturn("10.00");
+    doThrow(new TransactionTimeoutException("TR1"))
+        .doNothing()
+        .when(commitTransactionCommand).run(any(Transaction.class));
+
+    // when
+    controller.commit(context);
+    controller.commit(context);
+
+    // then
+    verify(commitTransactionCommand, times(2)).run(any(Transaction.class));
+    verify(contextWrapper).json(context,
+        new TransactionTimeoutException("TR1").getMessage(),
+        HttpStatus.SERVICE_UNAVAILABLE_503);
+    verify(contextWrapper).json(eq(context), any(Transaction.class), eq(HttpStatus.OK_200));
+  }
+
+  @Test public void shouldReturnServiceUnavailableWhenCommitQueueIsFull() {
+    // given
+    when(contextWrapper.formParam(context, "from")).thenReturn("senderNo");
+    when(contextWrapper.formParam(context, "to")).thenReturn("receiverNo");
+    when(contextWrapper.formParam(context, "currency")).thenReturn("EUR");
+    when(contextWrapper.formParam(context, "money")).thenReturn("10.00");
+    doThrow(new CommitQueueFullException("TR1"))
+        .when(commitTransactionCommand).run(any(Transaction.class));
+
+    // when
+    controller.commit(context);
+
+    // then
+    verify(contextWrapper).json(context,
+        new CommitQueueFullException("TR1").getMessage(),
+        HttpStatus.SERVICE_UNAVAILABLE_503);
+  }
+
+  @Test public void shouldNotCommitTransactionWhenIdempotencyKeyWasUsedForDifferentRequest() {
+    // given
+    when(contextWrapper.header(context, IdempotencyCache.HEADER)).thenReturn("KEY1");
+    when(contextWrapper.formParam(context, "from")).thenReturn("senderNo");
+    when(contextWrapper.formParam(context, "to")).thenReturn("receiverNo");
+    when(contextWrapper.formParam(context, "currency")).thenReturn("EUR");
+    when(contextWrapper.formParam(context, "money")).thenReturn("10.00");
+    when(accountRepository.get("senderNo")).thenReturn(Optional.empty());
+    controller.commit(context);
+    when(contextWrapper.formParam(context, "money")).thenReturn("20.00");
+
+    // when
+    controller.commit(context);
+
+    // then
+    verify(commitTransactionCommand, times(1)).run(any(Transaction.class));
+    verify(contextWrapper).json(context,
+        "Idempotency key KEY1 was already used for a different request",
+        HttpStatus.UNPROCESSABLE_ENTITY_422);
+  }
+
   @Test public void shouldNotCommitTransactionIfSenderIsNotPresent() {
     // given
     String senderNo = "senderNo";
@@ -177,4 +375,146 @@ public class TransactionControllerTest {
     // then
     verify(contextWrapper).json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
   }
-}
\ No newline at end of file
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldCommitBatchAndReturnResultsInOrderOfRequests() {
+    // given
+    TransferRequest[] requests = {
+        new TransferRequest("AC1", "AC2", "EUR", "10.00"),
+        new TransferRequest("AC1", "AC2", "EUR", "INVALID"),
+        new TransferRequest("AC2", "AC1", "EUR", "5.00")
+    };
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class)).thenReturn(requests);
+    when(commitTransactionBatchCommand.run(anyList())).thenAnswer(invocation -> {
+      List<Transaction> transactions = invocation.getArgument(0);
+      return List.of(
+          TransactionResult.committed(transactions.get(0)),
+          TransactionResult.rejected(transactions.get(1), "not enough money")
+      );
+    });
+
+    // when
+    controller.commitBatch(context);
+
+    // then
+    ArgumentCaptor<List<TransactionResult>> captor = ArgumentCaptor.forClass(List.class);
+    verify(contextWrapper).json(eq(context), captor.capture(), eq(HttpStatus.OK_200));
+    List<TransactionResult> results = captor.getValue();
+    assertThat(results).hasSize(3);
+    assertThat(results.get(0).committed()).isTrue();
+    assertThat(results.get(0).transaction().from()).isEqualTo("AC1");
+    assertThat(results.get(1).committed()).isFalse();
+    assertThat(results.get(1).error()).isEqualTo("invalid money format");
+    assertThat(results.get(2).committed()).isFalse();
+    assertThat(results.get(2).transaction().from()).isEqualTo("AC2");
+    assertThat(results.get(2).error()).isEqualTo("not enough money");
+  }
+
+  @Test public void shouldReturnServerErrorWhenBatchCannotBeRecorded() {
+    // given
+    TransferRequest[] requests = {new TransferRequest("AC1", "AC2", "EUR", "10.00")};
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class)).thenReturn(requests);
+    when(commitTransactionBatchCommand.run(anyList()))
+        .thenThrow(new IllegalStateException("storage failure"));
+
+    // when
+    controller.commitBatch(context);
+
+    // then
+    verify(contextWrapper).json(context, "storage failure", HttpStatus.INTERNAL_SERVER_ERROR_500);
+  }
+
+  @Test public void shouldNotCommitEmptyBatch() {
+    // given
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class))
+        .thenReturn(new TransferRequest[0]);
+
+    // when
+    controller.commitBatch(context);
+
+    // then
+    verify(commitTransactionBatchCommand, times(0)).run(anyList());
+    verify(contextWrapper).json(context, "invalid batch format", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldNotCommitBatchWithInvalidBody() {
+    // given
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class))
+        .thenThrow(new IllegalStateException());
+
+    // when
+    controller.commitBatch(context);
+
+    // then
+    verify(commitTransactionBatchCommand, times(0)).run(anyList());
+    verify(contextWrapper).json(context, "invalid batch format", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldCommitMultiLegTransaction() {
+    // given
+    TransferRequest[] requests = {
+        new TransferRequest("BUYER", "SELLER", "EUR", "90.00"),
+        new TransferRequest("BUYER", "PLATFORM", "EUR", "8.00"),
+        new TransferRequest("BUYER", "TAX", "EUR", "2.00")
+    };
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class)).thenReturn(requests);
+
+    // when
+    controller.commitMultiLeg(context);
+
+    // then
+    ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+    verify(commitMultiLegTransactionCommand).run(captor.capture());
+    assertThat(captor.getValue().legs()).containsExactly(
+        new TransactionLeg("BUYER", "SELLER", Money.of(CurrencyUnit.EUR, 90)),
+        new TransactionLeg("BUYER", "PLATFORM", Money.of(CurrencyUnit.EUR, 8)),
+        new TransactionLeg("BUYER", "TAX", Money.of(CurrencyUnit.EUR, 2))
+    ).inOrder();
+    verify(contextWrapper).json(context, captor.getValue(), HttpStatus.OK_200);
+  }
+
+  @Test public void shouldNotCommitMultiLegTransactionWithInvalidMoney() {
+    // given
+    TransferRequest[] requests = {
+        new TransferRequest("BUYER", "SELLER", "EUR", "90.00"),
+        new TransferRequest("BUYER", "PLATFORM", "EUR", "INVALID")
+    };
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class)).thenReturn(requests);
+
+    // when
+    controller.commitMultiLeg(context);
+
+    // then
+    verify(commitMultiLegTransactionCommand, times(0)).run(any());
+    verify(contextWrapper).json(context, "invalid money format", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldNotCommitEmptyMultiLegTransaction() {
+    // given
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class))
+        .thenReturn(new TransferRequest[0]);
+
+    // when
+    controller.commitMultiLeg(context);
+
+    // then
+    verify(commitMultiLegTransactionCommand, times(0)).run(any());
+    verify(contextWrapper)
+        .json(context, "invalid transaction format", HttpStatus.BAD_REQUEST_400);
+  }
+
+  @Test public void shouldReturnErrorWhenMultiLegTransactionIsRejected() {
+    // given
+    TransferRequest[] requests = {new TransferRequest("BUYER", "SELLER", "EUR", "90.00")};
+    NotEnoughMoneyException exception = new NotEnoughMoneyException("BUYER");
+    when(contextWrapper.bodyAsClass(context, TransferRequest[].class)).thenReturn(requests);
+    doThrow(exception).when(commitMultiLegTransactionCommand).run(any());
+
+    // when
+    controller.commitMultiLeg(context);
+
+    // then
+    verify(contextWrapper).json(context, exception.getMessage(), HttpStatus.BAD_REQUEST_400);
+  }
+}
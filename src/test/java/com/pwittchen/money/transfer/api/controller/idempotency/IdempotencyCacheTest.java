@@ -0,0 +1,141 @@
+package com.pwittchen.money.transfer.api.controller.idempotency;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class IdempotencyCacheTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicInteger executions = new AtomicInteger();
+  private IdempotencyCache cache;
+
+  @Before public void setUp() {
+    cache = new IdempotencyCache(10, TimeUnit.SECONDS, 2, clock::get);
+  }
+
+  @Test public void shouldExecuteRequestOnlyOnceForTheSameKey() {
+    // when
+    CachedResponse first = cache.get("KEY1", "AC1|AC2", this::execute);
+    CachedResponse second = cache.get("KEY1", "AC1|AC2", this::execute);
+
+    // then
+    assertThat(second).isSameInstanceAs(first);
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(cache.hits()).isEqualTo(1);
+    assertThat(cache.misses()).isEqualTo(1);
+    assertThat(cache.hitRate()).isEqualTo(0.5);
+  }
+
+  @Test public void shouldExecuteRequestsWithDifferentKeys() {
+    // when
+    cache.get("KEY1", "AC1|AC2", this::execute);
+    cache.get("KEY2", "AC1|AC2", this::execute);
+
+    // then
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.memory()).isGreaterThan(0L);
+  }
+
+  @Test(expected = IdempotencyKeyReusedException.class)
+  public void shouldNotReplayResponseForDifferentRequest() {
+    // given
+    cache.get("KEY1", "AC1|AC2", this::execute);
+
+    // when
+    cache.get("KEY1", "AC2|AC1", this::execute);
+  }
+
+  @Test public void shouldExecuteRequestAgainWhenEntryExpired() {
+    // given
+    cache.get("KEY1", "AC1|AC2", this::execute);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    // when
+    cache.get("KEY1", "AC1|AC2", this::execute);
+
+    // then
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test public void shouldEvictOldestEntryWhenCacheIsFull() {
+    // given
+    cache.get("KEY1", "AC1|AC2", this::execute);
+    cache.get("KEY2", "AC1|AC2", this::execute);
+
+    // when
+    cache.get("KEY3", "AC1|AC2", this::execute);
+    cache.get("KEY1", "AC1|AC2", this::execute);
+
+    // then
+    assertThat(executions.get()).isEqualTo(4);
+    assertThat(cache.evictions()).isEqualTo(2);
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test public void shouldExecuteRequestAgainWhenItFailed() {
+    // given
+    try {
+      cache.get("KEY1", "AC1|AC2", () -> {
+        throw new IllegalStateException();
+      });
+    } catch (IllegalStateException exception) {
+      // expected
+    }
+
+    // when
+    cache.get("KEY1", "AC1|AC2", this::execute);
+
+    // then
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test public void shouldWaitForResponseOfRequestInFlight() throws Exception {
+    // given
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch released = new CountDownLatch(1);
+    final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    final Future<CachedResponse> first = executorService.submit(() ->
+        cache.get("KEY1", "AC1|AC2", () -> {
+          started.countDown();
+          await(released);
+          return execute();
+        })
+    );
+    started.await(5, TimeUnit.SECONDS);
+
+    // when
+    final Future<CachedResponse> retry = executorService.submit(() ->
+        cache.get("KEY1", "AC1|AC2", this::execute)
+    );
+    released.countDown();
+
+    // then
+    assertThat(retry.get(5, TimeUnit.SECONDS)).isSameInstanceAs(first.get(5, TimeUnit.SECONDS));
+    assertThat(executions.get()).isEqualTo(1);
+    executorService.shutdown();
+  }
+
+  private CachedResponse execute() {
+    return new CachedResponse("TR" + executions.incrementAndGet(), 200);
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
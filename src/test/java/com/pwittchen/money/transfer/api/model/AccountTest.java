@@ -1,5 +1,6 @@
 package com.pwittchen.money.transfer.api.model;
 
+import com.google.gson.Gson;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
@@ -174,6 +175,41 @@ public class AccountTest {
     assertThat(isTheSame).isFalse();
   }
 
+  @Test public void shouldBeTheSameWhenOnlyVersionDiffers() {
+    // given
+    Account account = createAccount();
+    Account anotherAccount = Account.builder()
+        .number(account.number())
+        .createdAt(account.createdAt())
+        .owner(account.owner())
+        .money(account.money())
+        .version(account.version() + 1)
+        .build();
+
+    // when
+    boolean isTheSame = account.equals(anotherAccount);
+
+    // then
+    assertThat(isTheSame).isTrue();
+    assertThat(account.hashCode()).isEqualTo(anotherAccount.hashCode());
+  }
+
+  @Test public void shouldNotSerializeVersion() {
+    // given
+    Account account = Account.builder()
+        .number("AC1")
+        .owner("testOwner")
+        .money(Money.of(CurrencyUnit.USD, 10))
+        .version(5)
+        .build();
+
+    // when
+    String json = new Gson().toJson(account);
+
+    // then
+    assertThat(json).doesNotContain("version");
+  }
+
   @Test public void shouldBeCreatedJustNow() {
     // given
     Account account = createAccount();
@@ -4,6 +4,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.time.LocalDateTime;
+import java.util.List;
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 import org.junit.Test;
@@ -49,6 +50,33 @@ public class TransactionTest {
     assertThat(transactionOne.equals(transactionTwo)).isTrue();
   }
 
+  @Test public void shouldHaveNoLegsWhenItIsTransferBetweenTwoAccounts() {
+    // when
+    Transaction transaction = createTransaction();
+
+    // then
+    assertThat(transaction.legs()).isEmpty();
+  }
+
+  @Test public void objectsShouldNotBeEqualWhenLegsDiffer() {
+    // when
+    LocalDateTime now = LocalDateTime.now();
+    Transaction transactionOne = Transaction.builder()
+        .id("TR1")
+        .createdAt(now)
+        .legs(List.of(new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 10))))
+        .build();
+
+    Transaction transactionTwo = Transaction.builder()
+        .id("TR1")
+        .createdAt(now)
+        .legs(List.of(new TransactionLeg("AC1", "AC3", Money.of(CurrencyUnit.EUR, 10))))
+        .build();
+
+    // then
+    assertThat(transactionOne.equals(transactionTwo)).isFalse();
+  }
+
   @Test public void objectsShouldBeEqualWhenTheyAreTheSameInstance() {
     // when
     Transaction transaction = createTransaction();
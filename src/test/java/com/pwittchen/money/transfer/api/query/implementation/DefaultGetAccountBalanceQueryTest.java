@@ -0,0 +1,162 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.command.exception.HistoryNotAvailableException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.AccountBalance;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.index.IndexedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryAccountRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class DefaultGetAccountBalanceQueryTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2019, 12, 1, 0, 0);
+
+  private AccountRepository accountRepository;
+  private IndexedTransactionRepository transactionRepository;
+  private DefaultGetAccountBalanceQuery query;
+
+  @Before public void setUp() {
+    accountRepository = new InMemoryAccountRepository();
+    transactionRepository = new IndexedTransactionRepository(new InMemoryTransactionRepository());
+    query = new DefaultGetAccountBalanceQuery(
+        accountRepository, transactionRepository, transactionRepository.index()
+    );
+    accountRepository.create(createAccount("AC1", 1000));
+    accountRepository.create(createAccount("AC2", 1000));
+    transactionRepository.addAccounts(accountRepository.iterator());
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldGetBalanceAsOfEveryTransactionAcrossCheckpoints() {
+    // given
+    final int count = 3 * TransactionIndex.CHECKPOINT_INTERVAL + 5;
+    final long[] expected = new long[count];
+    for (int i = 0; i < count; i++) {
+      transfer(i % 3 == 0 ? "AC2" : "AC1", i % 3 == 0 ? "AC1" : "AC2", i + 1, i);
+      expected[i] = accountRepository.get("AC1").get().money().getAmountMinorLong();
+    }
+
+    // when
+    for (int i = 0; i < count; i++) {
+      final AccountBalance balance = query.run("AC1", START.plusMinutes(i)).get();
+
+      // then
+      assertThat(balance.money().getAmountMinorLong()).isEqualTo(expected[i]);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldGetBalanceBeforeFirstTransactionAndIncludeMultiLegTransactions() {
+    // given
+    transfer("AC1", "AC2", 100, 10);
+    final Transaction multiLeg = Transaction
+        .builder()
+        .id("TRM")
+        .legs(List.of(
+            new TransactionLeg("AC2", "AC1", Money.of(CurrencyUnit.EUR, 3)),
+            new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1))
+        ))
+        .createdAt(START.plusMinutes(20))
+        .build();
+    accountRepository.transfer(accountRepository.get("AC2").get(),
+        accountRepository.get("AC1").get(), Money.of(CurrencyUnit.EUR, 2));
+    transactionRepository.create(multiLeg);
+
+    // when
+    final AccountBalance before = query.run("AC1", START.plusMinutes(5)).get();
+    final AccountBalance between = query.run("AC1", START.plusMinutes(15)).get();
+    final AccountBalance now = query.run("AC1", START.plusMinutes(30)).get();
+
+    // then
+    assertThat(before.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 1000));
+    assertThat(between.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 999));
+    assertThat(now.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 1001));
+  }
+
+  @Test public void shouldNotGetBalanceOfAccountBeforeItWasCreatedOrWhichDoesNotExist() {
+    // when
+    final Optional<AccountBalance> beforeCreation = query.run("AC1", START.minusDays(1));
+    final Optional<AccountBalance> notExisting = query.run("AC3", START);
+
+    // then
+    assertThat(beforeCreation.isPresent()).isFalse();
+    assertThat(notExisting.isPresent()).isFalse();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldNotGetBalanceBeforeHistoryIsComplete() {
+    // given
+    transfer("AC1", "AC2", 100, 10);
+    transactionRepository.index().retainFrom(START.plusMinutes(10));
+
+    // when
+    final AccountBalance retained = query.run("AC1", START.plusMinutes(10)).get();
+    try {
+      query.run("AC1", START.plusMinutes(5));
+      throw new AssertionError("HistoryNotAvailableException was not thrown");
+    } catch (HistoryNotAvailableException exception) {
+      // then
+      assertThat(retained.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 999));
+      assertThat(exception).hasMessageThat()
+          .isEqualTo("History is not available before 2019-12-01T00:10");
+    }
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldNotIncludeTransferAppliedToAccountsBeforeItIsIndexed() {
+    // given
+    transfer("AC1", "AC2", 100, 10);
+    accountRepository.transfer(accountRepository.get("AC1").get(),
+        accountRepository.get("AC2").get(), Money.of(CurrencyUnit.EUR, 5));
+
+    // when
+    final AccountBalance balance = query.run("AC1", START.plusMinutes(20)).get();
+
+    // then
+    assertThat(balance.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 999));
+  }
+
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  private void transfer(final String from, final String to, final long minorUnits,
+      final int minutes) {
+    final Money money = Money.ofMinor(CurrencyUnit.EUR, minorUnits);
+    accountRepository.transfer(
+        accountRepository.get(from).get(), accountRepository.get(to).get(), money
+    );
+    transactionRepository.create(Transaction
+        .builder()
+        .id("TR" + minutes)
+        .from(from)
+        .to(to)
+        .money(money)
+        .createdAt(START.plusMinutes(minutes))
+        .build());
+  }
+
+  private static Account createAccount(final String number, final int money) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("owner")
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .createdAt(START.minusHours(1))
+        .build();
+  }
+}
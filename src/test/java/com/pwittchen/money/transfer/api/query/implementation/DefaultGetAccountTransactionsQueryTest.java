@@ -0,0 +1,87 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.index.IndexedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultGetAccountTransactionsQueryTest {
+
+  @Mock private AccountRepository accountRepository;
+
+  @Mock private Account account;
+
+  private IndexedTransactionRepository transactionRepository;
+
+  private DefaultGetAccountTransactionsQuery query;
+
+  @Before public void setUp() {
+    transactionRepository = new IndexedTransactionRepository(new InMemoryTransactionRepository());
+    query = new DefaultGetAccountTransactionsQuery(
+        accountRepository,
+        new DefaultGetAllTransactionsQuery(transactionRepository, transactionRepository.index())
+    );
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldGetSentAndReceivedTransactionsOfAccountPageByPage() {
+    // given
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      transactions.add(Transaction
+          .builder()
+          .id("TR" + i)
+          .from("AC" + i % 3)
+          .to("AC" + (i + 1) % 3)
+          .money(Money.of(CurrencyUnit.EUR, i))
+          .build());
+    }
+    transactionRepository.createAll(transactions);
+    when(accountRepository.get("AC1")).thenReturn(Optional.of(account));
+
+    // when
+    final TransactionPage first = query.run("AC1", null, 15).get();
+    final TransactionPage second = query.run("AC1", first.next(), 15).get();
+
+    // then
+    final List<Transaction> expected = new ArrayList<>();
+    for (Transaction transaction : transactions) {
+      if ("AC1".equals(transaction.from()) || "AC1".equals(transaction.to())) {
+        expected.add(transaction);
+      }
+    }
+    final List<Transaction> pages = new ArrayList<>(first.transactions());
+    pages.addAll(second.transactions());
+    assertThat(first.transactions()).hasSize(15);
+    assertThat(second.next()).isNull();
+    assertThat(pages).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test public void shouldNotGetTransactionsOfAccountWhichDoesNotExist() {
+    // given
+    when(accountRepository.get("AC1")).thenReturn(Optional.empty());
+
+    // when
+    final Optional<TransactionPage> page = query.run("AC1", null, 10);
+
+    // then
+    assertThat(page.isPresent()).isFalse();
+  }
+}
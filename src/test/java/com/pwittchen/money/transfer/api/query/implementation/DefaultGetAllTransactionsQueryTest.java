@@ -1,11 +1,26 @@
 package com.pwittchen.money.transfer.api.query.implementation;
 
 import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.model.TransactionPage;
+import com.pwittchen.money.transfer.api.query.TransactionFilter;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.IndexedTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.index.TransactionIndex;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -16,12 +31,16 @@ import static org.mockito.Mockito.when;
 @RunWith(MockitoJUnitRunner.class)
 public class DefaultGetAllTransactionsQueryTest {
 
+  private static final LocalDateTime START = LocalDateTime.of(2019, 12, 31, 0, 0);
+
+  @Rule public ExpectedException expectedException = ExpectedException.none();
+
   @Mock private TransactionRepository transactionRepository;
 
   private DefaultGetAllTransactionsQuery query;
 
   @Before public void setUp() {
-    query = new DefaultGetAllTransactionsQuery(transactionRepository);
+    query = new DefaultGetAllTransactionsQuery(transactionRepository, new TransactionIndex());
   }
 
   @Test public void shouldGetAllTransactions() {
@@ -36,4 +55,181 @@ public class DefaultGetAllTransactionsQueryTest {
     // then
     assertThat(transactions).isNotEmpty();
   }
-}
\ No newline at end of file
+
+  @Test public void shouldGetAllTransactionsPageByPage() {
+    // given
+    final List<Transaction> transactions = createTransactions(25);
+    final DefaultGetAllTransactionsQuery query = createQuery(transactions);
+
+    // when
+    final List<Transaction> pages = new ArrayList<>();
+    TransactionPage page = query.run(TransactionFilter.builder().build(), null, 10);
+    pages.addAll(page.transactions());
+    int numberOfPages = 1;
+    while (page.next() != null) {
+      page = query.run(TransactionFilter.builder().build(), page.next(), 10);
+      pages.addAll(page.transactions());
+      numberOfPages++;
+    }
+
+    // then
+    assertThat(numberOfPages).isEqualTo(3);
+    assertThat(pages).containsExactlyElementsIn(transactions).inOrder();
+  }
+
+  @Test public void shouldGetTransactionsOfAccount() {
+    // given
+    final List<Transaction> transactions = createTransactions(20);
+    final Transaction multiLeg = Transaction
+        .builder()
+        .id("TR20")
+        .legs(List.of(
+            new TransactionLeg("AC0", "AC8", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC8", "AC9", Money.of(CurrencyUnit.EUR, 1))
+        ))
+        .createdAt(START.plusHours(20))
+        .build();
+    transactions.add(multiLeg);
+    final DefaultGetAllTransactionsQuery query = createQuery(transactions);
+
+    // when
+    final TransactionPage page = query.run(
+        TransactionFilter.builder().account("AC3").build(), null, 100
+    );
+    final TransactionPage multiLegPage = query.run(
+        TransactionFilter.builder().account("AC9").build(), null, 100
+    );
+
+    // then
+    assertThat(page.transactions())
+        .containsExactly(
+            transactions.get(2), transactions.get(3), transactions.get(12), transactions.get(13)
+        )
+        .inOrder();
+    assertThat(page.next()).isNull();
+    assertThat(multiLegPage.transactions())
+        .containsExactly(
+            transactions.get(8), transactions.get(9), transactions.get(18), transactions.get(19),
+            multiLeg
+        )
+        .inOrder();
+  }
+
+  @Test public void shouldGetTransactionsInTimeRangeWithCursor() {
+    // given
+    final List<Transaction> transactions = createTransactions(20);
+    final DefaultGetAllTransactionsQuery query = createQuery(transactions);
+    final TransactionFilter filter = TransactionFilter
+        .builder()
+        .from(START.plusHours(5))
+        .to(START.plusHours(9))
+        .build();
+
+    // when
+    final TransactionPage first = query.run(filter, null, 3);
+    final TransactionPage second = query.run(filter, first.next(), 3);
+
+    // then
+    assertThat(first.transactions()).containsExactlyElementsIn(transactions.subList(5, 8));
+    assertThat(second.transactions()).containsExactlyElementsIn(transactions.subList(8, 10));
+    assertThat(second.next()).isNull();
+  }
+
+  @Test public void shouldGetTransactionsInRangeOfAmounts() {
+    // given
+    final List<Transaction> transactions = createTransactions(20);
+    final DefaultGetAllTransactionsQuery query = createQuery(transactions);
+    final TransactionFilter filter = TransactionFilter
+        .builder()
+        .account("AC1")
+        .minAmount(new BigDecimal("0.5"))
+        .maxAmount(new BigDecimal("11"))
+        .build();
+
+    // when
+    final TransactionPage page = query.run(filter, null, 100);
+
+    // then
+    assertThat(page.transactions())
+        .containsExactly(transactions.get(1), transactions.get(10), transactions.get(11))
+        .inOrder();
+  }
+
+  @Test public void shouldNotGetTransactionsForInvalidCursor() {
+    // given
+    final DefaultGetAllTransactionsQuery query = createQuery(createTransactions(1));
+
+    // then
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("invalid cursor");
+
+    // when
+    query.run(TransactionFilter.builder().build(), "not a cursor", 10);
+  }
+
+  @Test public void shouldIterateOverMatchingTransactionsAcrossPages() {
+    // given
+    final int count = 3 * DefaultGetAllTransactionsQuery.ITERATOR_PAGE_SIZE;
+    final List<Transaction> transactions = createTransactions(count);
+    final DefaultGetAllTransactionsQuery query = createQuery(transactions);
+    final TransactionFilter filter = TransactionFilter.builder().account("AC0").build();
+
+    // when
+    final List<Transaction> iterated = new ArrayList<>();
+    query.iterator(filter).forEachRemaining(iterated::add);
+
+    // then
+    final List<Transaction> expected = new ArrayList<>();
+    for (int i = 0; i < count; i += 10) {
+      expected.add(transactions.get(i));
+    }
+    assertThat(iterated).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test public void shouldNotIterateOverTransactionsMadeAfterIteratorWasCreated() {
+    // given
+    final int count = 2 * DefaultGetAllTransactionsQuery.ITERATOR_PAGE_SIZE;
+    final List<Transaction> transactions = createTransactions(2 * count);
+    final IndexedTransactionRepository transactionRepository =
+        new IndexedTransactionRepository(new InMemoryTransactionRepository());
+    transactionRepository.createAll(transactions.subList(0, count));
+    final DefaultGetAllTransactionsQuery query = new DefaultGetAllTransactionsQuery(
+        transactionRepository, transactionRepository.index()
+    );
+    final Iterator<Transaction> iterator = query.iterator(TransactionFilter.builder().build());
+
+    // when
+    final List<Transaction> iterated = new ArrayList<>();
+    iterated.add(iterator.next());
+    transactionRepository.createAll(transactions.subList(count, 2 * count));
+    iterator.forEachRemaining(iterated::add);
+
+    // then
+    assertThat(iterated).containsExactlyElementsIn(transactions.subList(0, count)).inOrder();
+  }
+
+  private static DefaultGetAllTransactionsQuery createQuery(final List<Transaction> transactions) {
+    final IndexedTransactionRepository transactionRepository =
+        new IndexedTransactionRepository(new InMemoryTransactionRepository());
+    transactionRepository.createAll(transactions);
+    return new DefaultGetAllTransactionsQuery(
+        transactionRepository, transactionRepository.index()
+    );
+  }
+
+  // transaction i is sent from AC(i % 10) to AC(i % 10 + 1), at i hours after the start
+  private static List<Transaction> createTransactions(final int count) {
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      transactions.add(Transaction
+          .builder()
+          .id("TR" + i)
+          .from("AC" + i % 10)
+          .to("AC" + (i % 10 + 1))
+          .money(Money.of(CurrencyUnit.EUR, i))
+          .createdAt(START.plusHours(i))
+          .build());
+    }
+    return transactions;
+  }
+}
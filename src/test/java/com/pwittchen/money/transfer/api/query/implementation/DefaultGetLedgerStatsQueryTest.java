@@ -0,0 +1,31 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.query.GetLedgerStatsQuery;
+import com.pwittchen.money.transfer.api.repository.aggregate.LedgerAggregates;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultGetLedgerStatsQueryTest {
+
+  private GetLedgerStatsQuery query;
+
+  @Mock private LedgerAggregates ledgerAggregates;
+
+  @Before public void setUp() {
+    query = new DefaultGetLedgerStatsQuery(ledgerAggregates);
+  }
+
+  @Test public void shouldRunQuery() {
+    // when
+    query.run();
+
+    // then
+    verify(ledgerAggregates).stats();
+  }
+}
@@ -0,0 +1,37 @@
+package com.pwittchen.money.transfer.api.query.implementation;
+
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultGetTransactionStatusQueryTest {
+
+  @Mock private TransactionStatusRepository transactionStatusRepository;
+
+  private DefaultGetTransactionStatusQuery query;
+
+  @Before public void setUp() {
+    query = new DefaultGetTransactionStatusQuery(transactionStatusRepository);
+  }
+
+  @Test public void shouldGetTransactionStatus() {
+    // given
+    TransactionStatus status = TransactionStatus.pending("TR1");
+    when(transactionStatusRepository.get("TR1")).thenReturn(Optional.of(status));
+
+    // when
+    Optional<TransactionStatus> result = query.run("TR1");
+
+    // then
+    assertThat(result).isEqualTo(Optional.of(status));
+  }
+}
@@ -0,0 +1,114 @@
+package com.pwittchen.money.transfer.api.repository.aggregate;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.LedgerStats;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class LedgerAggregatesTest {
+
+  private final LedgerAggregates ledgerAggregates = new LedgerAggregates();
+
+  @Test public void shouldAggregateAccountsPerCurrency() {
+    // given
+    ledgerAggregates.add(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    ledgerAggregates.add(createAccount("AC2", Money.parse("EUR 2.50")));
+    ledgerAggregates.add(createAccount("AC3", Money.parse("JPY 100")));
+
+    // when
+    final LedgerStats stats = ledgerAggregates.stats();
+
+    // then
+    assertThat(stats.accounts()).isEqualTo(3);
+    assertThat(stats.totals()).isEqualTo(Map.of(
+        "EUR", new BigDecimal("12.50"),
+        "JPY", new BigDecimal("100")
+    ));
+    assertThat(stats.transactions()).isEqualTo(0);
+    assertThat(stats.volumes()).isEmpty();
+  }
+
+  @Test public void shouldAggregateTransfersAndLegs() {
+    // given
+    ledgerAggregates.add(Transaction
+        .builder()
+        .from("AC1")
+        .to("AC2")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .build());
+    ledgerAggregates.add(Transaction
+        .builder()
+        .legs(List.of(
+            new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC3", "AC4", Money.of(CurrencyUnit.USD, 2))
+        ))
+        .build());
+
+    // when
+    final LedgerStats stats = ledgerAggregates.stats();
+
+    // then
+    assertThat(stats.transactions()).isEqualTo(2);
+    assertThat(stats.volumes()).isEqualTo(Map.of(
+        "EUR", new BigDecimal("11.00"),
+        "USD", new BigDecimal("2.00")
+    ));
+  }
+
+  @Test public void shouldAggregateConcurrentTransactions() throws InterruptedException {
+    // given
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final Transaction transaction = Transaction
+        .builder()
+        .from("AC1")
+        .to("AC2")
+        .money(Money.parse("EUR 0.01"))
+        .build();
+
+    // when
+    for (int i = 0; i < 10_000; i++) {
+      executor.execute(() -> ledgerAggregates.add(transaction));
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+
+    // then
+    assertThat(ledgerAggregates.stats().transactions()).isEqualTo(10_000);
+    assertThat(ledgerAggregates.stats().volumes())
+        .isEqualTo(Map.of("EUR", new BigDecimal("100.00")));
+  }
+
+  @Test public void shouldClearTransactions() {
+    // given
+    ledgerAggregates.add(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    ledgerAggregates.add(Transaction
+        .builder()
+        .from("AC1")
+        .to("AC2")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .build());
+
+    // when
+    ledgerAggregates.clearTransactions();
+
+    // then
+    assertThat(ledgerAggregates.stats().accounts()).isEqualTo(1);
+    assertThat(ledgerAggregates.stats().transactions()).isEqualTo(0);
+    assertThat(ledgerAggregates.stats().volumes()).isEmpty();
+  }
+
+  private static Account createAccount(final String number, final Money money) {
+    return Account.builder().number(number).owner("owner").money(money).build();
+  }
+}
@@ -0,0 +1,143 @@
+package com.pwittchen.money.transfer.api.repository.index;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexedTransactionRepositoryTest {
+
+  private static final int NUMBER_OF_THREADS = 8;
+  private static final int TRANSACTIONS_PER_THREAD = 500;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test public void shouldKeepIndexInOrderOfRepositoryWhenCreatingConcurrently()
+      throws InterruptedException {
+    // given
+    final IndexedTransactionRepository transactionRepository =
+        new IndexedTransactionRepository(new InMemoryTransactionRepository());
+    final ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+
+    // when
+    for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+      final String account = "AC" + thread;
+      executorService.submit(() -> {
+        for (int i = 0; i < TRANSACTIONS_PER_THREAD; i++) {
+          transactionRepository.create(createTransaction(account));
+        }
+      });
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(30, TimeUnit.SECONDS);
+
+    // then
+    final TransactionIndex index = transactionRepository.index();
+    assertThat(index.size()).isEqualTo(NUMBER_OF_THREADS * TRANSACTIONS_PER_THREAD);
+    for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+      final LongColumn positions = index.positions("AC" + thread);
+      assertThat(positions.size()).isEqualTo(TRANSACTIONS_PER_THREAD);
+      for (long i = 0; i < positions.size(); i++) {
+        final Transaction transaction = transactionRepository.get(positions.get(i), 1).get(0);
+        assertThat(transaction.from()).isEqualTo("AC" + thread);
+      }
+    }
+  }
+
+  @Test public void shouldNotIndexTransactionsWhichWereNotCreated() {
+    // given
+    final TransactionRepository failing = mock(TransactionRepository.class);
+    when(failing.createAll(anyList())).thenThrow(new IllegalStateException("unavailable"));
+    final IndexedTransactionRepository transactionRepository =
+        new IndexedTransactionRepository(failing);
+
+    // when
+    try {
+      transactionRepository.createAll(List.of(createTransaction("AC1")));
+      throw new AssertionError("IllegalStateException was not thrown");
+    } catch (IllegalStateException exception) {
+      // then
+      assertThat(exception).hasMessageThat().isEqualTo("unavailable");
+      assertThat(transactionRepository.index().size()).isEqualTo(0);
+    }
+  }
+
+  @Test public void shouldRestoreSavedIndexAndIndexOnlyNewTransactions() throws IOException {
+    // given
+    final TransactionRepository history = spy(new InMemoryTransactionRepository());
+    final Path directory = temporaryFolder.getRoot().toPath();
+    final IndexedTransactionRepository saved =
+        IndexedTransactionRepository.open(history, directory);
+    saved.createAll(List.of(createTransaction("AC1"), createTransaction("AC2")));
+    saved.close();
+    history.create(createTransaction("AC1"));
+    clearInvocations(history);
+
+    // when
+    final IndexedTransactionRepository transactionRepository =
+        IndexedTransactionRepository.open(history, directory);
+
+    // then
+    verify(history, never()).get(eq(0L), anyInt());
+    assertThat(transactionRepository.index().size()).isEqualTo(3);
+    assertThat(transactionRepository.index().positions("AC1").size()).isEqualTo(2);
+    assertThat(transactionRepository.index().positions("AC1").get(1)).isEqualTo(2);
+    assertThat(transactionRepository.aggregates().stats().transactions()).isEqualTo(3);
+    transactionRepository.close();
+  }
+
+  @Test public void shouldIndexHistoryAgainWhenItDoesNotMatchSavedIndex() throws IOException {
+    // given
+    final Path directory = temporaryFolder.getRoot().toPath();
+    final IndexedTransactionRepository saved =
+        IndexedTransactionRepository.open(new InMemoryTransactionRepository(), directory);
+    saved.createAll(List.of(createTransaction("AC1"), createTransaction("AC1")));
+    saved.close();
+    final TransactionRepository history = new InMemoryTransactionRepository();
+    history.create(createTransaction("AC2"));
+
+    // when
+    final IndexedTransactionRepository transactionRepository =
+        IndexedTransactionRepository.open(history, directory);
+
+    // then
+    assertThat(transactionRepository.index().size()).isEqualTo(1);
+    assertThat(transactionRepository.index().positions("AC1").size()).isEqualTo(0);
+    assertThat(transactionRepository.index().positions("AC2").get(0)).isEqualTo(0);
+    assertThat(transactionRepository.aggregates().stats().transactions()).isEqualTo(1);
+    transactionRepository.close();
+  }
+
+  private Transaction createTransaction(final String from) {
+    return Transaction
+        .builder()
+        .id(from + "-" + System.nanoTime())
+        .from(from)
+        .to("AC-RECEIVER")
+        .money(Money.of(CurrencyUnit.EUR, 1))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
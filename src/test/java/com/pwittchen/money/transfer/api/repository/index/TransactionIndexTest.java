@@ -0,0 +1,175 @@
+package com.pwittchen.money.transfer.api.repository.index;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TransactionIndexTest {
+
+  private static final LocalDateTime START = LocalDateTime.of(2019, 12, 31, 0, 0);
+
+  private final TransactionIndex index = new TransactionIndex();
+
+  @Test public void shouldIndexPositionsOfSenderAndReceiver() {
+    // given
+    index.add(createTransaction("AC1", "AC2", 0));
+    index.add(createTransaction("AC2", "AC3", 1));
+    index.add(Transaction
+        .builder()
+        .legs(List.of(
+            new TransactionLeg("AC3", "AC1", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC1", "AC4", Money.of(CurrencyUnit.EUR, 1))
+        ))
+        .createdAt(START.plusHours(2))
+        .build());
+
+    // when
+    final LongColumn positions = index.positions("AC1");
+
+    // then
+    assertThat(positions.size()).isEqualTo(2);
+    assertThat(positions.get(0)).isEqualTo(0);
+    assertThat(positions.get(1)).isEqualTo(2);
+    assertThat(index.positions("AC2").size()).isEqualTo(2);
+    assertThat(index.positions("AC4").size()).isEqualTo(1);
+    assertThat(index.positions("AC5").size()).isEqualTo(0);
+    assertThat(index.accounts()).isEqualTo(4);
+    assertThat(index.isMultiLeg(2)).isTrue();
+  }
+
+  @Test public void shouldFindRangeOfPositionsByTime() {
+    // given
+    for (int i = 0; i < 10; i++) {
+      index.add(createTransaction("AC1", "AC2", i));
+    }
+
+    // when
+    final long from = index.from(START.plusHours(3));
+    final long after = index.after(START.plusHours(5));
+
+    // then
+    assertThat(from).isEqualTo(3);
+    assertThat(after).isEqualTo(6);
+    assertThat(index.amount(4)).isEqualTo(new BigDecimal("4.00"));
+  }
+
+  @Test public void shouldComputeBalanceForwardFromClosestCheckpoint() {
+    // given
+    index.open("AC1", 1_000_000);
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      transactions.add(createTransaction("AC1", "AC2", i));
+      index.add(transactions.get(i));
+    }
+    final List<Long> read = new ArrayList<>();
+
+    // when
+    final long balance = index.balance("AC2", START.plusHours(149), position -> {
+      read.add(position);
+      return transactions.get((int) position);
+    });
+
+    // then
+    // 0 + 1 + ... + 149 euros in cents
+    assertThat(balance).isEqualTo(149L * 150 / 2 * 100);
+    assertThat(index.balance("AC1", START.plusHours(149), read(transactions)))
+        .isEqualTo(1_000_000 - balance);
+    assertThat(read).hasSize(150 - 2 * TransactionIndex.CHECKPOINT_INTERVAL);
+    assertThat(index.balance("AC3", START.plusHours(149), position -> null)).isEqualTo(0);
+  }
+
+  @Test public void shouldCountBalanceFromBaseSetWhenAccountIsOpened() {
+    // given
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      transactions.add(createTransaction("AC1", "AC2", i));
+      index.add(transactions.get(i));
+    }
+
+    // when
+    index.open("AC2", 500);
+    index.open("AC3", 700);
+
+    // then
+    assertThat(index.balance("AC2", START.plusHours(99), read(transactions))).isEqualTo(500);
+    assertThat(index.balance("AC2", START.plusHours(98), read(transactions)))
+        .isEqualTo(500 - 99 * 100);
+    assertThat(index.balance("AC3", START.plusHours(99), read(transactions))).isEqualTo(700);
+  }
+
+  @Test public void shouldIncludeTransactionsRecordedAfterYoungerOnesInBalance() {
+    // given
+    final List<Transaction> transactions = List.of(
+        createTransaction("AC1", "AC2", 1),
+        createTransaction("AC1", "AC2", 3),
+        createTransaction("AC1", "AC2", 2),
+        createTransaction("AC1", "AC2", 4)
+    );
+    transactions.forEach(index::add);
+
+    // when
+    final long balance = index.balance("AC2", START.plusHours(2), read(transactions));
+
+    // then
+    assertThat(index.lag()).isEqualTo(TimeUnit.HOURS.toMillis(1));
+    assertThat(balance).isEqualTo(300);
+    assertThat(index.from(START.plusHours(2))).isEqualTo(1);
+    assertThat(index.after(START.plusHours(2))).isEqualTo(1);
+    assertThat(index.balance("AC2", START.plusHours(3), read(transactions))).isEqualTo(600);
+  }
+
+  @Test public void shouldReportMemoryGrowingWithIndexedTransactions() {
+    // given
+    index.add(createTransaction("AC1", "AC2", 0));
+    final long memory = index.memory();
+
+    // when
+    for (int i = 1; i < 10_000; i++) {
+      index.add(createTransaction("AC" + i % 100, "AC" + (i + 1) % 100, i));
+    }
+
+    // then
+    assertThat(index.memory()).isGreaterThan(memory);
+    // four columns and two postings of 8 bytes per transaction, with slack of growing chunks
+    assertThat(index.memory() / index.size()).isAtMost(72L);
+  }
+
+  @Test public void shouldClearIndex() {
+    // given
+    index.add(createTransaction("AC1", "AC2", 0));
+
+    // when
+    index.clear();
+
+    // then
+    assertThat(index.size()).isEqualTo(0);
+    assertThat(index.accounts()).isEqualTo(0);
+    assertThat(index.positions("AC1").size()).isEqualTo(0);
+  }
+
+  private static LongFunction<Transaction> read(final List<Transaction> transactions) {
+    return position -> transactions.get((int) position);
+  }
+
+  private static Transaction createTransaction(final String from, final String to,
+      final int hours) {
+    return Transaction
+        .builder()
+        .id("TR" + hours)
+        .from(from)
+        .to(to)
+        .money(Money.of(CurrencyUnit.EUR, hours))
+        .createdAt(START.plusHours(hours))
+        .build();
+  }
+}
@@ -117,6 +117,25 @@ public class InMemoryAccountRepositoryTest {
     assertThat(actualAmount).isEqualTo(expectedAmount);
   }
 
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCreateAccountOnlyIfAbsent() {
+    // given
+    Account account = createAccount();
+    Account duplicate = createAnotherAccount(account.number());
+
+    // when
+    boolean created = accountRepository.createIfAbsent(account);
+    boolean createdDuplicate = accountRepository.createIfAbsent(duplicate);
+
+    // then
+    assertThat(created).isTrue();
+    assertThat(createdDuplicate).isFalse();
+    assertThat(accountRepository.get(account.number()).get().money())
+        .isEqualTo(account.money());
+    assertThat(accountRepository.getAll()).hasSize(1);
+  }
+
   private Account createAccount() {
     return Account
         .builder()
@@ -3,6 +3,9 @@ package com.pwittchen.money.transfer.api.repository.inmemory;
 import com.pwittchen.money.transfer.api.model.Account;
 import com.pwittchen.money.transfer.api.model.Transaction;
 import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 import org.junit.Before;
@@ -54,6 +57,79 @@ public class InMemoryTransactionRepositoryTest {
     assertThat(transactionRepository.getAll().size()).isEqualTo(2);
   }
 
+  @Test public void shouldCreateAllTransactionsInOrder() {
+    // given
+    Transaction transactionOne = Transaction
+        .builder()
+        .id("TR1")
+        .from("AC1")
+        .to("AC2")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .build();
+
+    Transaction transactionTwo = Transaction
+        .builder()
+        .id("TR2")
+        .from("AC2")
+        .to("AC1")
+        .money(Money.of(CurrencyUnit.EUR, 5))
+        .build();
+
+    // when
+    transactionRepository.createAll(Arrays.asList(transactionOne, transactionTwo));
+
+    // then
+    assertThat(transactionRepository.getAll())
+        .containsExactly(transactionOne, transactionTwo)
+        .inOrder();
+  }
+
+  @Test public void shouldGetRangeOfTransactions() {
+    // given
+    Transaction transactionOne = Transaction.builder().id("TR1").build();
+    Transaction transactionTwo = Transaction.builder().id("TR2").build();
+    Transaction transactionThree = Transaction.builder().id("TR3").build();
+    transactionRepository.createAll(
+        Arrays.asList(transactionOne, transactionTwo, transactionThree)
+    );
+
+    // when
+    List<Transaction> transactions = transactionRepository.get(1, 1);
+
+    // then
+    assertThat(transactions).containsExactly(transactionTwo);
+  }
+
+  @Test public void shouldIterateOverTransactionsInOrder() {
+    // given
+    List<Transaction> created = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      created.add(Transaction
+          .builder()
+          .id("TR" + i)
+          .from("AC1")
+          .to("AC2")
+          .money(Money.of(CurrencyUnit.EUR, 1))
+          .build());
+    }
+    transactionRepository.createAll(created);
+
+    // when
+    List<Transaction> transactions = new ArrayList<>(transactionRepository.getAll());
+
+    // then
+    assertThat(transactions).containsExactlyElementsIn(created).inOrder();
+  }
+
+  @Test public void shouldNotTakeTransactionsOutOfHistory() {
+    // given
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("Transaction history is append-only");
+
+    // when
+    transactionRepository.getAll().poll();
+  }
+
   @Test public void shouldClearTransactions() {
     // given
     Account sender = createSenderAccount("AC1", Money.of(CurrencyUnit.EUR, 100));
@@ -0,0 +1,75 @@
+package com.pwittchen.money.transfer.api.repository.inmemory;
+
+import com.pwittchen.money.transfer.api.model.TransactionStatus;
+import com.pwittchen.money.transfer.api.repository.TransactionStatusRepository;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class InMemoryTransactionStatusRepositoryTest {
+
+  private TransactionStatusRepository transactionStatusRepository;
+
+  @Before public void setUp() {
+    transactionStatusRepository = new InMemoryTransactionStatusRepository();
+  }
+
+  @Test public void shouldGetSavedStatus() {
+    // given
+    transactionStatusRepository.save(TransactionStatus.pending("TR1"));
+
+    // when
+    transactionStatusRepository.save(TransactionStatus.committed("TR1"));
+
+    // then
+    assertThat(transactionStatusRepository.get("TR1"))
+        .isEqualTo(Optional.of(TransactionStatus.committed("TR1")));
+  }
+
+  @Test public void shouldNotGetStatusOfUnknownTransaction() {
+    // when
+    transactionStatusRepository.save(TransactionStatus.pending("TR1"));
+
+    // then
+    assertThat(transactionStatusRepository.get("TR2")).isEqualTo(Optional.empty());
+  }
+
+  @Test public void shouldNotGetExpiredStatus() {
+    // given
+    final AtomicLong clock = new AtomicLong();
+    transactionStatusRepository = new InMemoryTransactionStatusRepository(
+        10, TimeUnit.SECONDS, 10, clock::get
+    );
+    transactionStatusRepository.save(TransactionStatus.committed("TR1"));
+
+    // when
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+    // then
+    assertThat(transactionStatusRepository.get("TR1")).isEqualTo(Optional.empty());
+  }
+
+  @Test public void shouldEvictOldestStatusWhenRepositoryIsFull() {
+    // given
+    transactionStatusRepository = new InMemoryTransactionStatusRepository(
+        10, TimeUnit.SECONDS, 2
+    );
+    transactionStatusRepository.save(TransactionStatus.pending("TR1"));
+    transactionStatusRepository.save(TransactionStatus.pending("TR2"));
+    transactionStatusRepository.save(TransactionStatus.committed("TR1"));
+
+    // when
+    transactionStatusRepository.save(TransactionStatus.pending("TR3"));
+
+    // then
+    assertThat(transactionStatusRepository.get("TR1"))
+        .isEqualTo(Optional.of(TransactionStatus.committed("TR1")));
+    assertThat(transactionStatusRepository.get("TR2")).isEqualTo(Optional.empty());
+    assertThat(transactionStatusRepository.get("TR3"))
+        .isEqualTo(Optional.of(TransactionStatus.pending("TR3")));
+  }
+}
@@ -0,0 +1,136 @@
+package com.pwittchen.money.transfer.api.repository.inmemory;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class MinorUnitAccountRepositoryTest {
+
+  private MinorUnitAccountRepository accountRepository;
+
+  @Before public void setUp() {
+    accountRepository = new MinorUnitAccountRepository();
+  }
+
+  @Test public void shouldGetEmptyResultWhenAccountDoesNotExist() {
+    // when
+    Optional<Account> optional = accountRepository.get("invalidNumber");
+
+    // then
+    assertThat(optional.isPresent()).isFalse();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldMaterializeCreatedAccount() {
+    // given
+    Account account = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10.25));
+
+    // when
+    accountRepository.create(account);
+
+    // then
+    assertThat(accountRepository.get("AC1").get()).isEqualTo(account);
+    assertThat(accountRepository.getAll()).containsExactly(account);
+    assertThat(accountRepository.balance("AC1")).isEqualTo(1025);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldTransferMoney() {
+    // given
+    Account sender = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount("AC2", Money.of(CurrencyUnit.EUR, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 0.5));
+
+    // then
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 9.5));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 5.5));
+  }
+
+  @Test public void shouldTransferMinorUnits() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 5)));
+
+    // when
+    accountRepository.transfer("AC2", "AC1", 499);
+
+    // then
+    assertThat(accountRepository.balance("AC1")).isEqualTo(1499);
+    assertThat(accountRepository.balance("AC2")).isEqualTo(1);
+  }
+
+  @Test(expected = NotEnoughMoneyException.class)
+  public void shouldNotTransferMoneyWhenSenderHasNotEnoughMoney() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 1)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)));
+
+    // when
+    accountRepository.transfer("AC1", "AC2", 101);
+  }
+
+  @Test(expected = DifferentCurrencyException.class)
+  public void shouldNotTransferMoneyBetweenDifferentCurrencies() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.create(createAccount("AC2", Money.of(CurrencyUnit.GBP, 0)));
+
+    // when
+    accountRepository.transfer("AC1", "AC2", 1);
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotTransferMoneyToNotExistingAccount() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+
+    // when
+    accountRepository.transfer("AC1", "AC2", 1);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCreateAccountOnlyIfAbsent() {
+    // given
+    Account account = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+    Account duplicate = createAccount("AC1", Money.of(CurrencyUnit.EUR, 20));
+
+    // when
+    boolean created = accountRepository.createIfAbsent(account);
+    boolean createdDuplicate = accountRepository.createIfAbsent(duplicate);
+
+    // then
+    assertThat(created).isTrue();
+    assertThat(createdDuplicate).isFalse();
+    assertThat(accountRepository.get(account.number()).get().money())
+        .isEqualTo(account.money());
+    assertThat(accountRepository.getAll()).hasSize(1);
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(number)
+        .money(money)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
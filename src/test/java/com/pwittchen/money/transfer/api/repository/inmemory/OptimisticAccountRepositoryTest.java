@@ -0,0 +1,397 @@
+package com.pwittchen.money.transfer.api.repository.inmemory;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class OptimisticAccountRepositoryTest {
+
+  private OptimisticAccountRepository accountRepository;
+
+  @Before public void setUp() {
+    accountRepository = new OptimisticAccountRepository();
+  }
+
+  @Test public void shouldGetEmptyResultWhenAccountDoesNotExist() {
+    // when
+    Optional<Account> optional = accountRepository.get("invalidNumber");
+
+    // then
+    assertThat(optional.isPresent()).isFalse();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCreateAccount() {
+    // given
+    Account account = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+
+    // when
+    accountRepository.create(account);
+
+    // then
+    assertThat(accountRepository.get("AC1").get()).isEqualTo(account);
+    assertThat(accountRepository.getAll()).containsExactly(account);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldTransferMoneyAndIncrementVersions() {
+    // given
+    Account sender = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount("AC2", Money.of(CurrencyUnit.EUR, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 4));
+
+    // then
+    Account updatedSender = accountRepository.get("AC1").get();
+    Account updatedReceiver = accountRepository.get("AC2").get();
+    assertThat(updatedSender.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 6));
+    assertThat(updatedSender.version()).isEqualTo(1);
+    assertThat(updatedReceiver.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 9));
+    assertThat(updatedReceiver.version()).isEqualTo(1);
+    assertThat(accountRepository.conflicts()).isEqualTo(0);
+    assertThat(accountRepository.retries()).isEqualTo(0);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldNotChangeAccountsWhenSenderHasNotEnoughMoney() {
+    // given
+    Account sender = createAccount("AC1", Money.of(CurrencyUnit.EUR, 1));
+    Account receiver = createAccount("AC2", Money.of(CurrencyUnit.EUR, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    try {
+      accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 4));
+    } catch (NotEnoughMoneyException exception) {
+      // then
+      assertThat(accountRepository.get("AC1").get()).isEqualTo(sender);
+      assertThat(accountRepository.get("AC2").get()).isEqualTo(receiver);
+      return;
+    }
+    throw new AssertionError("NotEnoughMoneyException was not thrown");
+  }
+
+  @Test(expected = DifferentCurrencyException.class)
+  public void shouldNotTransferMoneyInDifferentCurrency() {
+    // given
+    Account sender = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount("AC2", Money.of(CurrencyUnit.GBP, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 1));
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotTransferMoneyToNotExistingAccount() {
+    // given
+    Account sender = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+    accountRepository.create(sender);
+
+    // when
+    accountRepository.transfer(
+        sender, createAccount("AC2", Money.of(CurrencyUnit.EUR, 0)), Money.of(CurrencyUnit.EUR, 1)
+    );
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldKeepBalancesAndVersionsConsistentUnderContention() throws Exception {
+    // given
+    final int numberOfTransfers = 2000;
+    accountRepository = new OptimisticAccountRepository(Integer.MAX_VALUE);
+    final Account first = createAccount("AC1", Money.of(CurrencyUnit.EUR, 1000));
+    final Account second = createAccount("AC2", Money.of(CurrencyUnit.EUR, 1000));
+    accountRepository.create(first);
+    accountRepository.create(second);
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfTransfers; i++) {
+      final boolean forward = i % 2 == 0;
+      executorService.submit(() -> accountRepository.transfer(
+          forward ? first : second, forward ? second : first, Money.of(CurrencyUnit.EUR, 1)
+      ));
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 1000));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 1000));
+    assertThat(accountRepository.get("AC1").get().version()).isEqualTo(numberOfTransfers);
+    assertThat(accountRepository.get("AC2").get().version()).isEqualTo(numberOfTransfers);
+    assertThat(accountRepository.retries()).isEqualTo(accountRepository.conflicts());
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldSplitAccountWithoutChangingBalance() {
+    // given
+    Account account = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+    accountRepository.create(account);
+
+    // when
+    accountRepository.split("AC1", 4);
+
+    // then
+    assertThat(accountRepository.shards("AC1")).isEqualTo(4);
+    assertThat(accountRepository.get("AC1").get()).isEqualTo(account);
+  }
+
+  @Test public void shouldNotMergeSubBalancesOfSplitAccount() {
+    // given
+    accountRepository.create(createAccount("AC1", Money.of(CurrencyUnit.EUR, 10)));
+    accountRepository.split("AC1", 4);
+
+    // when
+    accountRepository.split("AC1", 2);
+
+    // then
+    assertThat(accountRepository.shards("AC1")).isEqualTo(4);
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotSplitNotExistingAccount() {
+    // when
+    accountRepository.split("AC1", 4);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldDebitSplitAccountAcrossSubBalances() {
+    // given
+    Account hot = createAccount("AC1", Money.of(CurrencyUnit.EUR, 0));
+    Account sender = createAccount("AC2", Money.of(CurrencyUnit.EUR, 100));
+    Account receiver = createAccount("AC3", Money.of(CurrencyUnit.EUR, 0));
+    accountRepository.create(hot);
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+    accountRepository.split("AC1", 8);
+    for (int i = 0; i < 100; i++) {
+      accountRepository.transfer(sender, hot, Money.of(CurrencyUnit.EUR, 1));
+    }
+
+    // when
+    accountRepository.transfer(hot, receiver, Money.of(CurrencyUnit.EUR, 100));
+
+    // then
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(accountRepository.get("AC3").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 100));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldGiveMoneyBackToSubBalancesWhenSplitAccountHasNotEnoughMoney() {
+    // given
+    Account hot = createAccount("AC1", Money.of(CurrencyUnit.EUR, 0));
+    Account sender = createAccount("AC2", Money.of(CurrencyUnit.EUR, 10));
+    accountRepository.create(hot);
+    accountRepository.create(sender);
+    accountRepository.split("AC1", 4);
+    for (int i = 0; i < 10; i++) {
+      accountRepository.transfer(sender, hot, Money.of(CurrencyUnit.EUR, 1));
+    }
+
+    // when
+    try {
+      accountRepository.transfer(hot, sender, Money.of(CurrencyUnit.EUR, 11));
+    } catch (NotEnoughMoneyException exception) {
+      // then
+      assertThat(accountRepository.get("AC1").get().money())
+          .isEqualTo(Money.of(CurrencyUnit.EUR, 10));
+      assertThat(accountRepository.get("AC2").get().money())
+          .isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+      return;
+    }
+    throw new AssertionError("NotEnoughMoneyException was not thrown");
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldSplitAccountAutomaticallyWhenCreditsConflict() throws Exception {
+    // given
+    final int numberOfSenders = 2000;
+    accountRepository = new OptimisticAccountRepository(Integer.MAX_VALUE, 1);
+    final Account hot = createAccount("HOT", Money.of(CurrencyUnit.EUR, 0));
+    accountRepository.create(hot);
+    for (int i = 0; i < numberOfSenders; i++) {
+      accountRepository.create(createAccount("AC" + i, Money.of(CurrencyUnit.EUR, 1)));
+    }
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfSenders; i++) {
+      final Account sender = accountRepository.get("AC" + i).get();
+      executorService.submit(() ->
+          accountRepository.transfer(sender, hot, Money.of(CurrencyUnit.EUR, 1))
+      );
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    // every sender is debited only once, so all conflicts come from credits of the hot account
+    assertThat(accountRepository.shards("HOT") > 1).isEqualTo(accountRepository.conflicts() > 0);
+    assertThat(accountRepository.get("HOT").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, numberOfSenders));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldKeepBalanceOfSplitAccountConsistentUnderContention() throws Exception {
+    // given
+    final int numberOfTransfers = 2000;
+    accountRepository = new OptimisticAccountRepository(Integer.MAX_VALUE);
+    final Account first = createAccount("AC1", Money.of(CurrencyUnit.EUR, 1000));
+    final Account second = createAccount("AC2", Money.of(CurrencyUnit.EUR, 1000));
+    accountRepository.create(first);
+    accountRepository.create(second);
+    accountRepository.split("AC2", 4);
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfTransfers; i++) {
+      final boolean forward = i % 2 == 0;
+      executorService.submit(() -> accountRepository.transfer(
+          forward ? first : second, forward ? second : first, Money.of(CurrencyUnit.EUR, 1)
+      ));
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(accountRepository.get("AC1").get().money()
+        .plus(accountRepository.get("AC2").get().money()))
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 2000));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldNotRejectConcurrentDebitsOfSplitAccountWhenBalanceSuffices()
+      throws Exception {
+    // given
+    final int numberOfTransfers = 2000;
+    accountRepository = new OptimisticAccountRepository(Integer.MAX_VALUE);
+    final Account sender = createAccount("AC1", Money.of(CurrencyUnit.EUR, numberOfTransfers));
+    final Account receiver = createAccount("AC2", Money.of(CurrencyUnit.EUR, 0));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+    accountRepository.split("AC1", 4);
+    final AtomicInteger rejected = new AtomicInteger();
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfTransfers; i++) {
+      executorService.submit(() -> {
+        try {
+          accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 1));
+        } catch (NotEnoughMoneyException exception) {
+          rejected.incrementAndGet();
+        }
+      });
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(rejected.get()).isEqualTo(0);
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 0));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, numberOfTransfers));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldNeverReadSplitAccountInTheMiddleOfTransfer() throws Exception {
+    // given
+    final int numberOfTransfers = 2000;
+    accountRepository = new OptimisticAccountRepository(Integer.MAX_VALUE);
+    final Account hot = createAccount("AC1", Money.of(CurrencyUnit.EUR, 0));
+    final Account other = createAccount("AC2", Money.of(CurrencyUnit.EUR, 400));
+    accountRepository.create(hot);
+    accountRepository.create(other);
+    accountRepository.split("AC1", 64);
+    // credits of 1 are spread over sub-balances, so debits of 100 take money from several
+    for (int i = 0; i < 400; i++) {
+      accountRepository.transfer(other, hot, Money.of(CurrencyUnit.EUR, 1));
+    }
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    int partial = 0;
+
+    // when
+    for (int i = 0; i < numberOfTransfers; i++) {
+      final boolean forward = i % 2 == 0;
+      executorService.submit(() -> accountRepository.transfer(
+          forward ? hot : other, forward ? other : hot, Money.of(CurrencyUnit.EUR, 100)
+      ));
+    }
+    executorService.shutdown();
+    while (!executorService.isTerminated()) {
+      if (accountRepository.get("AC1").get().money().getAmountMajorLong() % 100 != 0) {
+        partial++;
+      }
+    }
+
+    // then
+    assertThat(partial).isEqualTo(0);
+    assertThat(accountRepository.get("AC1").get().money()
+        .plus(accountRepository.get("AC2").get().money()))
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 400));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCreateAccountOnlyIfAbsent() {
+    // given
+    Account account = createAccount("AC1", Money.of(CurrencyUnit.EUR, 10));
+    Account duplicate = createAccount("AC1", Money.of(CurrencyUnit.EUR, 20));
+
+    // when
+    boolean created = accountRepository.createIfAbsent(account);
+    boolean createdDuplicate = accountRepository.createIfAbsent(duplicate);
+
+    // then
+    assertThat(created).isTrue();
+    assertThat(createdDuplicate).isFalse();
+    assertThat(accountRepository.get(account.number()).get().money())
+        .isEqualTo(account.money());
+    assertThat(accountRepository.getAll()).hasSize(1);
+  }
+
+  private Account createAccount(final String number, final Money money) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("testOwner")
+        .money(money)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
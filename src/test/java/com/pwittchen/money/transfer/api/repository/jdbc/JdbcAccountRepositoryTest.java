@@ -0,0 +1,270 @@
+package com.pwittchen.money.transfer.api.repository.jdbc;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JdbcAccountRepositoryTest {
+
+  private ConnectionPool connectionPool;
+  private AccountRepository accountRepository;
+
+  @Rule public ExpectedException expectedException = ExpectedException.none();
+
+  @Before public void setUp() throws SQLException {
+    connectionPool = ConnectionPool.open(
+        "jdbc:h2:mem:" + UUID.randomUUID() + ";LOCK_TIMEOUT=10000", 4
+    );
+    accountRepository = new JdbcAccountRepository(connectionPool);
+  }
+
+  @After public void tearDown() {
+    connectionPool.close();
+  }
+
+  @Test public void shouldGetEmptyResultWhenAccountDoesNotExist() {
+    // when
+    Optional<Account> optional = accountRepository.get("invalidNumber");
+
+    // then
+    assertThat(optional.isPresent()).isFalse();
+  }
+
+  @Test public void shouldGetAllAccounts() {
+    // given
+    accountRepository.create(createAccount(Money.of(CurrencyUnit.EUR, 0)));
+    accountRepository.create(createAccount(Money.of(CurrencyUnit.EUR, 0)));
+
+    // when
+    List<Account> accounts = accountRepository.getAll();
+
+    // then
+    assertThat(accounts.size()).isEqualTo(2);
+  }
+
+  @Test public void shouldIterateOverAccountsPageByPage() {
+    // given
+    final List<Account> accounts = new ArrayList<>();
+    for (int i = 0; i < 2500; i++) {
+      final Account account = createAccount(Money.of(CurrencyUnit.EUR, i));
+      accounts.add(account);
+      accountRepository.create(account);
+    }
+
+    // when
+    final List<Account> iterated = new ArrayList<>();
+    accountRepository.iterator().forEachRemaining(iterated::add);
+
+    // then
+    accounts.sort(Comparator.comparing(Account::number));
+    assertThat(iterated).containsExactlyElementsIn(accounts).inOrder();
+  }
+
+  @Test public void shouldCreateNewAccount() {
+    // given
+    Account account = createAccount(Money.of(CurrencyUnit.EUR, 10));
+
+    // when
+    accountRepository.create(account);
+    //noinspection OptionalGetWithoutIsPresent
+    Account createdAccount = accountRepository.get(account.number()).get();
+
+    // then
+    assertThat(createdAccount).isEqualTo(account);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldTransferMoney() {
+    // given
+    Account sender = createAccount(Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount(Money.of(CurrencyUnit.EUR, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 4));
+
+    // then
+    Account updatedSender = accountRepository.get(sender.number()).get();
+    Account updatedReceiver = accountRepository.get(receiver.number()).get();
+    assertThat(updatedSender.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 6));
+    assertThat(updatedReceiver.money()).isEqualTo(Money.of(CurrencyUnit.EUR, 9));
+    assertThat(updatedSender.createdAt()).isEqualTo(sender.createdAt());
+    assertThat(updatedSender.version()).isEqualTo(1);
+    assertThat(updatedReceiver.version()).isEqualTo(1);
+  }
+
+  @Test public void shouldNotTransferMoneyWhenAccountDoesNotExist() {
+    // given
+    Account sender = createAccount(Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount(Money.of(CurrencyUnit.EUR, 0));
+    accountRepository.create(sender);
+
+    // when
+    expectedException.expect(AccountNotExistsException.class);
+
+    // then
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 1));
+  }
+
+  @Test public void shouldNotTransferMoneyInDifferentCurrency() {
+    // given
+    Account sender = createAccount(Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount(Money.of(CurrencyUnit.USD, 0));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    expectedException.expect(DifferentCurrencyException.class);
+
+    // then
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 1));
+  }
+
+  @Test public void shouldReusePreparedStatements() {
+    // given
+    Account sender = createAccount(Money.of(CurrencyUnit.EUR, 100));
+    Account receiver = createAccount(Money.of(CurrencyUnit.EUR, 0));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+    for (int i = 0; i < connectionPool.size(); i++) {
+      accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 1));
+    }
+    final int preparedStatements = connectionPool.preparedStatements();
+
+    // when
+    for (int i = 0; i < 10; i++) {
+      accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 1));
+    }
+
+    // then
+    assertThat(connectionPool.preparedStatements()).isEqualTo(preparedStatements);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldTransferMoneyFromTheLatestBalanceInsteadOfStaleSnapshot() {
+    // given
+    Account sender = createAccount(Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount(Money.of(CurrencyUnit.EUR, 0));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 3));
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 3));
+
+    // then
+    Money senderMoney = accountRepository.get(sender.number()).get().money();
+    Money receiverMoney = accountRepository.get(receiver.number()).get().money();
+    assertThat(senderMoney).isEqualTo(Money.of(CurrencyUnit.EUR, 4));
+    assertThat(receiverMoney).isEqualTo(Money.of(CurrencyUnit.EUR, 6));
+  }
+
+  @Test public void shouldNotTransferMoneyWhenSenderHasNotEnoughMoney() {
+    // given
+    Account sender = createAccount(Money.of(CurrencyUnit.EUR, 1));
+    Account receiver = createAccount(Money.of(CurrencyUnit.EUR, 0));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    expectedException.expect(NotEnoughMoneyException.class);
+
+    // then
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 2));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldKeepTotalBalanceForConcurrentTransfers() throws Exception {
+    // given
+    final int numberOfAccounts = 16;
+    final int numberOfTransfers = 2_000;
+    final Account[] accounts = new Account[numberOfAccounts];
+    for (int i = 0; i < numberOfAccounts; i++) {
+      accounts[i] = createAccount(Money.of(CurrencyUnit.EUR, 1000));
+      accountRepository.create(accounts[i]);
+    }
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    // when
+    for (int i = 0; i < numberOfTransfers; i++) {
+      final Account from = accounts[i % numberOfAccounts];
+      final Account to = accounts[(i * 7 + 3) % numberOfAccounts];
+      if (from != to) {
+        executorService.submit(() ->
+            accountRepository.transfer(from, to, Money.of(CurrencyUnit.EUR, 1))
+        );
+      }
+    }
+    executorService.shutdown();
+    executorService.awaitTermination(60, TimeUnit.SECONDS);
+
+    // then
+    Money total = Money.zero(CurrencyUnit.EUR);
+    for (Account account : accounts) {
+      total = total.plus(accountRepository.get(account.number()).get().money());
+    }
+    assertThat(total).isEqualTo(Money.of(CurrencyUnit.EUR, 1000 * numberOfAccounts));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCreateAccountOnlyIfAbsent() {
+    // given
+    Account account = createAccount(Money.of(CurrencyUnit.EUR, 10));
+    Account duplicate = Account
+        .builder()
+        .owner("anotherOwner")
+        .number(account.number())
+        .money(Money.of(CurrencyUnit.EUR, 20))
+        .build();
+
+    // when
+    boolean created = accountRepository.createIfAbsent(account);
+    boolean createdDuplicate = accountRepository.createIfAbsent(duplicate);
+
+    // then
+    assertThat(created).isTrue();
+    assertThat(createdDuplicate).isFalse();
+    assertThat(accountRepository.get(account.number()).get().money())
+        .isEqualTo(account.money());
+    assertThat(accountRepository.getAll()).hasSize(1);
+  }
+
+  private Account createAccount(final Money money) {
+    return Account
+        .builder()
+        .owner("testOwner")
+        .number(UUID.randomUUID().toString())
+        .money(money)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,175 @@
+package com.pwittchen.money.transfer.api.repository.jdbc;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class JdbcTransactionRepositoryTest {
+
+  private ConnectionPool connectionPool;
+  private TransactionRepository transactionRepository;
+
+  @Before public void setUp() throws SQLException {
+    connectionPool = ConnectionPool.open("jdbc:h2:mem:" + UUID.randomUUID(), 2);
+    transactionRepository = new JdbcTransactionRepository(connectionPool);
+  }
+
+  @After public void tearDown() {
+    connectionPool.close();
+  }
+
+  @Test public void shouldCreateAllTransactionsInOrder() {
+    // given
+    Transaction transactionOne = createTransaction("TR1");
+    Transaction transactionTwo = Transaction
+        .builder()
+        .id("TR2")
+        .from("AC2")
+        .to("AC1")
+        .money(Money.parse("EUR 0.50"))
+        .build();
+    Transaction multiLeg = Transaction
+        .builder()
+        .id("TR3")
+        .legs(List.of(
+            new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC2", "AC3", Money.of(CurrencyUnit.USD, 2))
+        ))
+        .createdAt(LocalDateTime.now())
+        .build();
+
+    // when
+    transactionRepository.create(transactionOne);
+    transactionRepository.createAll(Arrays.asList(transactionTwo, multiLeg));
+
+    // then
+    assertThat(transactionRepository.getAll())
+        .containsExactly(transactionOne, transactionTwo, multiLeg)
+        .inOrder();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldGetLastTransaction() {
+    // given
+    Transaction multiLeg = Transaction
+        .builder()
+        .id("TR2")
+        .legs(List.of(
+            new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC2", "AC3", Money.of(CurrencyUnit.EUR, 2))
+        ))
+        .build();
+    transactionRepository.create(createTransaction("TR1"));
+    transactionRepository.create(multiLeg);
+
+    // when
+    Transaction last = transactionRepository.last().get();
+
+    // then
+    assertThat(last).isEqualTo(multiLeg);
+  }
+
+  @Test public void shouldGetRangeOfTransactions() {
+    // given
+    final Transaction first = createTransaction("TR1");
+    final Transaction second = createTransaction("TR2");
+    final Transaction third = createTransaction("TR3");
+    transactionRepository.createAll(Arrays.asList(first, second, third));
+
+    // when
+    final List<Transaction> transactions = transactionRepository.get(1, 5);
+
+    // then
+    assertThat(transactions).containsExactly(second, third).inOrder();
+  }
+
+  @Test public void shouldGetTransactionsAtPositions() {
+    // given
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      transactions.add(createTransaction("TR" + i));
+    }
+    transactionRepository.createAll(transactions);
+
+    // when
+    final List<Transaction> found = transactionRepository.get(List.of(1L, 50L, 99L, 100L));
+
+    // then
+    assertThat(found)
+        .containsExactly(transactions.get(1), transactions.get(50), transactions.get(99))
+        .inOrder();
+  }
+
+  @Test public void shouldGetTransactionsAtPositionsWhenIdentitiesHaveGaps() {
+    // given
+    connectionPool.transaction(connection -> connection.prepare(
+        "INSERT INTO transactions (seq, id) VALUES (5, 'TR1'), (9, 'TR2'), (10, 'TR3')"
+    ).executeUpdate());
+    final TransactionRepository reopened = new JdbcTransactionRepository(connectionPool);
+    final Transaction fourth = createTransaction("TR4");
+    reopened.create(fourth);
+
+    // when
+    final List<Transaction> range = reopened.get(1, 2);
+    final List<Transaction> found = reopened.get(List.of(0L, 3L));
+
+    // then
+    assertThat(range.stream().map(Transaction::id).collect(Collectors.toList()))
+        .containsExactly("TR2", "TR3")
+        .inOrder();
+    assertThat(found.get(0).id()).isEqualTo("TR1");
+    assertThat(found.get(1)).isEqualTo(fourth);
+  }
+
+  @Test public void shouldGetTransactionsCreatedAfterClearing() {
+    // given
+    transactionRepository.create(createTransaction("TR1"));
+    transactionRepository.clear();
+    final Transaction transaction = createTransaction("TR2");
+
+    // when
+    transactionRepository.create(transaction);
+
+    // then
+    assertThat(transactionRepository.get(0, 5)).containsExactly(transaction);
+  }
+
+  @Test public void shouldClearTransactions() {
+    // given
+    transactionRepository.create(createTransaction("TR1"));
+    transactionRepository.create(createTransaction("TR2"));
+
+    // when
+    transactionRepository.clear();
+
+    // then
+    assertThat(transactionRepository.getAll().isEmpty()).isTrue();
+    assertThat(transactionRepository.last().isPresent()).isFalse();
+  }
+
+  private Transaction createTransaction(final String id) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from("AC1")
+        .to("AC2")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,282 @@
+package com.pwittchen.money.transfer.api.repository.journal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class MappedTransactionRepositoryTest {
+
+  private static final int SEGMENT_SIZE = 1024;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public ExpectedException expectedException = ExpectedException.none();
+
+  private Path directory;
+  private MappedTransactionRepository transactionRepository;
+
+  @Before public void setUp() throws IOException {
+    directory = temporaryFolder.getRoot().toPath();
+    transactionRepository = open();
+  }
+
+  @After public void tearDown() {
+    transactionRepository.close();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCreateAndGetAllTransactionsInOrder() {
+    // given
+    final Transaction transaction = createTransaction("TR1");
+    final Transaction withoutDate = Transaction
+        .builder()
+        .id("TR2")
+        .from("AC2")
+        .to("AC1")
+        .money(Money.parse("EUR 0.50"))
+        .build();
+    final Transaction multiLeg = Transaction
+        .builder()
+        .id("TR3")
+        .legs(List.of(
+            new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC2", "AC3", Money.of(CurrencyUnit.USD, 2))
+        ))
+        .createdAt(LocalDateTime.now())
+        .build();
+
+    // when
+    transactionRepository.create(transaction);
+    transactionRepository.createAll(List.of(withoutDate, multiLeg));
+
+    // then
+    assertThat(transactionRepository.getAll())
+        .containsExactly(transaction, withoutDate, multiLeg)
+        .inOrder();
+    assertThat(transactionRepository.getAll().peek()).isEqualTo(transaction);
+    assertThat(transactionRepository.last().get()).isEqualTo(multiLeg);
+  }
+
+  @Test public void shouldRollSegmentsAndKeepOnlyRecentOnesMapped() {
+    // given
+    final List<Transaction> transactions = createTransactions(100);
+
+    // when
+    transactionRepository.createAll(transactions);
+
+    // then
+    assertThat(transactionRepository.segments()).isGreaterThan(2);
+    assertThat(transactionRepository.mappedSegments()).isEqualTo(2);
+    assertThat(transactionRepository.getAll()).containsExactlyElementsIn(transactions).inOrder();
+  }
+
+  @Test public void shouldGetRangeOfTransactionsAcrossSegmentsAndCheckpoints()
+      throws IOException {
+    // given
+    transactionRepository.close();
+    transactionRepository = MappedTransactionRepository.open(
+        temporaryFolder.newFolder().toPath(), 8 * SEGMENT_SIZE, 2
+    );
+    final List<Transaction> transactions = createTransactions(300);
+    transactionRepository.createAll(transactions);
+
+    // when
+    final List<Transaction> first = transactionRepository.get(0, 3);
+    final List<Transaction> middle = transactionRepository.get(60, 150);
+    final List<Transaction> tail = transactionRepository.get(295, 10);
+    final List<Transaction> none = transactionRepository.get(300, 10);
+
+    // then
+    assertThat(transactionRepository.segments()).isGreaterThan(1);
+    assertThat(first).containsExactlyElementsIn(transactions.subList(0, 3)).inOrder();
+    assertThat(middle).containsExactlyElementsIn(transactions.subList(60, 210)).inOrder();
+    assertThat(tail).containsExactlyElementsIn(transactions.subList(295, 300)).inOrder();
+    assertThat(none).isEmpty();
+  }
+
+  @Test public void shouldGetTransactionsOfReleasedSegments() throws IOException {
+    // given
+    transactionRepository.close();
+    transactionRepository = MappedTransactionRepository.open(
+        temporaryFolder.newFolder().toPath(), 8 * SEGMENT_SIZE, 1
+    );
+    final List<Transaction> transactions = createTransactions(300);
+    transactionRepository.createAll(transactions);
+
+    // when
+    final List<Transaction> single = transactionRepository.get(70, 1);
+    final List<Transaction> range = transactionRepository.get(1, 200);
+
+    // then
+    assertThat(transactionRepository.mappedSegments()).isEqualTo(1);
+    assertThat(single).containsExactly(transactions.get(70));
+    assertThat(range).containsExactlyElementsIn(transactions.subList(1, 201)).inOrder();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldReportTransactionsOfFullSegmentsAsPersisted() {
+    // given
+    final List<Transaction> transactions = createTransactions(100);
+    int rolledAt = -1;
+
+    // when
+    for (int i = 0; i < transactions.size() && rolledAt < 0; i++) {
+      final boolean persistedBefore = transactionRepository.lastPersisted().isPresent();
+      transactionRepository.create(transactions.get(i));
+      if (transactionRepository.segments() > 1) {
+        assertThat(persistedBefore).isFalse();
+        rolledAt = i;
+      }
+    }
+
+    // then
+    assertThat(rolledAt).isGreaterThan(0);
+    assertThat(transactionRepository.lastPersisted().get())
+        .isEqualTo(transactions.get(rolledAt - 1));
+    assertThat(transactionRepository.last().get()).isEqualTo(transactions.get(rolledAt));
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldReportAllTransactionsAsPersistedAfterClosing() {
+    // given
+    final List<Transaction> transactions = createTransactions(5);
+    transactionRepository.createAll(transactions);
+
+    // when
+    transactionRepository.close();
+
+    // then
+    assertThat(transactionRepository.lastPersisted().get()).isEqualTo(transactions.get(4));
+  }
+
+  @Test public void shouldKeepTransactionsAfterReopening() throws IOException {
+    // given
+    final List<Transaction> transactions = createTransactions(50);
+    transactionRepository.createAll(transactions);
+    transactionRepository.close();
+
+    // when
+    transactionRepository = open();
+    final Transaction transaction = createTransaction("TR50");
+    transactionRepository.create(transaction);
+
+    // then
+    final List<Transaction> expected = new ArrayList<>(transactions);
+    expected.add(transaction);
+    assertThat(transactionRepository.size()).isEqualTo(51);
+    assertThat(transactionRepository.getAll()).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCutOffTornTransactionWhenReopening() throws IOException {
+    // given
+    transactionRepository.create(createTransaction("TR1"));
+    transactionRepository.create(createTransaction("TR2"));
+    transactionRepository.close();
+    final Path segment = segmentFiles().get(0);
+    final byte[] bytes = Files.readAllBytes(segment);
+    int last = bytes.length - 1;
+    while (bytes[last] == 0) {
+      last--;
+    }
+    // the last written byte belongs to the second transaction
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] {(byte) (bytes[last] + 1)}), last);
+    }
+
+    // when
+    transactionRepository = open();
+
+    // then
+    assertThat(transactionRepository.size()).isEqualTo(1);
+    assertThat(transactionRepository.last().get().id()).isEqualTo("TR1");
+  }
+
+  @Test public void shouldClearTransactions() throws IOException {
+    // given
+    transactionRepository.createAll(createTransactions(100));
+
+    // when
+    transactionRepository.clear();
+
+    // then
+    assertThat(transactionRepository.getAll().isEmpty()).isTrue();
+    assertThat(transactionRepository.last().isPresent()).isFalse();
+    assertThat(segmentFiles()).hasSize(1);
+  }
+
+  @Test public void shouldNotTakeTransactionsOutOfJournal() {
+    // given
+    transactionRepository.create(createTransaction("TR1"));
+    expectedException.expect(UnsupportedOperationException.class);
+    expectedException.expectMessage("Transaction history is append-only");
+
+    // when
+    transactionRepository.getAll().poll();
+  }
+
+  @Test public void shouldRejectTransactionLargerThanSegment() {
+    // given
+    final Transaction transaction = Transaction
+        .builder()
+        .id("T".repeat(SEGMENT_SIZE))
+        .money(Money.of(CurrencyUnit.EUR, 1))
+        .build();
+    expectedException.expect(IllegalArgumentException.class);
+
+    // when
+    transactionRepository.create(transaction);
+  }
+
+  private MappedTransactionRepository open() throws IOException {
+    return MappedTransactionRepository.open(directory, SEGMENT_SIZE, 2);
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().collect(Collectors.toList());
+    }
+  }
+
+  private List<Transaction> createTransactions(final int count) {
+    final List<Transaction> transactions = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      transactions.add(createTransaction("TR" + i));
+    }
+    return transactions;
+  }
+
+  private Transaction createTransaction(final String id) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from("AC1")
+        .to("AC2")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,247 @@
+package com.pwittchen.money.transfer.api.repository.journal;
+
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class TieredTransactionRepositoryTest {
+
+  private static final int HOT_CAPACITY = 10;
+  private static final int BLOCK_SIZE = 4;
+  private static final long FILE_SIZE = 256;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+  private TieredTransactionRepository transactionRepository;
+
+  @Before public void setUp() throws IOException {
+    directory = temporaryFolder.getRoot().toPath();
+    transactionRepository = open(1, TimeUnit.HOURS);
+  }
+
+  @After public void tearDown() {
+    transactionRepository.close();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldGetAllTransactionsFromBothTiersInOrder() {
+    // given
+    final List<Transaction> transactions = createTransactions(25);
+    final Transaction multiLeg = Transaction
+        .builder()
+        .id("TR25")
+        .legs(List.of(
+            new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC2", "AC3", Money.of(CurrencyUnit.USD, 2))
+        ))
+        .build();
+    transactions.add(multiLeg);
+
+    // when
+    transactionRepository.createAll(transactions.subList(0, 20));
+    transactionRepository.compact();
+    transactions.subList(20, transactions.size()).forEach(transactionRepository::create);
+
+    // then
+    assertThat(transactionRepository.coldSize()).isAtLeast(10L);
+    assertThat(transactionRepository.size()).isEqualTo(26);
+    assertThat(transactionRepository.getAll()).containsExactlyElementsIn(transactions).inOrder();
+    assertThat(transactionRepository.last().get()).isEqualTo(multiLeg);
+  }
+
+  @Test public void shouldGetRangeOfTransactionsAcrossBothTiers() {
+    // given
+    final List<Transaction> transactions = createTransactions(30);
+    transactionRepository.createAll(transactions);
+    transactionRepository.compact();
+
+    // when
+    final List<Transaction> cold = transactionRepository.get(1, 5);
+    final List<Transaction> both = transactionRepository.get(15, 10);
+    final List<Transaction> hot = transactionRepository.get(25, 10);
+
+    // then
+    assertThat(transactionRepository.coldSize()).isEqualTo(20);
+    assertThat(cold).containsExactlyElementsIn(transactions.subList(1, 6)).inOrder();
+    assertThat(both).containsExactlyElementsIn(transactions.subList(15, 25)).inOrder();
+    assertThat(hot).containsExactlyElementsIn(transactions.subList(25, 30)).inOrder();
+  }
+
+  @Test public void shouldKeepOnlyRecentTransactionsInMemory() {
+    // given
+    transactionRepository.createAll(createTransactions(HOT_CAPACITY + 3));
+
+    // when
+    final int compacted = transactionRepository.compact();
+
+    // then
+    assertThat(compacted).isEqualTo(3);
+    assertThat(transactionRepository.hotSize()).isEqualTo(HOT_CAPACITY);
+    assertThat(transactionRepository.coldSize()).isEqualTo(3);
+    assertThat(transactionRepository.coldBytes()).isGreaterThan(0L);
+  }
+
+  @Test public void shouldCompactTransactionsOlderThanWindow() throws IOException {
+    // given
+    transactionRepository.close();
+    transactionRepository = open(0, TimeUnit.SECONDS);
+    transactionRepository.createAll(createTransactions(3));
+
+    // when
+    final int compacted = transactionRepository.compact();
+
+    // then
+    assertThat(compacted).isEqualTo(3);
+    assertThat(transactionRepository.hotSize()).isEqualTo(0);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldReportOnlyCompactedTransactionsAsPersisted() {
+    // given
+    final List<Transaction> transactions = createTransactions(HOT_CAPACITY + 3);
+    transactionRepository.createAll(transactions);
+
+    // when
+    final boolean persistedBeforeCompaction = transactionRepository.lastPersisted().isPresent();
+    transactionRepository.compact();
+
+    // then
+    assertThat(persistedBeforeCompaction).isFalse();
+    assertThat(transactionRepository.lastPersisted().get()).isEqualTo(transactions.get(2));
+    assertThat(transactionRepository.last().get())
+        .isEqualTo(transactions.get(transactions.size() - 1));
+  }
+
+  @Test public void shouldBoundMemoryWhenWritersOutpaceCompaction() {
+    // when
+    for (Transaction transaction : createTransactions(10 * HOT_CAPACITY)) {
+      transactionRepository.create(transaction);
+    }
+
+    // then
+    assertThat(transactionRepository.hotSize()).isLessThan(2 * HOT_CAPACITY);
+    assertThat(transactionRepository.size()).isEqualTo(10 * HOT_CAPACITY);
+  }
+
+  @Test public void shouldRollFilesAndReopenHistory() throws IOException {
+    // given
+    final List<Transaction> transactions = createTransactions(60);
+    transactionRepository.createAll(transactions);
+
+    // when
+    transactionRepository.close();
+    transactionRepository = open(1, TimeUnit.HOURS);
+
+    // then
+    assertThat(transactionRepository.files()).isGreaterThan(1);
+    assertThat(transactionRepository.hotSize()).isEqualTo(0);
+    assertThat(transactionRepository.getAll()).containsExactlyElementsIn(transactions).inOrder();
+  }
+
+  @Test public void shouldCutOffTornIndexEntryWhenReopened() throws IOException {
+    // given
+    final List<Transaction> transactions = createTransactions(8);
+    transactionRepository.createAll(transactions);
+    transactionRepository.close();
+    final List<Path> indexes = files(".idx");
+    final Path index = indexes.get(indexes.size() - 1);
+    try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(index) - 1);
+    }
+
+    // when
+    transactionRepository = open(1, TimeUnit.HOURS);
+    final Transaction next = createTransactions(9).get(8);
+    transactionRepository.create(next);
+    transactionRepository.compact();
+
+    // then
+    final List<Transaction> expected = new ArrayList<>(transactions.subList(0, 8 - BLOCK_SIZE));
+    expected.add(next);
+    assertThat(transactionRepository.getAll()).containsExactlyElementsIn(expected).inOrder();
+  }
+
+  @Test public void shouldIterateOverHistoryAsOfCreationOfIterator() {
+    // given
+    transactionRepository.createAll(createTransactions(HOT_CAPACITY + 5));
+    final Iterator<Transaction> iterator = transactionRepository.getAll().iterator();
+
+    // when
+    transactionRepository.compact();
+    transactionRepository.create(createTransactions(HOT_CAPACITY + 6).get(HOT_CAPACITY + 5));
+
+    // then
+    final List<Transaction> iterated = new ArrayList<>();
+    iterator.forEachRemaining(iterated::add);
+    assertThat(iterated).containsExactlyElementsIn(createTransactions(HOT_CAPACITY + 5));
+  }
+
+  @Test public void shouldClearBothTiers() {
+    // given
+    transactionRepository.createAll(createTransactions(HOT_CAPACITY + 5));
+    transactionRepository.compact();
+
+    // when
+    transactionRepository.clear();
+
+    // then
+    assertThat(transactionRepository.getAll().isEmpty()).isTrue();
+    assertThat(transactionRepository.last().isPresent()).isFalse();
+    assertThat(transactionRepository.files()).isEqualTo(0);
+  }
+
+  private TieredTransactionRepository open(final long hotWindow, final TimeUnit unit)
+      throws IOException {
+    return TieredTransactionRepository.open(
+        directory, HOT_CAPACITY, hotWindow, unit, BLOCK_SIZE, FILE_SIZE
+    );
+  }
+
+  private List<Path> files(final String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> path.toString().endsWith(suffix))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static List<Transaction> createTransactions(final int count) {
+    final LocalDateTime createdAt = LocalDateTime.of(2019, 1, 1, 0, 0);
+    final List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      transactions.add(Transaction
+          .builder()
+          .id("TR" + i)
+          .from("AC1")
+          .to("AC2")
+          .money(Money.of(CurrencyUnit.EUR, i))
+          .createdAt(createdAt.plusSeconds(i))
+          .build());
+    }
+    return transactions;
+  }
+}
@@ -0,0 +1,202 @@
+package com.pwittchen.money.transfer.api.repository.offheap;
+
+import com.pwittchen.money.transfer.api.command.exception.AccountNotExistsException;
+import com.pwittchen.money.transfer.api.command.exception.DifferentCurrencyException;
+import com.pwittchen.money.transfer.api.command.exception.NotEnoughMoneyException;
+import com.pwittchen.money.transfer.api.model.Account;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class OffHeapAccountRepositoryTest {
+
+  private OffHeapAccountRepository accountRepository;
+
+  @Before public void setUp() {
+    accountRepository = new OffHeapAccountRepository();
+  }
+
+  @Test public void shouldGetEmptyResultWhenAccountDoesNotExist() {
+    // when
+    Optional<Account> optional = accountRepository.get("invalidNumber");
+
+    // then
+    assertThat(optional.isPresent()).isFalse();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldMaterializeCreatedAccount() {
+    // given
+    Account account = createAccount("AC1", "Żaneta", Money.of(CurrencyUnit.EUR, 10.25));
+
+    // when
+    accountRepository.create(account);
+
+    // then
+    assertThat(accountRepository.get("AC1").get()).isEqualTo(account);
+    assertThat(accountRepository.getAll()).containsExactly(account);
+  }
+
+  @Test public void shouldIterateOverAccountsInOrderOfCreation() {
+    // given
+    Account first = createAccount("AC1", "Owner1", Money.of(CurrencyUnit.EUR, 1));
+    Account second = createAccount("AC2", "Owner2", Money.of(CurrencyUnit.EUR, 2));
+    accountRepository.create(first);
+    accountRepository.create(second);
+
+    // when
+    Iterator<Account> iterator = accountRepository.iterator();
+    Account third = createAccount("AC3", "Owner3", Money.of(CurrencyUnit.EUR, 3));
+    accountRepository.create(third);
+
+    // then
+    List<Account> iterated = new ArrayList<>();
+    iterator.forEachRemaining(iterated::add);
+    assertThat(iterated).containsExactly(first, second, third).inOrder();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldMaterializeAccountWithoutCreationDateAndOwner() {
+    // given
+    Account account = Account.builder()
+        .number("AC1")
+        .money(Money.of(CurrencyUnit.GBP, 1))
+        .build();
+
+    // when
+    accountRepository.create(account);
+
+    // then
+    assertThat(accountRepository.get("AC1").get()).isEqualTo(account);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldReplaceExistingAccount() {
+    // given
+    accountRepository.create(createAccount("AC1", "owner", Money.of(CurrencyUnit.EUR, 1)));
+    Account replacement = createAccount("AC1", "new owner", Money.of(CurrencyUnit.EUR, 2));
+
+    // when
+    accountRepository.create(replacement);
+
+    // then
+    assertThat(accountRepository.size()).isEqualTo(1);
+    assertThat(accountRepository.get("AC1").get()).isEqualTo(replacement);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldFindAllAccountsAfterIndexGrows() {
+    // given
+    final int numberOfAccounts = 200_000;
+
+    // when
+    for (int i = 0; i < numberOfAccounts; i++) {
+      accountRepository.create(createAccount("AC" + i, "owner" + i, Money.of(CurrencyUnit.EUR, i)));
+    }
+
+    // then
+    assertThat(accountRepository.size()).isEqualTo(numberOfAccounts);
+    for (int i = 0; i < numberOfAccounts; i += 997) {
+      Account account = accountRepository.get("AC" + i).get();
+      assertThat(account.owner()).isEqualTo("owner" + i);
+      assertThat(account.money()).isEqualTo(Money.of(CurrencyUnit.EUR, i));
+    }
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldTransferMoney() {
+    // given
+    Account sender = createAccount("AC1", "owner", Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount("AC2", "owner", Money.of(CurrencyUnit.EUR, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 2.5));
+
+    // then
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 7.5));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 7.5));
+  }
+
+  @Test(expected = NotEnoughMoneyException.class)
+  public void shouldNotTransferMoneyWhenSenderHasNotEnoughMoney() {
+    // given
+    Account sender = createAccount("AC1", "owner", Money.of(CurrencyUnit.EUR, 1));
+    Account receiver = createAccount("AC2", "owner", Money.of(CurrencyUnit.EUR, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 2));
+  }
+
+  @Test(expected = DifferentCurrencyException.class)
+  public void shouldNotTransferMoneyBetweenDifferentCurrencies() {
+    // given
+    Account sender = createAccount("AC1", "owner", Money.of(CurrencyUnit.EUR, 10));
+    Account receiver = createAccount("AC2", "owner", Money.of(CurrencyUnit.GBP, 5));
+    accountRepository.create(sender);
+    accountRepository.create(receiver);
+
+    // when
+    accountRepository.transfer(sender, receiver, Money.of(CurrencyUnit.EUR, 2));
+  }
+
+  @Test(expected = AccountNotExistsException.class)
+  public void shouldNotTransferMoneyToNotExistingAccount() {
+    // given
+    Account sender = createAccount("AC1", "owner", Money.of(CurrencyUnit.EUR, 10));
+    accountRepository.create(sender);
+
+    // when
+    accountRepository.transfer(
+        sender, createAccount("AC2", "owner", Money.of(CurrencyUnit.EUR, 0)),
+        Money.of(CurrencyUnit.EUR, 2)
+    );
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldCreateAccountOnlyIfAbsent() {
+    // given
+    Account account = createAccount("AC1", "owner", Money.of(CurrencyUnit.EUR, 10));
+    Account duplicate = createAccount("AC1", "other", Money.of(CurrencyUnit.EUR, 20));
+
+    // when
+    boolean created = accountRepository.createIfAbsent(account);
+    boolean createdDuplicate = accountRepository.createIfAbsent(duplicate);
+
+    // then
+    assertThat(created).isTrue();
+    assertThat(createdDuplicate).isFalse();
+    assertThat(accountRepository.get(account.number()).get().money())
+        .isEqualTo(account.money());
+    assertThat(accountRepository.getAll()).hasSize(1);
+  }
+
+  private Account createAccount(final String number, final String owner, final Money money) {
+    return Account
+        .builder()
+        .owner(owner)
+        .number(number)
+        .money(money)
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
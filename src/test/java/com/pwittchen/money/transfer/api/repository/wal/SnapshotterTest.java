@@ -0,0 +1,257 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SnapshotterTest {
+
+  private static final long SEGMENT_SIZE = 4 * 1024;
+  private static final int NUMBER_OF_ACCOUNTS = 50;
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+  private WriteAheadLog writeAheadLog;
+  private AccountRepository accountRepository;
+  private TransactionRepository transactionRepository;
+  private CommitTransactionCommand commitTransactionCommand;
+  private Snapshotter snapshotter;
+  private final AtomicInteger transactionId = new AtomicInteger();
+
+  @Before public void setUp() throws IOException {
+    directory = temporaryFolder.getRoot().toPath();
+    writeAheadLog = open();
+    accountRepository = new DurableAccountRepository(
+        new StripedAccountRepository(), writeAheadLog
+    );
+    transactionRepository = new DurableTransactionRepository(
+        new InMemoryTransactionRepository(), writeAheadLog
+    );
+    commitTransactionCommand = new OrderedLockCommitTransactionCommand(
+        accountRepository, transactionRepository
+    );
+    snapshotter = new Snapshotter(writeAheadLog, transactionRepository);
+    for (int i = 0; i < NUMBER_OF_ACCOUNTS; i++) {
+      accountRepository.create(createAccount("AC" + i));
+    }
+  }
+
+  @After public void tearDown() throws IOException {
+    snapshotter.close();
+    writeAheadLog.close();
+  }
+
+  @Test public void shouldTakeSnapshotAndDeleteCoveredSegments() throws IOException {
+    // given
+    final Transaction last = commit(500);
+    final int segments = segments().size();
+    snapshotter = new Snapshotter(writeAheadLog, persistedUpTo(last));
+
+    // when
+    final Optional<LedgerSnapshot> snapshot = snapshotter.snapshot();
+
+    // then
+    assertThat(snapshot.isPresent()).isTrue();
+    assertThat(snapshot.get().lsn()).isEqualTo(writeAheadLog.lastSyncedLsn());
+    assertThat(segments).isGreaterThan(1);
+    assertThat(segments().size()).isEqualTo(1);
+    assertThat(balances(recover(snapshot.get())))
+        .containsExactlyElementsIn(balances(accountRepository.getAll()));
+  }
+
+  @Test public void shouldKeepSegmentsWithTransactionsWhichAreNotPersisted()
+      throws IOException {
+    // given
+    final Transaction persisted = commit(100);
+    commit(400);
+    snapshotter = new Snapshotter(writeAheadLog, persistedUpTo(persisted));
+
+    // when
+    snapshotter.snapshot();
+    writeAheadLog.close();
+    writeAheadLog = open();
+    final long recovered = WalRecovery.recoverTransactions(
+        writeAheadLog, new InMemoryTransactionRepository(), persisted.id()
+    );
+
+    // then
+    assertThat(recovered).isEqualTo(400);
+  }
+
+  @Test public void shouldKeepAllSegmentsWhenHistoryIsInMemory() throws IOException {
+    // given
+    commit(500);
+    final int segments = segments().size();
+
+    // when
+    snapshotter.snapshot();
+    writeAheadLog.close();
+    writeAheadLog = open();
+    final TransactionRepository recovered = new InMemoryTransactionRepository();
+    WalRecovery.recoverTransactions(writeAheadLog, recovered);
+
+    // then
+    assertThat(segments().size()).isEqualTo(segments);
+    assertThat(recovered.getAll()).hasSize(500);
+  }
+
+  @Test public void shouldNotTakeSnapshotWhenNothingWasLogged() throws IOException {
+    // given
+    final LedgerSnapshot first = snapshotter.snapshot().get();
+
+    // when
+    final LedgerSnapshot second = snapshotter.snapshot().get();
+
+    // then
+    assertThat(second.lsn()).isEqualTo(first.lsn());
+  }
+
+  @Test public void shouldMergePreviousSnapshotWithNewRecords() throws IOException {
+    // given
+    commit(200);
+    snapshotter.snapshot();
+    accountRepository.create(createAccount("NEW"));
+    commit(200);
+
+    // when
+    final LedgerSnapshot snapshot = snapshotter.snapshot().get();
+
+    // then
+    assertThat(balances(recover(snapshot)))
+        .containsExactlyElementsIn(balances(accountRepository.getAll()));
+    assertThat(snapshots()).hasSize(1);
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldRecoverFromSnapshotAndLogTail() throws Exception {
+    // given
+    final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    for (int i = 0; i < 4; i++) {
+      executorService.submit(() -> commit(250));
+    }
+    // taken while transactions are being committed
+    snapshotter.snapshot();
+    executorService.shutdown();
+    executorService.awaitTermination(30, TimeUnit.SECONDS);
+    final List<Account> expected = accountRepository.getAll();
+    writeAheadLog.close();
+
+    // when
+    writeAheadLog = open();
+    final AccountRepository recovered = new StripedAccountRepository();
+    final TransactionRepository transactions = new InMemoryTransactionRepository();
+    final long accounts = WalRecovery.recoverAccounts(writeAheadLog, recovered, 4);
+    final long tail = WalRecovery.recoverTransactions(writeAheadLog, transactions);
+
+    // then
+    assertThat(accounts).isEqualTo(NUMBER_OF_ACCOUNTS);
+    assertThat(tail).isEqualTo(transactions.getAll().size());
+    for (Account account : expected) {
+      assertThat(recovered.get(account.number()).get().money()).isEqualTo(account.money());
+    }
+  }
+
+  private WriteAheadLog open() throws IOException {
+    return WriteAheadLog.open(directory, SEGMENT_SIZE, 64, 0, TimeUnit.MICROSECONDS);
+  }
+
+  private List<Account> recover(final LedgerSnapshot snapshot) {
+    final List<Account> accounts = new ArrayList<>();
+    for (int partition = 0; partition < LedgerSnapshot.PARTITIONS; partition++) {
+      snapshot.read(partition, accounts::add);
+    }
+    return accounts;
+  }
+
+  // versions are counted differently by storages, so only numbers and balances are compared
+  private List<String> balances(final List<Account> accounts) {
+    return accounts
+        .stream()
+        .map(account -> String.format("%s %s", account.number(), account.money()))
+        .collect(Collectors.toList());
+  }
+
+  private Transaction commit(final int numberOfTransactions) {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    Transaction transaction = null;
+    for (int i = 0; i < numberOfTransactions; i++) {
+      final int from = random.nextInt(NUMBER_OF_ACCOUNTS);
+      final int to = (from + 1 + random.nextInt(NUMBER_OF_ACCOUNTS - 1)) % NUMBER_OF_ACCOUNTS;
+      transaction = Transaction
+          .builder()
+          .id("TR" + transactionId.incrementAndGet())
+          .from("AC" + from)
+          .to("AC" + to)
+          .money(Money.of(CurrencyUnit.EUR, 1))
+          .createdAt(LocalDateTime.now())
+          .build();
+      commitTransactionCommand.run(transaction);
+    }
+    return transaction;
+  }
+
+  // a repository, which reports the given transaction as the last one written to disk
+  private TransactionRepository persistedUpTo(final Transaction transaction) {
+    final TransactionRepository repository = mock(TransactionRepository.class);
+    when(repository.lastPersisted()).thenReturn(Optional.of(transaction));
+    return repository;
+  }
+
+  private List<Path> segments() throws IOException {
+    return list("wal-");
+  }
+
+  private List<Path> snapshots() throws IOException {
+    return list("snapshot-");
+  }
+
+  private List<Path> list(final String prefix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(path -> path.getFileName().toString().startsWith(prefix))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private Account createAccount(final String number) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("testOwner")
+        .money(Money.of(CurrencyUnit.EUR, 1000))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,157 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.command.CommitTransactionCommand;
+import com.pwittchen.money.transfer.api.command.implementation.OrderedLockCommitTransactionCommand;
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import com.pwittchen.money.transfer.api.repository.AccountRepository;
+import com.pwittchen.money.transfer.api.repository.TransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.InMemoryTransactionRepository;
+import com.pwittchen.money.transfer.api.repository.inmemory.StripedAccountRepository;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class WalRecoveryTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+
+  @Before public void setUp() {
+    directory = temporaryFolder.getRoot().toPath();
+  }
+
+  @Test
+  @SuppressWarnings("OptionalGetWithoutIsPresent")
+  public void shouldRecoverBalancesAndHistoryAfterRestart() throws IOException {
+    // given
+    try (WriteAheadLog writeAheadLog = open()) {
+      final AccountRepository accountRepository = new DurableAccountRepository(
+          new StripedAccountRepository(), writeAheadLog
+      );
+      final TransactionRepository transactionRepository = new DurableTransactionRepository(
+          new InMemoryTransactionRepository(), writeAheadLog
+      );
+      final CommitTransactionCommand command = new OrderedLockCommitTransactionCommand(
+          accountRepository, transactionRepository
+      );
+      accountRepository.createIfAbsent(createAccount("AC1", 100));
+      accountRepository.createIfAbsent(createAccount("AC2", 50));
+      accountRepository.createIfAbsent(createAccount("AC3", 0));
+      command.run(createTransaction("TR1", "AC1", "AC2", 10));
+      command.run(createTransaction("TR2", "AC2", "AC3", 5));
+      final Transaction multiLeg = Transaction
+          .builder()
+          .id("TR3")
+          .legs(List.of(
+              new TransactionLeg("AC1", "AC3", Money.of(CurrencyUnit.EUR, 20)),
+              new TransactionLeg("AC3", "AC2", Money.of(CurrencyUnit.EUR, 1))
+          ))
+          .createdAt(LocalDateTime.now())
+          .build();
+      transactionRepository.createAll(List.of(multiLeg));
+    }
+
+    // when
+    final AccountRepository accountRepository = new StripedAccountRepository();
+    final TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+    final long accounts;
+    final long transactions;
+    try (WriteAheadLog writeAheadLog = open()) {
+      accounts = WalRecovery.recoverAccounts(writeAheadLog, accountRepository);
+      transactions = WalRecovery.recoverTransactions(writeAheadLog, transactionRepository);
+    }
+
+    // then
+    assertThat(accounts).isEqualTo(3);
+    assertThat(transactions).isEqualTo(3);
+    assertThat(accountRepository.get("AC1").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 70));
+    assertThat(accountRepository.get("AC2").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 56));
+    assertThat(accountRepository.get("AC3").get().money())
+        .isEqualTo(Money.of(CurrencyUnit.EUR, 24));
+    assertThat(transactionRepository.getAll()).hasSize(3);
+    assertThat(transactionRepository.getAll().peek().id()).isEqualTo("TR1");
+  }
+
+  @Test public void shouldRecoverOnlyTransactionsAfterTheLastOneAlreadyHeld()
+      throws IOException {
+    // given
+    try (WriteAheadLog writeAheadLog = open()) {
+      final TransactionRepository transactionRepository = new DurableTransactionRepository(
+          new InMemoryTransactionRepository(), writeAheadLog
+      );
+      transactionRepository.create(createTransaction("TR1", "AC1", "AC2", 1));
+      transactionRepository.create(createTransaction("TR2", "AC1", "AC2", 1));
+      transactionRepository.create(createTransaction("TR3", "AC1", "AC2", 1));
+    }
+
+    // when
+    final TransactionRepository transactionRepository = new InMemoryTransactionRepository();
+    final long transactions;
+    try (WriteAheadLog writeAheadLog = open()) {
+      transactions = WalRecovery.recoverTransactions(writeAheadLog, transactionRepository, "TR2");
+    }
+
+    // then
+    assertThat(transactions).isEqualTo(1);
+    assertThat(transactionRepository.getAll().peek().id()).isEqualTo("TR3");
+  }
+
+  @Test public void shouldNotLogAccountWhichAlreadyExists() throws IOException {
+    // given
+    try (WriteAheadLog writeAheadLog = open()) {
+      final AccountRepository accountRepository = new DurableAccountRepository(
+          new StripedAccountRepository(), writeAheadLog
+      );
+
+      // when
+      final boolean created = accountRepository.createIfAbsent(createAccount("AC1", 100));
+      final boolean createdDuplicate = accountRepository.createIfAbsent(createAccount("AC1", 1));
+
+      // then
+      assertThat(created).isTrue();
+      assertThat(createdDuplicate).isFalse();
+      assertThat(writeAheadLog.lastSyncedLsn()).isEqualTo(1);
+    }
+  }
+
+  private WriteAheadLog open() throws IOException {
+    return WriteAheadLog.open(directory, 16, 0, TimeUnit.MICROSECONDS);
+  }
+
+  private Account createAccount(final String number, final int money) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("testOwner")
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+
+  private Transaction createTransaction(final String id, final String from, final String to,
+      final int money) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from(from)
+        .to(to)
+        .money(Money.of(CurrencyUnit.EUR, money))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
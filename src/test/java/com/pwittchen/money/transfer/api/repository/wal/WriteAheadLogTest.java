@@ -0,0 +1,232 @@
+package com.pwittchen.money.transfer.api.repository.wal;
+
+import com.pwittchen.money.transfer.api.model.Account;
+import com.pwittchen.money.transfer.api.model.Transaction;
+import com.pwittchen.money.transfer.api.model.TransactionLeg;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class WriteAheadLogTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path directory;
+  private WriteAheadLog writeAheadLog;
+
+  @Before public void setUp() throws IOException {
+    directory = temporaryFolder.getRoot().toPath();
+    writeAheadLog = WriteAheadLog.open(directory, 64, 0, TimeUnit.MICROSECONDS);
+  }
+
+  @After public void tearDown() throws IOException {
+    writeAheadLog.close();
+  }
+
+  @Test public void shouldAppendAndReadRecords() {
+    // given
+    final Account account = createAccount("AC1");
+    final Transaction transaction = createTransaction("TR1");
+    final Transaction multiLegTransaction = Transaction
+        .builder()
+        .id("TR2")
+        .legs(List.of(
+            new TransactionLeg("AC1", "AC2", Money.of(CurrencyUnit.EUR, 1)),
+            new TransactionLeg("AC2", "AC3", Money.parse("EUR 0.50"))
+        ))
+        .createdAt(LocalDateTime.now())
+        .build();
+
+    // when
+    final long first = writeAheadLog.append(WalRecord.of(account));
+    final long last = writeAheadLog.appendAll(List.of(
+        WalRecord.of(transaction), WalRecord.of(multiLegTransaction)
+    ));
+    final List<WalRecord> records = read(writeAheadLog);
+
+    // then
+    assertThat(first).isEqualTo(1);
+    assertThat(last).isEqualTo(3);
+    assertThat(records).hasSize(3);
+    assertThat(records.get(0).account()).isEqualTo(account);
+    assertThat(records.get(1).transaction()).isEqualTo(transaction);
+    assertThat(records.get(2).transaction()).isEqualTo(multiLegTransaction);
+    assertThat(records.get(2).lsn()).isEqualTo(3);
+  }
+
+  @Test public void shouldContinueAfterReopening() throws IOException {
+    // given
+    writeAheadLog.append(WalRecord.of(createAccount("AC1")));
+    writeAheadLog.append(WalRecord.of(createAccount("AC2")));
+    writeAheadLog.close();
+
+    // when
+    writeAheadLog = WriteAheadLog.open(directory, 64, 0, TimeUnit.MICROSECONDS);
+    final long lsn = writeAheadLog.append(WalRecord.of(createAccount("AC3")));
+
+    // then
+    assertThat(lsn).isEqualTo(3);
+    assertThat(read(writeAheadLog)).hasSize(3);
+  }
+
+  @Test public void shouldCutOffTornRecord() throws IOException {
+    // given
+    writeAheadLog.append(WalRecord.of(createAccount("AC1")));
+    writeAheadLog.append(WalRecord.of(createAccount("AC2")));
+    writeAheadLog.close();
+    final Path segment = segments().get(0);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    // when
+    writeAheadLog = WriteAheadLog.open(directory, 64, 0, TimeUnit.MICROSECONDS);
+    final long lsn = writeAheadLog.append(WalRecord.of(createAccount("AC3")));
+    final List<WalRecord> records = read(writeAheadLog);
+
+    // then
+    assertThat(lsn).isEqualTo(2);
+    assertThat(records).hasSize(2);
+    assertThat(records.get(0).account().number()).isEqualTo("AC1");
+    assertThat(records.get(1).account().number()).isEqualTo("AC3");
+  }
+
+  @Test public void shouldRollSegments() throws IOException {
+    // given
+    writeAheadLog.close();
+    writeAheadLog = WriteAheadLog.open(directory, 256, 64, 0, TimeUnit.MICROSECONDS);
+
+    // when
+    for (int i = 0; i < 20; i++) {
+      writeAheadLog.append(WalRecord.of(createAccount("AC" + i)));
+    }
+
+    // then
+    assertThat(segments().size()).isGreaterThan(1);
+    assertThat(read(writeAheadLog)).hasSize(20);
+  }
+
+  @Test public void shouldReturnFirstRecordKeptAfterDeletingSegments() throws IOException {
+    // given
+    writeAheadLog.close();
+    writeAheadLog = WriteAheadLog.open(directory, 256, 64, 0, TimeUnit.MICROSECONDS);
+    for (int i = 0; i < 20; i++) {
+      writeAheadLog.append(WalRecord.of(createAccount("AC" + i)));
+    }
+    final long firstLsn = writeAheadLog.firstLsn();
+
+    // when
+    writeAheadLog.deleteSegmentsUpTo(writeAheadLog.lastSyncedLsn());
+
+    // then
+    assertThat(firstLsn).isEqualTo(1);
+    assertThat(writeAheadLog.firstLsn()).isGreaterThan(1L);
+    assertThat(read(writeAheadLog).get(0).lsn()).isEqualTo(writeAheadLog.firstLsn());
+  }
+
+  @Test public void shouldSyncConcurrentAppendsTogether() throws Exception {
+    // given
+    writeAheadLog.close();
+    writeAheadLog = WriteAheadLog.open(directory, 64, 5, TimeUnit.MILLISECONDS);
+    final int numberOfAppends = 64;
+    final ExecutorService executorService = Executors.newFixedThreadPool(numberOfAppends);
+    final CountDownLatch start = new CountDownLatch(1);
+
+    // when
+    for (int i = 0; i < numberOfAppends; i++) {
+      final String number = "AC" + i;
+      executorService.submit(() -> {
+        start.await();
+        return writeAheadLog.append(WalRecord.of(createAccount(number)));
+      });
+    }
+    start.countDown();
+    executorService.shutdown();
+    executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+    // then
+    assertThat(writeAheadLog.records()).isEqualTo(numberOfAppends);
+    assertThat(writeAheadLog.syncs()).isLessThan(numberOfAppends);
+    assertThat(writeAheadLog.lastSyncedLsn()).isEqualTo(numberOfAppends);
+  }
+
+  @Test public void shouldNotSplitRecordsAppendedTogetherBetweenSyncs() throws IOException {
+    // given
+    writeAheadLog.close();
+    writeAheadLog = WriteAheadLog.open(directory, 2, 0, TimeUnit.MICROSECONDS);
+
+    // when
+    writeAheadLog.appendAll(List.of(
+        WalRecord.of(createTransaction("TR1")),
+        WalRecord.of(createTransaction("TR2")),
+        WalRecord.of(createTransaction("TR3"))
+    ));
+
+    // then
+    assertThat(writeAheadLog.records()).isEqualTo(3);
+    assertThat(writeAheadLog.syncs()).isEqualTo(1);
+    assertThat(writeAheadLog.lastSyncedLsn()).isEqualTo(3);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotAppendToClosedLog() throws IOException {
+    // given
+    writeAheadLog.close();
+
+    // when
+    writeAheadLog.append(WalRecord.of(createAccount("AC1")));
+  }
+
+  private List<WalRecord> read(final WriteAheadLog writeAheadLog) {
+    final List<WalRecord> records = new ArrayList<>();
+    writeAheadLog.forEach(records::add);
+    return records;
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().collect(Collectors.toList());
+    }
+  }
+
+  private Account createAccount(final String number) {
+    return Account
+        .builder()
+        .number(number)
+        .owner("testOwner")
+        .money(Money.of(CurrencyUnit.EUR, 10))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+
+  private Transaction createTransaction(final String id) {
+    return Transaction
+        .builder()
+        .id(id)
+        .from("AC1")
+        .to("AC2")
+        .money(Money.of(CurrencyUnit.EUR, 5))
+        .createdAt(LocalDateTime.now())
+        .build();
+  }
+}
@@ -0,0 +1,91 @@
+package com.pwittchen.money.transfer.api.server;
+
+import io.javalin.Javalin;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.server.Server;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.restassured.RestAssured.given;
+
+public class VirtualThreadPoolTest {
+
+  @Test public void shouldBeCreatedOnlyWhenJvmSupportsVirtualThreads() {
+    // when
+    final boolean created = VirtualThreadPool.create().isPresent();
+
+    // then
+    assertThat(created).isEqualTo(Runtime.version().feature() >= 21);
+  }
+
+  @Test public void shouldCountThreadsRunningTasks() throws Exception {
+    // given
+    final VirtualThreadPool pool = new VirtualThreadPool(Executors.newCachedThreadPool());
+    pool.start();
+    final CountDownLatch tasksStarted = new CountDownLatch(3);
+    final CountDownLatch tasksReleased = new CountDownLatch(1);
+
+    // when
+    for (int i = 0; i < 3; i++) {
+      pool.execute(() -> {
+        tasksStarted.countDown();
+        await(tasksReleased);
+      });
+    }
+    tasksStarted.await(5, TimeUnit.SECONDS);
+
+    // then
+    assertThat(pool.getThreads()).isEqualTo(3);
+    assertThat(pool.getIdleThreads()).isEqualTo(0);
+    assertThat(pool.isLowOnThreads()).isFalse();
+    tasksReleased.countDown();
+    pool.stop();
+    pool.join();
+    assertThat(pool.getThreads()).isEqualTo(0);
+  }
+
+  @Test public void shouldShutDownExecutorWhenStopped() throws Exception {
+    // given
+    final ExecutorService executorService = Executors.newCachedThreadPool();
+    final VirtualThreadPool pool = new VirtualThreadPool(executorService);
+    pool.start();
+
+    // when
+    pool.stop();
+
+    // then
+    assertThat(executorService.isShutdown()).isTrue();
+  }
+
+  @Test public void shouldServeRequestsAsJettyThreadPool() {
+    // given
+    final int port = 8124;
+    final Javalin app = Javalin
+        .create(config -> config.server(() ->
+            new Server(new VirtualThreadPool(Executors.newCachedThreadPool()))
+        ))
+        .start(port);
+    app.get("/ping", context -> context.result("pong"));
+
+    try {
+      // when
+      final String response = given().port(port).get("/ping").asString();
+
+      // then
+      assertThat(response).isEqualTo("pong");
+    } finally {
+      app.stop();
+    }
+  }
+
+  private static void await(final CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
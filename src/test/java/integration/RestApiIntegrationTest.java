@@ -6,7 +6,9 @@ import com.pwittchen.money.transfer.api.Application;
 import com.pwittchen.money.transfer.api.model.Account;
 import io.restassured.RestAssured;
 import io.restassured.response.Response;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 import org.eclipse.jetty.http.HttpStatus;
 import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
@@ -19,6 +21,7 @@ import static io.restassured.RestAssured.get;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
 
 public class RestApiIntegrationTest {
 
@@ -122,6 +125,27 @@ public class RestApiIntegrationTest {
         .statusCode(HttpStatus.OK_200);
   }
 
+  @Test public void shouldStreamAllAccountsAsNdjson() {
+    String number = given()
+        .param("owner", "testOwner")
+        .and().param("currency", "EUR")
+        .and().param("money", "10.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    Response response = given()
+        .header("Accept", "application/x-ndjson")
+        .when().get("/account");
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatus.OK_200);
+    assertThat(response.contentType()).startsWith("application/x-ndjson");
+    assertThat(response.header("Transfer-Encoding")).isEqualTo("chunked");
+    List<String> lines = List.of(response.asString().split("\n"));
+    assertThat(lines.stream().anyMatch(line -> line.startsWith("{") && line.contains(number)))
+        .isTrue();
+  }
+
   @Test public void shouldCommitTransaction() {
     String numberOne = given()
         .param("owner", "testOwner1")
@@ -173,6 +197,156 @@ public class RestApiIntegrationTest {
         );
   }
 
+  @Test public void shouldGetTransactionsOfAccount() {
+    String numberOne = given()
+        .param("owner", "testOwner1")
+        .and().param("currency", "EUR")
+        .and().param("money", "100.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    String numberTwo = given()
+        .param("owner", "testOwner2")
+        .and().param("currency", "EUR")
+        .and().param("money", "50.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    String id = given()
+        .param("from", numberOne)
+        .and().param("to", numberTwo)
+        .and().param("currency", "EUR")
+        .and().param("money", "10.00")
+        .when()
+        .post("/transaction")
+        .then().extract().path("id");
+
+    given()
+        .param("limit", "10")
+        .when().get("/account/" + numberTwo + "/transactions")
+        .then()
+        .body("transactions[0].id", equalTo(id))
+        .statusCode(HttpStatus.OK_200);
+  }
+
+  @Test public void shouldGetBalanceOfAccountAsOfTime() {
+    String numberOne = given()
+        .param("owner", "testOwner1")
+        .and().param("currency", "EUR")
+        .and().param("money", "100.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    String numberTwo = given()
+        .param("owner", "testOwner2")
+        .and().param("currency", "EUR")
+        .and().param("money", "50.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    String beforeTransfer = LocalDateTime.now().toString();
+
+    given()
+        .param("from", numberOne)
+        .and().param("to", numberTwo)
+        .and().param("currency", "EUR")
+        .and().param("money", "10.00")
+        .when()
+        .post("/transaction")
+        .then()
+        .statusCode(HttpStatus.OK_200);
+
+    given()
+        .param("asOf", beforeTransfer)
+        .when().get("/account/" + numberOne + "/balance")
+        .then()
+        .body("money.money.amount", equalTo(100.0f))
+        .statusCode(HttpStatus.OK_200);
+
+    get("/account/" + numberOne + "/balance")
+        .then()
+        .body("money.money.amount", equalTo(90.0f))
+        .statusCode(HttpStatus.OK_200);
+  }
+
+  @Test public void shouldGetStatsOfLedger() {
+    long accounts = ((Number) get("/stats").then().extract().path("accounts")).longValue();
+    long transactions =
+        ((Number) get("/stats").then().extract().path("transactions")).longValue();
+
+    String numberOne = given()
+        .param("owner", "testOwner1")
+        .and().param("currency", "EUR")
+        .and().param("money", "100.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    String numberTwo = given()
+        .param("owner", "testOwner2")
+        .and().param("currency", "EUR")
+        .and().param("money", "50.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    given()
+        .param("from", numberOne)
+        .and().param("to", numberTwo)
+        .and().param("currency", "EUR")
+        .and().param("money", "10.00")
+        .when()
+        .post("/transaction")
+        .then()
+        .statusCode(HttpStatus.OK_200);
+
+    get("/stats")
+        .then()
+        .statusCode(HttpStatus.OK_200)
+        .body("accounts", equalTo((int) accounts + 2))
+        .body("transactions", equalTo((int) transactions + 1))
+        .body("totals.EUR", notNullValue())
+        .body("volumes.EUR", notNullValue());
+  }
+
+  @Test public void shouldGetAccountWithEtagAndRespondNotModified() {
+    String number = given()
+        .param("owner", "testOwner")
+        .and().param("currency", "EUR")
+        .and().param("money", "100.00")
+        .when().post("/account")
+        .then()
+        .extract().path("value.number");
+
+    String etag = get("/account/" + number)
+        .then()
+        .statusCode(HttpStatus.OK_200)
+        .body("number", equalTo(number))
+        .extract().header("ETag");
+
+    given()
+        .header("If-None-Match", etag)
+        .when().get("/account/" + number)
+        .then()
+        .statusCode(HttpStatus.NOT_MODIFIED_304)
+        .header("ETag", etag);
+
+    get("/account/unknown")
+        .then()
+        .statusCode(HttpStatus.NOT_FOUND_404);
+  }
+
+  @Test public void shouldNotGetTransactionsOfInvalidAccount() {
+    get("/account/invalidNumber/transactions")
+        .then()
+        .body(equalTo("\"Account with number invalidNumber does not exist\""))
+        .statusCode(HttpStatus.NOT_FOUND_404);
+  }
+
   @Test public void shouldTryToCommitTransactionFromInvalidAccount() {
     given()
         .param("from", "invalidSenderNo")
@@ -236,6 +410,195 @@ public class RestApiIntegrationTest {
         .statusCode(HttpStatus.OK_200);
   }
 
+  @Test public void shouldCommitBatchOfTransactions() {
+    String numberOne = given()
+        .param("owner", "testOwner1")
+        .and().param("currency", "EUR")
+        .and().param("money", "100.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    String numberTwo = given()
+        .param("owner", "testOwner2")
+        .and().param("currency", "EUR")
+        .and().param("money", "50.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    String body = String.format("["
+        + "{\"from\":\"%1$s\",\"to\":\"%2$s\",\"currency\":\"EUR\",\"money\":\"60.00\"},"
+        + "{\"from\":\"%1$s\",\"to\":\"%2$s\",\"currency\":\"EUR\",\"money\":\"60.00\"},"
+        + "{\"from\":\"%2$s\",\"to\":\"%1$s\",\"currency\":\"EUR\",\"money\":\"INVALID\"}"
+        + "]", numberOne, numberTwo);
+
+    List<Boolean> committed = given()
+        .contentType("application/json")
+        .body(body)
+        .when()
+        .post("/transaction/batch")
+        .then()
+        .statusCode(HttpStatus.OK_200)
+        .body("[1].error", equalTo("Not enough money on the account with number " + numberOne))
+        .body("[2].error", equalTo("invalid money format"))
+        .extract().path("committed");
+
+    assertThat(committed).containsExactly(true, false, false).inOrder();
+  }
+
+  @Test public void shouldCommitMultiLegTransaction() {
+    String buyer = given()
+        .param("owner", "buyer")
+        .and().param("currency", "EUR")
+        .and().param("money", "100.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    String seller = given()
+        .param("owner", "seller")
+        .and().param("currency", "EUR")
+        .and().param("money", "0.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    String platform = given()
+        .param("owner", "platform")
+        .and().param("currency", "EUR")
+        .and().param("money", "0.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    String body = String.format("["
+        + "{\"from\":\"%1$s\",\"to\":\"%2$s\",\"currency\":\"EUR\",\"money\":\"90.00\"},"
+        + "{\"from\":\"%1$s\",\"to\":\"%3$s\",\"currency\":\"EUR\",\"money\":\"10.00\"}"
+        + "]", buyer, seller, platform);
+
+    given()
+        .contentType("application/json")
+        .body(body)
+        .when()
+        .post("/transaction/multi-leg")
+        .then()
+        .statusCode(HttpStatus.OK_200)
+        .body("legs.size()", equalTo(2))
+        .body("legs[1].to", equalTo(platform));
+
+    given()
+        .contentType("application/json")
+        .body(body)
+        .when()
+        .post("/transaction/multi-leg")
+        .then()
+        .statusCode(HttpStatus.BAD_REQUEST_400)
+        .body(equalTo("\"Not enough money on the account with number " + buyer + "\""));
+  }
+
+  @Test public void shouldCommitTransactionOnlyOnceForTheSameIdempotencyKey() {
+    String numberOne = given()
+        .param("owner", "testOwner")
+        .and().param("currency", "EUR")
+        .and().param("money", "10.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    String numberTwo = given()
+        .param("owner", "testOwner")
+        .and().param("currency", "EUR")
+        .and().param("money", "0.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    String key = "retry-" + numberOne;
+    String first = given()
+        .header("Idempotency-Key", key)
+        .param("from", numberOne)
+        .and().param("to", numberTwo)
+        .and().param("currency", "EUR")
+        .and().param("money", "6.00")
+        .when().post("/transaction")
+        .then().statusCode(HttpStatus.OK_200)
+        .extract().path("id");
+
+    String retried = given()
+        .header("Idempotency-Key", key)
+        .param("from", numberOne)
+        .and().param("to", numberTwo)
+        .and().param("currency", "EUR")
+        .and().param("money", "6.00")
+        .when().post("/transaction")
+        .then().statusCode(HttpStatus.OK_200)
+        .extract().path("id");
+
+    assertThat(retried).isEqualTo(first);
+
+    given()
+        .header("Idempotency-Key", key)
+        .param("from", numberOne)
+        .and().param("to", numberTwo)
+        .and().param("currency", "EUR")
+        .and().param("money", "1.00")
+        .when().post("/transaction")
+        .then().statusCode(HttpStatus.UNPROCESSABLE_ENTITY_422);
+  }
+
+  @Test public void shouldNotSplitAccountWhenStorageDoesNotSupportIt() {
+    String number = given()
+        .param("owner", "testOwner")
+        .and().param("currency", "EUR")
+        .and().param("money", "10.00")
+        .when().post("/account")
+        .then().extract().path("value.number");
+
+    given()
+        .param("shards", "8")
+        .when()
+        .post(String.format("/account/%s/split", number))
+        .then()
+        .statusCode(HttpStatus.BAD_REQUEST_400)
+        .body(containsString("account storage does not support it"));
+  }
+
+  @Test public void shouldImportAccountsFromCsv() {
+    String number = UUID.randomUUID().toString();
+    String csv = String.join("\n",
+        "number,owner,currency,money",
+        String.format("%s,\"Owner, Imported\",EUR,10.00", number),
+        String.format("%s,duplicate,EUR,20.00", number),
+        ",generated,EUR,INVALID"
+    );
+
+    given()
+        .contentType("text/csv")
+        .body(csv)
+        .when().post("/account/import")
+        .then()
+        .statusCode(HttpStatus.OK_200)
+        .body("created", equalTo(1))
+        .body("failed", equalTo(2))
+        .body("errors[0].line", equalTo(3))
+        .body("errors[1].line", equalTo(4));
+
+    get("/account")
+        .then()
+        .body(containsString(number))
+        .body(containsString("Owner, Imported"));
+  }
+
+  @Test public void shouldNotImportAccountsInUnsupportedFormat() {
+    given()
+        .contentType("application/xml")
+        .body("<accounts/>")
+        .when().post("/account/import")
+        .then()
+        .statusCode(HttpStatus.UNSUPPORTED_MEDIA_TYPE_415);
+  }
+
+  @Test public void shouldNotGetStatusOfUnknownTransaction() {
+    get("/transaction/unknown/status")
+        .then()
+        .body(equalTo("\"Transaction with id unknown does not exist\""))
+        .statusCode(HttpStatus.NOT_FOUND_404);
+  }
+
   @Test public void shouldGetNotFoundStatusForInvalidEndpoint() {
     get("/invalid").then().statusCode(HttpStatus.NOT_FOUND_404);
   }